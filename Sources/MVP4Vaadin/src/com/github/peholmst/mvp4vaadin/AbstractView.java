@@ -34,7 +34,8 @@ import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
  *            the type of the Presenter.
  */
 public abstract class AbstractView<V extends View, P extends Presenter<V>>
-		implements ViewDelegateOwner<V, P> {
+		implements ViewDelegateOwner<V, P>, DisposableViewDelegateOwner,
+		Dehydratable, Disposable {
 
 	private static final long serialVersionUID = 8812702399992511588L;
 
@@ -182,6 +183,45 @@ public abstract class AbstractView<V extends View, P extends Presenter<V>>
 		return viewDelegate.isInitialized();
 	}
 
+	@Override
+	public boolean isDehydratable() {
+		return viewDelegate.isDehydratable();
+	}
+
+	@Override
+	public boolean isDehydrated() {
+		return viewDelegate.isDehydrated();
+	}
+
+	@Override
+	public void dehydrate() throws IllegalStateException {
+		viewDelegate.dehydrate();
+	}
+
+	@Override
+	public void rehydrate() throws IllegalStateException {
+		viewDelegate.rehydrate();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return viewDelegate.isDisposed();
+	}
+
+	@Override
+	public void dispose() {
+		viewDelegate.dispose();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation does nothing, subclasses may override.
+	 */
+	@Override
+	public void disposeView() {
+	}
+
 	@Override
 	public void addListener(ViewListener listener) {
 		viewDelegate.addListener(listener);
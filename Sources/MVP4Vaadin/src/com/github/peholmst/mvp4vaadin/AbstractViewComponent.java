@@ -15,10 +15,6 @@
  */
 package com.github.peholmst.mvp4vaadin;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-
 import javax.annotation.PostConstruct;
 
 import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
@@ -26,6 +22,8 @@ import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
 import com.github.peholmst.mvp4vaadin.i18n.AbstractI18NViewComponent;
 import com.github.peholmst.stuff4vaadin.adapter.AdaptableSupport;
 import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.PaintTarget;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.ComponentContainer;
 import com.vaadin.ui.CustomComponent;
@@ -47,7 +45,9 @@ import com.vaadin.ui.CustomComponent;
  *            the type of the Presenter.
  */
 public abstract class AbstractViewComponent<V extends View, P extends Presenter<V>>
-		extends CustomComponent implements ViewDelegateOwner<V, P>, VaadinView {
+		extends CustomComponent implements ViewDelegateOwner<V, P>,
+		DisposableViewDelegateOwner, VaadinView, Dehydratable, Disposable,
+		UpdatableView {
 
 	private static final long serialVersionUID = 8990003143642848504L;
 
@@ -66,10 +66,10 @@ public abstract class AbstractViewComponent<V extends View, P extends Presenter<
 	 */
 	@SuppressWarnings("unchecked")
 	public AbstractViewComponent() {
-		Type[] actualTypeArguments = ((ParameterizedType) getClass()
-				.getGenericSuperclass()).getActualTypeArguments();
-		this.viewClass = (Class<V>) actualTypeArguments[0];
-		this.presenterClass = (Class<P>) actualTypeArguments[1];
+		final PresenterFactory<?, ?> factory = PresenterFactory
+				.forViewImplementationClass(getClass());
+		this.viewClass = (Class<V>) factory.getViewClass();
+		this.presenterClass = (Class<P>) factory.getPresenterClass();
 		setCompositionRoot(createCompositionRoot());
 	}
 
@@ -102,6 +102,8 @@ public abstract class AbstractViewComponent<V extends View, P extends Presenter<
 	 * {@link Presenter#Presenter(View)} constructor or the
 	 * {@link Presenter#Presenter()} constructor. In all other cases an
 	 * exception will be thrown. Subclasses may override.
+	 * 
+	 * @see PresenterFactory
 	 */
 	@Override
 	public P createPresenter() {
@@ -113,23 +115,9 @@ public abstract class AbstractViewComponent<V extends View, P extends Presenter<
 			throw new IllegalStateException(
 					"No viewClass set - override createPresenter()");
 		}
-		try {
-			try {
-				Constructor<P> constructor = presenterClass
-						.getConstructor(viewClass);
-				return constructor.newInstance(viewClass.cast(this));
-			} catch (NoSuchMethodException e) {
-				// Try the default constructor instead.
-				Constructor<P> constructor = presenterClass.getConstructor();
-				P presenter = constructor.newInstance();
-				presenter.setView(viewClass.cast(this));
-				return presenter;
-			}
-		} catch (Exception e) {
-			throw new UnsupportedOperationException(
-					"Cannot create a new presenter instance - override createPresenter()",
-					e);
-		}
+		final PresenterFactory<V, P> factory = PresenterFactory.forClasses(
+				presenterClass, viewClass);
+		return factory.createPresenter(this);
 	}
 
 	@Override
@@ -199,6 +187,88 @@ public abstract class AbstractViewComponent<V extends View, P extends Presenter<
 		return viewDelegate.isInitialized();
 	}
 
+	@Override
+	public boolean isDehydratable() {
+		return viewDelegate.isDehydratable();
+	}
+
+	@Override
+	public boolean isDehydrated() {
+		return viewDelegate.isDehydrated();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation replaces the composition root with a new one
+	 * created by {@link #createCompositionRoot()}, so that any components
+	 * added by {@link #initView()} are released.
+	 */
+	@Override
+	public void dehydrate() throws IllegalStateException {
+		viewDelegate.dehydrate();
+		setCompositionRoot(createCompositionRoot());
+	}
+
+	@Override
+	public void rehydrate() throws IllegalStateException {
+		viewDelegate.rehydrate();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return viewDelegate.isDisposed();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The composition root is kept, so that the component can still be
+	 * painted if it is attached to a window. Any components added by
+	 * {@link #initView()} are released together with this component.
+	 */
+	@Override
+	public void dispose() {
+		viewDelegate.dispose();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation is empty, subclasses may override.
+	 */
+	@Override
+	public void disposeView() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation requests a repaint when the first update is
+	 * enqueued, and applies the queued updates when the component is painted.
+	 */
+	@Override
+	public void enqueueUpdate(ViewUpdate update) {
+		if (viewDelegate.enqueueUpdate(update)) {
+			requestRepaint();
+		}
+	}
+
+	@Override
+	public void applyPendingUpdates() {
+		viewDelegate.applyPendingUpdates();
+	}
+
+	/**
+	 * Applies any queued updates (see {@link #enqueueUpdate(ViewUpdate)})
+	 * before painting the component.
+	 */
+	@Override
+	public void paintContent(PaintTarget target) throws PaintException {
+		viewDelegate.applyPendingUpdates();
+		super.paintContent(target);
+	}
+
 	@Override
 	public void addListener(ViewListener listener) {
 		viewDelegate.addListener(listener);
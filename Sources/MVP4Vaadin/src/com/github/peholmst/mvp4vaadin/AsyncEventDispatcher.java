@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application wide dispatcher that delivers events to asynchronous listeners
+ * (see {@link AsyncListener}) outside of the request thread. The events are
+ * handed off through a bounded queue and delivered in order by a single task
+ * at a time running on the executor passed to the constructor. What happens
+ * when the queue is full is decided by the {@link OverflowPolicy}.
+ * <p>
+ * Dispatchers are looked up by name, so that the asynchronous listener
+ * registrations stored in a session can find their dispatcher again after
+ * the session has been deserialized. This class is thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class AsyncEventDispatcher {
+
+	/**
+	 * Enumeration of the things a dispatcher can do when its queue is full.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The new event is dropped.
+		 */
+		DROP,
+		/**
+		 * The request thread blocks until there is room in the queue.
+		 */
+		BLOCK,
+		/**
+		 * If an event from the same source, of the same class and for the same
+		 * listener is still queued, it is replaced by the new event; the
+		 * position in the queue is kept. This is done also when the queue is
+		 * not full. If there is no such event and the queue is full, the new
+		 * event is dropped.
+		 */
+		COALESCE
+	}
+
+	private static final Map<String, AsyncEventDispatcher> dispatchers = new ConcurrentHashMap<String, AsyncEventDispatcher>();
+
+	private final String name;
+
+	private final Executor executor;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final BlockingQueue<Task> queue;
+
+	private final Map<CoalescingKey, Task> queuedTasks;
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private final AtomicLong dispatchedEventCount = new AtomicLong();
+
+	private final AtomicLong droppedEventCount = new AtomicLong();
+
+	private final AtomicLong coalescedEventCount = new AtomicLong();
+
+	private final Logger logger = Logger.getLogger(getClass().getName());
+
+	private volatile boolean closed;
+
+	private final Runnable drainer = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				Task task;
+				while ((task = poll()) != null) {
+					task.deliver();
+				}
+			} finally {
+				draining.set(false);
+				if (!queue.isEmpty()) {
+					scheduleDrainer();
+				}
+			}
+		}
+	};
+
+	private final class Task {
+
+		final AsyncListener listener;
+
+		final CoalescingKey key;
+
+		EventObject event;
+
+		Task(AsyncListener listener, EventObject event, CoalescingKey key) {
+			this.listener = listener;
+			this.event = event;
+			this.key = key;
+		}
+
+		void deliver() {
+			final EventObject eventToDeliver;
+			synchronized (this) {
+				eventToDeliver = event;
+			}
+			dispatchedEventCount.incrementAndGet();
+			try {
+				listener.deliver(eventToDeliver);
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Asynchronous listener "
+						+ listener.getListener() + " failed to handle "
+						+ eventToDeliver, e);
+			}
+		}
+	}
+
+	private static final class CoalescingKey {
+
+		final AsyncListener listener;
+
+		final Object source;
+
+		final Class<?> eventClass;
+
+		CoalescingKey(AsyncListener listener, EventObject event) {
+			this.listener = listener;
+			this.source = event.getSource();
+			this.eventClass = event.getClass();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CoalescingKey)) {
+				return false;
+			}
+			final CoalescingKey other = (CoalescingKey) obj;
+			return listener == other.listener && source == other.source
+					&& eventClass == other.eventClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(listener) * 31
+					+ System.identityHashCode(source) * 17
+					+ eventClass.hashCode();
+		}
+	}
+
+	/**
+	 * Creates a new dispatcher and registers it by name.
+	 * 
+	 * @param name
+	 *            the unique name of the dispatcher (must not be
+	 *            <code>null</code>).
+	 * @param executor
+	 *            the executor to deliver the events with (must not be
+	 *            <code>null</code>).
+	 * @param capacity
+	 *            the maximum number of queued events.
+	 * @param overflowPolicy
+	 *            what to do when the queue is full (must not be
+	 *            <code>null</code>).
+	 * @throws IllegalStateException
+	 *             if a dispatcher with the same name already exists.
+	 */
+	public AsyncEventDispatcher(String name, Executor executor, int capacity,
+			OverflowPolicy overflowPolicy) throws IllegalStateException {
+		if (name == null || executor == null || overflowPolicy == null) {
+			throw new IllegalArgumentException(
+					"name, executor and overflowPolicy must not be null");
+		}
+		this.name = name;
+		this.executor = executor;
+		this.overflowPolicy = overflowPolicy;
+		this.queue = new ArrayBlockingQueue<Task>(capacity);
+		this.queuedTasks = overflowPolicy == OverflowPolicy.COALESCE ? new HashMap<CoalescingKey, Task>()
+				: null;
+		synchronized (dispatchers) {
+			if (dispatchers.containsKey(name)) {
+				throw new IllegalStateException("A dispatcher named " + name
+						+ " already exists");
+			}
+			dispatchers.put(name, this);
+		}
+	}
+
+	/**
+	 * Returns the dispatcher with the specified name, or <code>null</code> if
+	 * there is none.
+	 */
+	public static AsyncEventDispatcher getDispatcher(String name) {
+		return dispatchers.get(name);
+	}
+
+	/**
+	 * Returns the name of the dispatcher.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the overflow policy of the dispatcher.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Queues <code>event</code> for delivery to <code>listener</code>.
+	 * 
+	 * @return true if the event was queued or coalesced with a queued event,
+	 *         false if it was dropped.
+	 */
+	public boolean dispatch(AsyncListener listener, EventObject event) {
+		if (closed) {
+			droppedEventCount.incrementAndGet();
+			return false;
+		}
+		final boolean queued;
+		switch (overflowPolicy) {
+		case BLOCK:
+			queued = put(new Task(listener, event, null));
+			break;
+		case COALESCE:
+			queued = offerOrCoalesce(listener, event);
+			break;
+		default:
+			queued = queue.offer(new Task(listener, event, null));
+		}
+		if (queued) {
+			scheduleDrainer();
+		} else {
+			droppedEventCount.incrementAndGet();
+		}
+		return queued;
+	}
+
+	private boolean put(Task task) {
+		try {
+			queue.put(task);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private boolean offerOrCoalesce(AsyncListener listener, EventObject event) {
+		final CoalescingKey key = new CoalescingKey(listener, event);
+		synchronized (queuedTasks) {
+			final Task queuedTask = queuedTasks.get(key);
+			if (queuedTask != null) {
+				synchronized (queuedTask) {
+					queuedTask.event = event;
+				}
+				coalescedEventCount.incrementAndGet();
+				return true;
+			}
+			final Task task = new Task(listener, event, key);
+			if (!queue.offer(task)) {
+				return false;
+			}
+			queuedTasks.put(key, task);
+			return true;
+		}
+	}
+
+	private Task poll() {
+		if (queuedTasks == null) {
+			return queue.poll();
+		}
+		synchronized (queuedTasks) {
+			final Task task = queue.poll();
+			if (task != null) {
+				queuedTasks.remove(task.key);
+			}
+			return task;
+		}
+	}
+
+	private void scheduleDrainer() {
+		if (draining.compareAndSet(false, true)) {
+			try {
+				executor.execute(drainer);
+			} catch (RejectedExecutionException e) {
+				draining.set(false);
+				logger.log(Level.WARNING, "Could not schedule event delivery",
+						e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events waiting to be delivered.
+	 */
+	public int getQueuedEventCount() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the number of events that have been handed to their listeners.
+	 * Events whose listener threw an exception are included.
+	 */
+	public long getDispatchedEventCount() {
+		return dispatchedEventCount.get();
+	}
+
+	/**
+	 * Returns the number of events that have been dropped.
+	 */
+	public long getDroppedEventCount() {
+		return droppedEventCount.get();
+	}
+
+	/**
+	 * Returns the number of events that have replaced a queued event.
+	 */
+	public long getCoalescedEventCount() {
+		return coalescedEventCount.get();
+	}
+
+	/**
+	 * Closes the dispatcher and unregisters its name. Queued events are still
+	 * delivered, but new events passed to {@link #dispatch(AsyncListener, EventObject)}
+	 * are dropped and counted as such.
+	 * <p>
+	 * Listener registrations that used this dispatcher do not call
+	 * <code>dispatch</code> any more once it has been closed. Unless a new
+	 * dispatcher has been registered under the same name, they deliver their
+	 * events synchronously. This is deliberate: a registration cannot tell a
+	 * closed dispatcher from one that does not exist on this node after the
+	 * session has been deserialized, and losing audit or cache invalidation
+	 * events silently would be worse than delivering them on the request
+	 * thread.
+	 */
+	public void close() {
+		closed = true;
+		dispatchers.remove(name);
+	}
+
+	/**
+	 * Returns whether the dispatcher has been closed.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.Serializable;
+import java.util.EventObject;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Base class for listener registrations that deliver the events to the actual
+ * listener asynchronously through an {@link AsyncEventDispatcher}, keeping the
+ * actual listener off the request path. This is intended for listeners that
+ * have nothing to do with the UI, such as audit logging or cache
+ * invalidation. The actual listener is invoked by another thread without the
+ * application lock, so it must not touch any UI components and must treat
+ * the source of the event as read only.
+ * <p>
+ * The registration refers to its dispatcher by name. If the dispatcher cannot
+ * be found, e.g. because it has been closed or the session has been
+ * deserialized on a node without it, the events are delivered synchronously
+ * rather than dropped (see {@link AsyncEventDispatcher#close()}).
+ * 
+ * @see AsyncViewListener
+ * @see com.github.peholmst.mvp4vaadin.navigation.AsyncNavigationControllerListener
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public abstract class AsyncListener implements
+		ListenerRegistry.ForwardingListener, Serializable {
+
+	private static final long serialVersionUID = -6335860542584796815L;
+
+	private final Object listener;
+
+	private final String dispatcherName;
+
+	private transient AsyncEventDispatcher dispatcher;
+
+	/**
+	 * Creates a new <code>AsyncListener</code>.
+	 * 
+	 * @param listener
+	 *            the actual listener (must not be <code>null</code>).
+	 * @param dispatcher
+	 *            the dispatcher to deliver the events with (must not be
+	 *            <code>null</code>).
+	 */
+	protected AsyncListener(Object listener, AsyncEventDispatcher dispatcher) {
+		if (listener == null || dispatcher == null) {
+			throw new IllegalArgumentException(
+					"listener and dispatcher must not be null");
+		}
+		this.listener = listener;
+		this.dispatcher = dispatcher;
+		this.dispatcherName = dispatcher.getName();
+	}
+
+	@Override
+	public Object getListener() {
+		return listener;
+	}
+
+	/**
+	 * Returns the dispatcher, or <code>null</code> if it cannot be found.
+	 */
+	public AsyncEventDispatcher getDispatcher() {
+		AsyncEventDispatcher d = dispatcher;
+		if (d == null || d.isClosed()) {
+			d = AsyncEventDispatcher.getDispatcher(dispatcherName);
+			dispatcher = d;
+		}
+		return d;
+	}
+
+	/**
+	 * Hands <code>event</code> off to the dispatcher, or delivers it right
+	 * away if there is no dispatcher.
+	 */
+	protected void dispatch(EventObject event) {
+		final AsyncEventDispatcher d = getDispatcher();
+		if (d == null) {
+			Logger.getLogger(getClass().getName()).log(Level.FINE,
+					"Dispatcher {0} not found, delivering synchronously",
+					dispatcherName);
+			deliver(event);
+		} else {
+			d.dispatch(this, event);
+		}
+	}
+
+	/**
+	 * Delivers <code>event</code> to the actual listener.
+	 */
+	protected abstract void deliver(EventObject event);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.util.EventObject;
+
+/**
+ * A {@link ViewListener} registration that delivers the events to the actual
+ * listener asynchronously. Any {@link HandlesEvents} annotation of the actual
+ * listener is honored.
+ * 
+ * @see AsyncListener
+ * @see #register(View, ViewListener, AsyncEventDispatcher)
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class AsyncViewListener extends AsyncListener implements
+		ViewListener {
+
+	private static final long serialVersionUID = 7384059536713337263L;
+
+	private final View source;
+
+	private AsyncViewListener(View source, ViewListener listener,
+			AsyncEventDispatcher dispatcher) {
+		super(listener, dispatcher);
+		this.source = source;
+	}
+
+	/**
+	 * Registers <code>listener</code> with <code>source</code> as an
+	 * asynchronous listener.
+	 * 
+	 * @param source
+	 *            the view to listen to (must not be <code>null</code>).
+	 * @param listener
+	 *            the actual listener (must not be <code>null</code>).
+	 * @param dispatcher
+	 *            the dispatcher to deliver the events with (must not be
+	 *            <code>null</code>).
+	 * @return the registration, which can be used to unregister the listener.
+	 */
+	public static AsyncViewListener register(View source,
+			ViewListener listener, AsyncEventDispatcher dispatcher) {
+		if (source == null) {
+			throw new IllegalArgumentException("source must not be null");
+		}
+		final AsyncViewListener registration = new AsyncViewListener(source,
+				listener, dispatcher);
+		source.addListener(registration);
+		return registration;
+	}
+
+	/**
+	 * Returns the view that the listener has been registered with.
+	 */
+	public View getSource() {
+		return source;
+	}
+
+	/**
+	 * Removes this registration from the view. Events that have already been
+	 * queued are still delivered.
+	 */
+	public void unregister() {
+		source.removeListener(this);
+	}
+
+	@Override
+	public void handleViewEvent(ViewEvent event) {
+		dispatch(event);
+	}
+
+	@Override
+	protected void deliver(EventObject event) {
+		((ViewListener) getListener()).handleViewEvent((ViewEvent) event);
+	}
+}
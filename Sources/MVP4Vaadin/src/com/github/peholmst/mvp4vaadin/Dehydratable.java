@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+/**
+ * Interface to be implemented by views that can release their presenters and
+ * visual components while they are not shown, and recreate them later. The
+ * view instance itself is kept, so it can still be referred to by e.g.
+ * navigation controllers and view maps. Only views whose presenters implement
+ * {@link DehydratablePresenter} can be dehydrated.
+ * 
+ * @see com.github.peholmst.mvp4vaadin.navigation.dehydration.ViewDehydrationManager
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface Dehydratable {
+
+	/**
+	 * Returns whether the view can be dehydrated right now, i.e. it has been
+	 * initialized and its presenter implements {@link DehydratablePresenter}.
+	 */
+	boolean isDehydratable();
+
+	/**
+	 * Returns whether the view is dehydrated.
+	 */
+	boolean isDehydrated();
+
+	/**
+	 * Saves the state of the presenter, releases the presenter and the visual
+	 * components and marks the view as not initialized.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the view is not {@link #isDehydratable() dehydratable}.
+	 */
+	void dehydrate() throws IllegalStateException;
+
+	/**
+	 * Initializes the view again and restores the state of the new presenter.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the view is not dehydrated.
+	 */
+	void rehydrate() throws IllegalStateException;
+}
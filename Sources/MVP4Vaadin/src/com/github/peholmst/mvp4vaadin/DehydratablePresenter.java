@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+/**
+ * Interface to be implemented by {@link Presenter}s that allow their views to
+ * be dehydrated (see {@link Dehydratable}). When the view is dehydrated, the
+ * presenter is asked for a compact, serializable representation of its state
+ * and then discarded. When the view is rehydrated, a new presenter is created
+ * and initialized, after which the state is restored.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface DehydratablePresenter {
+
+	/**
+	 * Returns the state that is needed to restore the presenter later. The
+	 * state should be as small as possible, e.g. the ID of an edited entity
+	 * instead of the entity itself. May return <code>null</code>.
+	 */
+	java.io.Serializable saveState();
+
+	/**
+	 * Restores the state returned by {@link #saveState()} of the presenter
+	 * that was discarded. This method is called after {@link Presenter#init()}
+	 * and after the view has been initialized.
+	 */
+	void restoreState(java.io.Serializable state);
+}
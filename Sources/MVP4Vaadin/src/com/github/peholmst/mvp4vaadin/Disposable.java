@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+/**
+ * Interface to be implemented by views that can be disposed of when they are
+ * permanently removed, e.g. evicted from a view map or detached from a
+ * navigation controller for good. Disposing a view disposes its presenter,
+ * releases its visual components and clears its listeners and adapters, so
+ * that nothing long lived keeps the view reachable through them. A disposed
+ * view cannot be initialized again.
+ * 
+ * @see Presenter#dispose()
+ * @see DisposableViewDelegateOwner#disposeView()
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface Disposable {
+
+	/**
+	 * Disposes of the view. Calling this method more than once has no effect.
+	 */
+	void dispose();
+
+	/**
+	 * Returns whether the view has been disposed of.
+	 */
+	boolean isDisposed();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+/**
+ * Optional interface for {@link ViewDelegateOwner}s that need to release
+ * resources when the view is disposed of. {@link AbstractView} and
+ * {@link AbstractViewComponent} implement this interface with an empty
+ * {@link #disposeView()} method that subclasses may override.
+ * 
+ * @see ViewDelegate#dispose()
+ * @see Disposable
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface DisposableViewDelegateOwner {
+
+	/**
+	 * This method is called by the {@link ViewDelegate#dispose()}-method after
+	 * the presenter has been disposed of, if the view was initialized. The
+	 * owner should release anything that was acquired by
+	 * {@link ViewDelegateOwner#initView()}, e.g. listeners registered with
+	 * long lived services.
+	 */
+	void disposeView();
+}
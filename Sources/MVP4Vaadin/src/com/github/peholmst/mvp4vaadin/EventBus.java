@@ -0,0 +1,597 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.peholmst.mvp4vaadin.events.DisposedViewEvent;
+
+/**
+ * Event bus for communication between presenters that do not know about each
+ * other, e.g. a list presenter that needs to be refreshed when a customer has
+ * been edited in another view. Events are published to named topics, and
+ * subscribers subscribe to a topic and an event type. Publishing an event only
+ * visits the subscribers of the topic.
+ * <p>
+ * There are two scopes:
+ * <ul>
+ * <li>A session scoped bus is created with {@link #EventBus()} and is normally
+ * stored in the application instance. It is serialized together with the
+ * session.</li>
+ * <li>An application scoped bus is obtained with
+ * {@link #getApplicationBus(String)} and is shared by all sessions. When a
+ * session is deserialized, references to it are resolved by name.
+ * Subscribers of an application scoped bus are invoked by the publishing
+ * thread, so unless an executor has been set, they must not touch the UI of
+ * their own session without synchronizing on its application.</li>
+ * </ul>
+ * Subscriptions made with {@link #subscribe(View, String, Class, Subscriber)}
+ * are tied to the lifecycle of a view, and subscriptions made with
+ * {@link Presenter#subscribe(EventBus, String, Class, Subscriber)} to the
+ * lifecycle of a presenter: the bus only holds them weakly, and they are
+ * cancelled when their owner is disposed of.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class EventBus implements Serializable {
+
+	private static final long serialVersionUID = -2148924829733420455L;
+
+	/**
+	 * Interface to be implemented by event bus subscribers.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 * @param <E>
+	 *            the type of the events.
+	 */
+	public interface Subscriber<E> extends Serializable {
+
+		/**
+		 * Handles <code>event</code>, which has been published to
+		 * <code>topic</code>.
+		 */
+		void handleEvent(String topic, E event);
+	}
+
+	/**
+	 * A subscription to a topic of an event bus.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static final class Subscription implements Serializable {
+
+		private static final long serialVersionUID = 5474306104659624812L;
+
+		private final EventBus bus;
+
+		private final String topic;
+
+		private final Class<?> eventType;
+
+		private final Subscriber<?> subscriber;
+
+		private final boolean weak;
+
+		private volatile boolean active = true;
+
+		private Subscription(EventBus bus, String topic, Class<?> eventType,
+				Subscriber<?> subscriber, boolean weak) {
+			this.bus = bus;
+			this.topic = topic;
+			this.eventType = eventType;
+			this.subscriber = subscriber;
+			this.weak = weak;
+		}
+
+		/**
+		 * Returns the event bus of the subscription.
+		 */
+		public EventBus getEventBus() {
+			return bus;
+		}
+
+		/**
+		 * Returns the topic of the subscription.
+		 */
+		public String getTopic() {
+			return topic;
+		}
+
+		/**
+		 * Returns the type of events that the subscriber receives.
+		 */
+		public Class<?> getEventType() {
+			return eventType;
+		}
+
+		/**
+		 * Returns the subscriber.
+		 */
+		public Subscriber<?> getSubscriber() {
+			return subscriber;
+		}
+
+		/**
+		 * Returns whether the subscription is active, i.e. has not been
+		 * cancelled.
+		 */
+		public boolean isActive() {
+			return active;
+		}
+
+		/**
+		 * Cancels the subscription. Nothing happens if it has already been
+		 * cancelled.
+		 */
+		public void cancel() {
+			if (active) {
+				active = false;
+				bus.remove(this);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void deliver(Object event) {
+			if (active) {
+				((Subscriber<Object>) subscriber).handleEvent(topic, event);
+			}
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException,
+				ClassNotFoundException {
+			in.defaultReadObject();
+			if (weak && active) {
+				bus.add(this);
+			}
+		}
+	}
+
+	/**
+	 * View listener that keeps a lifecycle bound subscription reachable and
+	 * cancels it when the view is disposed of.
+	 */
+	@HandlesEvents(DisposedViewEvent.class)
+	private static final class SubscriptionOwnerListener implements
+			ViewListener {
+
+		private static final long serialVersionUID = -5127402893711582232L;
+
+		private final Subscription subscription;
+
+		SubscriptionOwnerListener(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void handleViewEvent(ViewEvent event) {
+			if (event instanceof DisposedViewEvent) {
+				subscription.cancel();
+				event.getSource().removeListener(this);
+			}
+		}
+	}
+
+	private static final class Topic {
+
+		/**
+		 * Subscriptions, or weak references to them.
+		 */
+		final List<Object> entries = new ArrayList<Object>();
+
+		/**
+		 * Entries indexed by event class, built lazily and discarded
+		 * whenever the entries change.
+		 */
+		Map<Class<?>, Object[]> dispatchTable;
+	}
+
+	private static final Map<String, EventBus> applicationBuses = new ConcurrentHashMap<String, EventBus>();
+
+	private final String applicationBusName;
+
+	private transient Map<String, Topic> topics;
+
+	private transient volatile Executor executor;
+
+	/**
+	 * Creates a new session scoped event bus.
+	 */
+	public EventBus() {
+		this(null);
+	}
+
+	private EventBus(String applicationBusName) {
+		this.applicationBusName = applicationBusName;
+	}
+
+	/**
+	 * Returns the application scoped event bus with the specified name,
+	 * creating it if necessary.
+	 * 
+	 * @param name
+	 *            the name of the bus (must not be <code>null</code>).
+	 */
+	public static EventBus getApplicationBus(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("null name");
+		}
+		synchronized (applicationBuses) {
+			EventBus bus = applicationBuses.get(name);
+			if (bus == null) {
+				bus = new EventBus(name);
+				applicationBuses.put(name, bus);
+			}
+			return bus;
+		}
+	}
+
+	/**
+	 * Removes the application scoped event bus with the specified name, e.g.
+	 * when the web application is undeployed. Any subscriptions are dropped.
+	 */
+	public static void removeApplicationBus(String name) {
+		applicationBuses.remove(name);
+	}
+
+	/**
+	 * Returns whether this is an application scoped bus.
+	 */
+	public boolean isApplicationScoped() {
+		return applicationBusName != null;
+	}
+
+	/**
+	 * Sets the executor to deliver events with. If an executor is set, each
+	 * subscriber is invoked by a separate task and
+	 * {@link #publish(String, Object)} returns immediately; any exceptions
+	 * thrown by the subscribers are logged. If no executor is set (the
+	 * default), the subscribers are invoked by the publishing thread. The
+	 * executor is not serialized.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the executor to deliver events with, or <code>null</code> if
+	 * events are delivered by the publishing thread.
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Subscribes <code>subscriber</code> to events of <code>eventType</code>
+	 * (including subclasses) published to <code>topic</code>. The bus keeps
+	 * the subscriber reachable until the subscription is cancelled.
+	 * 
+	 * @return the subscription (never <code>null</code>).
+	 */
+	public <E> Subscription subscribe(String topic, Class<E> eventType,
+			Subscriber<? super E> subscriber) {
+		checkArguments(topic, eventType, subscriber);
+		final Subscription subscription = new Subscription(this, topic,
+				eventType, subscriber, false);
+		add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * Subscribes <code>subscriber</code> to events of <code>eventType</code>
+	 * (including subclasses) published to <code>topic</code> for as long as
+	 * <code>owner</code> lives. The bus only holds the subscription weakly;
+	 * it is kept reachable by <code>owner</code> and is cancelled when
+	 * <code>owner</code> is disposed of.
+	 * 
+	 * @return the subscription (never <code>null</code>).
+	 */
+	public <E> Subscription subscribe(View owner, String topic,
+			Class<E> eventType, Subscriber<? super E> subscriber) {
+		if (owner == null) {
+			throw new IllegalArgumentException("null owner");
+		}
+		checkArguments(topic, eventType, subscriber);
+		final Subscription subscription = new Subscription(this, topic,
+				eventType, subscriber, true);
+		owner.addListener(new SubscriptionOwnerListener(subscription));
+		add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * Subscribes <code>subscriber</code> without keeping the subscription
+	 * reachable. The caller must hold on to the subscription and cancel it
+	 * when it is no longer needed.
+	 */
+	<E> Subscription subscribeWeakly(String topic, Class<E> eventType,
+			Subscriber<? super E> subscriber) {
+		checkArguments(topic, eventType, subscriber);
+		final Subscription subscription = new Subscription(this, topic,
+				eventType, subscriber, true);
+		add(subscription);
+		return subscription;
+	}
+
+	private static void checkArguments(String topic, Class<?> eventType,
+			Subscriber<?> subscriber) {
+		if (topic == null || eventType == null || subscriber == null) {
+			throw new IllegalArgumentException(
+					"topic, eventType and subscriber must not be null");
+		}
+	}
+
+	/**
+	 * Publishes <code>event</code> to <code>topic</code>.
+	 * 
+	 * @return the number of subscribers that the event was delivered (or
+	 *         handed off) to.
+	 */
+	public int publish(String topic, Object event) {
+		if (topic == null || event == null) {
+			throw new IllegalArgumentException(
+					"topic and event must not be null");
+		}
+		final Object[] entries = getEntries(topic, event.getClass());
+		if (entries == null) {
+			return 0;
+		}
+		final Executor currentExecutor = executor;
+		int count = 0;
+		boolean pruneNeeded = false;
+		for (Object entry : entries) {
+			final Subscription subscription = resolve(entry);
+			if (subscription == null) {
+				pruneNeeded = true;
+			} else if (subscription.isActive()) {
+				if (currentExecutor == null) {
+					subscription.deliver(event);
+				} else {
+					deliverLater(currentExecutor, subscription, event);
+				}
+				++count;
+			}
+		}
+		if (pruneNeeded) {
+			prune(topic);
+		}
+		return count;
+	}
+
+	private void deliverLater(Executor executor,
+			final Subscription subscription, final Object event) {
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					subscription.deliver(event);
+				} catch (RuntimeException e) {
+					Logger.getLogger(EventBus.class.getName()).log(
+							Level.WARNING,
+							"Subscriber " + subscription.getSubscriber()
+									+ " failed to handle " + event, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of active subscriptions to <code>topic</code>.
+	 */
+	public synchronized int getSubscriptionCount(String topic) {
+		if (topics == null) {
+			return 0;
+		}
+		final Topic t = topics.get(topic);
+		if (t == null) {
+			return 0;
+		}
+		int count = 0;
+		for (Object entry : t.entries) {
+			final Subscription subscription = resolve(entry);
+			if (subscription != null && subscription.isActive()) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of entries of <code>topic</code>, including cancelled
+	 * and collected subscriptions that have not been removed yet. This method
+	 * is intended to be used by unit tests only.
+	 */
+	synchronized int getEntryCount(String topic) {
+		if (topics == null) {
+			return 0;
+		}
+		final Topic t = topics.get(topic);
+		return t == null ? 0 : t.entries.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Subscription resolve(Object entry) {
+		if (entry instanceof WeakReference) {
+			return ((WeakReference<Subscription>) entry).get();
+		}
+		return (Subscription) entry;
+	}
+
+	private synchronized Object[] getEntries(String topic, Class<?> eventClass) {
+		if (topics == null) {
+			return null;
+		}
+		final Topic t = topics.get(topic);
+		if (t == null) {
+			return null;
+		}
+		if (t.dispatchTable == null) {
+			t.dispatchTable = new HashMap<Class<?>, Object[]>();
+		}
+		Object[] entries = t.dispatchTable.get(eventClass);
+		if (entries == null) {
+			final List<Object> matching = new ArrayList<Object>(
+					t.entries.size());
+			for (Object entry : t.entries) {
+				final Subscription subscription = resolve(entry);
+				if (subscription == null
+						|| subscription.getEventType().isAssignableFrom(
+								eventClass)) {
+					matching.add(entry);
+				}
+			}
+			entries = matching.toArray();
+			t.dispatchTable.put(eventClass, entries);
+		}
+		return entries;
+	}
+
+	synchronized void add(Subscription subscription) {
+		if (topics == null) {
+			topics = new HashMap<String, Topic>();
+		}
+		Topic t = topics.get(subscription.getTopic());
+		if (t == null) {
+			t = new Topic();
+			topics.put(subscription.getTopic(), t);
+		} else {
+			removeCollectedEntries(t);
+		}
+		t.entries.add(subscription.weak ? new WeakReference<Subscription>(
+				subscription) : subscription);
+		t.dispatchTable = null;
+	}
+
+	synchronized void remove(Subscription subscription) {
+		if (topics == null) {
+			return;
+		}
+		final Topic t = topics.get(subscription.getTopic());
+		if (t == null) {
+			return;
+		}
+		for (Iterator<Object> it = t.entries.iterator(); it.hasNext();) {
+			if (resolve(it.next()) == subscription) {
+				it.remove();
+				break;
+			}
+		}
+		removeIfEmpty(subscription.getTopic(), t);
+	}
+
+	private synchronized void prune(String topic) {
+		if (topics == null) {
+			return;
+		}
+		final Topic t = topics.get(topic);
+		if (t == null) {
+			return;
+		}
+		removeCollectedEntries(t);
+		removeIfEmpty(topic, t);
+	}
+
+	private static void removeCollectedEntries(Topic t) {
+		for (Iterator<Object> it = t.entries.iterator(); it.hasNext();) {
+			if (resolve(it.next()) == null) {
+				it.remove();
+			}
+		}
+	}
+
+	private void removeIfEmpty(String topic, Topic t) {
+		if (t.entries.isEmpty()) {
+			topics.remove(topic);
+		} else {
+			t.dispatchTable = null;
+		}
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		return applicationBusName == null ? this : new ApplicationBusReference(
+				applicationBusName);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		final List<Subscription> strongSubscriptions = new ArrayList<Subscription>();
+		synchronized (this) {
+			if (topics != null) {
+				for (Topic t : topics.values()) {
+					for (Object entry : t.entries) {
+						if (entry instanceof Subscription) {
+							strongSubscriptions.add((Subscription) entry);
+						}
+					}
+				}
+			}
+		}
+		out.writeInt(strongSubscriptions.size());
+		for (Subscription subscription : strongSubscriptions) {
+			out.writeObject(subscription);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		final int count = in.readInt();
+		for (int i = 0; i < count; ++i) {
+			final Subscription subscription = (Subscription) in.readObject();
+			if (subscription.isActive()) {
+				add(subscription);
+			}
+		}
+	}
+
+	/**
+	 * Serialized form of an application scoped bus.
+	 */
+	private static final class ApplicationBusReference implements
+			Serializable {
+
+		private static final long serialVersionUID = 1956052917335316286L;
+
+		private final String name;
+
+		ApplicationBusReference(String name) {
+			this.name = name;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			return getApplicationBus(name);
+		}
+	}
+}
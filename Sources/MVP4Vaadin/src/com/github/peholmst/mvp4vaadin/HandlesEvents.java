@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.EventObject;
+
+/**
+ * Annotation for listeners that only handle certain types of events. The
+ * annotation can be put either on the listener class or on its handler
+ * method, e.g. {@link ViewListener#handleViewEvent(ViewEvent)}, which also
+ * works for anonymous classes:
+ * 
+ * <pre>
+ * view.addListener(new ViewListener() {
+ * 	&#064;HandlesEvents(DisplayNameChangedViewEvent.class)
+ * 	public void handleViewEvent(ViewEvent event) {
+ * 		...
+ * 	}
+ * });
+ * </pre>
+ * 
+ * Listeners registered with a {@link ListenerRegistry}, such as the ones of
+ * views and navigation controllers, are then only invoked for events that are
+ * instances of the specified types or their subclasses. Listeners without the
+ * annotation are invoked for all events.
+ * <p>
+ * An annotation on the class applies to all the handler methods of the class.
+ * An annotation on a handler method only applies to events dispatched through
+ * that method, so a class that implements several listener interfaces can
+ * filter the events of each interface separately. A handler method that
+ * overrides an annotated method without being annotated itself handles the
+ * same events as the overridden method.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface HandlesEvents {
+
+	/**
+	 * The types of events that the listener handles.
+	 */
+	Class<? extends EventObject>[] value();
+}
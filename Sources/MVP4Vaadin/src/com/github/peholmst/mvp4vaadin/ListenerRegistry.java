@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of event listeners with constant time registration and removal
+ * and allocation free dispatch. Listeners are compared by identity and kept
+ * in registration order; registering the same listener twice has no effect.
+ * <p>
+ * Dispatching is done by iterating over the array returned by
+ * {@link #getSnapshot()}. The array is rebuilt lazily the first time it is
+ * requested after the registry has changed and is never modified afterwards,
+ * so listeners may register and unregister listeners while an event is being
+ * dispatched without affecting the ongoing dispatch:
+ * 
+ * <pre>
+ * for (Object listener : registry.getSnapshot(event.getClass())) {
+ * 	((MyListener) listener).handleEvent(event);
+ * }
+ * </pre>
+ * 
+ * Listeners annotated with {@link HandlesEvents} are only included in the
+ * snapshots of the event classes they handle. The annotation is looked up on
+ * the listener class and on the listener's implementation of the handler
+ * method of the listener interface passed to the constructor, i.e. the method
+ * of the interface that takes an event as its only parameter. The event
+ * types of every listener class are looked up once, and a dispatch table of
+ * the interested listeners is built lazily for every event class, so
+ * dispatching only touches the listeners that actually handle the event.
+ * <p>
+ * This class is not thread safe. The serialized form consists of the listener
+ * interface, the number of listeners and the listeners themselves. Registries
+ * serialized without a listener interface only honor annotations on listener
+ * classes.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ * @param <L>
+ *            the type of the listeners.
+ */
+public final class ListenerRegistry<L> implements Serializable {
+
+	private static final long serialVersionUID = 4394802611431958262L;
+
+	private static final Object[] EMPTY_SNAPSHOT = new Object[0];
+
+	/**
+	 * Marker for listeners that handle all events.
+	 */
+	private static final Class<?>[] ALL_EVENTS = new Class<?>[0];
+
+	private static final ConcurrentHashMap<List<Class<?>>, Class<?>[]> handledEventTypesCache = new ConcurrentHashMap<List<Class<?>>, Class<?>[]>();
+
+	/**
+	 * Interface to be implemented by listeners that forward the events to
+	 * another listener, such as {@link WeakViewListener}. The registry uses
+	 * the {@link HandlesEvents} annotation of the actual listener.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public interface ForwardingListener {
+
+		/**
+		 * Returns the listener that the events are forwarded to, or
+		 * <code>null</code> if there is none.
+		 */
+		Object getListener();
+	}
+
+	private static final class Node {
+
+		final Object listener;
+
+		final Class<?>[] eventTypes;
+
+		Node previous;
+
+		Node next;
+
+		Node(Object listener, Class<?>[] eventTypes) {
+			this.listener = listener;
+			this.eventTypes = eventTypes;
+		}
+
+		boolean handles(Class<?> eventClass) {
+			if (eventTypes == ALL_EVENTS) {
+				return true;
+			}
+			for (Class<?> eventType : eventTypes) {
+				if (eventType.isAssignableFrom(eventClass)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private final Class<?> listenerInterface;
+
+	private transient IdentityHashMap<Object, Node> nodes;
+
+	private transient Node head;
+
+	private transient Node tail;
+
+	private transient Object[] snapshot = EMPTY_SNAPSHOT;
+
+	private transient HashMap<Class<?>, Object[]> dispatchTable;
+
+	/**
+	 * Creates a new registry for listeners of the specified interface.
+	 * 
+	 * @param listenerInterface
+	 *            the listener interface, e.g. {@link ViewListener}, whose
+	 *            handler method is checked for {@link HandlesEvents}
+	 *            annotations (must not be <code>null</code>).
+	 */
+	public ListenerRegistry(Class<?> listenerInterface) {
+		if (listenerInterface == null) {
+			throw new IllegalArgumentException(
+					"listenerInterface must not be null");
+		}
+		this.listenerInterface = listenerInterface;
+	}
+
+	/**
+	 * Returns the listener interface passed to the constructor.
+	 */
+	public Class<?> getListenerInterface() {
+		return listenerInterface;
+	}
+
+	/**
+	 * Returns the event types that <code>listener</code> handles when it is
+	 * dispatched to as a <code>listenerInterface</code>, or an empty array if
+	 * it handles all events. An annotation on the listener class applies to
+	 * all its handler methods. Otherwise, the annotation of the listener's
+	 * implementation of the handler method of <code>listenerInterface</code>
+	 * is used; if the implementation is not annotated, the annotation of the
+	 * nearest overridden implementation in a superclass is used. The result
+	 * is computed once per listener class and listener interface.
+	 */
+	public static Class<?>[] getHandledEventTypes(Object listener,
+			Class<?> listenerInterface) {
+		Object actualListener = listener;
+		while (actualListener instanceof ForwardingListener) {
+			final Object forwardedTo = ((ForwardingListener) actualListener)
+					.getListener();
+			if (forwardedTo == null) {
+				break;
+			}
+			actualListener = forwardedTo;
+		}
+		final Class<?> listenerClass = actualListener.getClass();
+		final List<Class<?>> key = Arrays.<Class<?>> asList(listenerClass,
+				listenerInterface);
+		Class<?>[] eventTypes = handledEventTypesCache.get(key);
+		if (eventTypes == null) {
+			eventTypes = findHandledEventTypes(listenerClass,
+					findHandlerMethod(listenerInterface));
+			handledEventTypesCache.put(key, eventTypes);
+		}
+		return eventTypes;
+	}
+
+	/**
+	 * Returns the only method of <code>listenerInterface</code> that takes an
+	 * event as its only parameter, or <code>null</code> if there is no such
+	 * method or there are several.
+	 */
+	private static Method findHandlerMethod(Class<?> listenerInterface) {
+		if (listenerInterface == null) {
+			return null;
+		}
+		Method handlerMethod = null;
+		for (Method method : listenerInterface.getMethods()) {
+			final Class<?>[] parameterTypes = method.getParameterTypes();
+			if (parameterTypes.length == 1
+					&& EventObject.class.isAssignableFrom(parameterTypes[0])) {
+				if (handlerMethod != null) {
+					return null;
+				}
+				handlerMethod = method;
+			}
+		}
+		return handlerMethod;
+	}
+
+	private static Class<?>[] findHandledEventTypes(Class<?> listenerClass,
+			Method handlerMethod) {
+		final HandlesEvents classAnnotation = listenerClass
+				.getAnnotation(HandlesEvents.class);
+		if (classAnnotation != null) {
+			return classAnnotation.value();
+		}
+		if (handlerMethod == null) {
+			return ALL_EVENTS;
+		}
+		// Method annotations are not inherited, so look for the nearest
+		// annotated implementation
+		for (Class<?> c = listenerClass; c != null; c = c.getSuperclass()) {
+			try {
+				final HandlesEvents methodAnnotation = c.getDeclaredMethod(
+						handlerMethod.getName(),
+						handlerMethod.getParameterTypes()).getAnnotation(
+						HandlesEvents.class);
+				if (methodAnnotation != null) {
+					return methodAnnotation.value();
+				}
+			} catch (NoSuchMethodException e) {
+				// Not implemented by this class
+			}
+		}
+		return ALL_EVENTS;
+	}
+
+	/**
+	 * Registers <code>listener</code>. Does nothing if the listener is
+	 * <code>null</code> or has already been registered.
+	 * 
+	 * @return true if the listener was registered, false otherwise.
+	 */
+	public boolean add(L listener) {
+		if (listener == null) {
+			return false;
+		}
+		if (nodes == null) {
+			nodes = new IdentityHashMap<Object, Node>(4);
+		} else if (nodes.containsKey(listener)) {
+			return false;
+		}
+		final Node node = new Node(listener, getHandledEventTypes(listener,
+				listenerInterface));
+		nodes.put(listener, node);
+		if (tail == null) {
+			head = node;
+		} else {
+			tail.next = node;
+			node.previous = tail;
+		}
+		tail = node;
+		invalidateSnapshots();
+		return true;
+	}
+
+	/**
+	 * Unregisters <code>listener</code>. Does nothing if the listener has not
+	 * been registered.
+	 * 
+	 * @return true if the listener was unregistered, false otherwise.
+	 */
+	public boolean remove(L listener) {
+		if (listener == null || nodes == null) {
+			return false;
+		}
+		final Node node = nodes.remove(listener);
+		if (node == null) {
+			return false;
+		}
+		if (node.previous == null) {
+			head = node.next;
+		} else {
+			node.previous.next = node.next;
+		}
+		if (node.next == null) {
+			tail = node.previous;
+		} else {
+			node.next.previous = node.previous;
+		}
+		invalidateSnapshots();
+		return true;
+	}
+
+	/**
+	 * Unregisters all listeners.
+	 */
+	public void clear() {
+		nodes = null;
+		head = null;
+		tail = null;
+		snapshot = EMPTY_SNAPSHOT;
+		dispatchTable = null;
+	}
+
+	private void invalidateSnapshots() {
+		snapshot = null;
+		dispatchTable = null;
+	}
+
+	/**
+	 * Returns whether <code>listener</code> has been registered.
+	 */
+	public boolean contains(Object listener) {
+		return nodes != null && nodes.containsKey(listener);
+	}
+
+	/**
+	 * Returns the number of registered listeners.
+	 */
+	public int size() {
+		return nodes == null ? 0 : nodes.size();
+	}
+
+	/**
+	 * Returns whether there are no registered listeners.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the registered listeners in registration order. The returned
+	 * array is shared and must not be modified; it is only replaced the next
+	 * time this method is called after the registry has changed.
+	 */
+	public Object[] getSnapshot() {
+		if (snapshot == null) {
+			final Object[] listeners = new Object[nodes.size()];
+			int i = 0;
+			for (Node node = head; node != null; node = node.next) {
+				listeners[i++] = node.listener;
+			}
+			snapshot = listeners;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns the registered listeners that handle events of the specified
+	 * class, in registration order. The returned array is shared and must not
+	 * be modified; it is only replaced the next time this method is called
+	 * after the registry has changed.
+	 * 
+	 * @see HandlesEvents
+	 */
+	public Object[] getSnapshot(Class<?> eventClass) {
+		if (head == null) {
+			return EMPTY_SNAPSHOT;
+		}
+		if (dispatchTable == null) {
+			dispatchTable = new HashMap<Class<?>, Object[]>(4);
+		}
+		Object[] listeners = dispatchTable.get(eventClass);
+		if (listeners == null) {
+			int count = 0;
+			for (Node node = head; node != null; node = node.next) {
+				if (node.handles(eventClass)) {
+					++count;
+				}
+			}
+			if (count == size()) {
+				listeners = getSnapshot();
+			} else if (count == 0) {
+				listeners = EMPTY_SNAPSHOT;
+			} else {
+				listeners = new Object[count];
+				int i = 0;
+				for (Node node = head; node != null; node = node.next) {
+					if (node.handles(eventClass)) {
+						listeners[i++] = node.listener;
+					}
+				}
+			}
+			dispatchTable.put(eventClass, listeners);
+		}
+		return listeners;
+	}
+
+	/**
+	 * Writes the number of listeners followed by the listeners themselves to
+	 * <code>out</code>. Owners that keep the registry in a transient field can
+	 * use this method to serialize the listeners without the registry itself.
+	 * 
+	 * @see #readListeners(ObjectInputStream)
+	 */
+	public void writeListeners(ObjectOutputStream out) throws IOException {
+		final Object[] listeners = getSnapshot();
+		out.writeInt(listeners.length);
+		for (Object listener : listeners) {
+			out.writeObject(listener);
+		}
+	}
+
+	/**
+	 * Reads listeners written by {@link #writeListeners(ObjectOutputStream)}
+	 * from <code>in</code> and registers them.
+	 */
+	@SuppressWarnings("unchecked")
+	public void readListeners(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		final int listenerCount = in.readInt();
+		for (int i = 0; i < listenerCount; ++i) {
+			add((L) in.readObject());
+		}
+	}
+
+	/**
+	 * Writes the listeners of <code>registry</code> like
+	 * {@link #writeListeners(ObjectOutputStream)} does. A <code>null</code>
+	 * registry is written as an empty one, so owners can allocate their
+	 * registries lazily.
+	 * 
+	 * @see #readRegistry(ObjectInputStream, Class)
+	 */
+	public static void writeRegistry(ListenerRegistry<?> registry,
+			ObjectOutputStream out) throws IOException {
+		if (registry == null) {
+			out.writeInt(0);
+		} else {
+			registry.writeListeners(out);
+		}
+	}
+
+	/**
+	 * Reads listeners written by {@link #writeListeners(ObjectOutputStream)}
+	 * or {@link #writeRegistry(ListenerRegistry, ObjectOutputStream)} into a
+	 * new registry.
+	 * 
+	 * @return the registry, or <code>null</code> if there were no listeners.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <L> ListenerRegistry<L> readRegistry(ObjectInputStream in,
+			Class<?> listenerInterface) throws IOException,
+			ClassNotFoundException {
+		final int listenerCount = in.readInt();
+		if (listenerCount == 0) {
+			return null;
+		}
+		final ListenerRegistry<L> registry = new ListenerRegistry<L>(
+				listenerInterface);
+		for (int i = 0; i < listenerCount; ++i) {
+			registry.add((L) in.readObject());
+		}
+		return registry;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeListeners(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		snapshot = EMPTY_SNAPSHOT;
+		readListeners(in);
+	}
+}
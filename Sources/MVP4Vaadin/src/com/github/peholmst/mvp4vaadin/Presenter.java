@@ -15,6 +15,9 @@
  */
 package com.github.peholmst.mvp4vaadin;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.github.peholmst.stuff4vaadin.adapter.Adaptable;
 import com.github.peholmst.stuff4vaadin.adapter.AdaptableSupport;
 import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
@@ -52,7 +55,9 @@ public abstract class Presenter<V extends View> implements Adaptable {
 
 	private V view;
 
-	private final AdaptableSupport adaptableSupport = new AdaptableSupport();
+	private AdaptableSupport adaptableSupport;
+
+	private List<EventBus.Subscription> subscriptions;
 
 	/**
 	 * Creates a new <code>Presenter</code> for the specified view. Any
@@ -124,21 +129,116 @@ public abstract class Presenter<V extends View> implements Adaptable {
 		// NOP
 	}
 
+	/**
+	 * This method is called when the view is disposed of or dehydrated,
+	 * provided that the presenter has been initialized. The presenter should
+	 * release any caches and unregister any listeners it has registered with
+	 * long lived services.
+	 * <p>
+	 * This implementation cancels the subscriptions made with
+	 * {@link #subscribe(EventBus, String, Class, EventBus.Subscriber)}.
+	 * Subclasses may override, but should call the super implementation.
+	 * 
+	 * @see Disposable
+	 */
+	public void dispose() {
+		cancelSubscriptions();
+	}
+
+	/**
+	 * Cancels the subscriptions made with
+	 * {@link #subscribe(EventBus, String, Class, EventBus.Subscriber)}. This
+	 * method is also invoked by {@link ViewDelegate} after {@link #dispose()},
+	 * in case a subclass does not call the super implementation.
+	 */
+	final void cancelSubscriptions() {
+		if (subscriptions != null) {
+			for (EventBus.Subscription subscription : subscriptions) {
+				subscription.cancel();
+			}
+			subscriptions = null;
+		}
+	}
+
+	/**
+	 * Enqueues <code>update</code> to be applied by the view together with
+	 * any other queued updates, see {@link UpdatableView}. If the view does
+	 * not implement <code>UpdatableView</code>, the update is applied right
+	 * away.
+	 * 
+	 * @param update
+	 *            the update to enqueue (must not be <code>null</code>).
+	 */
+	protected void enqueueUpdate(ViewUpdate update) {
+		enqueueOrApply(getView(), update);
+	}
+
+	static void enqueueOrApply(View view, ViewUpdate update) {
+		if (update == null) {
+			throw new IllegalArgumentException("null update");
+		}
+		if (view instanceof UpdatableView) {
+			((UpdatableView) view).enqueueUpdate(update);
+		} else {
+			update.apply();
+		}
+	}
+
+	/**
+	 * Subscribes <code>subscriber</code> to events of <code>eventType</code>
+	 * published to <code>topic</code> of <code>eventBus</code> for as long as
+	 * this presenter lives. The event bus only holds the subscription weakly,
+	 * and the subscription is cancelled when the presenter is disposed of, so
+	 * there is no need to cancel it manually.
+	 * 
+	 * @param eventBus
+	 *            the event bus to subscribe to (must not be <code>null</code>
+	 *            ).
+	 * @param topic
+	 *            the topic to subscribe to (must not be <code>null</code>).
+	 * @param eventType
+	 *            the type of events to receive (must not be <code>null</code>
+	 *            ).
+	 * @param subscriber
+	 *            the subscriber (must not be <code>null</code>).
+	 * @return the subscription (never <code>null</code>).
+	 */
+	protected <E> EventBus.Subscription subscribe(EventBus eventBus,
+			String topic, Class<E> eventType,
+			EventBus.Subscriber<? super E> subscriber) {
+		if (eventBus == null) {
+			throw new IllegalArgumentException("null eventBus");
+		}
+		final EventBus.Subscription subscription = eventBus.subscribeWeakly(
+				topic, eventType, subscriber);
+		if (subscriptions == null) {
+			subscriptions = new ArrayList<EventBus.Subscription>(2);
+		}
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
 	@Override
 	public boolean supportsAdapter(Class<?> adapterClass) {
-		return adaptableSupport.supportsAdapter(adapterClass);
+		return (adaptableSupport == null ? ViewDelegate.EMPTY_ADAPTABLE_SUPPORT
+				: adaptableSupport).supportsAdapter(adapterClass);
 	}
 
 	@Override
 	public <T> T adapt(Class<T> adapterClass)
 			throws UnsupportedAdapterException {
-		return adaptableSupport.adapt(adapterClass);
+		return (adaptableSupport == null ? ViewDelegate.EMPTY_ADAPTABLE_SUPPORT
+				: adaptableSupport).adapt(adapterClass);
 	}
 
 	/**
 	 * Returns the <code>AdaptableSupport</code> instance used by the presenter.
+	 * The instance is allocated on first use.
 	 */
 	protected AdaptableSupport getAdaptableSupport() {
+		if (adaptableSupport == null) {
+			adaptableSupport = new AdaptableSupport();
+		}
 		return adaptableSupport;
 	}
 }
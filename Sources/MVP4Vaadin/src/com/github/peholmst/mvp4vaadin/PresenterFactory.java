@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class creates presenter instances using reflection, as described in
+ * {@link AbstractViewComponent#createPresenter()}. The reflection work
+ * (resolving the type arguments of a view class and looking up the presenter
+ * constructor) is done only once per class, after which the factories are
+ * cached in an application wide cache that can be read without locking.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ * 
+ * @param <V>
+ *            the type of the View.
+ * @param <P>
+ *            the type of the Presenter.
+ */
+public final class PresenterFactory<V extends View, P extends Presenter<V>> {
+
+	private static final ConcurrentMap<Class<?>, PresenterFactory<?, ?>> factoriesByViewClass = new ConcurrentHashMap<Class<?>, PresenterFactory<?, ?>>();
+
+	private static final ConcurrentMap<List<Class<?>>, PresenterFactory<?, ?>> factoriesByClasses = new ConcurrentHashMap<List<Class<?>>, PresenterFactory<?, ?>>();
+
+	private final Class<P> presenterClass;
+
+	private final Class<V> viewClass;
+
+	private final Constructor<P> viewConstructor;
+
+	private final Constructor<P> defaultConstructor;
+
+	private PresenterFactory(Class<P> presenterClass, Class<V> viewClass) {
+		this.presenterClass = presenterClass;
+		this.viewClass = viewClass;
+		this.viewConstructor = getConstructor(presenterClass, viewClass);
+		this.defaultConstructor = getConstructor(presenterClass);
+	}
+
+	private static <P> Constructor<P> getConstructor(Class<P> presenterClass,
+			Class<?>... parameterTypes) {
+		try {
+			return presenterClass.getConstructor(parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the factory for the presenter and view classes given as type
+	 * arguments to the direct superclass of <code>viewImplementationClass</code>,
+	 * e.g. <code>MyPresenter</code> and <code>MyView</code> for
+	 * <code>class MyViewComponent extends AbstractViewComponent&lt;MyView, MyPresenter&gt;</code>
+	 * .
+	 * 
+	 * @throws ClassCastException
+	 *             if the superclass of <code>viewImplementationClass</code>
+	 *             is not parameterized.
+	 */
+	public static PresenterFactory<?, ?> forViewImplementationClass(
+			Class<?> viewImplementationClass) throws ClassCastException {
+		PresenterFactory<?, ?> factory = factoriesByViewClass
+				.get(viewImplementationClass);
+		if (factory == null) {
+			final Type[] actualTypeArguments = ((ParameterizedType) viewImplementationClass
+					.getGenericSuperclass()).getActualTypeArguments();
+			factory = forClasses((Class<?>) actualTypeArguments[1],
+					(Class<?>) actualTypeArguments[0]);
+			factoriesByViewClass.putIfAbsent(viewImplementationClass, factory);
+		}
+		return factory;
+	}
+
+	/**
+	 * Returns the factory for the specified presenter and view classes.
+	 * 
+	 * @param presenterClass
+	 *            the class of the presenter (must not be <code>null</code>).
+	 * @param viewClass
+	 *            the class (interface) of the view (must not be
+	 *            <code>null</code>).
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <V extends View, P extends Presenter<V>> PresenterFactory<V, P> forClasses(
+			Class<?> presenterClass, Class<?> viewClass) {
+		if (presenterClass == null || viewClass == null) {
+			throw new IllegalArgumentException(
+					"presenterClass and viewClass must not be null");
+		}
+		final List<Class<?>> key = Arrays.<Class<?>> asList(presenterClass,
+				viewClass);
+		PresenterFactory<?, ?> factory = factoriesByClasses.get(key);
+		if (factory == null) {
+			factory = new PresenterFactory(presenterClass, viewClass);
+			final PresenterFactory<?, ?> existing = factoriesByClasses
+					.putIfAbsent(key, factory);
+			if (existing != null) {
+				factory = existing;
+			}
+		}
+		return (PresenterFactory<V, P>) factory;
+	}
+
+	/**
+	 * Returns the class of the presenter.
+	 */
+	public Class<P> getPresenterClass() {
+		return presenterClass;
+	}
+
+	/**
+	 * Returns the class (interface) of the view.
+	 */
+	public Class<V> getViewClass() {
+		return viewClass;
+	}
+
+	/**
+	 * Creates a new presenter for <code>view</code>, using the
+	 * {@link Presenter#Presenter(View)} constructor if it exists and the
+	 * {@link Presenter#Presenter()} constructor otherwise. If the presenter
+	 * class is a {@link SharedPresenter}, the instance of the application is
+	 * returned instead (see
+	 * {@link SharedPresenter#getApplicationInstance(com.vaadin.Application, Class)}
+	 * ). The application is that of the current thread (see
+	 * {@link SharedPresenterTransactionListener}) or of the view, if the view
+	 * is a component attached to an application. If neither is known, a new
+	 * instance is created for the view.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if the presenter could not be created.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public P createPresenter(Object view) throws UnsupportedOperationException {
+		if (SharedPresenter.class.isAssignableFrom(presenterClass)) {
+			return (P) SharedPresenter.getInstanceForView(
+					(Class) presenterClass, view);
+		}
+		try {
+			if (viewConstructor != null) {
+				return viewConstructor.newInstance(viewClass.cast(view));
+			} else if (defaultConstructor != null) {
+				final P presenter = defaultConstructor.newInstance();
+				presenter.setView(viewClass.cast(view));
+				return presenter;
+			} else {
+				throw new NoSuchMethodException("No suitable constructor in "
+						+ presenterClass.getName());
+			}
+		} catch (Exception e) {
+			throw new UnsupportedOperationException(
+					"Cannot create a new presenter instance - override createPresenter()",
+					e);
+		}
+	}
+}
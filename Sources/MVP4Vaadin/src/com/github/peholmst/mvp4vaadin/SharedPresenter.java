@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.github.peholmst.stuff4vaadin.adapter.AdaptableSupport;
+import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
+import com.vaadin.Application;
+import com.vaadin.ui.Component;
+
+/**
+ * Base class for stateless presenters that serve many views at once, e.g. the
+ * rows or cards of a list screen. Instead of keeping a reference to a single
+ * view, a shared presenter receives the view as an argument to its methods, so
+ * one instance can be used by any number of views of the same class.
+ * <p>
+ * There are two ways of sharing a presenter:
+ * <ul>
+ * <li>Per application: {@link #getApplicationInstance(Application, Class)}
+ * returns one instance per presenter class for every Vaadin
+ * {@link Application}. This is also what {@link PresenterFactory} (and thus
+ * {@link AbstractViewComponent#createPresenter()}) returns for shared presenter
+ * classes, provided that the application of the view is known, see
+ * {@link SharedPresenterTransactionListener}. When a session is deserialized,
+ * references to these instances are resolved to the instance of the
+ * deserialized application. The registry holds the instances weakly, so
+ * that it does not keep the applications alive: an instance lives as long as
+ * the views that use it, and may be replaced by a new instance once no view
+ * uses it anymore.</li>
+ * <li>Per group of views: the application creates the instance itself and passes
+ * it to the views using {@link ViewDelegate#setPresenter(Presenter)} or by
+ * overriding {@link ViewDelegateOwner#createPresenter()}. Such instances are
+ * serialized together with the views.</li>
+ * </ul>
+ * Shared presenters do not have a view, so {@link #getView()},
+ * {@link #setView(View)} and {@link #enqueueUpdate(ViewUpdate)} throw
+ * exceptions. Use the methods that take the view as an argument instead. The
+ * view delegate calls {@link #init(View)} and {@link #dispose(View)} instead
+ * of {@link #init()} and {@link #dispose()}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ * @param <V>
+ *            the type of the views that use the presenter.
+ */
+public abstract class SharedPresenter<V extends View> extends Presenter<V> {
+
+	private static final long serialVersionUID = -3165011924652958347L;
+
+	/*
+	 * The instances are held weakly, as an instance may strongly reach its
+	 * application (e.g. through subscriptions or adapters), which would
+	 * prevent the entry of the application from ever being removed.
+	 */
+	private static final Map<Application, Map<Class<?>, WeakReference<SharedPresenter<?>>>> applicationInstances = new WeakHashMap<Application, Map<Class<?>, WeakReference<SharedPresenter<?>>>>();
+
+	private static final ThreadLocal<Application> currentApplication = new ThreadLocal<Application>();
+
+	/**
+	 * The application of an application instance, held weakly as the
+	 * instance is reachable from the registry.
+	 */
+	private transient WeakReference<Application> application;
+
+	/**
+	 * Creates a new <code>SharedPresenter</code>.
+	 */
+	public SharedPresenter() {
+	}
+
+	/**
+	 * Returns the instance of <code>presenterClass</code> for
+	 * <code>application</code>, creating it with the default constructor if
+	 * necessary. The same instance is returned for as long as it is
+	 * referenced by something else than the registry, e.g. a view.
+	 * 
+	 * @param application
+	 *            the application (must not be <code>null</code>).
+	 * @param presenterClass
+	 *            the class of the presenter (must not be <code>null</code>).
+	 * @throws UnsupportedOperationException
+	 *             if the presenter could not be created.
+	 */
+	public static <P extends SharedPresenter<?>> P getApplicationInstance(
+			Application application, Class<P> presenterClass)
+			throws UnsupportedOperationException {
+		if (application == null || presenterClass == null) {
+			throw new IllegalArgumentException(
+					"application and presenterClass must not be null");
+		}
+		synchronized (applicationInstances) {
+			Map<Class<?>, WeakReference<SharedPresenter<?>>> instances = applicationInstances
+					.get(application);
+			if (instances == null) {
+				instances = new HashMap<Class<?>, WeakReference<SharedPresenter<?>>>();
+				applicationInstances.put(application, instances);
+			}
+			final WeakReference<SharedPresenter<?>> ref = instances
+					.get(presenterClass);
+			SharedPresenter<?> instance = ref == null ? null : ref.get();
+			if (instance == null) {
+				removeClearedInstances(instances);
+				instance = newInstance(presenterClass);
+				instance.application = new WeakReference<Application>(
+						application);
+				instances.put(presenterClass,
+						new WeakReference<SharedPresenter<?>>(instance));
+			}
+			return presenterClass.cast(instance);
+		}
+	}
+
+	/**
+	 * Returns the instance of <code>presenterClass</code> for the application
+	 * of the current thread.
+	 * 
+	 * @see SharedPresenterTransactionListener
+	 * @see #getApplicationInstance(Application, Class)
+	 * @throws IllegalStateException
+	 *             if no application is associated with the current thread.
+	 * @throws UnsupportedOperationException
+	 *             if the presenter could not be created.
+	 */
+	public static <P extends SharedPresenter<?>> P getApplicationInstance(
+			Class<P> presenterClass) throws IllegalStateException,
+			UnsupportedOperationException {
+		final Application application = currentApplication.get();
+		if (application == null) {
+			throw new IllegalStateException(
+					"No application is associated with the current thread");
+		}
+		return getApplicationInstance(application, presenterClass);
+	}
+
+	/**
+	 * Returns the instance of <code>presenterClass</code> for the application
+	 * of the current thread or of <code>view</code>. If neither is known, a
+	 * new instance is returned.
+	 */
+	static <P extends SharedPresenter<?>> P getInstanceForView(
+			Class<P> presenterClass, Object view)
+			throws UnsupportedOperationException {
+		Application application = currentApplication.get();
+		if (application == null && view instanceof Component) {
+			application = ((Component) view).getApplication();
+		}
+		return application == null ? newInstance(presenterClass)
+				: getApplicationInstance(application, presenterClass);
+	}
+
+	private static void removeClearedInstances(
+			Map<Class<?>, WeakReference<SharedPresenter<?>>> instances) {
+		final Iterator<WeakReference<SharedPresenter<?>>> it = instances
+				.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().get() == null) {
+				it.remove();
+			}
+		}
+	}
+
+	private static <P extends SharedPresenter<?>> P newInstance(
+			Class<P> presenterClass) throws UnsupportedOperationException {
+		try {
+			return presenterClass.getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			throw new UnsupportedOperationException(
+					"Cannot create a new shared presenter instance of "
+							+ presenterClass.getName(), e.getCause());
+		} catch (Exception e) {
+			throw new UnsupportedOperationException(
+					"Cannot create a new shared presenter instance of "
+							+ presenterClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Associates <code>application</code> with the current thread, or removes
+	 * the association if <code>application</code> is <code>null</code>.
+	 */
+	static void setCurrentApplication(Application application) {
+		if (application == null) {
+			currentApplication.remove();
+		} else {
+			currentApplication.set(application);
+		}
+	}
+
+	/**
+	 * Returns the application associated with the current thread, or
+	 * <code>null</code> if there is none.
+	 */
+	static Application getCurrentApplication() {
+		return currentApplication.get();
+	}
+
+	/**
+	 * Returns whether this presenter is the instance of its class for an
+	 * application.
+	 * 
+	 * @see #getApplicationInstance(Application, Class)
+	 */
+	public boolean isApplicationInstance() {
+		return application != null;
+	}
+
+	/**
+	 * This method is called to initialize the presenter for
+	 * <code>view</code>, once for every view that uses the presenter. When
+	 * this happens, the view will already be initialized.
+	 * <p>
+	 * This implementation does nothing, subclasses may override.
+	 * 
+	 * @see Presenter#init()
+	 */
+	public void init(V view) {
+		// NOP
+	}
+
+	/**
+	 * This method is called when <code>view</code> is disposed of or
+	 * dehydrated, provided that it has been initialized. Subscriptions made
+	 * with {@link #subscribe(View, EventBus, String, Class, EventBus.Subscriber)}
+	 * are cancelled automatically when the view is disposed of.
+	 * <p>
+	 * This implementation does nothing, subclasses may override.
+	 * 
+	 * @see Presenter#dispose()
+	 */
+	public void dispose(V view) {
+		// NOP
+	}
+
+	/**
+	 * Convenience method that delegates to
+	 * {@link View#fireViewEvent(ViewEvent)}.
+	 */
+	protected void fireViewEvent(V view, ViewEvent event) {
+		view.fireViewEvent(event);
+	}
+
+	/**
+	 * Fires <code>event</code> on its {@link ViewEvent#getSource() source}
+	 * view, as shared presenters do not have a view of their own.
+	 */
+	@Override
+	public void fireViewEvent(ViewEvent event) {
+		event.getSource().fireViewEvent(event);
+	}
+
+	/**
+	 * Enqueues <code>update</code> to be applied by <code>view</code>, see
+	 * {@link Presenter#enqueueUpdate(ViewUpdate)}.
+	 */
+	protected void enqueueUpdate(V view, ViewUpdate update) {
+		enqueueOrApply(view, update);
+	}
+
+	/**
+	 * Shared presenters do not have a view, use
+	 * {@link #enqueueUpdate(View, ViewUpdate)} instead.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	protected final void enqueueUpdate(ViewUpdate update) {
+		throw new UnsupportedOperationException(
+				"Shared presenters enqueue updates using enqueueUpdate(View, ViewUpdate)");
+	}
+
+	/**
+	 * Subscribes <code>subscriber</code> to events of <code>eventType</code>
+	 * published to <code>topic</code> of <code>eventBus</code> for as long as
+	 * <code>view</code> lives. The subscription is cancelled when the view is
+	 * disposed of.
+	 * 
+	 * @see EventBus#subscribe(View, String, Class, EventBus.Subscriber)
+	 */
+	protected <E> EventBus.Subscription subscribe(V view, EventBus eventBus,
+			String topic, Class<E> eventType,
+			EventBus.Subscriber<? super E> subscriber) {
+		if (eventBus == null) {
+			throw new IllegalArgumentException("null eventBus");
+		}
+		return eventBus.subscribe(view, topic, eventType, subscriber);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As shared presenters are not disposed of, the subscription lives as
+	 * long as this presenter. Use
+	 * {@link #subscribe(View, EventBus, String, Class, EventBus.Subscriber)}
+	 * to tie a subscription to a view.
+	 */
+	@Override
+	protected synchronized <E> EventBus.Subscription subscribe(
+			EventBus eventBus, String topic, Class<E> eventType,
+			EventBus.Subscriber<? super E> subscriber) {
+		return super.subscribe(eventBus, topic, eventType, subscriber);
+	}
+
+	@Override
+	public synchronized boolean supportsAdapter(Class<?> adapterClass) {
+		return super.supportsAdapter(adapterClass);
+	}
+
+	@Override
+	public synchronized <T> T adapt(Class<T> adapterClass)
+			throws UnsupportedAdapterException {
+		return super.adapt(adapterClass);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Shared presenters synchronize the allocation on the presenter, as
+	 * several views may use it at the same time.
+	 */
+	@Override
+	protected synchronized AdaptableSupport getAdaptableSupport() {
+		return super.getAdaptableSupport();
+	}
+
+	/**
+	 * Shared presenters are initialized per view, see {@link #init(View)}.
+	 */
+	@Override
+	public final void init() {
+		throw new UnsupportedOperationException(
+				"Shared presenters are initialized using init(View)");
+	}
+
+	/**
+	 * Shared presenters are disposed of per view, see {@link #dispose(View)}.
+	 */
+	@Override
+	public final void dispose() {
+		throw new UnsupportedOperationException(
+				"Shared presenters are disposed of using dispose(View)");
+	}
+
+	/**
+	 * Shared presenters do not have a view.
+	 * 
+	 * @throws IllegalStateException
+	 *             always.
+	 */
+	@Override
+	public final V getView() {
+		throw new IllegalStateException(
+				"Shared presenters do not have a view - use the view passed as an argument");
+	}
+
+	/**
+	 * Shared presenters do not have a view.
+	 * 
+	 * @throws IllegalStateException
+	 *             always.
+	 */
+	@Override
+	public final void setView(V view) {
+		throw new IllegalStateException("Shared presenters do not have a view");
+	}
+
+	/**
+	 * Replaces an application instance with a reference that is resolved to
+	 * the instance of the deserialized application.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		final Application app = application == null ? null : application
+				.get();
+		return app == null ? this : new ApplicationInstanceReference(app,
+				getClass());
+	}
+
+	/**
+	 * Serialized form of an application instance.
+	 */
+	private static final class ApplicationInstanceReference implements
+			Serializable {
+
+		private static final long serialVersionUID = 6528314125098637213L;
+
+		private final Application application;
+
+		private final Class<? extends SharedPresenter<?>> presenterClass;
+
+		@SuppressWarnings("unchecked")
+		ApplicationInstanceReference(Application application,
+				Class<?> presenterClass) {
+			this.application = application;
+			this.presenterClass = (Class<? extends SharedPresenter<?>>) presenterClass;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			return getApplicationInstance(application, presenterClass);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import com.vaadin.Application;
+import com.vaadin.service.ApplicationContext.TransactionListener;
+
+/**
+ * Transaction listener that associates an application with the thread that
+ * serves its requests, so that {@link PresenterFactory} and
+ * {@link SharedPresenter#getApplicationInstance(Class)} can find the
+ * {@link SharedPresenter} instances of the application.
+ * 
+ * <pre>
+ * SharedPresenterTransactionListener.register(application);
+ * </pre>
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SharedPresenterTransactionListener implements
+		TransactionListener {
+
+	private static final long serialVersionUID = 2880941651617043390L;
+
+	private final Application application;
+
+	/**
+	 * Creates a new listener for the specified application. The listener must
+	 * be registered with the context of the application.
+	 * 
+	 * @see #register(Application)
+	 */
+	public SharedPresenterTransactionListener(Application application) {
+		if (application == null) {
+			throw new IllegalArgumentException("application must not be null");
+		}
+		this.application = application;
+	}
+
+	/**
+	 * Creates a new listener for <code>application</code> and registers it
+	 * with the context of the application.
+	 */
+	public static SharedPresenterTransactionListener register(
+			Application application) {
+		final SharedPresenterTransactionListener listener = new SharedPresenterTransactionListener(
+				application);
+		application.getContext().addTransactionListener(listener);
+		return listener;
+	}
+
+	@Override
+	public void transactionStart(Application application, Object transactionData) {
+		if (application == this.application) {
+			SharedPresenter.setCurrentApplication(application);
+		}
+	}
+
+	@Override
+	public void transactionEnd(Application application, Object transactionData) {
+		if (application == this.application
+				&& SharedPresenter.getCurrentApplication() == application) {
+			SharedPresenter.setCurrentApplication(null);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+/**
+ * Interface to be implemented by views that queue the updates made by their
+ * presenters and apply them all in one pass, instead of changing their
+ * components one update at a time. {@link AbstractViewComponent} applies the
+ * queued updates right before it is painted, i.e. once per request.
+ * 
+ * @see Presenter#enqueueUpdate(ViewUpdate)
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface UpdatableView {
+
+	/**
+	 * Enqueues <code>update</code>, replacing any queued update with the same
+	 * target (see {@link ViewUpdate#getTarget()}).
+	 * 
+	 * @param update
+	 *            the update to enqueue (must not be <code>null</code>).
+	 */
+	void enqueueUpdate(ViewUpdate update);
+
+	/**
+	 * Applies all queued updates right away.
+	 */
+	void applyPendingUpdates();
+}
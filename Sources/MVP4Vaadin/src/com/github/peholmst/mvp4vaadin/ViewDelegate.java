@@ -15,17 +15,21 @@
  */
 package com.github.peholmst.mvp4vaadin;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.github.peholmst.mvp4vaadin.diagnostics.ListenerLeakDetector;
 import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
 import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisposedViewEvent;
 import com.github.peholmst.mvp4vaadin.events.InitializedViewEvent;
 import com.github.peholmst.stuff4vaadin.adapter.Adaptable;
 import com.github.peholmst.stuff4vaadin.adapter.AdaptableSupport;
 import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
-import com.github.peholmst.stuff4vaadin.visitor.VisitableList;
-import com.github.peholmst.stuff4vaadin.visitor.Visitor;
 
 /**
  * This class is intended to be used as a delegate by {@link View}
@@ -36,6 +40,9 @@ import com.github.peholmst.stuff4vaadin.visitor.Visitor;
  * This class exists in order to make it possible to extend different base
  * classes when implementing the {@link View} interface without having to
  * implement all the basic View methods again and again and again.
+ * <p>
+ * The listeners are serialized as a count followed by the listeners
+ * themselves, instead of as a list object.
  * 
  * @see AbstractView
  * @see AbstractViewComponent
@@ -46,13 +53,17 @@ import com.github.peholmst.stuff4vaadin.visitor.Visitor;
 public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 		View {
 
-	private static final long serialVersionUID = -8388839248083280057L;
+	private static final long serialVersionUID = 8358258995394207356L;
 
 	private String displayName;
 
 	private String description;
 
-	private final VisitableList<ViewListener> listenerList = new VisitableList<ViewListener>();
+	/**
+	 * Most views are never listened to, so the registry is allocated when the
+	 * first listener is added.
+	 */
+	private transient ListenerRegistry<ViewListener> listenerList;
 
 	private boolean initialized = false;
 
@@ -60,10 +71,32 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 
 	private final ViewDelegateOwner<V, P> delegateOwner;
 
-	private final AdaptableSupport adaptableSupport = new AdaptableSupport();
+	/**
+	 * Shared by all delegates and presenters that have not registered any
+	 * adapters. It is never handed out, so it always stays empty.
+	 */
+	static final AdaptableSupport EMPTY_ADAPTABLE_SUPPORT = new AdaptableSupport();
+
+	private AdaptableSupport adaptableSupport;
 
 	private P presenter;
 
+	private static final byte STATE_ACTIVE = 0;
+
+	private static final byte STATE_DEHYDRATED = 1;
+
+	private static final byte STATE_DISPOSED = 2;
+
+	/*
+	 * A single byte instead of one boolean per lifecycle phase, to keep the
+	 * serialized form of the view small.
+	 */
+	private byte state = STATE_ACTIVE;
+
+	private Serializable dehydratedState;
+
+	private transient ViewUpdateQueue updateQueue;
+
 	/**
 	 * Creates a new <code>ViewDelegate</code> of the specified delegate owner.
 	 */
@@ -85,13 +118,13 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 
 	/**
 	 * Sets the display name of the view and fires a
-	 * {@link DisplayNameChangedViewEvent}.
+	 * {@link DisplayNameChangedViewEvent}. If a {@link ViewEventBatch} is
+	 * active, the event is deferred until the batch ends.
 	 */
 	public void setDisplayName(String displayName) {
 		final String old = this.displayName;
 		this.displayName = displayName;
-		fireViewEvent(new DisplayNameChangedViewEvent(delegateOwner, old,
-				displayName));
+		propertyChanged(ViewEventBatch.DISPLAY_NAME, old, displayName);
 	}
 
 	@Override
@@ -101,13 +134,37 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 
 	/**
 	 * Sets the description of the view and fires a
-	 * {@link DescriptionChangedViewEvent}.
+	 * {@link DescriptionChangedViewEvent}. If a {@link ViewEventBatch} is
+	 * active, the event is deferred until the batch ends.
 	 */
 	public void setViewDescription(String description) {
 		final String old = this.description;
 		this.description = description;
-		fireViewEvent(new DescriptionChangedViewEvent(delegateOwner, old,
-				description));
+		propertyChanged(ViewEventBatch.DESCRIPTION, old, description);
+	}
+
+	private void propertyChanged(int property, String oldValue,
+			String newValue) {
+		final ViewEventBatch batch = ViewEventBatch.getCurrent();
+		if (batch == null) {
+			firePropertyChanged(property, oldValue, newValue);
+		} else {
+			batch.propertyChanged(this, property, oldValue, newValue);
+		}
+	}
+
+	/**
+	 * Fires the change event of the specified property. Used by
+	 * {@link ViewEventBatch} to deliver deferred events.
+	 */
+	void firePropertyChanged(int property, String oldValue, String newValue) {
+		if (property == ViewEventBatch.DISPLAY_NAME) {
+			fireViewEvent(new DisplayNameChangedViewEvent(delegateOwner,
+					oldValue, newValue));
+		} else {
+			fireViewEvent(new DescriptionChangedViewEvent(delegateOwner,
+					oldValue, newValue));
+		}
 	}
 
 	/**
@@ -145,6 +202,9 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 		if (isInitialized()) {
 			throw new IllegalStateException("already initialized");
 		}
+		if (state == STATE_DISPOSED) {
+			throw new IllegalStateException("disposed");
+		}
 		if (presenter == null) {
 			getLogger().log(Level.FINE, "Creating new presenter instance");
 			presenter = delegateOwner.createPresenter();
@@ -154,7 +214,11 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 		delegateOwner.initView();
 
 		getLogger().log(Level.FINE, "Initializing presenter {0}", presenter);
-		presenter.init();
+		if (presenter instanceof SharedPresenter) {
+			getSharedPresenter().init(getSharedPresenterView());
+		} else {
+			presenter.init();
+		}
 
 		getLogger().log(Level.FINE,
 				"View and presenter initialized, finalizing initialization");
@@ -164,6 +228,16 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 		fireViewEvent(new InitializedViewEvent(delegateOwner));
 	}
 
+	@SuppressWarnings("unchecked")
+	private SharedPresenter<V> getSharedPresenter() {
+		return (SharedPresenter<V>) presenter;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V getSharedPresenterView() {
+		return (V) delegateOwner;
+	}
+
 	@Override
 	public boolean isInitialized() {
 		return initialized;
@@ -176,33 +250,189 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 		this.initialized = initialized;
 	}
 
+	/**
+	 * Returns whether the view is initialized and has a presenter that
+	 * implements {@link DehydratablePresenter}.
+	 * 
+	 * @see Dehydratable#isDehydratable()
+	 */
+	public boolean isDehydratable() {
+		return initialized && presenter instanceof DehydratablePresenter;
+	}
+
+	/**
+	 * Returns whether the view has been dehydrated.
+	 * 
+	 * @see Dehydratable#isDehydrated()
+	 */
+	public boolean isDehydrated() {
+		return state == STATE_DEHYDRATED;
+	}
+
+	/**
+	 * Saves the state of the presenter, disposes of and discards the presenter
+	 * and marks the view as not initialized. The delegate owner is responsible
+	 * for releasing its own visual components.
+	 * 
+	 * @see Dehydratable#dehydrate()
+	 * @throws IllegalStateException
+	 *             if the view is not {@link #isDehydratable() dehydratable}.
+	 */
+	public void dehydrate() throws IllegalStateException {
+		if (!isDehydratable()) {
+			throw new IllegalStateException("not dehydratable");
+		}
+		getLogger().log(Level.FINE, "Dehydrating view {0}", this);
+		dehydratedState = ((DehydratablePresenter) presenter).saveState();
+		disposePresenter();
+		presenter = null;
+		initialized = false;
+		state = STATE_DEHYDRATED;
+	}
+
+	/**
+	 * Initializes the view again (see {@link #init()}) and restores the state
+	 * of the new presenter.
+	 * 
+	 * @see Dehydratable#rehydrate()
+	 * @throws IllegalStateException
+	 *             if the view is not dehydrated or the new presenter does not
+	 *             implement {@link DehydratablePresenter}.
+	 */
+	public void rehydrate() throws IllegalStateException {
+		if (state != STATE_DEHYDRATED) {
+			throw new IllegalStateException("not dehydrated");
+		}
+		getLogger().log(Level.FINE, "Rehydrating view {0}", this);
+		final Serializable savedState = dehydratedState;
+		dehydratedState = null;
+		state = STATE_ACTIVE;
+		init();
+		if (!(presenter instanceof DehydratablePresenter)) {
+			throw new IllegalStateException(
+					"presenter does not implement DehydratablePresenter");
+		}
+		((DehydratablePresenter) presenter).restoreState(savedState);
+	}
+
+	/**
+	 * Returns whether the view has been disposed of.
+	 * 
+	 * @see Disposable#isDisposed()
+	 */
+	public boolean isDisposed() {
+		return state == STATE_DISPOSED;
+	}
+
+	/**
+	 * Fires a {@link DisposedViewEvent}, disposes of the presenter and the
+	 * view if they have been initialized, and clears the listeners and
+	 * adapters. The view is only disposed of if the owner implements
+	 * {@link DisposableViewDelegateOwner}. Any dehydrated state is discarded.
+	 * Calling this method more than once has no effect.
+	 * 
+	 * @see Disposable#dispose()
+	 */
+	public void dispose() {
+		if (state == STATE_DISPOSED) {
+			return;
+		}
+		getLogger().log(Level.FINE, "Disposing view {0}", this);
+		fireViewEvent(new DisposedViewEvent(delegateOwner));
+		if (initialized) {
+			disposePresenter();
+			if (delegateOwner instanceof DisposableViewDelegateOwner) {
+				((DisposableViewDelegateOwner) delegateOwner).disposeView();
+			}
+		}
+		presenter = null;
+		initialized = false;
+		dehydratedState = null;
+		updateQueue = null;
+		listenerList = null;
+		adaptableSupport = null;
+		state = STATE_DISPOSED;
+	}
+
+	private void disposePresenter() {
+		if (presenter instanceof SharedPresenter) {
+			getSharedPresenter().dispose(getSharedPresenterView());
+		} else {
+			presenter.dispose();
+			presenter.cancelSubscriptions();
+		}
+	}
+
+	/**
+	 * Enqueues <code>update</code> to be applied by
+	 * {@link #applyPendingUpdates()}, replacing any queued update with the
+	 * same target. The queue is allocated on first use.
+	 * 
+	 * @see UpdatableView
+	 * @return true if the queue was empty before, i.e. the owner should
+	 *         arrange for the updates to be applied.
+	 */
+	public boolean enqueueUpdate(ViewUpdate update) {
+		if (state == STATE_DISPOSED) {
+			throw new IllegalStateException("View has been disposed");
+		}
+		if (updateQueue == null) {
+			updateQueue = new ViewUpdateQueue();
+		}
+		final boolean wasEmpty = updateQueue.isEmpty();
+		updateQueue.enqueue(update);
+		return wasEmpty;
+	}
+
+	/**
+	 * Applies all queued updates.
+	 * 
+	 * @return the number of updates that were applied.
+	 */
+	public int applyPendingUpdates() {
+		if (updateQueue == null) {
+			return 0;
+		}
+		final int count = updateQueue.apply();
+		getLogger().log(Level.FINE, "Applied {0} queued updates", count);
+		return count;
+	}
+
+	/**
+	 * Returns whether there are queued updates waiting to be applied.
+	 */
+	public boolean hasPendingUpdates() {
+		return updateQueue != null && !updateQueue.isEmpty();
+	}
+
 	@Override
 	public void addListener(ViewListener listener) {
 		if (listener != null) {
+			if (listenerList == null) {
+				listenerList = new ListenerRegistry<ViewListener>(
+						ViewListener.class);
+			}
 			listenerList.add(listener);
 		}
 	}
 
 	@Override
 	public void removeListener(ViewListener listener) {
-		if (listener != null) {
+		if (listener != null && listenerList != null) {
 			listenerList.remove(listener);
 		}
 	}
 
 	@Override
 	public void fireViewEvent(final ViewEvent event) {
-		if (event == null) {
+		if (event == null || listenerList == null) {
 			return;
 		}
 		getLogger().log(Level.FINE, "Firing event {0}", event);
-		listenerList.visitItems(new Visitor<ViewListener>() {
-
-			@Override
-			public void visit(ViewListener visitable) {
-				visitable.handleViewEvent(event);
-			}
-		});
+		for (Object listener : listenerList.getSnapshot(event.getClass())) {
+			ListenerLeakDetector.checkListener(delegateOwner, listener);
+			((ViewListener) listener).handleViewEvent(event);
+		}
 	}
 
 	@Override
@@ -213,20 +443,40 @@ public class ViewDelegate<V extends View, P extends Presenter<V>> implements
 
 	@Override
 	public boolean supportsAdapter(Class<?> adapterClass) {
-		return adaptableSupport.supportsAdapter(adapterClass);
+		return (adaptableSupport == null ? EMPTY_ADAPTABLE_SUPPORT
+				: adaptableSupport).supportsAdapter(adapterClass);
 	}
 
 	@Override
 	public <T> T adapt(Class<T> adapterClass)
 			throws UnsupportedAdapterException {
-		return adaptableSupport.adapt(adapterClass);
+		return (adaptableSupport == null ? EMPTY_ADAPTABLE_SUPPORT
+				: adaptableSupport).adapt(adapterClass);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		ListenerRegistry.writeRegistry(listenerList, out);
+		out.writeObject(hasPendingUpdates() ? updateQueue : null);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		listenerList = ListenerRegistry.readRegistry(in,
+				ViewListener.class);
+		updateQueue = (ViewUpdateQueue) in.readObject();
 	}
 
 	/**
 	 * Returns the <code>AdaptableSupport</code> instance used by the view
-	 * delegate to implement the {@link Adaptable} interface.
+	 * delegate to implement the {@link Adaptable} interface. The instance is
+	 * allocated on first use.
 	 */
 	public AdaptableSupport getAdaptableSupport() {
+		if (adaptableSupport == null) {
+			adaptableSupport = new AdaptableSupport();
+		}
 		return adaptableSupport;
 	}
 
@@ -15,6 +15,9 @@
  */
 package com.github.peholmst.mvp4vaadin;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.EventObject;
 
 /**
@@ -22,6 +25,9 @@ import java.util.EventObject;
  * events to inform other objects of significant events, e.g. events that affect
  * the flow of the application itself (login, logout, move to another view,
  * etc.).
+ * <p>
+ * Unlike {@link EventObject}, the source is included in the serialized form
+ * of the event.
  * 
  * @see View#fireViewEvent(ViewEvent)
  * 
@@ -30,7 +36,7 @@ import java.util.EventObject;
  */
 public abstract class ViewEvent extends EventObject {
 
-	private static final long serialVersionUID = -1085851042904330047L;
+	private static final long serialVersionUID = -7800033192297553806L;
 
 	/**
 	 * Creates a new <code>ViewEvent</code>.
@@ -48,4 +54,14 @@ public abstract class ViewEvent extends EventObject {
 		return (View) super.getSource();
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(source);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		source = in.readObject();
+	}
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+
+/**
+ * Batch scope for deferring and coalescing view property change events. While
+ * a batch is active in the current thread, {@link ViewDelegate} does not fire
+ * {@link DisplayNameChangedViewEvent}s and {@link DescriptionChangedViewEvent}s
+ * immediately. When the batch ends, one event per view and property is fired,
+ * carrying the first old value and the last new value. If the value ended up
+ * unchanged, no event is fired at all. All other events are fired immediately
+ * as usual.
+ * 
+ * <pre>
+ * ViewEventBatch.begin();
+ * try {
+ * 	// Update display names, descriptions, etc.
+ * } finally {
+ * 	ViewEventBatch.end();
+ * }
+ * </pre>
+ * 
+ * Batches can be nested; the events are fired when the outermost batch ends,
+ * or earlier when the batch is {@link #flush() flushed}. To batch the events of
+ * every request, register a {@link ViewEventBatchTransactionListener} with the
+ * application and install a {@link ViewEventBatchCommunicationManager}, which
+ * flushes the batch before the response is painted.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewEventBatch {
+
+	static final int DISPLAY_NAME = 0;
+
+	static final int DESCRIPTION = 1;
+
+	private static final ThreadLocal<ViewEventBatch> currentBatch = new ThreadLocal<ViewEventBatch>();
+
+	private static final class PendingChange {
+
+		final ViewDelegate<?, ?> delegate;
+
+		final int property;
+
+		final String oldValue;
+
+		String newValue;
+
+		PendingChange(ViewDelegate<?, ?> delegate, int property,
+				String oldValue, String newValue) {
+			this.delegate = delegate;
+			this.property = property;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+	}
+
+	private int depth;
+
+	private final IdentityHashMap<ViewDelegate<?, ?>, PendingChange[]> pendingChangesByDelegate = new IdentityHashMap<ViewDelegate<?, ?>, PendingChange[]>();
+
+	private final List<PendingChange> pendingChanges = new ArrayList<PendingChange>();
+
+	private ViewEventBatch() {
+	}
+
+	/**
+	 * Begins a batch in the current thread. Every call must be matched by a
+	 * call to {@link #end()}.
+	 */
+	public static void begin() {
+		ViewEventBatch batch = currentBatch.get();
+		if (batch == null) {
+			batch = new ViewEventBatch();
+			currentBatch.set(batch);
+		}
+		++batch.depth;
+	}
+
+	/**
+	 * Ends the current batch. If it is the outermost batch, the coalesced
+	 * events are fired. If a listener throws an exception, the remaining
+	 * events are still fired and the first exception is rethrown afterwards.
+	 * If no batch is active in the current thread, nothing happens.
+	 */
+	public static void end() {
+		final ViewEventBatch batch = currentBatch.get();
+		if (batch != null && --batch.depth == 0) {
+			currentBatch.remove();
+			batch.deliver();
+		}
+	}
+
+	/**
+	 * Fires the events coalesced so far by the batch of the current thread,
+	 * without ending the batch. Changes made after this call are coalesced
+	 * again. Exceptions thrown by listeners are handled as in {@link #end()}.
+	 * If no batch is active in the current thread, nothing happens.
+	 */
+	public static void flush() {
+		final ViewEventBatch batch = currentBatch.get();
+		if (batch != null) {
+			batch.deliver();
+		}
+	}
+
+	/**
+	 * Returns whether a batch is active in the current thread.
+	 */
+	public static boolean isActive() {
+		return currentBatch.get() != null;
+	}
+
+	/**
+	 * Returns the batch of the current thread, or <code>null</code> if there
+	 * is none.
+	 */
+	static ViewEventBatch getCurrent() {
+		return currentBatch.get();
+	}
+
+	/**
+	 * Records a change of the specified property of the view owning
+	 * <code>delegate</code>.
+	 */
+	void propertyChanged(ViewDelegate<?, ?> delegate, int property,
+			String oldValue, String newValue) {
+		PendingChange[] changes = pendingChangesByDelegate.get(delegate);
+		if (changes == null) {
+			changes = new PendingChange[2];
+			pendingChangesByDelegate.put(delegate, changes);
+		}
+		if (changes[property] == null) {
+			changes[property] = new PendingChange(delegate, property, oldValue,
+					newValue);
+			pendingChanges.add(changes[property]);
+		} else {
+			changes[property].newValue = newValue;
+		}
+	}
+
+	private void deliver() {
+		RuntimeException firstException = null;
+		while (!pendingChanges.isEmpty()) {
+			/*
+			 * Listeners may change properties of their own while we are
+			 * delivering, so we deliver a snapshot and repeat until nothing
+			 * is left.
+			 */
+			final PendingChange[] changes = pendingChanges
+					.toArray(new PendingChange[pendingChanges.size()]);
+			pendingChanges.clear();
+			pendingChangesByDelegate.clear();
+			for (PendingChange change : changes) {
+				if (!isEqual(change.oldValue, change.newValue)) {
+					try {
+						change.delegate.firePropertyChanged(change.property,
+								change.oldValue, change.newValue);
+					} catch (RuntimeException e) {
+						// The changes have already been removed from the
+						// batch, so the rest must be fired before rethrowing
+						if (firstException == null) {
+							firstException = e;
+						}
+					}
+				}
+			}
+		}
+		if (firstException != null) {
+			throw firstException;
+		}
+	}
+
+	private static boolean isEqual(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+}
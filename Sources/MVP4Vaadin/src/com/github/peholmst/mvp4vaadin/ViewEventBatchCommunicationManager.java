@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.PrintWriter;
+
+import com.vaadin.Application;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.gwt.server.CommunicationManager;
+import com.vaadin.ui.Window;
+
+/**
+ * Communication manager that {@link ViewEventBatch#flush() flushes} the
+ * {@link ViewEventBatch} of the current thread before the response is
+ * painted. Together with a {@link ViewEventBatchTransactionListener}, this
+ * makes the coalesced events of a request show up in the response of the same
+ * request. To use it, override the
+ * <code>createCommunicationManager(Application)</code> method of the
+ * application servlet:
+ * 
+ * <pre>
+ * public CommunicationManager createCommunicationManager(Application application) {
+ * 	return new ViewEventBatchCommunicationManager(application);
+ * }
+ * </pre>
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewEventBatchCommunicationManager extends CommunicationManager {
+
+	private static final long serialVersionUID = 4107183905436412235L;
+
+	/**
+	 * Creates a new communication manager for the specified application.
+	 */
+	public ViewEventBatchCommunicationManager(Application application) {
+		super(application);
+	}
+
+	@Override
+	public void writeUidlResponce(Callback callback, boolean repaintAll,
+			PrintWriter outWriter, Window window, boolean analyzeLayouts)
+			throws PaintException {
+		ViewEventBatch.flush();
+		super.writeUidlResponce(callback, repaintAll, outWriter, window,
+				analyzeLayouts);
+	}
+}
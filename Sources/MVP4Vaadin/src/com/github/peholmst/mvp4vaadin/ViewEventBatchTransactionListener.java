@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import com.vaadin.Application;
+import com.vaadin.service.ApplicationContext.TransactionListener;
+
+/**
+ * Transaction listener that wraps every request of an application in a
+ * {@link ViewEventBatch}, so that the view property change events of a
+ * request are coalesced.
+ * 
+ * <pre>
+ * ViewEventBatchTransactionListener.register(application);
+ * </pre>
+ * 
+ * Vaadin ends the transaction only after the response has been written, so
+ * components updated by the listeners of the coalesced events would not be
+ * repainted until the next request. To fire the events before the response
+ * is painted, the servlet must also use a
+ * {@link ViewEventBatchCommunicationManager}. Events coalesced after painting
+ * are fired when the transaction ends. A listener registered in the middle of
+ * a request does nothing at the end of that request.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewEventBatchTransactionListener implements TransactionListener {
+
+	private static final long serialVersionUID = -3361870962566001488L;
+
+	private final Application application;
+
+	/**
+	 * Creates a new listener for the specified application. The listener must
+	 * be registered with the context of the application.
+	 * 
+	 * @see #register(Application)
+	 */
+	public ViewEventBatchTransactionListener(Application application) {
+		if (application == null) {
+			throw new IllegalArgumentException("application must not be null");
+		}
+		this.application = application;
+	}
+
+	/**
+	 * Creates a new listener for <code>application</code> and registers it
+	 * with the context of the application.
+	 */
+	public static ViewEventBatchTransactionListener register(
+			Application application) {
+		final ViewEventBatchTransactionListener listener = new ViewEventBatchTransactionListener(
+				application);
+		application.getContext().addTransactionListener(listener);
+		return listener;
+	}
+
+	@Override
+	public void transactionStart(Application application, Object transactionData) {
+		if (application == this.application) {
+			ViewEventBatch.begin();
+		}
+	}
+
+	@Override
+	public void transactionEnd(Application application, Object transactionData) {
+		if (application == this.application) {
+			ViewEventBatch.end();
+		}
+	}
+}
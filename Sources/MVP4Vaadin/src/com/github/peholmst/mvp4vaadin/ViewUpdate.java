@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.Serializable;
+
+/**
+ * A deferred update of a view, e.g. setting the value of a field or replacing
+ * the contents of a table. Presenters enqueue updates using
+ * {@link Presenter#enqueueUpdate(ViewUpdate)} and the view applies them all
+ * in one pass, see {@link UpdatableView}.
+ * 
+ * @see ViewUpdateQueue
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface ViewUpdate extends Serializable {
+
+	/**
+	 * Returns the target of the update, typically the component or property
+	 * that the update changes. If an update with an equal target is already
+	 * queued, it is replaced by this update, as only the last one would be
+	 * visible anyway. If the target is <code>null</code>, the update is never
+	 * replaced.
+	 */
+	Object getTarget();
+
+	/**
+	 * Applies the update to the view.
+	 */
+	void apply();
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue of {@link ViewUpdate}s waiting to be applied. Updates are applied in
+ * the order they were first enqueued; an update replaces any queued update
+ * with the same target, keeping its position. This class is not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewUpdateQueue implements Serializable {
+
+	private static final long serialVersionUID = 3891563016734298815L;
+
+	private final Map<Object, ViewUpdate> updates = new LinkedHashMap<Object, ViewUpdate>();
+
+	private int collapsedCount;
+
+	/**
+	 * Enqueues <code>update</code>, replacing any queued update with the same
+	 * target.
+	 * 
+	 * @param update
+	 *            the update to enqueue (must not be <code>null</code>).
+	 * @return true if a queued update was replaced, false otherwise.
+	 */
+	public boolean enqueue(ViewUpdate update) {
+		if (update == null) {
+			throw new IllegalArgumentException("null update");
+		}
+		final Object target = update.getTarget();
+		if (updates.put(target == null ? update : target, update) != null) {
+			++collapsedCount;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Applies and removes all queued updates. Updates enqueued while applying
+	 * are left in the queue for the next pass.
+	 * 
+	 * @return the number of updates that were applied.
+	 */
+	public int apply() {
+		if (updates.isEmpty()) {
+			return 0;
+		}
+		final List<ViewUpdate> pending = new ArrayList<ViewUpdate>(
+				updates.values());
+		updates.clear();
+		for (ViewUpdate update : pending) {
+			update.apply();
+		}
+		return pending.size();
+	}
+
+	/**
+	 * Removes all queued updates without applying them.
+	 */
+	public void clear() {
+		updates.clear();
+	}
+
+	/**
+	 * Returns the number of queued updates.
+	 */
+	public int size() {
+		return updates.size();
+	}
+
+	/**
+	 * Returns whether the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return updates.isEmpty();
+	}
+
+	/**
+	 * Returns the number of updates that have been replaced by later updates
+	 * to the same target.
+	 */
+	public int getCollapsedCount() {
+		return collapsedCount;
+	}
+}
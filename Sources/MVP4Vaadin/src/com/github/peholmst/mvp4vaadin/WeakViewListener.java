@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+
+/**
+ * A {@link ViewListener} that only holds a weak reference to the actual
+ * listener. The view does not keep the actual listener reachable; once it has
+ * been garbage collected, the registration removes itself from the view the
+ * next time an event is fired. This is useful for UI components that listen to
+ * long lived views and may be discarded without unregistering.
+ * <p>
+ * The actual listener is serialized together with the registration, so the
+ * registration survives session replication as long as something else in the
+ * session refers to the listener. Any {@link HandlesEvents} annotation of the
+ * actual listener is honored.
+ * 
+ * @see #register(View, ViewListener)
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class WeakViewListener implements ViewListener,
+		ListenerRegistry.ForwardingListener {
+
+	private static final long serialVersionUID = 3406315262346312425L;
+
+	private final View source;
+
+	private transient WeakReference<ViewListener> listenerReference;
+
+	private WeakViewListener(View source, ViewListener listener) {
+		this.source = source;
+		this.listenerReference = new WeakReference<ViewListener>(listener);
+	}
+
+	/**
+	 * Registers <code>listener</code> with <code>source</code> using a weak
+	 * reference.
+	 * 
+	 * @param source
+	 *            the view to listen to (must not be <code>null</code>).
+	 * @param listener
+	 *            the actual listener (must not be <code>null</code>).
+	 * @return the registration, which can be used to unregister the listener.
+	 */
+	public static WeakViewListener register(View source, ViewListener listener) {
+		if (source == null || listener == null) {
+			throw new IllegalArgumentException(
+					"source and listener must not be null");
+		}
+		final WeakViewListener registration = new WeakViewListener(source,
+				listener);
+		source.addListener(registration);
+		return registration;
+	}
+
+	/**
+	 * Returns the view that the listener has been registered with.
+	 */
+	public View getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the actual listener, or <code>null</code> if it has been
+	 * garbage collected or unregistered.
+	 */
+	@Override
+	public ViewListener getListener() {
+		return listenerReference.get();
+	}
+
+	/**
+	 * Removes this registration from the view.
+	 */
+	public void unregister() {
+		listenerReference.clear();
+		source.removeListener(this);
+	}
+
+	@Override
+	public void handleViewEvent(ViewEvent event) {
+		final ViewListener listener = listenerReference.get();
+		if (listener == null) {
+			source.removeListener(this);
+		} else {
+			listener.handleViewEvent(event);
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(listenerReference.get());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		listenerReference = new WeakReference<ViewListener>(
+				(ViewListener) in.readObject());
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Diagnostic mode that reports listeners which outlive their owning
+ * component. Whenever a view or a navigation controller fires an event, every
+ * listener is checked: if the listener is a Vaadin {@link Component}, or an
+ * inner class of one, and that component is attached neither to a parent nor
+ * to an application, the listener is logged as a warning, once per listener.
+ * Such listeners usually belong to discarded UI components that forgot to
+ * unregister and keep their component trees reachable; consider using
+ * {@link com.github.peholmst.mvp4vaadin.WeakViewListener} or
+ * {@link com.github.peholmst.mvp4vaadin.navigation.WeakNavigationControllerListener}
+ * for them.
+ * <p>
+ * Components that have not been attached yet are reported as well, which is
+ * why the mode is intended for development and testing only. It is disabled
+ * by default and can be enabled using {@link #setEnabled(boolean)} or by
+ * setting the {@value #ENABLED_PROPERTY} system property to true.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ListenerLeakDetector {
+
+	/**
+	 * The system property that enables the diagnostic mode at startup.
+	 */
+	public static final String ENABLED_PROPERTY = "mvp4vaadin.diagnostics.listeners";
+
+	private static final int MAX_ENCLOSING_DEPTH = 8;
+
+	private static volatile boolean enabled = Boolean
+			.getBoolean(ENABLED_PROPERTY);
+
+	private static final Map<Object, Boolean> reportedListeners = Collections
+			.synchronizedMap(new WeakHashMap<Object, Boolean>());
+
+	private static final AtomicLong reportCount = new AtomicLong();
+
+	private static final Logger logger = Logger
+			.getLogger(ListenerLeakDetector.class.getName());
+
+	private ListenerLeakDetector() {
+	}
+
+	/**
+	 * Returns whether the diagnostic mode is enabled.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the diagnostic mode.
+	 */
+	public static void setEnabled(boolean enabled) {
+		ListenerLeakDetector.enabled = enabled;
+	}
+
+	/**
+	 * Checks whether <code>listener</code>, registered with
+	 * <code>source</code>, has outlived its owning component and reports it if
+	 * so. Does nothing if the diagnostic mode is disabled.
+	 * 
+	 * @return true if the listener was reported by this call.
+	 */
+	public static boolean checkListener(Object source, Object listener) {
+		if (!enabled || listener == null) {
+			return false;
+		}
+		final Component owner = getOwningComponent(listener);
+		if (owner == null || owner.getParent() != null
+				|| owner.getApplication() != null) {
+			return false;
+		}
+		if (reportedListeners.put(listener, Boolean.TRUE) != null) {
+			return false;
+		}
+		reportCount.incrementAndGet();
+		logger.log(Level.WARNING,
+				"Listener {0} of {1} belongs to detached component {2}",
+				new Object[] { listener, source, owner });
+		return true;
+	}
+
+	/**
+	 * Returns the component that owns <code>listener</code>, i.e. the listener
+	 * itself if it is a component, or the nearest enclosing instance that is a
+	 * component if the listener is an inner class. Returns <code>null</code>
+	 * if there is no owning component.
+	 */
+	public static Component getOwningComponent(Object listener) {
+		Object current = listener;
+		for (int depth = 0; current != null && depth < MAX_ENCLOSING_DEPTH; ++depth) {
+			if (current instanceof Component) {
+				return (Component) current;
+			}
+			current = getEnclosingInstance(current);
+		}
+		return null;
+	}
+
+	private static Object getEnclosingInstance(Object instance) {
+		for (Field field : instance.getClass().getDeclaredFields()) {
+			if (field.isSynthetic() && field.getName().startsWith("this$")) {
+				try {
+					field.setAccessible(true);
+					return field.get(instance);
+				} catch (Exception e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of listeners that have been reported.
+	 */
+	public static long getReportCount() {
+		return reportCount.get();
+	}
+
+	/**
+	 * Forgets about all reported listeners and resets the report count.
+	 */
+	public static void reset() {
+		reportedListeners.clear();
+		reportCount.set(0);
+	}
+}
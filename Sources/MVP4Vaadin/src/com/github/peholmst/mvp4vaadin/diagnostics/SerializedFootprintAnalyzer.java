@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.ListenerRegistry;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.ClassFootprint;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.ContributorKind;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.FlaggedContributor;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.InstanceFootprint;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.stuff4vaadin.visitor.VisitableCollection;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.CustomComponent;
+
+/**
+ * Diagnostic tool that serializes an object graph, such as the MVP objects
+ * stored in an HTTP session (views, presenters, controllers, view maps,
+ * breadcrumbs, etc.), and reports how many bytes each class and each instance
+ * contributes to the serialized form. This is useful when sessions are
+ * replicated between nodes, as the serialized size then translates directly
+ * into replication bandwidth.
+ * <p>
+ * The analyzer also checks listener lists, navigation requests and the
+ * composition roots of custom components, and flags the ones whose
+ * standalone serialized size exceeds the flag threshold (see
+ * {@link #setFlagThreshold(long)}).
+ * <p>
+ * The self sizes are approximations: the bytes written between the start of
+ * one instance and the start of the next one are attributed to the former.
+ * This means that references (handles) written by an instance after one of
+ * its fields has been written are attributed to the last written field
+ * instance.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SerializedFootprintAnalyzer {
+
+	/**
+	 * The default flag threshold in bytes.
+	 */
+	public static final long DEFAULT_FLAG_THRESHOLD = 2048;
+
+	private long flagThreshold = DEFAULT_FLAG_THRESHOLD;
+
+	/**
+	 * Returns the standalone serialized size in bytes above which a listener
+	 * list, navigation request or composition root is flagged as an oversized
+	 * contributor.
+	 */
+	public long getFlagThreshold() {
+		return flagThreshold;
+	}
+
+	/**
+	 * Sets the flag threshold in bytes.
+	 * 
+	 * @see #getFlagThreshold()
+	 */
+	public void setFlagThreshold(long flagThreshold) {
+		if (flagThreshold < 0) {
+			throw new IllegalArgumentException(
+					"flagThreshold must not be negative");
+		}
+		this.flagThreshold = flagThreshold;
+	}
+
+	/**
+	 * Returns the number of bytes it takes to serialize the specified object
+	 * on its own.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the object cannot be serialized.
+	 */
+	public static long getSerializedSize(Object object) {
+		final CountingOutputStream counter = new CountingOutputStream();
+		try {
+			final ObjectOutputStream out = new ObjectOutputStream(counter);
+			out.writeObject(object);
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not serialize object", e);
+		}
+		return counter.getCount();
+	}
+
+	/**
+	 * Serializes the specified roots into one stream and analyzes the result.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any of the roots cannot be serialized.
+	 */
+	public SerializedFootprintReport analyze(Object... roots) {
+		final CountingOutputStream counter = new CountingOutputStream();
+		final TrackingObjectOutputStream out;
+		try {
+			out = new TrackingObjectOutputStream(counter);
+			for (Object root : roots) {
+				out.writeObject(root);
+			}
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not serialize roots", e);
+		}
+		final long totalSize = counter.getCount();
+
+		final List<Long> rootSizes = new ArrayList<Long>(roots.length);
+		for (Object root : roots) {
+			rootSizes.add(getSerializedSize(root));
+		}
+
+		final List<Object> objects = out.objects;
+		final List<Long> offsets = out.offsets;
+		final List<InstanceFootprint> instances = new ArrayList<InstanceFootprint>(
+				objects.size());
+		final Map<Object, InstanceFootprint> instanceMap = new IdentityHashMap<Object, InstanceFootprint>();
+		final Map<String, long[]> classMap = new HashMap<String, long[]>();
+		for (int i = 0; i < objects.size(); ++i) {
+			final Object object = objects.get(i);
+			final long end = i + 1 < offsets.size() ? offsets.get(i + 1)
+					: totalSize;
+			final long selfSize = end - offsets.get(i);
+			final String className = object.getClass().getName();
+			final InstanceFootprint instance = new InstanceFootprint(
+					className, System.identityHashCode(object), selfSize);
+			instances.add(instance);
+			instanceMap.put(object, instance);
+			long[] classData = classMap.get(className);
+			if (classData == null) {
+				classData = new long[2];
+				classMap.put(className, classData);
+			}
+			classData[0]++;
+			classData[1] += selfSize;
+		}
+
+		final List<ClassFootprint> classes = new ArrayList<ClassFootprint>(
+				classMap.size());
+		for (Map.Entry<String, long[]> entry : classMap.entrySet()) {
+			classes.add(new ClassFootprint(entry.getKey(), (int) entry
+					.getValue()[0], entry.getValue()[1]));
+		}
+		Collections.sort(classes, new Comparator<ClassFootprint>() {
+
+			@Override
+			public int compare(ClassFootprint o1, ClassFootprint o2) {
+				return compareSizes(o1.getSelfSize(), o2.getSelfSize());
+			}
+		});
+		Collections.sort(instances, new Comparator<InstanceFootprint>() {
+
+			@Override
+			public int compare(InstanceFootprint o1, InstanceFootprint o2) {
+				return compareSizes(o1.getSelfSize(), o2.getSelfSize());
+			}
+		});
+
+		final List<FlaggedContributor> flaggedContributors = findFlaggedContributors(
+				objects, instanceMap);
+		return new SerializedFootprintReport(totalSize, rootSizes, classes,
+				instances, flaggedContributors);
+	}
+
+	private List<FlaggedContributor> findFlaggedContributors(
+			List<Object> objects, Map<Object, InstanceFootprint> instanceMap) {
+		final Map<Object, Boolean> compositionRoots = new IdentityHashMap<Object, Boolean>();
+		for (Object object : objects) {
+			if (object instanceof CustomComponent) {
+				final Iterator<Component> it = ((CustomComponent) object)
+						.getComponentIterator();
+				if (it.hasNext()) {
+					compositionRoots.put(it.next(), Boolean.TRUE);
+				}
+			}
+		}
+
+		final List<FlaggedContributor> flaggedContributors = new ArrayList<FlaggedContributor>();
+		for (Object object : objects) {
+			final ContributorKind kind;
+			if (compositionRoots.containsKey(object)) {
+				kind = ContributorKind.COMPOSITION_ROOT;
+			} else {
+				kind = getContributorKind(object);
+			}
+			if (kind != null) {
+				final long standaloneSize = getSerializedSize(object);
+				if (standaloneSize > flagThreshold) {
+					flaggedContributors.add(new FlaggedContributor(instanceMap
+							.get(object), kind, standaloneSize));
+				}
+			}
+		}
+		Collections.sort(flaggedContributors,
+				new Comparator<FlaggedContributor>() {
+
+					@Override
+					public int compare(FlaggedContributor o1,
+							FlaggedContributor o2) {
+						return compareSizes(o1.getStandaloneSize(),
+								o2.getStandaloneSize());
+					}
+				});
+		return flaggedContributors;
+	}
+
+	/**
+	 * Returns the kind of contributor the specified instance is, or
+	 * <code>null</code> if the instance should not be checked for oversized
+	 * contributions. Composition roots of custom components are detected
+	 * before this method is called. Subclasses may override.
+	 */
+	protected ContributorKind getContributorKind(Object instance) {
+		if (instance instanceof VisitableCollection
+				|| instance instanceof ListenerRegistry) {
+			return ContributorKind.LISTENER_LIST;
+		} else if (instance instanceof NavigationRequest) {
+			return ContributorKind.NAVIGATION_REQUEST;
+		}
+		return null;
+	}
+
+	private static int compareSizes(long size1, long size2) {
+		return size1 > size2 ? -1 : (size1 == size2 ? 0 : 1);
+	}
+
+	/**
+	 * Output stream that discards everything written to it, but keeps track
+	 * of the number of bytes.
+	 */
+	static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * Object output stream that records the stream offset at which each
+	 * instance starts. {@link #replaceObject(Object)} is invoked exactly once
+	 * per instance, before anything of the instance has been written and
+	 * outside of block data mode, which means that the buffered data can be
+	 * flushed without affecting the stream contents.
+	 */
+	static class TrackingObjectOutputStream extends ObjectOutputStream {
+
+		private final CountingOutputStream counter;
+
+		final List<Object> objects = new ArrayList<Object>();
+
+		final List<Long> offsets = new ArrayList<Long>();
+
+		TrackingObjectOutputStream(CountingOutputStream counter)
+				throws IOException {
+			super(counter);
+			this.counter = counter;
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			flush();
+			objects.add(obj);
+			offsets.add(counter.getCount());
+			return obj;
+		}
+	}
+}
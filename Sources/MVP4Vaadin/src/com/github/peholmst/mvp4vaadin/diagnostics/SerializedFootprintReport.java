@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Report produced by the {@link SerializedFootprintAnalyzer}. All sizes are in
+ * bytes. Instances of this class are immutable.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SerializedFootprintReport implements java.io.Serializable {
+
+	private static final long serialVersionUID = -4017236117366364592L;
+
+	/**
+	 * The serialized footprint of all the instances of a single class.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static class ClassFootprint implements java.io.Serializable {
+
+		private static final long serialVersionUID = 3409547612957081452L;
+
+		private final String className;
+		private final int instanceCount;
+		private final long selfSize;
+
+		ClassFootprint(String className, int instanceCount, long selfSize) {
+			this.className = className;
+			this.instanceCount = instanceCount;
+			this.selfSize = selfSize;
+		}
+
+		/**
+		 * Returns the name of the class.
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Returns the number of serialized instances of the class.
+		 */
+		public int getInstanceCount() {
+			return instanceCount;
+		}
+
+		/**
+		 * Returns the sum of the self sizes of all the instances of the class
+		 * (see {@link InstanceFootprint#getSelfSize()}).
+		 */
+		public long getSelfSize() {
+			return selfSize;
+		}
+	}
+
+	/**
+	 * The serialized footprint of a single instance.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static class InstanceFootprint implements java.io.Serializable {
+
+		private static final long serialVersionUID = -1587470620337862734L;
+
+		private final String className;
+		private final int identityHashCode;
+		private final long selfSize;
+
+		InstanceFootprint(String className, int identityHashCode,
+				long selfSize) {
+			this.className = className;
+			this.identityHashCode = identityHashCode;
+			this.selfSize = selfSize;
+		}
+
+		/**
+		 * Returns the name of the class of the instance.
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Returns the identity hash code of the instance, to make it possible
+		 * to tell instances of the same class apart.
+		 */
+		public int getIdentityHashCode() {
+			return identityHashCode;
+		}
+
+		/**
+		 * Returns the number of bytes written for the instance itself,
+		 * including its primitive fields, references to other instances and
+		 * the class descriptor if the instance was the first one of its class
+		 * to be written. Bytes written for other instances are not included.
+		 */
+		public long getSelfSize() {
+			return selfSize;
+		}
+
+		@Override
+		public String toString() {
+			return className + "@" + Integer.toHexString(identityHashCode);
+		}
+	}
+
+	/**
+	 * An instance that has been flagged as an oversized contributor.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static class FlaggedContributor implements java.io.Serializable {
+
+		private static final long serialVersionUID = 4405837013839785020L;
+
+		private final InstanceFootprint instance;
+		private final ContributorKind kind;
+		private final long standaloneSize;
+
+		FlaggedContributor(InstanceFootprint instance, ContributorKind kind,
+				long standaloneSize) {
+			this.instance = instance;
+			this.kind = kind;
+			this.standaloneSize = standaloneSize;
+		}
+
+		/**
+		 * Returns the footprint of the flagged instance.
+		 */
+		public InstanceFootprint getInstance() {
+			return instance;
+		}
+
+		/**
+		 * Returns the kind of the flagged instance.
+		 */
+		public ContributorKind getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns the number of bytes it takes to serialize the flagged
+		 * instance and everything it references on its own.
+		 */
+		public long getStandaloneSize() {
+			return standaloneSize;
+		}
+	}
+
+	/**
+	 * Enumeration of the kinds of instances that are checked for oversized
+	 * contributions.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public enum ContributorKind {
+		/**
+		 * A list of listeners, such as the ones maintained by view delegates
+		 * and navigation controllers.
+		 */
+		LISTENER_LIST,
+		/**
+		 * A navigation request that has been stored in the session.
+		 */
+		NAVIGATION_REQUEST,
+		/**
+		 * The composition root of a custom component, such as a view
+		 * component.
+		 */
+		COMPOSITION_ROOT
+	}
+
+	private final long totalSize;
+	private final List<Long> rootSizes;
+	private final List<ClassFootprint> classes;
+	private final List<InstanceFootprint> instances;
+	private final List<FlaggedContributor> flaggedContributors;
+
+	SerializedFootprintReport(long totalSize, List<Long> rootSizes,
+			List<ClassFootprint> classes, List<InstanceFootprint> instances,
+			List<FlaggedContributor> flaggedContributors) {
+		this.totalSize = totalSize;
+		this.rootSizes = Collections.unmodifiableList(rootSizes);
+		this.classes = Collections.unmodifiableList(classes);
+		this.instances = Collections.unmodifiableList(instances);
+		this.flaggedContributors = Collections
+				.unmodifiableList(flaggedContributors);
+	}
+
+	/**
+	 * Returns the total number of bytes it takes to serialize all the roots
+	 * into the same stream, like a servlet container would do with the
+	 * attributes of a session.
+	 */
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * Returns the number of bytes it takes to serialize each of the roots on
+	 * its own, in the order the roots were passed to the analyzer.
+	 */
+	public List<Long> getRootSizes() {
+		return rootSizes;
+	}
+
+	/**
+	 * Returns the footprints per class, the largest first.
+	 */
+	public List<ClassFootprint> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns the footprint of the specified class, or <code>null</code> if
+	 * no instances of the class were serialized.
+	 */
+	public ClassFootprint getClassFootprint(Class<?> clazz) {
+		for (ClassFootprint footprint : classes) {
+			if (footprint.getClassName().equals(clazz.getName())) {
+				return footprint;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the footprints per instance, the largest first.
+	 */
+	public List<InstanceFootprint> getInstances() {
+		return instances;
+	}
+
+	/**
+	 * Returns the instances that have been flagged as oversized
+	 * contributors, the largest first.
+	 */
+	public List<FlaggedContributor> getFlaggedContributors() {
+		return flaggedContributors;
+	}
+
+	/**
+	 * Prints the report in a human readable format to the specified stream.
+	 * At most <code>maxRows</code> classes and instances are printed.
+	 */
+	public void print(PrintStream out, int maxRows) {
+		out.printf("Total serialized size: %d bytes%n", totalSize);
+		for (int i = 0; i < rootSizes.size(); ++i) {
+			out.printf("  Root %d: %d bytes%n", i, rootSizes.get(i));
+		}
+		out.println("Size per class (self bytes, instances):");
+		for (int i = 0; i < classes.size() && i < maxRows; ++i) {
+			final ClassFootprint footprint = classes.get(i);
+			out.printf("  %8d %6d  %s%n", footprint.getSelfSize(),
+					footprint.getInstanceCount(), footprint.getClassName());
+		}
+		out.println("Size per instance (self bytes):");
+		for (int i = 0; i < instances.size() && i < maxRows; ++i) {
+			final InstanceFootprint footprint = instances.get(i);
+			out.printf("  %8d  %s%n", footprint.getSelfSize(), footprint);
+		}
+		if (!flaggedContributors.isEmpty()) {
+			out.println("Oversized contributors (standalone bytes):");
+			for (FlaggedContributor contributor : flaggedContributors) {
+				out.printf("  %8d  %s %s%n", contributor.getStandaloneSize(),
+						contributor.getKind(), contributor.getInstance());
+			}
+		}
+	}
+}
@@ -24,6 +24,9 @@ import com.github.peholmst.i18n4vaadin.support.I18NComponentSupport;
 import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
 import com.github.peholmst.mvp4vaadin.Presenter;
 import com.github.peholmst.mvp4vaadin.View;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.PaintTarget;
+import com.vaadin.ui.Component;
 
 /**
  * This is an extended version of {@link AbstractI18NViewComponent} that also
@@ -36,6 +39,12 @@ import com.github.peholmst.mvp4vaadin.View;
  * its parent chain, it will immediately get access to that component's
  * {@link I18N} instance. Thus, you only need call
  * {@link I18NComponent#setI18N(I18N)} on the top-most component in the chain.
+ * <p>
+ * The component keeps track of the locale that was last passed to
+ * {@link #updateInternationalizedData(Locale)}, and only calls the method again
+ * when the current locale differs from it. If the locale changes while the
+ * component is hidden, the update is deferred until the component is painted
+ * the next time.
  * 
  * @author Petter Holmström
  * @since 1.0
@@ -48,6 +57,10 @@ public abstract class AbstractI18NViewComponent<V extends View, P extends Presen
 
 	private final I18NComponentSupport i18nSupport = new I18NComponentSupport(
 			this);
+
+	private Locale appliedLocale;
+
+	private boolean localeApplied;
 	
 	public AbstractI18NViewComponent() {
 		super();
@@ -74,7 +87,7 @@ public abstract class AbstractI18NViewComponent<V extends View, P extends Presen
 			throw new IllegalStateException("No I18N attached to component");
 		}
 		getI18N().addListener(this);
-		updateInternationalizedData(getI18N().getCurrentLocale());
+		updateInternationalizedDataIfNeeded(getI18N().getCurrentLocale());
 	}
 
 	@Override
@@ -85,15 +98,89 @@ public abstract class AbstractI18NViewComponent<V extends View, P extends Presen
 		super.detach();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the component is showing, the internationalized data is updated right
+	 * away. Otherwise, a repaint is requested and the data is updated when the
+	 * component is painted.
+	 */
 	@Override
 	public void localeChanged(I18N sender, Locale oldLocale, Locale newLocale) {
-		updateInternationalizedData(newLocale);
+		if (isShowing()) {
+			updateInternationalizedDataIfNeeded(newLocale);
+		} else {
+			requestRepaint();
+		}
+	}
+
+	/**
+	 * Updates any internationalized data that is out of date before painting
+	 * the component.
+	 */
+	@Override
+	public void paintContent(PaintTarget target) throws PaintException {
+		if (getI18N() != null) {
+			updateInternationalizedDataIfNeeded(getI18N().getCurrentLocale());
+		}
+		super.paintContent(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As the components have been recreated, the internationalized data is
+	 * updated again the next time the component is painted.
+	 */
+	@Override
+	public void rehydrate() throws IllegalStateException {
+		super.rehydrate();
+		invalidateInternationalizedData();
+	}
+
+	/**
+	 * Marks the internationalized data as out of date, so that
+	 * {@link #updateInternationalizedData(Locale)} is called the next time the
+	 * component is painted or attached, even if the locale has not changed.
+	 * Subclasses should call this method if they recreate their components.
+	 */
+	protected void invalidateInternationalizedData() {
+		localeApplied = false;
+		requestRepaint();
+	}
+
+	/**
+	 * Returns whether the internationalized data has been updated for
+	 * <code>locale</code>.
+	 */
+	protected boolean isInternationalizedDataUpToDate(Locale locale) {
+		return localeApplied
+				&& (appliedLocale == null ? locale == null : appliedLocale
+						.equals(locale));
+	}
+
+	private void updateInternationalizedDataIfNeeded(Locale locale) {
+		if (!isInternationalizedDataUpToDate(locale)) {
+			updateInternationalizedData(locale);
+			appliedLocale = locale;
+			localeApplied = true;
+		}
+	}
+
+	private boolean isShowing() {
+		for (Component c = this; c != null; c = c.getParent()) {
+			if (!c.isVisible()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
 	 * This method is called when the component is attached to another component
-	 * or when the current locale changes. All internationalized data (e.g.
-	 * message strings, format strings, etc.) should be updated.
+	 * or when the current locale changes, unless the data is already up to
+	 * date for the current locale. All internationalized data (e.g. message
+	 * strings, format strings, etc.) should be updated.
 	 * 
 	 * @param locale
 	 *            the new locale, may be <code>null</code> if no locale is
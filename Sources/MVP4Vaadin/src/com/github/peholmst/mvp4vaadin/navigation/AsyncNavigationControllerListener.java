@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import java.util.EventObject;
+
+import com.github.peholmst.mvp4vaadin.AsyncEventDispatcher;
+import com.github.peholmst.mvp4vaadin.AsyncListener;
+
+/**
+ * A {@link NavigationControllerListener} registration that delivers the
+ * events to the actual listener asynchronously. Any
+ * {@link com.github.peholmst.mvp4vaadin.HandlesEvents} annotation of the
+ * actual listener is honored.
+ * 
+ * @see AsyncListener
+ * @see #register(NavigationController, NavigationControllerListener,
+ *      AsyncEventDispatcher)
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class AsyncNavigationControllerListener extends AsyncListener
+		implements NavigationControllerListener {
+
+	private static final long serialVersionUID = 2249335476924633432L;
+
+	private final NavigationController source;
+
+	private AsyncNavigationControllerListener(NavigationController source,
+			NavigationControllerListener listener,
+			AsyncEventDispatcher dispatcher) {
+		super(listener, dispatcher);
+		this.source = source;
+	}
+
+	/**
+	 * Registers <code>listener</code> with <code>source</code> as an
+	 * asynchronous listener.
+	 * 
+	 * @param source
+	 *            the controller to listen to (must not be <code>null</code>).
+	 * @param listener
+	 *            the actual listener (must not be <code>null</code>).
+	 * @param dispatcher
+	 *            the dispatcher to deliver the events with (must not be
+	 *            <code>null</code>).
+	 * @return the registration, which can be used to unregister the listener.
+	 */
+	public static AsyncNavigationControllerListener register(
+			NavigationController source, NavigationControllerListener listener,
+			AsyncEventDispatcher dispatcher) {
+		if (source == null) {
+			throw new IllegalArgumentException("source must not be null");
+		}
+		final AsyncNavigationControllerListener registration = new AsyncNavigationControllerListener(
+				source, listener, dispatcher);
+		source.addListener(registration);
+		return registration;
+	}
+
+	/**
+	 * Returns the controller that the listener has been registered with.
+	 */
+	public NavigationController getSource() {
+		return source;
+	}
+
+	/**
+	 * Removes this registration from the controller. Events that have
+	 * already been queued are still delivered.
+	 */
+	public void unregister() {
+		source.removeListener(this);
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		dispatch(event);
+	}
+
+	@Override
+	protected void deliver(EventObject event) {
+		((NavigationControllerListener) getListener())
+				.handleNavigationControllerEvent((NavigationControllerEvent) event);
+	}
+}
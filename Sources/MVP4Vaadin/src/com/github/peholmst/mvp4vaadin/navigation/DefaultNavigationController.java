@@ -15,6 +15,11 @@
  */
 package com.github.peholmst.mvp4vaadin.navigation;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EmptyStackException;
 import java.util.List;
@@ -22,32 +27,71 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Stack;
 
+import com.github.peholmst.mvp4vaadin.Dehydratable;
+import com.github.peholmst.mvp4vaadin.Disposable;
+import com.github.peholmst.mvp4vaadin.ListenerRegistry;
 import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.diagnostics.ListenerLeakDetector;
 import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
 import com.github.peholmst.mvp4vaadin.navigation.events.ViewAttachedToNavigationControllerEvent;
 import com.github.peholmst.mvp4vaadin.navigation.events.ViewDetachedFromNavigationControllerEvent;
-import com.github.peholmst.stuff4vaadin.visitor.VisitableList;
-import com.github.peholmst.stuff4vaadin.visitor.Visitor;
 
 /**
  * This is the default implementation of the {@link NavigationController}
  * interface. Create a new instance using the default constructor and attach
  * views using the {@link #navigate(NavigationRequest)} method. You can use the
  * {@link NavigationRequestBuilder} to create {@link NavigationRequest}s.
+ * <p>
+ * The serialized form of this class consists of the number of views in the
+ * stack, the views from the bottom to the top, the number of listeners and the
+ * listeners themselves.
  * 
  * @author Petter Holmström
  * @since 1.0
  */
 public class DefaultNavigationController implements NavigationController {
 
-	private static final long serialVersionUID = 6838003395877804584L;
+	private static final long serialVersionUID = -2790271541481922488L;
 
-	private final Stack<View> viewStack = new Stack<View>();
+	private transient Stack<View> viewStack = new Stack<View>();
 
-	private final VisitableList<NavigationControllerListener> listeners = new VisitableList<NavigationControllerListener>();
+	private transient ListenerRegistry<NavigationControllerListener> listeners = new ListenerRegistry<NavigationControllerListener>(
+			NavigationControllerListener.class);
+
+	private boolean disposeDetachedViews = false;
+
+	/**
+	 * Returns whether views are disposed of when they are detached from the
+	 * controller.
+	 * 
+	 * @see #setDisposeDetachedViews(boolean)
+	 */
+	public boolean isDisposeDetachedViews() {
+		return disposeDetachedViews;
+	}
+
+	/**
+	 * Specifies whether views implementing {@link Disposable} should be
+	 * disposed of after they have been detached from the controller and the
+	 * {@link ViewDetachedFromNavigationControllerEvent} has been fired. The
+	 * views are disposed of when the navigation request has been completed,
+	 * and views that the same request attached again are left alone. Only
+	 * enable this if the views are not reused by later requests. Defaults to
+	 * false.
+	 */
+	public void setDisposeDetachedViews(boolean disposeDetachedViews) {
+		this.disposeDetachedViews = disposeDetachedViews;
+	}
 
 	@Override
 	public NavigationResult navigate(NavigationRequest request) {
+		final List<View> previousViewStack = getViewStackForDisposal();
+		final NavigationResult result = doNavigate(request);
+		disposeDetachedViews(previousViewStack);
+		return result;
+	}
+
+	private NavigationResult doNavigate(NavigationRequest request) {
 		final View fromView = getCurrentView();
 
 		final int differenceIndex = getIndexOfFirstDifferenceFromStack(request);
@@ -110,10 +154,11 @@ public class DefaultNavigationController implements NavigationController {
 	}
 
 	/**
-	 * Adds the view to the view stack.
+	 * Adds the view to the view stack, rehydrating it first if needed.
 	 */
 	private void attach(View view) {
 		viewStack.add(view);
+		rehydrateIfNeeded(view);
 		if (view.supportsAdapter(NavigationControllerCallback.class)) {
 			view.adapt(NavigationControllerCallback.class)
 					.attachedToController(this);
@@ -168,9 +213,42 @@ public class DefaultNavigationController implements NavigationController {
 		return true;
 	}
 
+	/**
+	 * Returns a copy of the view stack if detached views are to be disposed
+	 * of, or <code>null</code> otherwise.
+	 */
+	private List<View> getViewStackForDisposal() {
+		return disposeDetachedViews ? new ArrayList<View>(viewStack) : null;
+	}
+
+	/**
+	 * Disposes of the views in <code>previousViewStack</code> that are no
+	 * longer in the view stack.
+	 */
+	private void disposeDetachedViews(List<View> previousViewStack) {
+		if (previousViewStack == null) {
+			return;
+		}
+		for (View view : previousViewStack) {
+			if (view instanceof Disposable && !isInViewStack(view)) {
+				((Disposable) view).dispose();
+			}
+		}
+	}
+
+	private boolean isInViewStack(View view) {
+		for (View viewInStack : viewStack) {
+			if (viewInStack == view) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private void invokeNavigatedToViewOnCurrentView(Map<String, Object> params,
 			View fromView) {
 		if (!viewStack.isEmpty()) {
+			rehydrateIfNeeded(getCurrentView());
 			if (getCurrentView().supportsAdapter(
 					NavigationControllerCallback.class)) {
 				getCurrentView().adapt(NavigationControllerCallback.class)
@@ -179,6 +257,17 @@ public class DefaultNavigationController implements NavigationController {
 		}
 	}
 
+	/**
+	 * Rehydrates <code>view</code> if it has been dehydrated, so that the
+	 * callbacks are never invoked on a dehydrated view. Views that are only
+	 * detached are not rehydrated.
+	 */
+	private static void rehydrateIfNeeded(View view) {
+		if (view instanceof Dehydratable && ((Dehydratable) view).isDehydrated()) {
+			((Dehydratable) view).rehydrate();
+		}
+	}
+
 	private void invokeNavigatedFromViewOnView(View fromView) {
 		if (fromView.supportsAdapter(NavigationControllerCallback.class)) {
 			fromView.adapt(NavigationControllerCallback.class)
@@ -244,11 +333,13 @@ public class DefaultNavigationController implements NavigationController {
 	@Override
 	public NavigationResult clear() {
 		final View oldView = getCurrentView();
+		final List<View> previousViewStack = getViewStackForDisposal();
 		final NavigationResult result = detachViewsFromStack(0);
 		if (getCurrentView() != oldView) {
 			fireEvent(new CurrentNavigationControllerViewChangedEvent(this,
 					oldView, getCurrentView()));
 		}
+		disposeDetachedViews(previousViewStack);
 		return result;
 	}
 
@@ -256,13 +347,11 @@ public class DefaultNavigationController implements NavigationController {
 	 * Notifies all registered listeners of the specified event.
 	 */
 	protected void fireEvent(final NavigationControllerEvent event) {
-		listeners.visitItems(new Visitor<NavigationControllerListener>() {
-
-			@Override
-			public void visit(NavigationControllerListener visitable) {
-				visitable.handleNavigationControllerEvent(event);
-			}
-		});
+		for (Object listener : listeners.getSnapshot(event.getClass())) {
+			ListenerLeakDetector.checkListener(this, listener);
+			((NavigationControllerListener) listener)
+					.handleNavigationControllerEvent(event);
+		}
 	}
 
 	@Override
@@ -279,4 +368,32 @@ public class DefaultNavigationController implements NavigationController {
 		}
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(viewStack.size());
+		for (View view : viewStack) {
+			out.writeObject(view);
+		}
+		listeners.writeListeners(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		final int viewCount = in.readInt();
+		if (viewCount < 0) {
+			throw new InvalidObjectException("Negative view count: "
+					+ viewCount);
+		}
+		// The stack grows as views are read, so a corrupt count cannot
+		// allocate more than the stream contains
+		viewStack = new Stack<View>();
+		for (int i = 0; i < viewCount; ++i) {
+			viewStack.add((View) in.readObject());
+		}
+		listeners = new ListenerRegistry<NavigationControllerListener>(
+				NavigationControllerListener.class);
+		listeners.readListeners(in);
+	}
+
 }
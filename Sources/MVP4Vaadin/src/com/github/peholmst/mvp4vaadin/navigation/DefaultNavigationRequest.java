@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Default immutable implementation of {@link NavigationRequest}, used by the
+ * {@link NavigationRequestBuilder}. The serialized form consists of the number
+ * of views in the path, the views themselves, the number of parameters and the
+ * parameter names and values.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class DefaultNavigationRequest implements NavigationRequest {
+
+	private static final long serialVersionUID = 1986151395211713520L;
+
+	private transient List<View> path;
+
+	private transient Map<String, Object> params;
+
+	/**
+	 * Creates a new <code>DefaultNavigationRequest</code>. The path and the
+	 * parameters are copied.
+	 * 
+	 * @param path
+	 *            the path to the destination view (must not be
+	 *            <code>null</code> or empty).
+	 * @param params
+	 *            the parameters to pass to the view (may be <code>null</code>
+	 *            ).
+	 * @throws IllegalArgumentException
+	 *             if the path is <code>null</code> or empty.
+	 */
+	public DefaultNavigationRequest(List<View> path, Map<String, Object> params)
+			throws IllegalArgumentException {
+		if (path == null || path.isEmpty()) {
+			throw new IllegalArgumentException(
+					"The path must contain at least one view");
+		}
+		this.path = Collections.unmodifiableList(new ArrayList<View>(path));
+		if (params == null || params.isEmpty()) {
+			this.params = Collections.emptyMap();
+		} else {
+			this.params = Collections
+					.unmodifiableMap(new HashMap<String, Object>(params));
+		}
+	}
+
+	@Override
+	public List<View> getPath() {
+		return path;
+	}
+
+	@Override
+	public Map<String, Object> getParams() {
+		return params;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(path.size());
+		for (View view : path) {
+			out.writeObject(view);
+		}
+		out.writeInt(params.size());
+		for (Map.Entry<String, Object> param : params.entrySet()) {
+			out.writeObject(param.getKey());
+			out.writeObject(param.getValue());
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		final int pathSize = in.readInt();
+		if (pathSize < 0) {
+			throw new InvalidObjectException("Negative path size: " + pathSize);
+		}
+		// The collections grow as elements are read, so corrupt counts cannot
+		// allocate more than the stream contains
+		final List<View> path = new ArrayList<View>();
+		for (int i = 0; i < pathSize; ++i) {
+			path.add((View) in.readObject());
+		}
+		this.path = Collections.unmodifiableList(path);
+		final int paramCount = in.readInt();
+		if (paramCount < 0) {
+			throw new InvalidObjectException("Negative parameter count: "
+					+ paramCount);
+		} else if (paramCount == 0) {
+			this.params = Collections.emptyMap();
+		} else {
+			final Map<String, Object> params = new HashMap<String, Object>();
+			for (int i = 0; i < paramCount; ++i) {
+				params.put((String) in.readObject(), in.readObject());
+			}
+			this.params = Collections.unmodifiableMap(params);
+		}
+	}
+}
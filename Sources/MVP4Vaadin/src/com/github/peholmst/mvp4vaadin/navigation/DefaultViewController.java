@@ -17,11 +17,11 @@ package com.github.peholmst.mvp4vaadin.navigation;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+import com.github.peholmst.mvp4vaadin.ListenerRegistry;
 import com.github.peholmst.mvp4vaadin.navigation.ControllableView.HideOperation;
 
 /**
@@ -293,7 +293,8 @@ public class DefaultViewController implements ViewController {
 		return Collections.unmodifiableList(viewStack);
 	}
 
-	private final LinkedList<ViewControllerListener> listenerList = new LinkedList<ViewControllerListener>();
+	private final ListenerRegistry<ViewControllerListener> listenerList = new ListenerRegistry<ViewControllerListener>(
+			ViewControllerListener.class);
 
 	/**
 	 * TODO Document me!
@@ -303,20 +304,16 @@ public class DefaultViewController implements ViewController {
 	 * @param direction
 	 * @param newViewIsTopMost
 	 */
-	@SuppressWarnings("unchecked")
 	protected void fireCurrentViewChanged(ControllableView oldView,
 			ControllableView newView, Direction direction,
 			boolean newViewIsTopMost) {
 		/*
-		 * Create a clone of the listener list. This way, we prevent weird
-		 * situations if any of the listeners register new listeners or remove
-		 * existing ones.
+		 * The snapshot is not affected if any of the listeners register new
+		 * listeners or remove existing ones.
 		 */
-		LinkedList<ViewControllerListener> clonedList = (LinkedList<ViewControllerListener>) listenerList
-				.clone();
-		for (ViewControllerListener listener : clonedList) {
-			listener.currentViewChanged(this, oldView, newView, direction,
-					newViewIsTopMost);
+		for (Object listener : listenerList.getSnapshot()) {
+			((ViewControllerListener) listener).currentViewChanged(this,
+					oldView, newView, direction, newViewIsTopMost);
 		}
 	}
 
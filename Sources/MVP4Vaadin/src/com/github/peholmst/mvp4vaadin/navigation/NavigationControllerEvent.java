@@ -15,10 +15,16 @@
  */
 package com.github.peholmst.mvp4vaadin.navigation;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.EventObject;
 
 /**
  * Base class for events that are fired by a {@link NavigationController}.
+ * <p>
+ * Unlike {@link EventObject}, the source is included in the serialized form
+ * of the event.
  * 
  * @see NavigationControllerListener
  * 
@@ -27,7 +33,7 @@ import java.util.EventObject;
  */
 public abstract class NavigationControllerEvent extends EventObject {
 
-	private static final long serialVersionUID = -8300699828827743503L;
+	private static final long serialVersionUID = 2637009543716701175L;
 
 	/**
 	 * Creates a new <code>NavigationControllerEvent</code>.
@@ -45,4 +51,14 @@ public abstract class NavigationControllerEvent extends EventObject {
 		return (NavigationController) super.getSource();
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(source);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		source = in.readObject();
+	}
 }
@@ -17,7 +17,6 @@ package com.github.peholmst.mvp4vaadin.navigation;
 
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -128,31 +127,13 @@ public final class NavigationRequestBuilder<P extends NavigationRequestBuilder.P
 		 * @throws IllegalStateException
 		 *             if the path is empty.
 		 */
-		@SuppressWarnings("unchecked")
 		public NavigationRequest buildRequest() throws IllegalStateException {
 			if (getPath().isEmpty()) {
 				throw new IllegalStateException(
 						"The path must contain at least one view");
 			}
-			final List<View> copyOfPath = Collections
-					.unmodifiableList((List<View>) getPath().clone());
-			final Map<String, Object> copyOfParams = Collections
-					.unmodifiableMap((Map<String, Object>) requestBuilder.params
-							.clone());
-			return new NavigationRequest() {
-
-				private static final long serialVersionUID = -6273102646598049858L;
-
-				@Override
-				public List<View> getPath() {
-					return copyOfPath;
-				}
-
-				@Override
-				public Map<String, Object> getParams() {
-					return copyOfParams;
-				}
-			};
+			return new DefaultNavigationRequest(getPath(),
+					requestBuilder.params);
 		}
 
 	}
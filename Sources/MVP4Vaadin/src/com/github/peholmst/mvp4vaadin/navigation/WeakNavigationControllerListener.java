@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+
+import com.github.peholmst.mvp4vaadin.ListenerRegistry;
+
+/**
+ * A {@link NavigationControllerListener} that only holds a weak reference to
+ * the actual listener. Once the actual listener has been garbage collected,
+ * the registration removes itself from the controller the next time an event
+ * is fired. Any {@link com.github.peholmst.mvp4vaadin.HandlesEvents} annotation
+ * of the actual listener is honored.
+ * 
+ * @see #register(NavigationController, NavigationControllerListener)
+ * @see com.github.peholmst.mvp4vaadin.WeakViewListener
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class WeakNavigationControllerListener implements
+		NavigationControllerListener, ListenerRegistry.ForwardingListener {
+
+	private static final long serialVersionUID = -1517946421745606315L;
+
+	private final NavigationController source;
+
+	private transient WeakReference<NavigationControllerListener> listenerReference;
+
+	private WeakNavigationControllerListener(NavigationController source,
+			NavigationControllerListener listener) {
+		this.source = source;
+		this.listenerReference = new WeakReference<NavigationControllerListener>(
+				listener);
+	}
+
+	/**
+	 * Registers <code>listener</code> with <code>source</code> using a weak
+	 * reference.
+	 * 
+	 * @param source
+	 *            the controller to listen to (must not be <code>null</code>).
+	 * @param listener
+	 *            the actual listener (must not be <code>null</code>).
+	 * @return the registration, which can be used to unregister the listener.
+	 */
+	public static WeakNavigationControllerListener register(
+			NavigationController source, NavigationControllerListener listener) {
+		if (source == null || listener == null) {
+			throw new IllegalArgumentException(
+					"source and listener must not be null");
+		}
+		final WeakNavigationControllerListener registration = new WeakNavigationControllerListener(
+				source, listener);
+		source.addListener(registration);
+		return registration;
+	}
+
+	/**
+	 * Returns the controller that the listener has been registered with.
+	 */
+	public NavigationController getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the actual listener, or <code>null</code> if it has been
+	 * garbage collected or unregistered.
+	 */
+	@Override
+	public NavigationControllerListener getListener() {
+		return listenerReference.get();
+	}
+
+	/**
+	 * Removes this registration from the controller.
+	 */
+	public void unregister() {
+		listenerReference.clear();
+		source.removeListener(this);
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		final NavigationControllerListener listener = listenerReference.get();
+		if (listener == null) {
+			source.removeListener(this);
+		} else {
+			listener.handleNavigationControllerEvent(event);
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(listenerReference.get());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		listenerReference = new WeakReference<NavigationControllerListener>(
+				(NavigationControllerListener) in.readObject());
+	}
+}
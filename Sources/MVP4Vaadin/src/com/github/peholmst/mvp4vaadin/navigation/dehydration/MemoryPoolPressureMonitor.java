@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.dehydration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * {@link MemoryPressureIndicator} implementation that uses the collection
+ * usage thresholds of the heap {@link MemoryPoolMXBean}s. The monitor sets the
+ * threshold of every heap pool that supports it to a fraction of the maximum
+ * size of the pool, and reports pressure from the moment the JVM sends a
+ * threshold exceeded notification until the usage after a garbage collection
+ * has dropped below the threshold again.
+ * <p>
+ * The thresholds are JVM wide, so a single monitor should be shared by all
+ * sessions, e.g. by storing it in a static field. Call {@link #dispose()} when
+ * the monitor is no longer needed. The monitor itself is not serialized; when
+ * deserialized, it always reports no pressure.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class MemoryPoolPressureMonitor implements MemoryPressureIndicator,
+		NotificationListener {
+
+	private static final long serialVersionUID = -2710328916632573021L;
+
+	private transient volatile boolean underPressure = false;
+
+	private transient List<MemoryPoolMXBean> pools;
+
+	/**
+	 * Creates a new monitor and registers it with the {@link java.lang.management.MemoryMXBean}.
+	 * 
+	 * @param thresholdFraction
+	 *            the fraction of the maximum pool size after which the pool is
+	 *            considered to be under pressure (must be between 0 and 1,
+	 *            exclusive).
+	 */
+	public MemoryPoolPressureMonitor(double thresholdFraction) {
+		if (thresholdFraction <= 0 || thresholdFraction >= 1) {
+			throw new IllegalArgumentException(
+					"thresholdFraction must be between 0 and 1");
+		}
+		pools = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP
+					&& pool.isCollectionUsageThresholdSupported()
+					&& pool.getUsage().getMax() > 0) {
+				pool.setCollectionUsageThreshold((long) (pool.getUsage()
+						.getMax() * thresholdFraction));
+				pools.add(pool);
+			}
+		}
+		((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+				.addNotificationListener(this, null, null);
+	}
+
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED
+				.equals(notification.getType())) {
+			underPressure = true;
+		}
+	}
+
+	@Override
+	public boolean isUnderPressure() {
+		if (underPressure && pools != null) {
+			for (MemoryPoolMXBean pool : pools) {
+				final MemoryUsage usage = pool.getCollectionUsage();
+				if (usage != null
+						&& usage.getUsed() >= pool.getCollectionUsageThreshold()) {
+					return true;
+				}
+			}
+			underPressure = false;
+		}
+		return underPressure;
+	}
+
+	/**
+	 * Unregisters the monitor from the {@link java.lang.management.MemoryMXBean}. The thresholds
+	 * of the pools are left as they are.
+	 */
+	public void dispose() {
+		try {
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+					.removeNotificationListener(this);
+		} catch (ListenerNotFoundException e) {
+			// Already disposed
+		}
+		pools = null;
+		underPressure = false;
+	}
+}
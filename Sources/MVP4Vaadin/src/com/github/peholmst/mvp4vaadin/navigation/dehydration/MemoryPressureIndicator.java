@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.dehydration;
+
+/**
+ * Interface to be implemented by classes that can tell whether the JVM is
+ * running low on memory. Used by {@link ViewDehydrationManager} to decide
+ * whether to dehydrate all off-screen views.
+ * 
+ * @see MemoryPoolPressureMonitor
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface MemoryPressureIndicator extends java.io.Serializable {
+
+	/**
+	 * Returns whether the JVM is currently running low on memory.
+	 */
+	boolean isUnderPressure();
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.dehydration;
+
+import java.util.List;
+
+import com.github.peholmst.mvp4vaadin.Dehydratable;
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+import com.github.peholmst.mvp4vaadin.navigation.events.ViewAttachedToNavigationControllerEvent;
+
+/**
+ * This class dehydrates the views in the stack of a
+ * {@link NavigationController} that are not currently shown, and rehydrates
+ * them when they become the current view again. Only views that implement
+ * {@link Dehydratable} and whose presenters implement
+ * {@link com.github.peholmst.mvp4vaadin.DehydratablePresenter} are affected.
+ * <p>
+ * The manager keeps at most {@link #getMaxHydratedViewCount()} hydrated views
+ * below the current view, dehydrating the ones closest to the bottom of the
+ * stack first. This is a cap on the number of views, not a memory budget: the
+ * manager does not measure the size of the views, as the state of a view can
+ * reach most of the session and cannot be measured cheaply. Memory is taken
+ * into account through a {@link MemoryPressureIndicator}: if one has been set
+ * and it reports pressure, all the views below the current view are
+ * dehydrated regardless of the cap.
+ * <p>
+ * {@link com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController}
+ * rehydrates views itself before it invokes any
+ * {@link com.github.peholmst.mvp4vaadin.navigation.NavigationControllerCallback}
+ * methods on them, except for views that are only being detached. With other
+ * controllers, the manager rehydrates views when they are attached or become
+ * the current view, which may happen after the callbacks have been invoked.
+ * Views that are detached from the stack while dehydrated are not rehydrated.
+ * This class is not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewDehydrationManager implements NavigationControllerListener {
+
+	private static final long serialVersionUID = 6236424290163390377L;
+
+	private final NavigationController controller;
+
+	private int maxHydratedViewCount = Integer.MAX_VALUE;
+
+	private MemoryPressureIndicator memoryPressureIndicator;
+
+	/**
+	 * Creates a new manager and registers it as a listener with
+	 * <code>controller</code>.
+	 * 
+	 * @param controller
+	 *            the controller whose views should be managed (must not be
+	 *            <code>null</code>).
+	 */
+	public ViewDehydrationManager(NavigationController controller) {
+		if (controller == null) {
+			throw new IllegalArgumentException("controller must not be null");
+		}
+		this.controller = controller;
+		controller.addListener(this);
+	}
+
+	/**
+	 * Unregisters the manager from the controller. Views that are dehydrated
+	 * are left as they are.
+	 */
+	public void stop() {
+		controller.removeListener(this);
+	}
+
+	/**
+	 * Returns the maximum number of hydrated views below the current view,
+	 * regardless of their size. Defaults to {@link Integer#MAX_VALUE}, i.e.
+	 * views are only dehydrated under memory pressure.
+	 */
+	public int getMaxHydratedViewCount() {
+		return maxHydratedViewCount;
+	}
+
+	/**
+	 * Sets the maximum number of hydrated views below the current view and
+	 * dehydrates views if needed.
+	 * 
+	 * @param maxHydratedViewCount
+	 *            the maximum number of views (must not be negative).
+	 */
+	public void setMaxHydratedViewCount(int maxHydratedViewCount) {
+		if (maxHydratedViewCount < 0) {
+			throw new IllegalArgumentException(
+					"maxHydratedViewCount must not be negative");
+		}
+		this.maxHydratedViewCount = maxHydratedViewCount;
+		enforceLimits();
+	}
+
+	/**
+	 * Returns the memory pressure indicator, or <code>null</code> if none has
+	 * been set.
+	 */
+	public MemoryPressureIndicator getMemoryPressureIndicator() {
+		return memoryPressureIndicator;
+	}
+
+	/**
+	 * Sets the memory pressure indicator to use. May be <code>null</code>.
+	 */
+	public void setMemoryPressureIndicator(
+			MemoryPressureIndicator memoryPressureIndicator) {
+		this.memoryPressureIndicator = memoryPressureIndicator;
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		if (event.getSource() != controller) {
+			return;
+		}
+		if (event instanceof ViewAttachedToNavigationControllerEvent) {
+			rehydrateIfNeeded(((ViewAttachedToNavigationControllerEvent) event)
+					.getAttachedView());
+		} else if (event instanceof CurrentNavigationControllerViewChangedEvent) {
+			rehydrateIfNeeded(controller.getCurrentView());
+			enforceLimits();
+		}
+	}
+
+	/**
+	 * Dehydrates views below the current view until at most
+	 * {@link #getMaxHydratedViewCount()} of them are hydrated, or all of them
+	 * are dehydrated if there is memory pressure. This method is called
+	 * automatically whenever the current view changes, but can also be called
+	 * manually, e.g. at the end of each request.
+	 */
+	public void enforceLimits() {
+		final List<View> stack = controller.getViewStack();
+		final int maxCount = isUnderPressure() ? 0 : maxHydratedViewCount;
+		int hydrated = 0;
+		// Count from the top, so that the views closest to the current view
+		// are the ones that are kept
+		for (int i = stack.size() - 2; i >= 0; --i) {
+			final View view = stack.get(i);
+			if (view instanceof Dehydratable
+					&& ((Dehydratable) view).isDehydratable()) {
+				if (hydrated < maxCount) {
+					++hydrated;
+				} else {
+					((Dehydratable) view).dehydrate();
+				}
+			}
+		}
+	}
+
+	private boolean isUnderPressure() {
+		return memoryPressureIndicator != null
+				&& memoryPressureIndicator.isUnderPressure();
+	}
+
+	private void rehydrateIfNeeded(View view) {
+		if (view instanceof Dehydratable && ((Dehydratable) view).isDehydrated()) {
+			((Dehydratable) view).rehydrate();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.graph;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+
+/**
+ * A {@link DefaultNavigationController} that uses a {@link NavigationGraph} to
+ * build navigation requests and to prevent navigations that the graph does
+ * not allow. Use {@link #navigate(String)} to navigate to the canonical path of a
+ * view; the requests are built once per view and cached, so the views of the
+ * view map should not be replaced once the controller is in use.
+ * <p>
+ * All navigation requests, including the ones passed to
+ * {@link #navigate(NavigationRequest)} directly, are checked against the graph
+ * before any views are detached. Only navigations between two views of the
+ * graph are checked; requests with an empty path, requests to views outside
+ * the graph and requests from views outside the graph are handled like in
+ * {@link DefaultNavigationController}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class GraphNavigationController extends DefaultNavigationController {
+
+	private static final long serialVersionUID = -1603960052420305417L;
+
+	private final NavigationGraph graph;
+
+	private final ViewMap viewMap;
+
+	private final NavigationRequest[] requestCache;
+
+	/**
+	 * Creates a new controller.
+	 * 
+	 * @param graph
+	 *            the navigation graph (must not be <code>null</code>).
+	 * @param viewMap
+	 *            the view map containing the views of the graph (must not be
+	 *            <code>null</code>).
+	 */
+	public GraphNavigationController(NavigationGraph graph, ViewMap viewMap) {
+		if (graph == null || viewMap == null) {
+			throw new IllegalArgumentException(
+					"graph and viewMap must not be null");
+		}
+		this.graph = graph;
+		this.viewMap = viewMap;
+		this.requestCache = new NavigationRequest[graph.size()];
+	}
+
+	/**
+	 * Returns the navigation graph.
+	 */
+	public NavigationGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the view map.
+	 */
+	public ViewMap getViewMap() {
+		return viewMap;
+	}
+
+	/**
+	 * Navigates to the canonical path of the specified view.
+	 * 
+	 * @see #navigate(NavigationRequest)
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph or the view map.
+	 */
+	public NavigationResult navigate(String viewId)
+			throws NoSuchViewException {
+		return navigate(getRequest(viewId));
+	}
+
+	/**
+	 * Navigates to the canonical path of the specified view, passing
+	 * <code>params</code> to the view.
+	 * 
+	 * @see #navigate(NavigationRequest)
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph or the view map.
+	 */
+	public NavigationResult navigate(String viewId, Map<String, Object> params)
+			throws NoSuchViewException {
+		if (params == null || params.isEmpty()) {
+			return navigate(viewId);
+		}
+		return navigate(new DefaultNavigationRequest(getRequest(viewId)
+				.getPath(), params));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If both the current view and the destination view of the request are in
+	 * the graph, and the graph does not allow navigating from the former to
+	 * the latter, nothing is done and {@link NavigationResult#PREVENTED} is
+	 * returned.
+	 */
+	@Override
+	public NavigationResult navigate(NavigationRequest request) {
+		final List<View> path = request.getPath();
+		if (path.isEmpty()) {
+			return super.navigate(request);
+		}
+		final String toViewId = getViewIdOrNull(path.get(path.size() - 1));
+		if (toViewId == null || !graph.containsView(toViewId)) {
+			return super.navigate(request);
+		}
+		final String fromViewId = getViewIdOrNull(getCurrentView());
+		if (fromViewId != null && graph.containsView(fromViewId)
+				&& !graph.isTransitionAllowed(fromViewId, toViewId)) {
+			return NavigationResult.PREVENTED;
+		}
+		return super.navigate(request);
+	}
+
+	/**
+	 * Returns whether the graph allows navigating from the current view to
+	 * the specified view.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph.
+	 */
+	public boolean isNavigationAllowed(String viewId)
+			throws NoSuchViewException {
+		final String fromViewId = getViewIdOrNull(getCurrentView());
+		if (fromViewId == null || !graph.containsView(fromViewId)) {
+			return graph.containsView(viewId);
+		}
+		return graph.isTransitionAllowed(fromViewId, viewId);
+	}
+
+	/**
+	 * Returns the cached request for navigating to the canonical path of the
+	 * specified view, creating it if needed.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph or the view map.
+	 */
+	protected NavigationRequest getRequest(String viewId)
+			throws NoSuchViewException {
+		final int index = graph.getIndexOf(viewId);
+		if (index == -1) {
+			throw new NoSuchViewException(viewId);
+		}
+		NavigationRequest request = requestCache[index];
+		if (request == null) {
+			request = new DefaultNavigationRequest(graph.getCanonicalPath(
+					viewId).toViews(viewMap), null);
+			requestCache[index] = request;
+		}
+		return request;
+	}
+
+	private String getViewIdOrNull(View view) {
+		if (view == null) {
+			return null;
+		}
+		try {
+			return viewMap.getViewId(view);
+		} catch (NoSuchViewException e) {
+			return null;
+		}
+	}
+}
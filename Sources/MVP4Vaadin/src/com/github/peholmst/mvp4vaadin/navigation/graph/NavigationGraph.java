@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewPath;
+
+/**
+ * An immutable graph of parent/child relationships between view IDs, used to
+ * build navigation requests to any view and to decide which navigations are
+ * allowed. Create new instances using {@link #newBuilder()}. The graph is
+ * compiled once, typically at application startup, and can be shared by all
+ * sessions.
+ * <p>
+ * Every view has a <em>canonical path</em>, consisting of its ancestors from
+ * the root view downwards and the view itself. The paths are precomputed when
+ * the graph is built.
+ * <p>
+ * A transition from view A to view B is allowed if any of the following is
+ * true:
+ * <ul>
+ * <li>B is A itself or one of its ancestors (navigating back),</li>
+ * <li>B is a root view or the child of A or of one of its ancestors,</li>
+ * <li>the transition has been explicitly added using
+ * {@link Builder#addTransition(String, String)}.</li>
+ * </ul>
+ * 
+ * @see GraphNavigationController
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class NavigationGraph implements java.io.Serializable {
+
+	private static final long serialVersionUID = 5393402373823766601L;
+
+	private final Map<String, Integer> indexes;
+
+	private final String[] viewIds;
+
+	private final int[] parents;
+
+	private final int[][] paths;
+
+	private final ViewPath[] canonicalPaths;
+
+	private final int[][] transitions;
+
+	/**
+	 * Builder for {@link NavigationGraph}s. This class is not thread safe.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static final class Builder {
+
+		private final Map<String, String> parents = new LinkedHashMap<String, String>();
+
+		private final Map<String, Set<String>> transitions = new HashMap<String, Set<String>>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a root view to the graph.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the view has already been added.
+		 */
+		public Builder addRoot(String viewId) throws IllegalArgumentException {
+			return addView(viewId, null);
+		}
+
+		/**
+		 * Adds a view to the graph. The parent view does not need to be added
+		 * before its children, as long as it has been added when the graph is
+		 * built.
+		 * 
+		 * @param viewId
+		 *            the ID of the view (must not be <code>null</code>).
+		 * @param parentId
+		 *            the ID of the parent view, or <code>null</code> to add a
+		 *            root view.
+		 * @throws IllegalArgumentException
+		 *             if the view has already been added.
+		 */
+		public Builder addView(String viewId, String parentId)
+				throws IllegalArgumentException {
+			if (viewId == null) {
+				throw new IllegalArgumentException("viewId must not be null");
+			}
+			if (parents.containsKey(viewId)) {
+				throw new IllegalArgumentException("View " + viewId
+						+ " has already been added");
+			}
+			parents.put(viewId, parentId);
+			return this;
+		}
+
+		/**
+		 * Allows navigating from <code>fromViewId</code> to
+		 * <code>toViewId</code> even though the transition is not implied by
+		 * the parent/child relationships. The navigation will still result in
+		 * the canonical path of <code>toViewId</code>.
+		 */
+		public Builder addTransition(String fromViewId, String toViewId) {
+			if (fromViewId == null || toViewId == null) {
+				throw new IllegalArgumentException(
+						"fromViewId and toViewId must not be null");
+			}
+			Set<String> targets = transitions.get(fromViewId);
+			if (targets == null) {
+				targets = new LinkedHashSet<String>();
+				transitions.put(fromViewId, targets);
+			}
+			targets.add(toViewId);
+			return this;
+		}
+
+		/**
+		 * Compiles the graph.
+		 * 
+		 * @throws IllegalStateException
+		 *             if a parent or transition refers to a view that has not
+		 *             been added, or if the relationships contain a cycle.
+		 */
+		public NavigationGraph build() throws IllegalStateException {
+			return new NavigationGraph(this);
+		}
+
+		/**
+		 * Compiles the graph and checks that all of its views have been
+		 * registered with <code>viewMap</code>.
+		 * 
+		 * @throws IllegalStateException
+		 *             see {@link #build()}.
+		 * @throws NoSuchViewException
+		 *             if a view has not been registered with the view map.
+		 */
+		public NavigationGraph build(ViewMap viewMap)
+				throws IllegalStateException, NoSuchViewException {
+			final NavigationGraph graph = build();
+			graph.validate(viewMap);
+			return graph;
+		}
+	}
+
+	/**
+	 * Creates a new builder.
+	 */
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	private NavigationGraph(Builder builder) throws IllegalStateException {
+		final int size = builder.parents.size();
+		indexes = new HashMap<String, Integer>(size * 2);
+		viewIds = builder.parents.keySet().toArray(new String[size]);
+		for (int i = 0; i < size; ++i) {
+			indexes.put(viewIds[i], i);
+		}
+		parents = new int[size];
+		for (int i = 0; i < size; ++i) {
+			final String parentId = builder.parents.get(viewIds[i]);
+			parents[i] = parentId == null ? -1 : getIndex(parentId);
+		}
+		paths = new int[size][];
+		canonicalPaths = new ViewPath[size];
+		for (int i = 0; i < size; ++i) {
+			paths[i] = computePath(i);
+			final List<String> path = new ArrayList<String>(paths[i].length);
+			for (int index : paths[i]) {
+				path.add(viewIds[index]);
+			}
+			canonicalPaths[i] = ViewPath.of(path);
+		}
+		final Map<String, Set<String>> remainingTransitions = new HashMap<String, Set<String>>(
+				builder.transitions);
+		transitions = new int[size][];
+		for (int i = 0; i < size; ++i) {
+			final Set<String> targets = remainingTransitions.remove(viewIds[i]);
+			if (targets == null) {
+				transitions[i] = new int[0];
+			} else {
+				transitions[i] = new int[targets.size()];
+				int j = 0;
+				for (String target : targets) {
+					transitions[i][j++] = getIndex(target);
+				}
+				Arrays.sort(transitions[i]);
+			}
+		}
+		if (!remainingTransitions.isEmpty()) {
+			throw new IllegalStateException("Unknown views "
+					+ remainingTransitions.keySet());
+		}
+	}
+
+	private int getIndex(String viewId) throws IllegalStateException {
+		final Integer index = indexes.get(viewId);
+		if (index == null) {
+			throw new IllegalStateException("Unknown view " + viewId);
+		}
+		return index;
+	}
+
+	private int[] computePath(int index) throws IllegalStateException {
+		int depth = 0;
+		for (int i = index; i != -1; i = parents[i]) {
+			if (++depth > parents.length) {
+				throw new IllegalStateException("Cycle detected at view "
+						+ viewIds[index]);
+			}
+		}
+		final int[] path = new int[depth];
+		for (int i = index; i != -1; i = parents[i]) {
+			path[--depth] = i;
+		}
+		return path;
+	}
+
+	/**
+	 * Checks that all the views of the graph have been registered with
+	 * <code>viewMap</code>.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if a view has not been registered.
+	 */
+	public void validate(ViewMap viewMap) throws NoSuchViewException {
+		for (String viewId : viewIds) {
+			if (!viewMap.containsView(viewId)) {
+				throw new NoSuchViewException(viewId);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of views in the graph.
+	 */
+	public int size() {
+		return viewIds.length;
+	}
+
+	/**
+	 * Returns an unmodifiable list of the IDs of all the views in the graph.
+	 */
+	public List<String> getViewIds() {
+		return Collections.unmodifiableList(Arrays.asList(viewIds));
+	}
+
+	/**
+	 * Returns whether the graph contains the specified view.
+	 */
+	public boolean containsView(String viewId) {
+		return viewId != null && indexes.containsKey(viewId);
+	}
+
+	/**
+	 * Returns the ID of the parent of the specified view, or
+	 * <code>null</code> if it is a root view.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph.
+	 */
+	public String getParentId(String viewId) throws NoSuchViewException {
+		final int parent = parents[indexOf(viewId)];
+		return parent == -1 ? null : viewIds[parent];
+	}
+
+	/**
+	 * Returns the canonical path of the specified view.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the view is not in the graph.
+	 */
+	public ViewPath getCanonicalPath(String viewId) throws NoSuchViewException {
+		return canonicalPaths[indexOf(viewId)];
+	}
+
+	/**
+	 * Returns whether navigating from <code>fromViewId</code> to
+	 * <code>toViewId</code> is allowed (see the class documentation). If
+	 * <code>fromViewId</code> is <code>null</code> (e.g. the controller is
+	 * empty), navigating to any view in the graph is allowed.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if either of the views is not in the graph.
+	 */
+	public boolean isTransitionAllowed(String fromViewId, String toViewId)
+			throws NoSuchViewException {
+		final int to = indexOf(toViewId);
+		if (fromViewId == null) {
+			return true;
+		}
+		final int from = indexOf(fromViewId);
+		final int[] fromPath = paths[from];
+		// Back to an ancestor or the view itself
+		final int toDepth = paths[to].length - 1;
+		if (toDepth < fromPath.length && fromPath[toDepth] == to) {
+			return true;
+		}
+		// A root or a child of an ancestor
+		final int toParent = parents[to];
+		if (toParent == -1) {
+			return true;
+		}
+		final int parentDepth = toDepth - 1;
+		if (parentDepth < fromPath.length && fromPath[parentDepth] == toParent) {
+			return true;
+		}
+		return Arrays.binarySearch(transitions[from], to) >= 0;
+	}
+
+	private int indexOf(String viewId) throws NoSuchViewException {
+		final Integer index = viewId == null ? null : indexes.get(viewId);
+		if (index == null) {
+			throw new NoSuchViewException(viewId);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the internal index of the specified view, or -1 if the view is
+	 * not in the graph. The indexes are dense, starting from 0.
+	 */
+	int getIndexOf(String viewId) {
+		final Integer index = viewId == null ? null : indexes.get(viewId);
+		return index == null ? -1 : index;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+
+/**
+ * A {@link DefaultNavigationController} that appends a
+ * {@link NavigationJournalRecord} to a {@link NavigationJournal} every time
+ * the view stack has changed as a result of a navigation request or a call to
+ * {@link #clear()}. The views in the stack must be registered with the view
+ * map; if they are not, the navigation is not journaled.
+ * <p>
+ * The journal is not serialized together with the controller, so after
+ * deserialization {@link #setJournal(NavigationJournal)} has to be called to
+ * continue journaling.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class JournalingNavigationController extends DefaultNavigationController {
+
+	private static final long serialVersionUID = -4598207740567316329L;
+
+	private transient NavigationJournal journal;
+
+	private final ViewMap viewMap;
+
+	private final String sessionId;
+
+	private final String controllerId;
+
+	/**
+	 * Creates a new controller.
+	 * 
+	 * @param journal
+	 *            the journal to write to (may be <code>null</code>).
+	 * @param viewMap
+	 *            the view map to look up the view IDs from (must not be
+	 *            <code>null</code>).
+	 * @param sessionId
+	 *            the ID of the session that the controller belongs to (must
+	 *            not be <code>null</code>).
+	 * @param controllerId
+	 *            the ID of the controller within the session (must not be
+	 *            <code>null</code>).
+	 */
+	public JournalingNavigationController(NavigationJournal journal,
+			ViewMap viewMap, String sessionId, String controllerId) {
+		if (viewMap == null || sessionId == null || controllerId == null) {
+			throw new IllegalArgumentException(
+					"viewMap, sessionId and controllerId must not be null");
+		}
+		this.journal = journal;
+		this.viewMap = viewMap;
+		this.sessionId = sessionId;
+		this.controllerId = controllerId;
+	}
+
+	/**
+	 * Returns the journal, or <code>null</code> if journaling is disabled.
+	 */
+	public NavigationJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Sets the journal to write to. If <code>journal</code> is
+	 * <code>null</code>, journaling is disabled.
+	 */
+	public void setJournal(NavigationJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Returns the ID of the session that the controller belongs to.
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns the ID of the controller within the session.
+	 */
+	public String getControllerId() {
+		return controllerId;
+	}
+
+	@Override
+	public NavigationResult navigate(NavigationRequest request) {
+		final NavigationResult result = super.navigate(request);
+		if (result == NavigationResult.SUCCEEDED) {
+			journal(request.getParams());
+		} else if (result == NavigationResult.INTERRUPTED) {
+			journal(null);
+		}
+		return result;
+	}
+
+	@Override
+	public NavigationResult clear() {
+		final boolean wasEmpty = isEmpty();
+		final NavigationResult result = super.clear();
+		if (!wasEmpty && result != NavigationResult.PREVENTED) {
+			journal(null);
+		}
+		return result;
+	}
+
+	private void journal(Map<String, Object> params) {
+		if (journal == null) {
+			return;
+		}
+		final List<View> stack = getViewStack();
+		final List<String> viewIds = new ArrayList<String>(stack.size());
+		try {
+			for (View view : stack) {
+				viewIds.add(viewMap.getViewId(view));
+			}
+		} catch (NoSuchViewException e) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING,
+					"View not in view map, navigation not journaled", e);
+			return;
+		}
+		journal.append(new NavigationJournalRecord(sessionId, controllerId,
+				viewIds, params));
+	}
+}
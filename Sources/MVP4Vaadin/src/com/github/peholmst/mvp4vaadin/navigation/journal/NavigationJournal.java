@@ -0,0 +1,946 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A crash-recovery journal of navigation state, stored as an append-only log
+ * of {@link NavigationJournalRecord}s in a directory. The log is split into
+ * fixed-size segments that are written through memory mappings.
+ * <p>
+ * {@link #append(NavigationJournalRecord)} encodes the record on the calling
+ * thread and puts it in a queue; the records are written by a background
+ * thread, which forces
+ * the segment to disk after every {@link #getSyncBatchSize() batch} of
+ * records or when the {@link #getSyncIntervalMillis() sync interval} has
+ * elapsed, whichever happens first. Thus, the most recent records may be lost
+ * if the node crashes. If the queue is full, new records are dropped rather
+ * than blocking the caller (see {@link #getDroppedRecordCount()}).
+ * <p>
+ * Only the latest record of each controller is needed to recover the state,
+ * so once the number of full segments exceeds {@link #getMaxSegments()}, the
+ * segments are compacted into one containing only the latest records.
+ * <p>
+ * After a restart, or on a node that picks up sessions from another node,
+ * {@link #recover()} reads the segments once and returns the latest record of
+ * every controller. Each record can then be restored using
+ * {@link NavigationJournalRecord#restore(com.github.peholmst.mvp4vaadin.navigation.NavigationController, com.github.peholmst.mvp4vaadin.navigation.map.ViewMap)
+ * restore()}.
+ * <p>
+ * Each record in a segment is stored as its length, a CRC32 checksum and the
+ * record itself. A record that was only partially written when the node
+ * crashed fails the checksum test, and the rest of the segment is ignored.
+ * <p>
+ * If the writer thread fails, e.g. because a segment could not be created,
+ * it stops and new records are dropped. The failure is available from
+ * {@link #getWriterFailure()} and is thrown as the cause of an
+ * {@link IOException} by {@link #flush()}, {@link #compact()} and
+ * {@link #close()}. These methods never wait for a writer that has stopped.
+ * <p>
+ * A segment is unmapped as soon as it is full or the journal is closed,
+ * instead of when its buffer happens to be garbage collected. This relies on
+ * JDK internals; if they are not available, the mapping is left to the
+ * garbage collector.
+ * <p>
+ * Only one journal at a time may write to a directory. The setters should be
+ * called before {@link #start()}. The other methods are thread safe.
+ * 
+ * @see JournalingNavigationController
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationJournal {
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private static final String COMPACTION_SUFFIX = ".tmp";
+
+	/**
+	 * The length and checksum of a record.
+	 */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final File directory;
+
+	private int segmentSize = 4 * 1024 * 1024;
+
+	private int syncBatchSize = 64;
+
+	private long syncIntervalMillis = 200;
+
+	private int maxSegments = 8;
+
+	private int queueCapacity = 10000;
+
+	private BlockingQueue<Object> queue;
+
+	private volatile Thread writerThread;
+
+	private volatile boolean running = false;
+
+	private volatile Throwable writerFailure;
+
+	private final AtomicLong droppedRecordCount = new AtomicLong();
+
+	private final AtomicInteger mappedSegmentCount = new AtomicInteger();
+
+	private final Logger logger = Logger.getLogger(getClass().getName());
+
+	/**
+	 * Command that is executed by the writer thread. The latch is counted down
+	 * once the command has been executed, or when the writer stops without
+	 * executing it.
+	 */
+	private static final class Command {
+
+		enum Type {
+			FLUSH, COMPACT, CLOSE
+		}
+
+		final Type type;
+		final CountDownLatch latch = new CountDownLatch(1);
+		volatile boolean executed = false;
+
+		Command(Type type) {
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Creates a new journal that stores its segments in
+	 * <code>directory</code>. The directory is created if it does not exist.
+	 * 
+	 * @param directory
+	 *            the directory (must not be <code>null</code>).
+	 */
+	public NavigationJournal(File directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("directory must not be null");
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory containing the segments.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the size of a segment in bytes. Defaults to 4 MB.
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Sets the size of a segment in bytes. Records larger than a segment are
+	 * dropped.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		if (segmentSize <= RECORD_HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize is too small");
+		}
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Returns the maximum number of records written between two forced
+	 * writes to disk. Defaults to 64.
+	 */
+	public int getSyncBatchSize() {
+		return syncBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of records written between two forced writes to
+	 * disk.
+	 */
+	public void setSyncBatchSize(int syncBatchSize) {
+		if (syncBatchSize < 1) {
+			throw new IllegalArgumentException(
+					"syncBatchSize must be at least 1");
+		}
+		this.syncBatchSize = syncBatchSize;
+	}
+
+	/**
+	 * Returns the maximum time in milliseconds that a written record may
+	 * remain unforced. Defaults to 200.
+	 */
+	public long getSyncIntervalMillis() {
+		return syncIntervalMillis;
+	}
+
+	/**
+	 * Sets the maximum time in milliseconds that a written record may remain
+	 * unforced.
+	 */
+	public void setSyncIntervalMillis(long syncIntervalMillis) {
+		if (syncIntervalMillis < 1) {
+			throw new IllegalArgumentException(
+					"syncIntervalMillis must be at least 1");
+		}
+		this.syncIntervalMillis = syncIntervalMillis;
+	}
+
+	/**
+	 * Returns the number of full segments after which the segments are
+	 * compacted. Defaults to 8.
+	 */
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+
+	/**
+	 * Sets the number of full segments after which the segments are
+	 * compacted.
+	 */
+	public void setMaxSegments(int maxSegments) {
+		if (maxSegments < 1) {
+			throw new IllegalArgumentException("maxSegments must be at least 1");
+		}
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Returns the maximum number of records waiting to be written. Defaults
+	 * to 10000.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Sets the maximum number of records waiting to be written.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException(
+					"queueCapacity must be at least 1");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Returns the number of records that have been dropped because the queue
+	 * was full, or the record could not be encoded or did not fit in a
+	 * segment.
+	 */
+	public long getDroppedRecordCount() {
+		return droppedRecordCount.get();
+	}
+
+	/**
+	 * Returns whether the journal has been started and not yet closed, and
+	 * the writer thread has not failed.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns the exception that stopped the writer thread, or
+	 * <code>null</code> if the writer has not failed since the journal was
+	 * last started.
+	 */
+	public Throwable getWriterFailure() {
+		return writerFailure;
+	}
+
+	/**
+	 * Returns the number of segments that are currently memory mapped. For
+	 * testing only.
+	 */
+	int getMappedSegmentCount() {
+		return mappedSegmentCount.get();
+	}
+
+	/**
+	 * Reads all the segments in the directory and returns the latest record
+	 * of every controller that has not been removed. This method should be
+	 * called before {@link #start()}, since it does not see the records that
+	 * are still waiting to be written.
+	 * 
+	 * @throws IOException
+	 *             if a segment could not be read.
+	 */
+	public Collection<NavigationJournalRecord> recover() throws IOException {
+		final Map<String, NavigationJournalRecord> latest = new LinkedHashMap<String, NavigationJournalRecord>();
+		for (long sequence : listSegments()) {
+			readSegment(getSegmentFile(sequence), latest, null);
+		}
+		final List<NavigationJournalRecord> records = new ArrayList<NavigationJournalRecord>(
+				latest.size());
+		for (NavigationJournalRecord record : latest.values()) {
+			if (!record.isRemoval()) {
+				records.add(record);
+			}
+		}
+		return Collections.unmodifiableCollection(records);
+	}
+
+	/**
+	 * Starts the background writer thread. New records are written to a new
+	 * segment.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the journal is already running.
+	 * @throws IOException
+	 *             if the directory or the first segment could not be created.
+	 */
+	public synchronized void start() throws IllegalStateException, IOException {
+		if (running) {
+			throw new IllegalStateException("already running");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create directory " + directory);
+		}
+		final Writer writer = new Writer(listSegments());
+		writerFailure = null;
+		queue = new LinkedBlockingQueue<Object>(queueCapacity);
+		writerThread = new Thread(writer, "NavigationJournal writer "
+				+ directory.getName());
+		writerThread.setDaemon(true);
+		running = true;
+		writerThread.start();
+	}
+
+	/**
+	 * Encodes <code>record</code> and queues it to be written to the journal.
+	 * The record is encoded here rather than by the writer thread, so that a
+	 * record that cannot be written, e.g. because a string in it is too long,
+	 * is dropped without affecting the records appended after it. This method
+	 * never blocks.
+	 * 
+	 * @return true if the record was queued, false if it was dropped because
+	 *         it could not be encoded or did not fit in a segment, the queue
+	 *         was full or the journal is not running.
+	 */
+	public boolean append(NavigationJournalRecord record) {
+		if (record == null) {
+			throw new IllegalArgumentException("record must not be null");
+		}
+		final BlockingQueue<Object> q = queue;
+		if (running && q != null) {
+			final byte[] payload = encode(record);
+			if (payload != null && q.offer(payload)) {
+				return true;
+			}
+		}
+		droppedRecordCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Returns the encoded form of <code>record</code>, or <code>null</code>
+	 * if it cannot be encoded or does not fit in a segment.
+	 */
+	private byte[] encode(NavigationJournalRecord record) {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+		try {
+			record.writeTo(new DataOutputStream(buffer));
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not encode record " + record
+					+ ", dropping it", e);
+			return null;
+		}
+		if (RECORD_HEADER_SIZE + buffer.size() > segmentSize) {
+			logger.log(Level.WARNING,
+					"Record {0} does not fit in a segment, dropping it",
+					record);
+			return null;
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Waits until all the records queued before this call have been written
+	 * and forced to disk.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the journal is not running.
+	 * @throws IOException
+	 *             if the writer thread has failed (see
+	 *             {@link #getWriterFailure()}).
+	 */
+	public void flush() throws IllegalStateException, IOException,
+			InterruptedException {
+		execute(new Command(Command.Type.FLUSH));
+	}
+
+	/**
+	 * Compacts all the full segments into one and waits until the compaction
+	 * has been completed. Records are appended to a new segment during the
+	 * compaction.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the journal is not running.
+	 * @throws IOException
+	 *             if the writer thread has failed (see
+	 *             {@link #getWriterFailure()}).
+	 */
+	public void compact() throws IllegalStateException, IOException,
+			InterruptedException {
+		execute(new Command(Command.Type.COMPACT));
+	}
+
+	/**
+	 * Writes all the queued records, forces them to disk and stops the writer
+	 * thread. Does nothing if the journal has not been started or has already
+	 * been closed.
+	 * 
+	 * @throws IOException
+	 *             if the writer thread has failed (see
+	 *             {@link #getWriterFailure()}). The journal is closed anyway.
+	 */
+	public synchronized void close() throws IOException, InterruptedException {
+		final Thread thread = writerThread;
+		if (thread == null) {
+			return;
+		}
+		final Command command = new Command(Command.Type.CLOSE);
+		while (thread.isAlive()
+				&& !queue.offer(command, syncIntervalMillis,
+						TimeUnit.MILLISECONDS)) {
+			// Wait for room as long as there is a writer to make room
+		}
+		running = false;
+		thread.join();
+		writerThread = null;
+		throwIfWriterFailed();
+	}
+
+	private void execute(Command command) throws IllegalStateException,
+			IOException, InterruptedException {
+		final BlockingQueue<Object> q = queue;
+		final Thread thread = writerThread;
+		if (!running || q == null || thread == null) {
+			throwIfWriterFailed();
+			throw new IllegalStateException("not running");
+		}
+		// Never wait for a writer that has stopped, since nobody would ever
+		// take the command from the queue or count down its latch
+		while (!q.offer(command, syncIntervalMillis, TimeUnit.MILLISECONDS)) {
+			if (!thread.isAlive()) {
+				throwIfWriterFailed();
+				throw new IllegalStateException("not running");
+			}
+		}
+		while (!command.latch.await(syncIntervalMillis, TimeUnit.MILLISECONDS)) {
+			if (!thread.isAlive()) {
+				break;
+			}
+		}
+		if (!command.executed) {
+			throwIfWriterFailed();
+			throw new IllegalStateException(
+					"Journal was closed before the command was executed");
+		}
+	}
+
+	private void throwIfWriterFailed() throws IOException {
+		final Throwable failure = writerFailure;
+		if (failure != null) {
+			throw new IOException("Journal writer has failed", failure);
+		}
+	}
+
+	private List<Long> listSegments() {
+		final String[] names = directory.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(SEGMENT_PREFIX)
+						&& name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		final List<Long> sequences = new ArrayList<Long>();
+		if (names != null) {
+			for (String name : names) {
+				try {
+					sequences.add(Long.parseLong(name.substring(
+							SEGMENT_PREFIX.length(),
+							name.length() - SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment
+				}
+			}
+		}
+		Collections.sort(sequences);
+		return sequences;
+	}
+
+	private File getSegmentFile(long sequence) {
+		return new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX,
+				sequence, SEGMENT_SUFFIX));
+	}
+
+	private static String getKey(NavigationJournalRecord record) {
+		return record.getSessionId() + '\u0000' + record.getControllerId();
+	}
+
+	/**
+	 * Reads the records of the specified segment into <code>latest</code>,
+	 * replacing older records of the same controllers. Removal records are
+	 * kept in the map, so that they replace older records as well. If
+	 * <code>liveKeys</code> is not <code>null</code>, the keys of the
+	 * controllers with non-removal records in the segment are added to it.
+	 */
+	private void readSegment(File file,
+			Map<String, NavigationJournalRecord> latest, Set<String> liveKeys)
+			throws IOException {
+		final byte[] content;
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			content = new byte[(int) raf.length()];
+			raf.readFully(content);
+		} finally {
+			raf.close();
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(content);
+		final CRC32 crc = new CRC32();
+		while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+			final int length = buffer.getInt();
+			final int checksum = buffer.getInt();
+			if (length <= 0) {
+				// End of the written part of the segment
+				return;
+			}
+			if (length > buffer.remaining()) {
+				logger.log(Level.WARNING,
+						"Truncated record in {0}, ignoring the rest", file);
+				return;
+			}
+			crc.reset();
+			crc.update(content, buffer.position(), length);
+			if ((int) crc.getValue() != checksum) {
+				logger.log(Level.WARNING,
+						"Corrupt record in {0}, ignoring the rest", file);
+				return;
+			}
+			final NavigationJournalRecord record = NavigationJournalRecord
+					.readFrom(new DataInputStream(new ByteArrayInputStream(
+							content, buffer.position(), length)));
+			buffer.position(buffer.position() + length);
+			final String key = getKey(record);
+			latest.remove(key);
+			latest.put(key, record);
+			if (liveKeys != null && !record.isRemoval()) {
+				liveKeys.add(key);
+			}
+		}
+	}
+
+	/**
+	 * A segment that is being written through a memory mapping.
+	 */
+	private final class Segment {
+
+		final long sequence;
+		final RandomAccessFile file;
+		final MappedByteBuffer buffer;
+		boolean closed = false;
+
+		Segment(File file, long sequence, int size) throws IOException {
+			this.sequence = sequence;
+			this.file = new RandomAccessFile(file, "rw");
+			try {
+				this.buffer = this.file.getChannel().map(
+						FileChannel.MapMode.READ_WRITE, 0, size);
+			} catch (IOException e) {
+				this.file.close();
+				throw e;
+			}
+			mappedSegmentCount.incrementAndGet();
+		}
+
+		boolean hasRoomFor(byte[] payload) {
+			return buffer.remaining() >= RECORD_HEADER_SIZE + payload.length;
+		}
+
+		void write(byte[] payload, CRC32 crc) {
+			crc.reset();
+			crc.update(payload);
+			// Write the length last, so that a reader never sees a length
+			// without the rest of the record
+			final int start = buffer.position();
+			buffer.position(start + 4);
+			buffer.putInt((int) crc.getValue());
+			buffer.put(payload);
+			buffer.putInt(start, payload.length);
+		}
+
+		void force() {
+			buffer.force();
+		}
+
+		/**
+		 * Forces, closes and unmaps the segment. The buffer must not be
+		 * accessed after this method has been called, since it may no longer
+		 * be backed by memory.
+		 */
+		void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				buffer.force();
+				file.close();
+			} finally {
+				if (Unmapper.unmap(buffer)) {
+					mappedSegmentCount.decrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases memory mappings right away using JDK internals:
+	 * <code>sun.misc.Unsafe.invokeCleaner()</code> on Java 9 and later, and
+	 * the cleaner of the buffer on older versions.
+	 */
+	private static final class Unmapper {
+
+		private static final Object unsafe;
+
+		private static final Method invokeCleaner;
+
+		static {
+			Object u = null;
+			Method m = null;
+			try {
+				final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				m = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				final Field theUnsafe = unsafeClass
+						.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				u = theUnsafe.get(null);
+			} catch (Exception e) {
+				// Older JDK, the cleaner of the buffer is used instead
+				m = null;
+			}
+			unsafe = u;
+			invokeCleaner = m;
+		}
+
+		/**
+		 * Unmaps <code>buffer</code> and returns whether it succeeded. If it
+		 * did not, the mapping is released when the buffer is garbage
+		 * collected.
+		 */
+		static boolean unmap(MappedByteBuffer buffer) {
+			try {
+				if (invokeCleaner != null) {
+					invokeCleaner.invoke(unsafe, buffer);
+				} else {
+					final Method cleanerMethod = buffer.getClass().getMethod(
+							"cleaner");
+					cleanerMethod.setAccessible(true);
+					final Object cleaner = cleanerMethod.invoke(buffer);
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+				return true;
+			} catch (Exception e) {
+				Logger.getLogger(NavigationJournal.class.getName()).log(
+						Level.FINE,
+						"Could not unmap segment, leaving it to the GC", e);
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * The background writer. All the segment files are only accessed by this
+	 * thread while the journal is running.
+	 */
+	private final class Writer implements Runnable {
+
+		private final List<Long> fullSegments;
+
+		private final CRC32 crc = new CRC32();
+
+		private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(
+				256);
+
+		private Segment segment;
+
+		private int unforcedRecords = 0;
+
+		private long lastForceTime = System.currentTimeMillis();
+
+		Writer(List<Long> existingSegments) throws IOException {
+			fullSegments = existingSegments;
+			final long sequence = existingSegments.isEmpty() ? 0
+					: existingSegments.get(existingSegments.size() - 1) + 1;
+			segment = new Segment(getSegmentFile(sequence), sequence,
+					segmentSize);
+		}
+
+		@Override
+		public void run() {
+			final List<Object> batch = new ArrayList<Object>();
+			try {
+				while (true) {
+					final Object first = queue.poll(syncIntervalMillis,
+							TimeUnit.MILLISECONDS);
+					if (first != null) {
+						batch.add(first);
+						queue.drainTo(batch);
+						for (Object item : batch) {
+							if (item instanceof Command) {
+								if (!execute((Command) item)) {
+									return;
+								}
+							} else {
+								write((byte[]) item);
+							}
+						}
+						batch.clear();
+					}
+					if (unforcedRecords >= syncBatchSize
+							|| (unforcedRecords > 0 && System
+									.currentTimeMillis() - lastForceTime >= syncIntervalMillis)) {
+						force();
+					}
+				}
+			} catch (InterruptedException e) {
+				fail(e);
+				logger.log(Level.WARNING, "Journal writer interrupted");
+			} catch (IOException e) {
+				fail(e);
+				logger.log(Level.SEVERE, "Could not write to journal", e);
+			} catch (RuntimeException e) {
+				fail(e);
+				logger.log(Level.SEVERE, "Could not write to journal", e);
+			} finally {
+				running = false;
+				try {
+					segment.close();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Could not close segment", e);
+				}
+				// Release anyone still waiting for a command
+				for (Object item : queue) {
+					if (item instanceof Command) {
+						((Command) item).latch.countDown();
+					}
+				}
+			}
+		}
+
+		private void fail(Throwable failure) {
+			if (writerFailure == null) {
+				writerFailure = failure;
+			}
+		}
+
+		/**
+		 * Executes the command and returns whether the writer should keep on
+		 * running. The failure is recorded before the latch is counted down,
+		 * so that the waiting caller can see it.
+		 */
+		private boolean execute(Command command) throws IOException {
+			try {
+				final boolean keepRunning;
+				switch (command.type) {
+				case FLUSH:
+					force();
+					keepRunning = true;
+					break;
+				case COMPACT:
+					roll();
+					compactFullSegments();
+					keepRunning = true;
+					break;
+				default:
+					force();
+					keepRunning = false;
+				}
+				command.executed = true;
+				return keepRunning;
+			} catch (IOException e) {
+				fail(e);
+				throw e;
+			} catch (RuntimeException e) {
+				fail(e);
+				throw e;
+			} finally {
+				command.latch.countDown();
+			}
+		}
+
+		/**
+		 * Writes a record encoded by {@link NavigationJournal#encode(NavigationJournalRecord)}.
+		 */
+		private void write(byte[] payload) throws IOException {
+			if (!segment.hasRoomFor(payload)) {
+				roll();
+				if (fullSegments.size() > maxSegments) {
+					compactFullSegments();
+				}
+			}
+			segment.write(payload, crc);
+			++unforcedRecords;
+		}
+
+		private void force() {
+			segment.force();
+			unforcedRecords = 0;
+			lastForceTime = System.currentTimeMillis();
+		}
+
+		private void roll() throws IOException {
+			segment.close();
+			fullSegments.add(segment.sequence);
+			final long sequence = segment.sequence + 1;
+			segment = new Segment(getSegmentFile(sequence), sequence,
+					segmentSize);
+			unforcedRecords = 0;
+			lastForceTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Replaces the full segments with a single segment containing only
+		 * the latest record of every controller. The compacted segment gets
+		 * the sequence number of the newest full segment, so it is still read
+		 * before the segment currently being written.
+		 * <p>
+		 * The compacted segment is written to a temporary file and then
+		 * renamed over the newest full segment, after which the older
+		 * segments are deleted. If the node crashes before all of them have
+		 * been deleted, the remaining ones are read before the compacted
+		 * segment. Therefore, the compacted segment keeps the removal record
+		 * of every controller that has other records in the older segments,
+		 * so that such a controller does not come back. If the rename fails,
+		 * nothing is deleted and the segments are left as they were.
+		 */
+		private void compactFullSegments() throws IOException {
+			if (fullSegments.isEmpty()) {
+				return;
+			}
+			final Map<String, NavigationJournalRecord> latest = new LinkedHashMap<String, NavigationJournalRecord>();
+			final Set<String> keysInOlderSegments = new HashSet<String>();
+			final int newestIndex = fullSegments.size() - 1;
+			for (int i = 0; i < newestIndex; ++i) {
+				readSegment(getSegmentFile(fullSegments.get(i)), latest,
+						keysInOlderSegments);
+			}
+			final long newestSequence = fullSegments.get(newestIndex);
+			final File newestFile = getSegmentFile(newestSequence);
+			readSegment(newestFile, latest, null);
+
+			final List<byte[]> payloads = new ArrayList<byte[]>(latest.size());
+			int size = 0;
+			for (Map.Entry<String, NavigationJournalRecord> entry : latest
+					.entrySet()) {
+				if (entry.getValue().isRemoval()
+						&& !keysInOlderSegments.contains(entry.getKey())) {
+					continue;
+				}
+				encodeBuffer.reset();
+				entry.getValue().writeTo(new DataOutputStream(encodeBuffer));
+				final byte[] payload = encodeBuffer.toByteArray();
+				payloads.add(payload);
+				size += RECORD_HEADER_SIZE + payload.length;
+			}
+			final File compactedFile = new File(directory,
+					newestFile.getName() + COMPACTION_SUFFIX);
+			final RandomAccessFile out = new RandomAccessFile(compactedFile,
+					"rw");
+			try {
+				out.setLength(0);
+				final ByteBuffer buffer = ByteBuffer.allocate(size);
+				for (byte[] payload : payloads) {
+					crc.reset();
+					crc.update(payload);
+					buffer.putInt(payload.length);
+					buffer.putInt((int) crc.getValue());
+					buffer.put(payload);
+				}
+				buffer.flip();
+				out.getChannel().write(buffer);
+				out.getChannel().force(true);
+			} finally {
+				out.close();
+			}
+			// Never delete the newest segment before the compacted one has
+			// replaced it: on platforms where a file cannot be renamed over
+			// an existing one, the journal is simply left uncompacted
+			if (!compactedFile.renameTo(newestFile)) {
+				logger.log(Level.WARNING,
+						"Could not replace {0}, journal not compacted",
+						newestFile);
+				if (!compactedFile.delete()) {
+					logger.log(Level.WARNING, "Could not delete {0}",
+							compactedFile);
+				}
+				return;
+			}
+			// Segments that could not be deleted stay in the list, so that
+			// their controllers keep their removal records and the segments
+			// are deleted by the next compaction
+			final List<Long> remaining = new ArrayList<Long>();
+			for (int i = 0; i < newestIndex; ++i) {
+				final File file = getSegmentFile(fullSegments.get(i));
+				if (!file.delete()) {
+					logger.log(Level.WARNING, "Could not delete {0}", file);
+					remaining.add(fullSegments.get(i));
+				}
+			}
+			remaining.add(newestSequence);
+			fullSegments.clear();
+			fullSegments.addAll(remaining);
+			logger.log(Level.FINE, "Compacted journal into {0} records",
+					payloads.size());
+		}
+	}
+}
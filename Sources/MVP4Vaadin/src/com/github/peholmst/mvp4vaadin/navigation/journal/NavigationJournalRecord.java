@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController.NavigationResult;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+
+/**
+ * An immutable record of the navigation state of a single controller, as
+ * written to a {@link NavigationJournal}. The record contains the ID of the
+ * session, the ID of the controller within the session, the IDs of the views
+ * in the view stack (as registered in a {@link ViewMap}) and the parameters
+ * of the most recent navigation request.
+ * <p>
+ * Only parameters whose values are strings, integers, longs or booleans are
+ * journaled (see {@link #isJournalable(Object)}); other parameters are
+ * silently left out. A record with an empty view stack marks the controller as
+ * removed from the journal.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class NavigationJournalRecord {
+
+	private static final byte TYPE_STRING = 0;
+	private static final byte TYPE_INTEGER = 1;
+	private static final byte TYPE_LONG = 2;
+	private static final byte TYPE_BOOLEAN = 3;
+
+	/**
+	 * The maximum number of views and parameters, which are written as
+	 * unsigned shorts.
+	 */
+	private static final int MAX_COUNT = 0xFFFF;
+
+	private final String sessionId;
+	private final String controllerId;
+	private final List<String> viewIds;
+	private final Map<String, Object> params;
+
+	/**
+	 * Creates a new record.
+	 * 
+	 * @param sessionId
+	 *            the ID of the session (must not be <code>null</code>).
+	 * @param controllerId
+	 *            the ID of the controller within the session (must not be
+	 *            <code>null</code>).
+	 * @param viewIds
+	 *            the IDs of the views in the stack, from the bottom to the top
+	 *            (must not be <code>null</code>, may be empty).
+	 * @param params
+	 *            the navigation parameters (may be <code>null</code>).
+	 *            Parameters that cannot be journaled are left out.
+	 */
+	public NavigationJournalRecord(String sessionId, String controllerId,
+			List<String> viewIds, Map<String, Object> params) {
+		if (sessionId == null || controllerId == null || viewIds == null) {
+			throw new IllegalArgumentException(
+					"sessionId, controllerId and viewIds must not be null");
+		}
+		this.sessionId = sessionId;
+		this.controllerId = controllerId;
+		this.viewIds = Collections.unmodifiableList(new ArrayList<String>(
+				viewIds));
+		if (params == null || params.isEmpty()) {
+			this.params = Collections.emptyMap();
+		} else {
+			final Map<String, Object> journaledParams = new LinkedHashMap<String, Object>();
+			for (Map.Entry<String, Object> param : params.entrySet()) {
+				if (param.getKey() != null && isJournalable(param.getValue())) {
+					journaledParams.put(param.getKey(), param.getValue());
+				}
+			}
+			this.params = Collections.unmodifiableMap(journaledParams);
+		}
+	}
+
+	/**
+	 * Returns whether <code>value</code> can be included in a record as a
+	 * parameter value.
+	 */
+	public static boolean isJournalable(Object value) {
+		return value instanceof String || value instanceof Integer
+				|| value instanceof Long || value instanceof Boolean;
+	}
+
+	/**
+	 * Returns the ID of the session.
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns the ID of the controller within the session.
+	 */
+	public String getControllerId() {
+		return controllerId;
+	}
+
+	/**
+	 * Returns an unmodifiable list of the IDs of the views in the stack, from
+	 * the bottom to the top.
+	 */
+	public List<String> getViewIds() {
+		return viewIds;
+	}
+
+	/**
+	 * Returns an unmodifiable map of the journaled navigation parameters.
+	 */
+	public Map<String, Object> getParams() {
+		return params;
+	}
+
+	/**
+	 * Returns whether this record marks the controller as removed, i.e. the
+	 * view stack is empty.
+	 */
+	public boolean isRemoval() {
+		return viewIds.isEmpty();
+	}
+
+	/**
+	 * Navigates <code>controller</code> to the view stack of this record. The
+	 * views are looked up from <code>viewMap</code>.
+	 * 
+	 * @return the result of the navigation.
+	 * @throws com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException
+	 *             if a view could not be found in the view map.
+	 */
+	public NavigationResult restore(NavigationController controller,
+			ViewMap viewMap) {
+		if (isRemoval()) {
+			return controller.clear();
+		}
+		final List<View> path = new ArrayList<View>(viewIds.size());
+		for (String viewId : viewIds) {
+			path.add(viewMap.getViewById(viewId));
+		}
+		return controller.navigate(new DefaultNavigationRequest(path,
+				new HashMap<String, Object>(params)));
+	}
+
+	/**
+	 * Writes this record to the specified output.
+	 * 
+	 * @throws IOException
+	 *             if writing fails, or if the record cannot be encoded: there
+	 *             are more than 65535 views or parameters, or a string is
+	 *             longer than 65535 bytes in modified UTF-8 (in which case a
+	 *             {@link java.io.UTFDataFormatException} is thrown).
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		if (viewIds.size() > MAX_COUNT || params.size() > MAX_COUNT) {
+			throw new IOException("Too many views or parameters in " + this);
+		}
+		out.writeUTF(sessionId);
+		out.writeUTF(controllerId);
+		out.writeShort(viewIds.size());
+		for (String viewId : viewIds) {
+			out.writeUTF(viewId);
+		}
+		out.writeShort(params.size());
+		for (Map.Entry<String, Object> param : params.entrySet()) {
+			out.writeUTF(param.getKey());
+			final Object value = param.getValue();
+			if (value instanceof String) {
+				out.writeByte(TYPE_STRING);
+				out.writeUTF((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(TYPE_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Long) {
+				out.writeByte(TYPE_LONG);
+				out.writeLong((Long) value);
+			} else {
+				out.writeByte(TYPE_BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			}
+		}
+	}
+
+	/**
+	 * Reads a record that has been written using {@link #writeTo(DataOutput)}.
+	 */
+	public static NavigationJournalRecord readFrom(DataInput in)
+			throws IOException {
+		final String sessionId = in.readUTF();
+		final String controllerId = in.readUTF();
+		final int viewCount = in.readUnsignedShort();
+		final List<String> viewIds = new ArrayList<String>(viewCount);
+		for (int i = 0; i < viewCount; ++i) {
+			viewIds.add(in.readUTF());
+		}
+		final int paramCount = in.readUnsignedShort();
+		final Map<String, Object> params = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < paramCount; ++i) {
+			final String name = in.readUTF();
+			final byte type = in.readByte();
+			switch (type) {
+			case TYPE_STRING:
+				params.put(name, in.readUTF());
+				break;
+			case TYPE_INTEGER:
+				params.put(name, in.readInt());
+				break;
+			case TYPE_LONG:
+				params.put(name, in.readLong());
+				break;
+			case TYPE_BOOLEAN:
+				params.put(name, in.readBoolean());
+				break;
+			default:
+				throw new IOException("Unknown parameter type " + type);
+			}
+		}
+		return new NavigationJournalRecord(sessionId, controllerId, viewIds,
+				params);
+	}
+
+	@Override
+	public String toString() {
+		return sessionId + "/" + controllerId + viewIds + params;
+	}
+}
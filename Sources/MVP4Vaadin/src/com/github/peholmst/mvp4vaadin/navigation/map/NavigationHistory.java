@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+
+/**
+ * A bounded history of the view stacks of a {@link NavigationController}. A
+ * new entry is recorded every time the current view of the controller
+ * changes. The entries are stored as {@link ViewPath}s, so an entry costs a
+ * few bytes per view instead of holding references to the views.
+ * <p>
+ * All the views in the stack must be registered with the view map; stacks
+ * containing unregistered views, or views whose IDs cannot be interned
+ * because the {@link ViewIdRegistry} is full, are not recorded. This class is
+ * not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationHistory implements NavigationControllerListener {
+
+	private static final long serialVersionUID = 2203412446512372557L;
+
+	private final NavigationController controller;
+
+	private final ViewMap viewMap;
+
+	private final ViewPath[] entries;
+
+	private int first = 0;
+
+	private int size = 0;
+
+	/**
+	 * Creates a new history and registers it as a listener with
+	 * <code>controller</code>.
+	 * 
+	 * @param controller
+	 *            the controller whose history should be recorded (must not be
+	 *            <code>null</code>).
+	 * @param viewMap
+	 *            the view map to look up the view IDs from (must not be
+	 *            <code>null</code>).
+	 * @param capacity
+	 *            the maximum number of entries, after which the oldest entries
+	 *            are discarded (must be at least 1).
+	 */
+	public NavigationHistory(NavigationController controller, ViewMap viewMap,
+			int capacity) {
+		if (controller == null || viewMap == null) {
+			throw new IllegalArgumentException(
+					"controller and viewMap must not be null");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.controller = controller;
+		this.viewMap = viewMap;
+		this.entries = new ViewPath[capacity];
+		controller.addListener(this);
+	}
+
+	/**
+	 * Unregisters the history from the controller.
+	 */
+	public void stop() {
+		controller.removeListener(this);
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		if (event.getSource() == controller
+				&& event instanceof CurrentNavigationControllerViewChangedEvent) {
+			try {
+				record(ViewPath.of(controller.getViewStack(), viewMap));
+			} catch (NoSuchViewException e) {
+				Logger.getLogger(getClass().getName()).log(Level.FINE,
+						"View not in view map, stack not recorded", e);
+			} catch (IllegalStateException e) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING,
+						"View ID registry is full, stack not recorded", e);
+			}
+		}
+	}
+
+	private void record(ViewPath path) {
+		if (size == entries.length) {
+			entries[first] = path;
+			first = (first + 1) % entries.length;
+		} else {
+			entries[(first + size) % entries.length] = path;
+			++size;
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the history.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the entry at <code>index</code>, where 0 is the oldest entry.
+	 */
+	public ViewPath getEntry(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index);
+		}
+		return entries[(first + index) % entries.length];
+	}
+
+	/**
+	 * Returns the most recent entry, or {@link ViewPath#EMPTY} if the history
+	 * is empty.
+	 */
+	public ViewPath getLatestEntry() {
+		return size == 0 ? ViewPath.EMPTY : getEntry(size - 1);
+	}
+
+	/**
+	 * Returns a list of the entries, from the oldest to the most recent.
+	 */
+	public List<ViewPath> getEntries() {
+		final List<ViewPath> result = new ArrayList<ViewPath>(size);
+		for (int i = 0; i < size; ++i) {
+			result.add(getEntry(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all the entries from the history.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length; ++i) {
+			entries[i] = null;
+		}
+		first = 0;
+		size = 0;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * A {@link RegistryViewMap} that takes the pooled views from a
+ * {@link ViewPool} instead of creating them. The pool is not serialized; after
+ * deserialization, any views that have not been created yet are created
+ * without the pool.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class PooledViewMap extends RegistryViewMap {
+
+	private static final long serialVersionUID = -3585385946493302716L;
+
+	private transient ViewPool pool;
+
+	/**
+	 * Creates a new view map.
+	 * 
+	 * @param pool
+	 *            the pool to take the views from (must not be
+	 *            <code>null</code>).
+	 */
+	public PooledViewMap(ViewPool pool) {
+		super(pool == null ? null : pool.getRegistry());
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the pool, or <code>null</code> if the map has been deserialized.
+	 */
+	public ViewPool getPool() {
+		return pool;
+	}
+
+	@Override
+	protected View createView(ViewDefinition definition) {
+		if (pool != null && pool.isPooled(definition.getViewId())) {
+			return pool.take(definition.getViewId());
+		}
+		return super.createView(definition);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import com.github.peholmst.mvp4vaadin.Disposable;
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * A {@link ViewMap} backed by an application wide {@link ViewRegistry}. The
+ * map only holds the view instances of one session; the instances are
+ * created the first time they are requested. The view IDs and classes are
+ * looked up from the registry. This class is not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class RegistryViewMap implements ViewMap {
+
+	private static final long serialVersionUID = -6196566934452618208L;
+
+	private final ViewRegistry registry;
+
+	private final HashMap<String, View> views = new HashMap<String, View>();
+
+	private final IdentityHashMap<View, String> viewIds = new IdentityHashMap<View, String>();
+
+	/**
+	 * Creates a new view map.
+	 * 
+	 * @param registry
+	 *            the registry containing the view definitions (must not be
+	 *            <code>null</code>).
+	 */
+	public RegistryViewMap(ViewRegistry registry) {
+		if (registry == null) {
+			throw new IllegalArgumentException("registry must not be null");
+		}
+		this.registry = registry;
+	}
+
+	/**
+	 * Returns the registry.
+	 */
+	public ViewRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns whether the view with the specified ID has been created.
+	 */
+	public boolean isViewCreated(String viewId) {
+		return views.containsKey(viewId);
+	}
+
+	/**
+	 * Evicts the instance of the specified view from the map, disposing of it
+	 * if it implements {@link Disposable}. The next time the view is
+	 * requested, a new instance is created. The view must not be used after
+	 * this, so make sure it is not attached to any navigation controller.
+	 * 
+	 * @return true if an instance was evicted, false if the view had not been
+	 *         created.
+	 */
+	public boolean evictView(String viewId) {
+		final View view = views.remove(viewId);
+		if (view == null) {
+			return false;
+		}
+		viewIds.remove(view);
+		if (view instanceof Disposable) {
+			((Disposable) view).dispose();
+		}
+		return true;
+	}
+
+	/**
+	 * Evicts all the view instances from the map.
+	 * 
+	 * @see #evictView(String)
+	 */
+	public void evictAllViews() {
+		for (String viewId : new ArrayList<String>(views.keySet())) {
+			evictView(viewId);
+		}
+	}
+
+	@Override
+	public View getViewById(String viewId) throws NoSuchViewException {
+		View view = views.get(viewId);
+		if (view == null) {
+			view = createView(registry.getDefinition(viewId));
+			views.put(viewId, view);
+			viewIds.put(view, viewId);
+		}
+		return view;
+	}
+
+	/**
+	 * Creates a new instance of the specified view. This implementation
+	 * delegates to {@link ViewDefinition#createView()}; subclasses may
+	 * override to obtain the instance from somewhere else.
+	 */
+	protected View createView(ViewDefinition definition) {
+		return definition.createView();
+	}
+
+	@Override
+	public boolean containsView(String viewId) {
+		return registry.containsView(viewId);
+	}
+
+	@Override
+	public <V extends View> V getViewByClass(Class<V> viewClass)
+			throws NoSuchViewException {
+		return viewClass.cast(getViewById(registry.getDefinition(viewClass)
+				.getViewId()));
+	}
+
+	@Override
+	public boolean containsView(Class<? extends View> viewClass) {
+		try {
+			registry.getDefinition(viewClass);
+			return true;
+		} catch (NoSuchViewException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String getViewId(View view) throws NoSuchViewException {
+		final String viewId = viewIds.get(view);
+		if (viewId == null) {
+			throw new NoSuchViewException("View not found");
+		}
+		return viewId;
+	}
+}
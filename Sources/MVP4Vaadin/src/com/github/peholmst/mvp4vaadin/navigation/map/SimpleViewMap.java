@@ -15,7 +15,11 @@
  */
 package com.github.peholmst.mvp4vaadin.navigation.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.github.peholmst.mvp4vaadin.View;
 
@@ -32,6 +36,12 @@ public class SimpleViewMap implements ViewMap {
 
 	private final HashMap<String, View> viewMap = new HashMap<String, View>();
 
+	/*
+	 * Derived from viewMap and rebuilt on deserialization, so that sessions
+	 * serialized before this field existed can still be read.
+	 */
+	private transient IdentityHashMap<View, String> viewIds = new IdentityHashMap<View, String>();
+
 	@Override
 	public View getViewById(String viewId) throws NoSuchViewException {
 		View view = viewMap.get(viewId);
@@ -76,12 +86,28 @@ public class SimpleViewMap implements ViewMap {
 		}
 	}
 
+	@Override
+	public String getViewId(View view) throws NoSuchViewException {
+		final String viewId = viewIds.get(view);
+		if (viewId == null) {
+			throw new NoSuchViewException("View not found");
+		}
+		return viewId;
+	}
+
 	/**
 	 * Registers the specified view with the specified view ID. If another view
 	 * has been previously registered with the same ID, it will get replaced.
+	 * The view ID is not interned in the {@link ViewIdRegistry} until it is
+	 * used in a {@link ViewPath}, so views registered with IDs generated at
+	 * runtime do not fill up the registry.
 	 */
 	public void registerView(String viewId, View view) {
-		viewMap.put(viewId, view);
+		final View oldView = viewMap.put(viewId, view);
+		if (oldView != null && oldView != view) {
+			removeViewId(oldView, viewId);
+		}
+		viewIds.put(view, viewId);
 	}
 
 	/**
@@ -89,7 +115,37 @@ public class SimpleViewMap implements ViewMap {
 	 * nothing happens.
 	 */
 	public void unregisterView(String viewId) {
-		viewMap.remove(viewId);
+		final View view = viewMap.remove(viewId);
+		if (view != null) {
+			removeViewId(view, viewId);
+		}
+	}
+
+	/**
+	 * Removes the reverse mapping of <code>view</code>, unless the view has
+	 * been registered with another ID as well.
+	 */
+	private void removeViewId(View view, String viewId) {
+		if (viewId.equals(viewIds.get(view))) {
+			viewIds.remove(view);
+			for (Map.Entry<String, View> entry : viewMap.entrySet()) {
+				if (entry.getValue() == view) {
+					viewIds.put(view, entry.getKey());
+					return;
+				}
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		viewIds = new IdentityHashMap<View, String>();
+		for (Map.Entry<String, View> entry : viewMap.entrySet()) {
+			if (!viewIds.containsKey(entry.getValue())) {
+				viewIds.put(entry.getValue(), entry.getKey());
+			}
+		}
 	}
 
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.lang.reflect.Constructor;
+
+import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
+import com.github.peholmst.mvp4vaadin.PresenterFactory;
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * An immutable definition of a view in a {@link ViewRegistry}: the view ID,
+ * the view class, the factory used to create instances, the ID of the parent
+ * view in the navigation graph and the presenter class, if it can be resolved
+ * from the type arguments of the view class.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewDefinition {
+
+	private final String viewId;
+
+	private final Class<? extends View> viewClass;
+
+	private final String parentId;
+
+	private final ViewFactory factory;
+
+	private final Class<?> presenterClass;
+
+	private final Constructor<? extends View> defaultConstructor;
+
+	ViewDefinition(String viewId, Class<? extends View> viewClass,
+			String parentId, ViewFactory factory) {
+		this.viewId = viewId;
+		this.viewClass = viewClass;
+		this.parentId = parentId;
+		this.factory = factory;
+		this.presenterClass = resolvePresenterClass(viewClass);
+		if (factory == null) {
+			try {
+				defaultConstructor = viewClass.getConstructor();
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException(viewClass.getName()
+						+ " has no public default constructor", e);
+			}
+		} else {
+			defaultConstructor = null;
+		}
+	}
+
+	private static Class<?> resolvePresenterClass(Class<?> viewClass) {
+		if (AbstractViewComponent.class.isAssignableFrom(viewClass)) {
+			try {
+				return PresenterFactory.forViewImplementationClass(viewClass)
+						.getPresenterClass();
+			} catch (ClassCastException e) {
+				// The superclass is not parameterized
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the ID of the view.
+	 */
+	public String getViewId() {
+		return viewId;
+	}
+
+	/**
+	 * Returns the class of the view.
+	 */
+	public Class<? extends View> getViewClass() {
+		return viewClass;
+	}
+
+	/**
+	 * Returns the ID of the parent view in the navigation graph, or
+	 * <code>null</code> if the view is a root view.
+	 */
+	public String getParentId() {
+		return parentId;
+	}
+
+	/**
+	 * Returns the class of the presenter if the view class is an
+	 * {@link AbstractViewComponent} whose presenter class could be resolved
+	 * from its type arguments, or <code>null</code> otherwise.
+	 */
+	public Class<?> getPresenterClass() {
+		return presenterClass;
+	}
+
+	/**
+	 * Creates a new view instance, using the factory if one has been
+	 * specified and the public default constructor of the view class
+	 * otherwise.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the view could not be created.
+	 */
+	public View createView() throws IllegalStateException {
+		if (factory != null) {
+			return factory.createView(this);
+		}
+		try {
+			return defaultConstructor.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not create view "
+					+ viewId, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return viewId + " (" + viewClass.getName() + ")";
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Factory interface for creating view instances from a {@link ViewDefinition}.
+ * Factories are shared by all sessions, so implementations must be thread
+ * safe.
+ * 
+ * @see ViewRegistry
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface ViewFactory {
+
+	/**
+	 * Creates a new view instance for the specified definition.
+	 */
+	View createView(ViewDefinition definition);
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An application wide registry that interns view IDs and gives each of them a
+ * dense integer ID, starting from 0. The integer IDs can be used to store view
+ * paths as <code>int</code> arrays (see {@link ViewPath}), which are cheaper
+ * to store and compare than lists of strings or views.
+ * <p>
+ * The integer IDs depend on the order in which the view IDs are interned, so
+ * they must never be written to disk or sent to another JVM. Use the view IDs
+ * instead.
+ * <p>
+ * Interned IDs are never removed, so only a bounded set of view IDs should be
+ * interned (typically the IDs of the views that appear in {@link ViewPath}s).
+ * To keep view IDs generated at runtime, e.g. one per record being edited,
+ * from growing the registry without limit, a registry holds at most
+ * {@link #getCapacity()} IDs. This class is thread safe, and looking up
+ * already interned IDs does not lock.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewIdRegistry {
+
+	/**
+	 * The capacity of registries created with the default constructor,
+	 * including the shared instance.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final ViewIdRegistry INSTANCE = new ViewIdRegistry();
+
+	private final int capacity;
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+	private volatile String[] viewIds = new String[16];
+
+	private int size = 0;
+
+	/**
+	 * Returns the application wide registry instance.
+	 */
+	public static ViewIdRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Creates a new, empty registry with the default capacity. Normally, the
+	 * shared instance returned by {@link #getInstance()} should be used.
+	 */
+	public ViewIdRegistry() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty registry.
+	 * 
+	 * @param capacity
+	 *            the maximum number of view IDs (must be at least 1).
+	 */
+	public ViewIdRegistry(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the maximum number of view IDs that can be interned.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the integer ID of <code>viewId</code>, interning it first if
+	 * needed.
+	 * 
+	 * @param viewId
+	 *            the view ID (must not be <code>null</code>).
+	 * @throws IllegalStateException
+	 *             if <code>viewId</code> has not been interned and the
+	 *             registry is full.
+	 */
+	public int intern(String viewId) throws IllegalStateException {
+		final Integer id = ids.get(viewId);
+		if (id != null) {
+			return id;
+		}
+		if (viewId == null) {
+			throw new IllegalArgumentException("viewId must not be null");
+		}
+		return internSlow(viewId);
+	}
+
+	private synchronized int internSlow(String viewId) {
+		final Integer id = ids.get(viewId);
+		if (id != null) {
+			return id;
+		}
+		if (size == capacity) {
+			throw new IllegalStateException("Cannot intern " + viewId
+					+ ", the registry already holds " + capacity
+					+ " view IDs");
+		}
+		String[] array = viewIds;
+		if (size == array.length) {
+			array = Arrays.copyOf(array, Math.min(size * 2, capacity));
+		}
+		array[size] = viewId;
+		// Publish the array before the ID, so that readers that find the ID
+		// always find the view ID as well
+		viewIds = array;
+		ids.put(viewId, size);
+		return size++;
+	}
+
+	/**
+	 * Returns the integer ID of <code>viewId</code>, or -1 if it has not been
+	 * interned.
+	 */
+	public int getId(String viewId) {
+		final Integer id = viewId == null ? null : ids.get(viewId);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the view ID whose integer ID is <code>id</code>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if no view ID has been given the integer ID.
+	 */
+	public String getViewId(int id) throws IllegalArgumentException {
+		final String[] array = viewIds;
+		if (id < 0 || id >= array.length || array[id] == null) {
+			throw new IllegalArgumentException("Unknown ID " + id);
+		}
+		return array[id];
+	}
+
+	/**
+	 * Returns the number of interned view IDs.
+	 */
+	public int size() {
+		return ids.size();
+	}
+}
@@ -62,4 +62,16 @@ public interface ViewMap extends java.io.Serializable {
 	 * specified class.
 	 */
 	boolean containsView(Class<? extends View> viewClass);
+
+	/**
+	 * Returns the ID under which the specified view instance is registered in
+	 * the map, so that <code>getViewById(getViewId(view)) == view</code>.
+	 * Views are matched by identity. If the view is registered under several
+	 * IDs, any one of them may be returned.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the view is not in the map, or if the map cannot map views
+	 *             back to IDs.
+	 */
+	String getViewId(View view) throws NoSuchViewException;
 }
@@ -60,7 +60,7 @@ public class ViewMapPathBuilder extends NavigationRequestBuilder.PathBuilder {
 	 * {@link IllegalStateException} is thrown.
 	 */
 	public ViewMapPathBuilder setViewMap(ViewMap viewMap) {
-		if (viewMap != null) {
+		if (this.viewMap != null) {
 			throw new IllegalStateException("A ViewMap has already been set");
 		}
 		this.viewMap = viewMap;
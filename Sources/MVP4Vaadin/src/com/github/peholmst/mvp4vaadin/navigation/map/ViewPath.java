@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * An immutable path of views, stored as an array of the integer IDs given to
+ * the view IDs by the shared {@link ViewIdRegistry}. A path takes a few bytes
+ * per view and can be compared to another path without looking at the views
+ * or the view IDs.
+ * <p>
+ * Paths are serialized using the view IDs, and the IDs are interned again
+ * when deserialized, so a path can be safely sent to another JVM.
+ * <p>
+ * The registry has a limited capacity (see
+ * {@link ViewIdRegistry#getCapacity()}), so paths should only be created for
+ * views whose IDs come from a bounded set. The methods that intern view IDs
+ * throw an {@link IllegalStateException} if the registry is full.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewPath implements java.io.Serializable {
+
+	private static final long serialVersionUID = -3350307656096227463L;
+
+	private static final int INITIAL_READ_CAPACITY = 16;
+
+	/**
+	 * The empty path.
+	 */
+	public static final ViewPath EMPTY = new ViewPath(new int[0]);
+
+	private transient int[] ids;
+
+	private ViewPath(int[] ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * Creates a path from the specified view IDs, interning them if needed.
+	 */
+	public static ViewPath of(String... viewIds) {
+		return of(Arrays.asList(viewIds));
+	}
+
+	/**
+	 * Creates a path from the specified view IDs, interning them if needed.
+	 */
+	public static ViewPath of(List<String> viewIds) {
+		if (viewIds.isEmpty()) {
+			return EMPTY;
+		}
+		final ViewIdRegistry registry = ViewIdRegistry.getInstance();
+		final int[] ids = new int[viewIds.size()];
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = registry.intern(viewIds.get(i));
+		}
+		return new ViewPath(ids);
+	}
+
+	/**
+	 * Creates a path from the specified views, e.g. the view stack of a
+	 * navigation controller.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if a view is not in <code>viewMap</code>.
+	 */
+	public static ViewPath of(List<? extends View> views, ViewMap viewMap)
+			throws NoSuchViewException {
+		if (views.isEmpty()) {
+			return EMPTY;
+		}
+		final ViewIdRegistry registry = ViewIdRegistry.getInstance();
+		final int[] ids = new int[views.size()];
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = registry.intern(viewMap.getViewId(views.get(i)));
+		}
+		return new ViewPath(ids);
+	}
+
+	/**
+	 * Returns the number of views in the path.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns whether the path is empty.
+	 */
+	public boolean isEmpty() {
+		return ids.length == 0;
+	}
+
+	/**
+	 * Returns the integer ID of the view at <code>index</code>.
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * Returns the view ID of the view at <code>index</code>.
+	 */
+	public String getViewId(int index) {
+		return ViewIdRegistry.getInstance().getViewId(ids[index]);
+	}
+
+	/**
+	 * Returns an unmodifiable list view of the view IDs of the path.
+	 */
+	public List<String> getViewIds() {
+		return new AbstractList<String>() {
+
+			@Override
+			public String get(int index) {
+				return getViewId(index);
+			}
+
+			@Override
+			public int size() {
+				return ids.length;
+			}
+		};
+	}
+
+	/**
+	 * Returns a new path with <code>viewId</code> appended to the end of this
+	 * path.
+	 */
+	public ViewPath append(String viewId) {
+		final int[] newIds = Arrays.copyOf(ids, ids.length + 1);
+		newIds[ids.length] = ViewIdRegistry.getInstance().intern(viewId);
+		return new ViewPath(newIds);
+	}
+
+	/**
+	 * Returns a new path containing the first <code>length</code> views of
+	 * this path.
+	 */
+	public ViewPath subPath(int length) {
+		if (length == ids.length) {
+			return this;
+		}
+		return length == 0 ? EMPTY : new ViewPath(Arrays.copyOf(ids, length));
+	}
+
+	/**
+	 * Returns the index of the first view that differs between this path and
+	 * <code>other</code>. If one of the paths is a prefix of the other, the
+	 * length of the shorter path is returned. If the paths are equal, their
+	 * length is returned.
+	 */
+	public int getIndexOfFirstDifference(ViewPath other) {
+		final int[] otherIds = other.ids;
+		final int length = Math.min(ids.length, otherIds.length);
+		for (int i = 0; i < length; ++i) {
+			if (ids[i] != otherIds[i]) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Looks up the views of this path from <code>viewMap</code>.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if a view is not in <code>viewMap</code>.
+	 */
+	public List<View> toViews(ViewMap viewMap) throws NoSuchViewException {
+		final List<View> views = new ArrayList<View>(ids.length);
+		for (int i = 0; i < ids.length; ++i) {
+			views.add(viewMap.getViewById(getViewId(i)));
+		}
+		return views;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		return obj instanceof ViewPath && Arrays.equals(ids, ((ViewPath) obj).ids);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ids);
+	}
+
+	@Override
+	public String toString() {
+		return getViewIds().toString();
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(ids.length);
+		for (int i = 0; i < ids.length; ++i) {
+			out.writeUTF(getViewId(i));
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		final ViewIdRegistry registry = ViewIdRegistry.getInstance();
+		final int length = in.readInt();
+		if (length < 0) {
+			throw new InvalidObjectException("Negative path length: " + length);
+		}
+		// The array grows as IDs are read, so a corrupt length cannot
+		// allocate more than the stream contains
+		int[] readIds = new int[Math.min(length, INITIAL_READ_CAPACITY)];
+		try {
+			for (int i = 0; i < length; ++i) {
+				if (i == readIds.length) {
+					readIds = Arrays.copyOf(readIds, Math.min(length, i * 2));
+				}
+				readIds[i] = registry.intern(in.readUTF());
+			}
+		} catch (IllegalStateException e) {
+			throw new InvalidObjectException(e.getMessage());
+		}
+		ids = readIds;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Application wide pool of constructed and initialized view instances. The
+ * pool is intended for the landing views that every new session shows
+ * first: instead of constructing and initializing them during login, the
+ * session takes ready instances from the pool, which is then refilled
+ * asynchronously in the background.
+ * <p>
+ * Only the views that have been given a pool size using
+ * {@link #setPoolSize(String, int)} are pooled. Every instance is handed out
+ * exactly once, so pooled views are never shared between sessions. If a pool
+ * is empty, {@link #take(String)} creates the view synchronously.
+ * <p>
+ * This class is thread safe. The views are created and initialized by the
+ * executor passed to the constructor, outside of any application, so the
+ * views must not depend on an application or session while being
+ * initialized.
+ * 
+ * @see PooledViewMap
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewPool {
+
+	private final ViewRegistry registry;
+
+	private final Executor executor;
+
+	private final Map<String, Slot> slots = new ConcurrentHashMap<String, Slot>();
+
+	private volatile boolean running;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final Logger logger = Logger.getLogger(getClass().getName());
+
+	private final class Slot {
+
+		final ViewDefinition definition;
+
+		final LinkedBlockingQueue<View> views = new LinkedBlockingQueue<View>();
+
+		final AtomicInteger inFlight = new AtomicInteger();
+
+		volatile int size;
+
+		Slot(ViewDefinition definition) {
+			this.definition = definition;
+		}
+
+		void refill() {
+			while (running && views.size() + inFlight.get() < size) {
+				inFlight.incrementAndGet();
+				try {
+					executor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							try {
+								if (running) {
+									views.offer(createInitializedView(definition));
+								}
+							} catch (RuntimeException e) {
+								logger.log(Level.WARNING,
+										"Could not create pooled view "
+												+ definition, e);
+							} finally {
+								inFlight.decrementAndGet();
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					inFlight.decrementAndGet();
+					logger.log(Level.WARNING,
+							"Could not schedule refill of pooled view "
+									+ definition, e);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new view pool. The pool is empty until {@link #start()} is
+	 * called.
+	 * 
+	 * @param registry
+	 *            the registry containing the view definitions (must not be
+	 *            <code>null</code>).
+	 * @param executor
+	 *            the executor to create the views with (must not be
+	 *            <code>null</code>).
+	 */
+	public ViewPool(ViewRegistry registry, Executor executor) {
+		if (registry == null || executor == null) {
+			throw new IllegalArgumentException(
+					"registry and executor must not be null");
+		}
+		this.registry = registry;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the registry containing the view definitions.
+	 */
+	public ViewRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Sets the number of ready instances to keep of the specified view. A size
+	 * of 0 disables pooling of the view.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the registry contains no view with the specified ID.
+	 */
+	public synchronized void setPoolSize(String viewId, int size)
+			throws NoSuchViewException {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative");
+		}
+		Slot slot = slots.get(viewId);
+		if (slot == null) {
+			slot = new Slot(registry.getDefinition(viewId));
+			slots.put(viewId, slot);
+		}
+		slot.size = size;
+		while (slot.views.size() > size) {
+			slot.views.poll();
+		}
+		slot.refill();
+	}
+
+	/**
+	 * Returns the number of ready instances to keep of the specified view, or
+	 * 0 if the view is not pooled.
+	 */
+	public int getPoolSize(String viewId) {
+		final Slot slot = slots.get(viewId);
+		return slot == null ? 0 : slot.size;
+	}
+
+	/**
+	 * Returns whether the specified view is pooled.
+	 */
+	public boolean isPooled(String viewId) {
+		return getPoolSize(viewId) > 0;
+	}
+
+	/**
+	 * Returns the number of ready instances of the specified view.
+	 */
+	public int getAvailableCount(String viewId) {
+		final Slot slot = slots.get(viewId);
+		return slot == null ? 0 : slot.views.size();
+	}
+
+	/**
+	 * Starts filling the pools in the background.
+	 */
+	public void start() {
+		running = true;
+		for (Slot slot : slots.values()) {
+			slot.refill();
+		}
+	}
+
+	/**
+	 * Stops refilling the pools and discards all the ready instances.
+	 * {@link #take(String)} keeps working, but always creates the views
+	 * synchronously.
+	 */
+	public void stop() {
+		running = false;
+		for (Slot slot : slots.values()) {
+			slot.views.clear();
+		}
+	}
+
+	/**
+	 * Returns whether the pool has been started and not stopped.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Takes an initialized instance of the specified view out of the pool and
+	 * schedules a refill. If no instance is ready, a new one is created and
+	 * initialized by the calling thread.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if the registry contains no view with the specified ID.
+	 */
+	public View take(String viewId) throws NoSuchViewException {
+		final Slot slot = slots.get(viewId);
+		if (slot == null) {
+			return createInitializedView(registry.getDefinition(viewId));
+		}
+		View view = slot.views.poll();
+		if (view == null) {
+			missCount.incrementAndGet();
+			view = createInitializedView(slot.definition);
+		} else {
+			hitCount.incrementAndGet();
+		}
+		slot.refill();
+		return view;
+	}
+
+	/**
+	 * Returns the number of times a pooled view was taken from the pool.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of times a pooled view had to be created
+	 * synchronously because the pool was empty.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Creates and initializes a new instance of the specified view.
+	 */
+	protected View createInitializedView(ViewDefinition definition) {
+		final View view = definition.createView();
+		if (!view.isInitialized()) {
+			view.init();
+		}
+		return view;
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.graph.NavigationGraph;
+
+/**
+ * An application wide, immutable registry of {@link ViewDefinition}s. The
+ * registry is built once, typically at application startup, using
+ * {@link #newBuilder(String)}, and then shared by all sessions. Each session
+ * uses a {@link RegistryViewMap} that only holds the view instances of that
+ * session.
+ * <p>
+ * The registry is thread safe and lookups do not lock. The
+ * {@link NavigationGraph} defined by the parent IDs of the definitions is
+ * compiled when the registry is built.
+ * <p>
+ * Registries are registered by name when built, and only the name is
+ * serialized. Thus, the registry is not duplicated in every serialized
+ * session, but the deserializing JVM must have built a registry with the
+ * same name.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewRegistry implements java.io.Serializable {
+
+	private static final long serialVersionUID = -4880785398520209432L;
+
+	private static final ConcurrentMap<String, ViewRegistry> registries = new ConcurrentHashMap<String, ViewRegistry>();
+
+	/**
+	 * Marker stored in the class lookup cache when a class matches no
+	 * definition or more than one definition.
+	 */
+	private static final Object NO_UNIQUE_DEFINITION = new Object();
+
+	private final String name;
+
+	private final Map<String, ViewDefinition> definitions;
+
+	private final NavigationGraph navigationGraph;
+
+	private final ConcurrentMap<Class<?>, Object> definitionsByClass = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Builder for {@link ViewRegistry}s. This class is not thread safe.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static final class Builder {
+
+		private final String name;
+
+		private final Map<String, ViewDefinition> definitions = new LinkedHashMap<String, ViewDefinition>();
+
+		private Builder(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Registers a root view that is created using the public default
+		 * constructor of <code>viewClass</code>.
+		 */
+		public Builder register(String viewId, Class<? extends View> viewClass) {
+			return register(viewId, viewClass, null, null);
+		}
+
+		/**
+		 * Registers a view that is created using the public default
+		 * constructor of <code>viewClass</code>.
+		 * 
+		 * @param parentId
+		 *            the ID of the parent view in the navigation graph, or
+		 *            <code>null</code> for a root view.
+		 */
+		public Builder register(String viewId,
+				Class<? extends View> viewClass, String parentId) {
+			return register(viewId, viewClass, parentId, null);
+		}
+
+		/**
+		 * Registers a view.
+		 * 
+		 * @param viewId
+		 *            the ID of the view (must not be <code>null</code>).
+		 * @param viewClass
+		 *            the class of the view (must not be <code>null</code>).
+		 * @param parentId
+		 *            the ID of the parent view in the navigation graph, or
+		 *            <code>null</code> for a root view.
+		 * @param factory
+		 *            the factory to create the views with, or
+		 *            <code>null</code> to use the public default constructor
+		 *            of <code>viewClass</code>.
+		 * @throws IllegalArgumentException
+		 *             if the view ID has already been registered, or if no
+		 *             factory was specified and the view class has no public
+		 *             default constructor.
+		 */
+		public Builder register(String viewId,
+				Class<? extends View> viewClass, String parentId,
+				ViewFactory factory) throws IllegalArgumentException {
+			if (viewId == null || viewClass == null) {
+				throw new IllegalArgumentException(
+						"viewId and viewClass must not be null");
+			}
+			if (definitions.containsKey(viewId)) {
+				throw new IllegalArgumentException("View " + viewId
+						+ " has already been registered");
+			}
+			definitions.put(viewId, new ViewDefinition(viewId, viewClass,
+					parentId, factory));
+			return this;
+		}
+
+		/**
+		 * Builds the registry and registers it by name, replacing any
+		 * previously built registry with the same name.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the parent IDs refer to unregistered views or
+		 *             contain a cycle.
+		 */
+		public ViewRegistry build() throws IllegalStateException {
+			final ViewRegistry registry = new ViewRegistry(this);
+			registries.put(name, registry);
+			return registry;
+		}
+	}
+
+	/**
+	 * Creates a new builder for a registry with the specified name.
+	 * 
+	 * @param name
+	 *            the name of the registry, unique within the application
+	 *            (must not be <code>null</code>).
+	 */
+	public static Builder newBuilder(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name must not be null");
+		}
+		return new Builder(name);
+	}
+
+	/**
+	 * Returns the registry with the specified name, or <code>null</code> if
+	 * no such registry has been built.
+	 */
+	public static ViewRegistry getRegistry(String name) {
+		return registries.get(name);
+	}
+
+	private ViewRegistry(Builder builder) throws IllegalStateException {
+		name = builder.name;
+		definitions = Collections
+				.unmodifiableMap(new HashMap<String, ViewDefinition>(
+						builder.definitions));
+		final NavigationGraph.Builder graphBuilder = NavigationGraph
+				.newBuilder();
+		for (ViewDefinition definition : builder.definitions.values()) {
+			graphBuilder.addView(definition.getViewId(),
+					definition.getParentId());
+		}
+		navigationGraph = graphBuilder.build();
+	}
+
+	/**
+	 * Returns the name of the registry.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the navigation graph defined by the parent IDs of the
+	 * definitions.
+	 */
+	public NavigationGraph getNavigationGraph() {
+		return navigationGraph;
+	}
+
+	/**
+	 * Returns an unmodifiable collection of all the definitions.
+	 */
+	public Collection<ViewDefinition> getDefinitions() {
+		return definitions.values();
+	}
+
+	/**
+	 * Returns whether a view with the specified ID has been registered.
+	 */
+	public boolean containsView(String viewId) {
+		return definitions.containsKey(viewId);
+	}
+
+	/**
+	 * Returns the definition of the view with the specified ID.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if no such view has been registered.
+	 */
+	public ViewDefinition getDefinition(String viewId)
+			throws NoSuchViewException {
+		final ViewDefinition definition = definitions.get(viewId);
+		if (definition == null) {
+			throw new NoSuchViewException(viewId);
+		}
+		return definition;
+	}
+
+	/**
+	 * Returns the definition of the only view whose class is
+	 * <code>viewClass</code> or a subclass of it. The result is cached per
+	 * class.
+	 * 
+	 * @throws NoSuchViewException
+	 *             if no view or more than one view matches the class.
+	 */
+	public ViewDefinition getDefinition(Class<? extends View> viewClass)
+			throws NoSuchViewException {
+		Object result = definitionsByClass.get(viewClass);
+		if (result == null) {
+			result = findDefinition(viewClass);
+			definitionsByClass.putIfAbsent(viewClass, result);
+		}
+		if (result == NO_UNIQUE_DEFINITION) {
+			throw new NoSuchViewException("No unique view found for "
+					+ viewClass.getName());
+		}
+		return (ViewDefinition) result;
+	}
+
+	private Object findDefinition(Class<?> viewClass) {
+		ViewDefinition found = null;
+		for (ViewDefinition definition : definitions.values()) {
+			if (viewClass.isAssignableFrom(definition.getViewClass())) {
+				if (found != null) {
+					return NO_UNIQUE_DEFINITION;
+				}
+				found = definition;
+			}
+		}
+		return found == null ? NO_UNIQUE_DEFINITION : found;
+	}
+
+	private Object writeReplace() {
+		return new SerializedForm(name);
+	}
+
+	/**
+	 * The serialized form of a registry, consisting of its name only.
+	 */
+	private static final class SerializedForm implements java.io.Serializable {
+
+		private static final long serialVersionUID = 7512830398316590254L;
+
+		private final String name;
+
+		SerializedForm(String name) {
+			this.name = name;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			final ViewRegistry registry = getRegistry(name);
+			if (registry == null) {
+				throw new InvalidObjectException("No view registry named "
+						+ name);
+			}
+			return registry;
+		}
+	}
+}
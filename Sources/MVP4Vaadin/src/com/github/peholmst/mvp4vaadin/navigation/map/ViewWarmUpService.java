@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
+import com.github.peholmst.mvp4vaadin.PresenterFactory;
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Service that warms up the views of a {@link ViewRegistry} in the background
+ * at application startup, so that the first sessions do not have to pay for
+ * it. For every view definition, the service:
+ * <ol>
+ * <li>loads and initializes the view class and the presenter class,</li>
+ * <li>resolves the {@link PresenterFactory} of the view, which caches the type
+ * arguments and the presenter constructor,</li>
+ * <li>optionally creates and initializes a number of throwaway view instances
+ * to warm up the JIT compiler.</li>
+ * </ol>
+ * The views are warmed up in parallel using the executor passed to the
+ * constructor, e.g. a fixed thread pool or, on Java 7 and later, a
+ * <code>ForkJoinPool</code>. Failures are logged and recorded, but do not stop
+ * the warm-up of the other views. Use {@link #isDone()},
+ * {@link #awaitCompletion(long, TimeUnit)} or a {@link Listener} to find out
+ * when the node is ready to receive traffic.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewWarmUpService {
+
+	/**
+	 * Listener interface to be implemented by classes that need to be notified
+	 * when the warm-up has been completed.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public interface Listener extends EventListener {
+
+		/**
+		 * Called once all the views have been warmed up, by the thread that
+		 * warmed up the last view.
+		 * 
+		 * @param service
+		 *            the service that completed the warm-up.
+		 */
+		void warmUpCompleted(ViewWarmUpService service);
+	}
+
+	private final ViewRegistry registry;
+
+	private final ExecutorService executor;
+
+	private int instancesPerView = 0;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private final Map<String, Throwable> failures = Collections
+			.synchronizedMap(new LinkedHashMap<String, Throwable>());
+
+	private final AtomicInteger remaining = new AtomicInteger();
+
+	private volatile CountDownLatch completionLatch;
+
+	private volatile long startTime;
+
+	private volatile long durationMillis = -1;
+
+	private final Logger logger = Logger.getLogger(getClass().getName());
+
+	/**
+	 * Creates a new warm-up service.
+	 * 
+	 * @param registry
+	 *            the registry containing the views to warm up (must not be
+	 *            <code>null</code>).
+	 * @param executor
+	 *            the executor to run the warm-up tasks with (must not be
+	 *            <code>null</code>). The service does not shut it down.
+	 */
+	public ViewWarmUpService(ViewRegistry registry, ExecutorService executor) {
+		if (registry == null || executor == null) {
+			throw new IllegalArgumentException(
+					"registry and executor must not be null");
+		}
+		this.registry = registry;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the number of throwaway instances created of every view.
+	 * Defaults to 0.
+	 */
+	public int getInstancesPerView() {
+		return instancesPerView;
+	}
+
+	/**
+	 * Sets the number of throwaway instances to create and initialize of
+	 * every view. The instances are discarded immediately. Must be called
+	 * before {@link #start()}.
+	 */
+	public void setInstancesPerView(int instancesPerView) {
+		if (instancesPerView < 0) {
+			throw new IllegalArgumentException(
+					"instancesPerView must not be negative");
+		}
+		this.instancesPerView = instancesPerView;
+	}
+
+	/**
+	 * Registers a listener to be notified when the warm-up has been
+	 * completed. If the warm-up has already been completed, the listener is
+	 * not notified.
+	 */
+	public void addListener(Listener listener) {
+		if (listener != null) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Unregisters a listener.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts warming up the views in the background and returns immediately.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the service has already been started.
+	 */
+	public synchronized void start() throws IllegalStateException {
+		if (completionLatch != null) {
+			throw new IllegalStateException("already started");
+		}
+		final Collection<ViewDefinition> definitions = registry
+				.getDefinitions();
+		startTime = System.currentTimeMillis();
+		completionLatch = new CountDownLatch(1);
+		remaining.set(definitions.size());
+		if (definitions.isEmpty()) {
+			complete();
+			return;
+		}
+		for (final ViewDefinition definition : definitions) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						warmUp(definition);
+					} catch (Throwable t) {
+						logger.log(Level.WARNING, "Could not warm up view "
+								+ definition, t);
+						failures.put(definition.getViewId(), t);
+					} finally {
+						if (remaining.decrementAndGet() == 0) {
+							complete();
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Warms up a single view. Subclasses may override to do additional work,
+	 * e.g. loading resource bundles.
+	 */
+	protected void warmUp(ViewDefinition definition) throws Exception {
+		final Class<? extends View> viewClass = definition.getViewClass();
+		Class.forName(viewClass.getName(), true, viewClass.getClassLoader());
+		if (AbstractViewComponent.class.isAssignableFrom(viewClass)
+				&& definition.getPresenterClass() != null) {
+			final PresenterFactory<?, ?> factory = PresenterFactory
+					.forViewImplementationClass(viewClass);
+			final Class<?> presenterClass = factory.getPresenterClass();
+			Class.forName(presenterClass.getName(), true,
+					presenterClass.getClassLoader());
+			PresenterFactory.forClasses(presenterClass,
+					factory.getViewClass());
+		}
+		for (int i = 0; i < instancesPerView; ++i) {
+			final View view = definition.createView();
+			if (!view.isInitialized()) {
+				view.init();
+			}
+		}
+	}
+
+	private void complete() {
+		durationMillis = System.currentTimeMillis() - startTime;
+		logger.log(Level.INFO, "Warmed up {0} views in {1} ms, {2} failed",
+				new Object[] { registry.getDefinitions().size(),
+						durationMillis, failures.size() });
+		completionLatch.countDown();
+		for (Listener listener : listeners) {
+			listener.warmUpCompleted(this);
+		}
+	}
+
+	/**
+	 * Returns whether the warm-up has been started.
+	 */
+	public boolean isStarted() {
+		return completionLatch != null;
+	}
+
+	/**
+	 * Returns whether the warm-up has been completed.
+	 */
+	public boolean isDone() {
+		final CountDownLatch latch = completionLatch;
+		return latch != null && latch.getCount() == 0;
+	}
+
+	/**
+	 * Waits until the warm-up has been completed or the timeout elapses.
+	 * 
+	 * @return true if the warm-up has been completed, false if the timeout
+	 *         elapsed.
+	 * @throws IllegalStateException
+	 *             if the service has not been started.
+	 */
+	public boolean awaitCompletion(long timeout, TimeUnit unit)
+			throws IllegalStateException, InterruptedException {
+		final CountDownLatch latch = completionLatch;
+		if (latch == null) {
+			throw new IllegalStateException("not started");
+		}
+		return latch.await(timeout, unit);
+	}
+
+	/**
+	 * Returns the number of views that have not been warmed up yet.
+	 */
+	public int getRemainingViewCount() {
+		return remaining.get();
+	}
+
+	/**
+	 * Returns the time the warm-up took in milliseconds, or -1 if it has not
+	 * been completed.
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * Returns a copy of the failures, mapped by view ID.
+	 */
+	public Map<String, Throwable> getFailures() {
+		synchronized (failures) {
+			return new LinkedHashMap<String, Throwable>(failures);
+		}
+	}
+}
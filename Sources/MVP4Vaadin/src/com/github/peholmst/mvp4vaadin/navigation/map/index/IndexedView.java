@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map.index;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for view classes that should be included in the view index
+ * generated at build time by {@link IndexedViewProcessor}. The annotated class
+ * must be a public, non-abstract {@link com.github.peholmst.mvp4vaadin.View}
+ * implementation with a public default constructor.
+ * <p>
+ * The index is loaded at runtime by {@link ViewIndex}, so the views do not
+ * have to be registered by hand or discovered by scanning the classpath.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface IndexedView {
+
+	/**
+	 * The ID of the view.
+	 */
+	String value();
+
+	/**
+	 * The ID of the parent view in the navigation graph, or an empty string
+	 * if the view is a root view.
+	 */
+	String parent() default "";
+}
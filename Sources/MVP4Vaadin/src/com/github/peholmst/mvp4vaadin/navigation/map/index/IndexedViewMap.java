@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map.index;
+
+import com.github.peholmst.mvp4vaadin.navigation.map.RegistryViewMap;
+
+/**
+ * A {@link RegistryViewMap} containing the views annotated with
+ * {@link IndexedView}, as listed in the index generated at build time. No
+ * classpath scanning is done at runtime.
+ * 
+ * @see ViewIndex#getDefaultRegistry()
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class IndexedViewMap extends RegistryViewMap {
+
+	private static final long serialVersionUID = 3171587307462612042L;
+
+	/**
+	 * Creates a new view map backed by the default view index registry.
+	 */
+	public IndexedViewMap() {
+		super(ViewIndex.getDefaultRegistry());
+	}
+}
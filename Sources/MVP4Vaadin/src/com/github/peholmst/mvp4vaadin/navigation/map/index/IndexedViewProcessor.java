@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Annotation processor that collects the classes annotated with
+ * {@link IndexedView} into the view index resource
+ * {@value ViewIndex#RESOURCE_NAME}. The processor is registered as a service
+ * in the add-on JAR, so it runs automatically when code is compiled with the
+ * add-on on the classpath (unless annotation processing has been disabled).
+ * <p>
+ * When only some of the classes are recompiled, the entries of the existing
+ * index whose classes still exist are kept.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@SupportedAnnotationTypes("com.github.peholmst.mvp4vaadin.navigation.map.index.IndexedView")
+public class IndexedViewProcessor extends AbstractProcessor {
+
+	/**
+	 * The index entries, sorted by view ID to make the output reproducible.
+	 */
+	private final Map<String, ViewIndex.Entry> entries = new TreeMap<String, ViewIndex.Entry>();
+
+	private boolean existingIndexRead = false;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations,
+			RoundEnvironment roundEnv) {
+		if (!existingIndexRead) {
+			readExistingIndex();
+			existingIndexRead = true;
+		}
+		for (Element element : roundEnv
+				.getElementsAnnotatedWith(IndexedView.class)) {
+			if (isValid(element)) {
+				addEntry((TypeElement) element);
+			}
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return true;
+	}
+
+	private boolean isValid(Element element) {
+		if (element.getKind() != ElementKind.CLASS
+				|| !element.getModifiers().contains(Modifier.PUBLIC)
+				|| element.getModifiers().contains(Modifier.ABSTRACT)) {
+			error(element, "@IndexedView can only be used on public, non-abstract classes");
+			return false;
+		}
+		final TypeMirror viewType = processingEnv.getElementUtils()
+				.getTypeElement(View.class.getName()).asType();
+		if (!processingEnv.getTypeUtils().isAssignable(element.asType(),
+				viewType)) {
+			error(element, "@IndexedView classes must implement "
+					+ View.class.getName());
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter
+				.constructorsIn(element.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()
+					&& constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				return true;
+			}
+		}
+		error(element, "@IndexedView classes must have a public default constructor");
+		return false;
+	}
+
+	private void addEntry(TypeElement element) {
+		final IndexedView annotation = element.getAnnotation(IndexedView.class);
+		final String className = processingEnv.getElementUtils()
+				.getBinaryName(element).toString();
+		final ViewIndex.Entry existing = entries.get(annotation.value());
+		if (existing != null && !existing.getClassName().equals(className)) {
+			error(element, "View ID " + annotation.value()
+					+ " is already used by " + existing.getClassName());
+			return;
+		}
+		// Remove any old entry of the same class, in case its ID was changed
+		for (ViewIndex.Entry entry : entries.values()) {
+			if (entry.getClassName().equals(className)) {
+				entries.remove(entry.getViewId());
+				break;
+			}
+		}
+		entries.put(annotation.value(), new ViewIndex.Entry(annotation
+				.value(), className, annotation.parent().length() == 0 ? null
+				: annotation.parent()));
+	}
+
+	/**
+	 * Reads the entries of an index generated by a previous compilation,
+	 * keeping the ones whose classes can still be found.
+	 */
+	private void readExistingIndex() {
+		try {
+			final FileObject resource = processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "",
+					ViewIndex.RESOURCE_NAME);
+			final BufferedReader reader = new BufferedReader(
+					new InputStreamReader(resource.openInputStream(), "UTF-8"));
+			try {
+				for (ViewIndex.Entry entry : ViewIndex.readEntries(reader)) {
+					final TypeElement element = processingEnv
+							.getElementUtils().getTypeElement(
+									entry.getClassName().replace('$', '.'));
+					if (element != null
+							&& element.getAnnotation(IndexedView.class) != null) {
+						entries.put(entry.getViewId(), entry);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// No existing index
+		} catch (IllegalArgumentException e) {
+			// Some compilers throw this instead of IOException
+		}
+	}
+
+	private void writeIndex() {
+		if (entries.isEmpty()) {
+			return;
+		}
+		try {
+			final FileObject resource = processingEnv.getFiler()
+					.createResource(StandardLocation.CLASS_OUTPUT, "",
+							ViewIndex.RESOURCE_NAME);
+			final Writer writer = new OutputStreamWriter(
+					resource.openOutputStream(), "UTF-8");
+			try {
+				ViewIndex.writeEntries(entries.values(), writer);
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Could not write the view index: " + e.getMessage());
+		}
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+				message, element);
+	}
+}
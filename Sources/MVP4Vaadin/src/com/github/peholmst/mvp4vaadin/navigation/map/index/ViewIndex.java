@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewRegistry;
+
+/**
+ * This class reads and writes the view index generated by
+ * {@link IndexedViewProcessor} and builds {@link ViewRegistry}s from it. The
+ * index is a UTF-8 text resource with one view per line, containing the view
+ * ID, the binary name of the view class and the ID of the parent view,
+ * separated by tabs. Lines starting with <code>#</code> are comments.
+ * <p>
+ * Loading the index only reads the index resources and loads the view
+ * classes listed in them, so the time needed does not depend on the size of
+ * the classpath.
+ * 
+ * @see IndexedViewMap
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class ViewIndex {
+
+	/**
+	 * The name of the index resource.
+	 */
+	public static final String RESOURCE_NAME = "META-INF/mvp4vaadin/views.idx";
+
+	/**
+	 * The name of the registry returned by {@link #getDefaultRegistry()}.
+	 */
+	public static final String DEFAULT_REGISTRY_NAME = ViewIndex.class
+			.getName();
+
+	/**
+	 * A single entry of the index.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static final class Entry {
+
+		private final String viewId;
+		private final String className;
+		private final String parentId;
+
+		/**
+		 * Creates a new entry.
+		 * 
+		 * @param viewId
+		 *            the ID of the view (must not be <code>null</code>).
+		 * @param className
+		 *            the binary name of the view class (must not be
+		 *            <code>null</code>).
+		 * @param parentId
+		 *            the ID of the parent view, or <code>null</code> for a root
+		 *            view.
+		 */
+		public Entry(String viewId, String className, String parentId) {
+			if (viewId == null || className == null) {
+				throw new IllegalArgumentException(
+						"viewId and className must not be null");
+			}
+			this.viewId = viewId;
+			this.className = className;
+			this.parentId = parentId;
+		}
+
+		/**
+		 * Returns the ID of the view.
+		 */
+		public String getViewId() {
+			return viewId;
+		}
+
+		/**
+		 * Returns the binary name of the view class.
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Returns the ID of the parent view, or <code>null</code> for a root
+		 * view.
+		 */
+		public String getParentId() {
+			return parentId;
+		}
+	}
+
+	private ViewIndex() {
+	}
+
+	/**
+	 * Writes the specified entries in the index format.
+	 */
+	public static void writeEntries(Collection<Entry> entries, Writer writer)
+			throws IOException {
+		writer.write("# MVP4Vaadin view index, generated by "
+				+ IndexedViewProcessor.class.getSimpleName() + "\n");
+		for (Entry entry : entries) {
+			writer.write(entry.getViewId());
+			writer.write('\t');
+			writer.write(entry.getClassName());
+			writer.write('\t');
+			if (entry.getParentId() != null) {
+				writer.write(entry.getParentId());
+			}
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * Reads entries in the index format.
+	 * 
+	 * @throws IOException
+	 *             if the entries could not be read or are malformed.
+	 */
+	public static List<Entry> readEntries(BufferedReader reader)
+			throws IOException {
+		final List<Entry> entries = new ArrayList<Entry>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			final String[] fields = line.split("\t", -1);
+			if (fields.length != 3) {
+				throw new IOException("Malformed index line: " + line);
+			}
+			entries.add(new Entry(fields[0], fields[1],
+					fields[2].length() == 0 ? null : fields[2]));
+		}
+		return entries;
+	}
+
+	/**
+	 * Reads all the index resources visible to <code>classLoader</code> and
+	 * builds a registry containing the indexed views.
+	 * 
+	 * @param registryName
+	 *            the name of the registry (see
+	 *            {@link ViewRegistry#newBuilder(String)}).
+	 * @param classLoader
+	 *            the class loader to read the resources and load the view
+	 *            classes with.
+	 * @throws IOException
+	 *             if an index could not be read.
+	 * @throws IllegalStateException
+	 *             if a view class could not be loaded, the same view ID is
+	 *             indexed twice or the parent IDs are invalid.
+	 */
+	public static ViewRegistry loadRegistry(String registryName,
+			ClassLoader classLoader) throws IOException, IllegalStateException {
+		final Map<String, Entry> entries = new HashMap<String, Entry>();
+		final ViewRegistry.Builder builder = ViewRegistry
+				.newBuilder(registryName);
+		final Enumeration<URL> resources = classLoader
+				.getResources(RESOURCE_NAME);
+		while (resources.hasMoreElements()) {
+			final URL resource = resources.nextElement();
+			final BufferedReader reader = new BufferedReader(
+					new InputStreamReader(resource.openStream(), "UTF-8"));
+			try {
+				for (Entry entry : readEntries(reader)) {
+					if (entries.put(entry.getViewId(), entry) != null) {
+						throw new IllegalStateException("View ID "
+								+ entry.getViewId() + " is indexed twice");
+					}
+					builder.register(entry.getViewId(),
+							loadViewClass(entry, classLoader),
+							entry.getParentId());
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return builder.build();
+	}
+
+	private static Class<? extends View> loadViewClass(Entry entry,
+			ClassLoader classLoader) throws IllegalStateException {
+		try {
+			return Class.forName(entry.getClassName(), false, classLoader)
+					.asSubclass(View.class);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Indexed view class "
+					+ entry.getClassName() + " not found", e);
+		} catch (ClassCastException e) {
+			throw new IllegalStateException("Indexed class "
+					+ entry.getClassName() + " is not a view", e);
+		}
+	}
+
+	/**
+	 * Holder of the default registry, loaded the first time it is needed.
+	 */
+	private static final class DefaultRegistryHolder {
+
+		static final ViewRegistry REGISTRY = loadDefaultRegistry();
+
+		private static ViewRegistry loadDefaultRegistry() {
+			ClassLoader classLoader = Thread.currentThread()
+					.getContextClassLoader();
+			if (classLoader == null) {
+				classLoader = ViewIndex.class.getClassLoader();
+			}
+			try {
+				return loadRegistry(DEFAULT_REGISTRY_NAME, classLoader);
+			} catch (IOException e) {
+				throw new IllegalStateException(
+						"Could not read the view index", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the registry of the indexed views visible to the context class
+	 * loader of the calling thread. The registry is loaded the first time
+	 * this method is called and shared by the entire application.
+	 */
+	public static ViewRegistry getDefaultRegistry() {
+		return DefaultRegistryHolder.REGISTRY;
+	}
+}
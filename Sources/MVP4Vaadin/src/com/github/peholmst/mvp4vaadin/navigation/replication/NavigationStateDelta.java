@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.replication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compact, immutable description of the changes made to the state of a
+ * navigation controller and its views between two checkpoints of a
+ * {@link NavigationStateTracker}. Deltas are applied on other nodes using a
+ * {@link NavigationStateDeltaApplier}.
+ * <p>
+ * Views are referred to by their IDs in a
+ * {@link com.github.peholmst.mvp4vaadin.navigation.map.ViewMap ViewMap}, so
+ * the nodes must use view maps with the same IDs.
+ * <p>
+ * A delta can be transported either using Java serialization or, for the
+ * smallest possible footprint, using {@link #toByteArray()} and
+ * {@link #fromByteArray(byte[])}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public final class NavigationStateDelta implements java.io.Serializable {
+
+	private static final long serialVersionUID = -5640409380950457117L;
+
+	/**
+	 * Enumeration of operation types.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public enum OperationType {
+		/**
+		 * All the views were removed from the stack.
+		 */
+		CLEAR,
+		/**
+		 * A view was pushed onto the stack.
+		 */
+		PUSH,
+		/**
+		 * The topmost view was popped from the stack.
+		 */
+		POP,
+		/**
+		 * The display name of a view was changed.
+		 */
+		DISPLAY_NAME,
+		/**
+		 * The description of a view was changed.
+		 */
+		DESCRIPTION
+	}
+
+	/**
+	 * A single operation of a delta.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static final class Operation {
+
+		private final OperationType type;
+		private final String viewId;
+		private final String value;
+
+		Operation(OperationType type, String viewId, String value) {
+			this.type = type;
+			this.viewId = viewId;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the type of the operation.
+		 */
+		public OperationType getType() {
+			return type;
+		}
+
+		/**
+		 * Returns the ID of the view that the operation concerns, or
+		 * <code>null</code> for {@link OperationType#CLEAR} and
+		 * {@link OperationType#POP}.
+		 */
+		public String getViewId() {
+			return viewId;
+		}
+
+		/**
+		 * Returns the new display name or description, or <code>null</code>
+		 * for stack operations.
+		 */
+		public String getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return type + "(" + (viewId == null ? "" : viewId)
+					+ (value == null ? "" : ", " + value) + ")";
+		}
+	}
+
+	private transient long fromVersion;
+
+	private transient long toVersion;
+
+	private transient boolean snapshot;
+
+	private transient List<Operation> operations;
+
+	NavigationStateDelta(long fromVersion, long toVersion, boolean snapshot,
+			List<Operation> operations) {
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.snapshot = snapshot;
+		this.operations = Collections.unmodifiableList(operations);
+	}
+
+	/**
+	 * Returns the version of the state that this delta should be applied to.
+	 */
+	public long getFromVersion() {
+		return fromVersion;
+	}
+
+	/**
+	 * Returns the version of the state after this delta has been applied.
+	 */
+	public long getToVersion() {
+		return toVersion;
+	}
+
+	/**
+	 * Returns whether this delta is a snapshot of the entire state, in which
+	 * case it can be applied regardless of the current version of the
+	 * receiving state.
+	 */
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns whether this delta contains no operations.
+	 */
+	public boolean isEmpty() {
+		return operations.isEmpty();
+	}
+
+	/**
+	 * Returns an unmodifiable list of the operations, in the order they should
+	 * be applied.
+	 */
+	public List<Operation> getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Writes this delta to the specified output without any Java
+	 * serialization overhead.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(fromVersion);
+		out.writeLong(toVersion);
+		out.writeBoolean(snapshot);
+		out.writeInt(operations.size());
+		for (Operation operation : operations) {
+			out.writeByte(operation.getType().ordinal());
+			writeNullableString(out, operation.getViewId());
+			writeNullableString(out, operation.getValue());
+		}
+	}
+
+	/**
+	 * Reads a delta that has been written using {@link #writeTo(DataOutput)}.
+	 */
+	public static NavigationStateDelta readFrom(DataInput in)
+			throws IOException {
+		final long fromVersion = in.readLong();
+		final long toVersion = in.readLong();
+		final boolean snapshot = in.readBoolean();
+		final int operationCount = in.readInt();
+		if (operationCount < 0) {
+			throw new IOException("Negative operation count: "
+					+ operationCount);
+		}
+		final OperationType[] types = OperationType.values();
+		// Grows as operations are read, so a corrupt count cannot allocate
+		// more than the input contains
+		final List<Operation> operations = new ArrayList<Operation>();
+		for (int i = 0; i < operationCount; ++i) {
+			final int type = in.readByte();
+			if (type < 0 || type >= types.length) {
+				throw new IOException("Invalid operation type: " + type);
+			}
+			final String viewId = readNullableString(in);
+			final String value = readNullableString(in);
+			operations.add(new Operation(types[type], viewId, value));
+		}
+		return new NavigationStateDelta(fromVersion, toVersion, snapshot,
+				operations);
+	}
+
+	/**
+	 * Returns this delta as a byte array.
+	 * 
+	 * @see #writeTo(DataOutput)
+	 */
+	public byte[] toByteArray() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			final DataOutputStream out = new DataOutputStream(bytes);
+			writeTo(out);
+			out.close();
+		} catch (IOException e) {
+			// Should never happen with a byte array
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a delta from a byte array returned by {@link #toByteArray()}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the byte array does not contain a valid delta.
+	 */
+	public static NavigationStateDelta fromByteArray(byte[] bytes)
+			throws IllegalArgumentException {
+		try {
+			return readFrom(new DataInputStream(new ByteArrayInputStream(
+					bytes)));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid delta", e);
+		}
+	}
+
+	private static void writeNullableString(DataOutput out, String s)
+			throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readNullableString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeTo(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		final NavigationStateDelta delta = readFrom(in);
+		fromVersion = delta.fromVersion;
+		toVersion = delta.toVersion;
+		snapshot = delta.snapshot;
+		operations = delta.operations;
+	}
+
+	@Override
+	public String toString() {
+		return "NavigationStateDelta[" + fromVersion + "->" + toVersion
+				+ (snapshot ? ", snapshot" : "") + ", " + operations + "]";
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController.NavigationResult;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.replication.NavigationStateDelta.Operation;
+import com.github.peholmst.mvp4vaadin.navigation.replication.NavigationStateDelta.OperationType;
+
+/**
+ * This class applies {@link NavigationStateDelta}s produced by a
+ * {@link NavigationStateTracker} on another node to a local
+ * {@link NavigationController}. The views are looked up from a local
+ * {@link ViewMap} using the view IDs of the delta.
+ * <p>
+ * All the stack operations of a delta are coalesced into a single navigation
+ * request, so the views on the receiving node are notified just as if the
+ * user had navigated directly to the new view. Display names and descriptions
+ * are only updated on views that support the {@link ReplicatedViewProperties}
+ * adapter.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationStateDeltaApplier implements java.io.Serializable {
+
+	private static final long serialVersionUID = -3028416569187549315L;
+
+	private final NavigationController controller;
+
+	private final ViewMap viewMap;
+
+	private long version;
+
+	/**
+	 * Creates a new applier. The current state of the controller is
+	 * considered to be version 0.
+	 * 
+	 * @param controller
+	 *            the controller to apply the deltas to (must not be
+	 *            <code>null</code>).
+	 * @param viewMap
+	 *            the view map to look up the views from (must not be
+	 *            <code>null</code>).
+	 */
+	public NavigationStateDeltaApplier(NavigationController controller,
+			ViewMap viewMap) {
+		if (controller == null || viewMap == null) {
+			throw new IllegalArgumentException(
+					"controller and viewMap must not be null");
+		}
+		this.controller = controller;
+		this.viewMap = viewMap;
+	}
+
+	/**
+	 * Returns the version of the most recently applied delta.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Applies the specified delta to the controller.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the delta is not a snapshot and does not start from the
+	 *             current version (in which case a snapshot should be
+	 *             requested), or if the controller refused to navigate to the
+	 *             new stack.
+	 * @throws com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException
+	 *             if a view of the delta could not be found in the view map.
+	 */
+	public void apply(NavigationStateDelta delta) throws IllegalStateException {
+		if (!delta.isSnapshot() && delta.getFromVersion() != version) {
+			throw new IllegalStateException("Expected a delta from version "
+					+ version + " but got one from version "
+					+ delta.getFromVersion());
+		}
+		final List<View> stack = new ArrayList<View>(controller.getViewStack());
+		boolean stackChanged = false;
+		for (Operation operation : delta.getOperations()) {
+			switch (operation.getType()) {
+			case CLEAR:
+				stack.clear();
+				stackChanged = true;
+				break;
+			case PUSH:
+				stack.add(viewMap.getViewById(operation.getViewId()));
+				stackChanged = true;
+				break;
+			case POP:
+				if (stack.isEmpty()) {
+					throw new IllegalStateException(
+							"Cannot pop a view from an empty stack");
+				}
+				stack.remove(stack.size() - 1);
+				stackChanged = true;
+				break;
+			default:
+				// Property operations are applied after the stack has been
+				// updated
+			}
+		}
+		if (stackChanged && !stack.equals(controller.getViewStack())) {
+			updateStack(stack);
+		}
+		for (Operation operation : delta.getOperations()) {
+			applyPropertyOperation(operation);
+		}
+		version = delta.getToVersion();
+	}
+
+	private void updateStack(List<View> stack) throws IllegalStateException {
+		final NavigationResult result;
+		if (stack.isEmpty()) {
+			result = controller.clear();
+		} else {
+			result = controller.navigate(new DefaultNavigationRequest(stack,
+					null));
+		}
+		if (result != NavigationResult.SUCCEEDED) {
+			throw new IllegalStateException("Could not apply delta: "
+					+ result);
+		}
+	}
+
+	private void applyPropertyOperation(Operation operation) {
+		switch (operation.getType()) {
+		case DISPLAY_NAME:
+		case DESCRIPTION:
+			final View view = viewMap.getViewById(operation.getViewId());
+			if (!view.supportsAdapter(ReplicatedViewProperties.class)) {
+				return;
+			}
+			final ReplicatedViewProperties properties = view
+					.adapt(ReplicatedViewProperties.class);
+			if (operation.getType() == OperationType.DISPLAY_NAME) {
+				properties.setReplicatedDisplayName(operation.getValue());
+			} else {
+				properties.setReplicatedDescription(operation.getValue());
+			}
+			break;
+		default:
+			// Stack operations have already been applied
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.replication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.ViewEvent;
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
+import com.github.peholmst.mvp4vaadin.navigation.events.ViewAttachedToNavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.events.ViewDetachedFromNavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.replication.NavigationStateDelta.Operation;
+import com.github.peholmst.mvp4vaadin.navigation.replication.NavigationStateDelta.OperationType;
+
+/**
+ * This class tracks the changes made to the view stack of a
+ * {@link NavigationController} and to the display names and descriptions of
+ * the views in the stack. At the end of each request, {@link #checkpoint()}
+ * should be called to get a {@link NavigationStateDelta} containing only the
+ * changes made since the previous checkpoint. This delta can then be sent to
+ * other nodes, which apply it using a {@link NavigationStateDeltaApplier}.
+ * <p>
+ * The tracker coalesces changes: a view that is pushed and popped between two
+ * checkpoints does not show up in the delta at all, and only the latest
+ * display name and description of each view is included.
+ * <p>
+ * All the views that are attached to the controller must be registered with
+ * the view map. The tracker registers itself as a listener with the
+ * controller and the views in its stack, so if you no longer need it you
+ * should call {@link #stopTracking()}. This class is not thread safe.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationStateTracker implements NavigationControllerListener,
+		ViewListener {
+
+	private static final long serialVersionUID = 4133575616728553405L;
+
+	private final NavigationController controller;
+
+	private final ViewMap viewMap;
+
+	/**
+	 * Contains either views that have been pushed onto the stack or
+	 * {@link OperationType#POP} markers, in the order they occurred.
+	 */
+	private final LinkedList<Object> stackOperations = new LinkedList<Object>();
+
+	private final Map<View, String> displayNames = new LinkedHashMap<View, String>();
+
+	private final Map<View, String> descriptions = new LinkedHashMap<View, String>();
+
+	private long version;
+
+	/**
+	 * Creates a new tracker for the specified controller. The current state of
+	 * the controller is considered to be version 0, so the first checkpoint
+	 * can be applied to a node whose controller is in the same state (or
+	 * empty, if the controller is empty). Otherwise, start by sending a
+	 * {@link #snapshot()}.
+	 * 
+	 * @param controller
+	 *            the controller to track (must not be <code>null</code>).
+	 * @param viewMap
+	 *            the view map to look up the view IDs from (must not be
+	 *            <code>null</code>).
+	 */
+	public NavigationStateTracker(NavigationController controller,
+			ViewMap viewMap) {
+		if (controller == null || viewMap == null) {
+			throw new IllegalArgumentException(
+					"controller and viewMap must not be null");
+		}
+		this.controller = controller;
+		this.viewMap = viewMap;
+		for (View view : controller.getViewStack()) {
+			view.addListener(this);
+		}
+		controller.addListener(this);
+	}
+
+	/**
+	 * Unregisters the tracker from the controller and the views.
+	 */
+	public void stopTracking() {
+		controller.removeListener(this);
+		for (View view : controller.getViewStack()) {
+			view.removeListener(this);
+		}
+	}
+
+	/**
+	 * Returns the version of the most recent checkpoint or snapshot.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns whether there are changes that have not been included in a
+	 * checkpoint yet.
+	 */
+	public boolean isDirty() {
+		return !stackOperations.isEmpty() || !displayNames.isEmpty()
+				|| !descriptions.isEmpty();
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		if (event.getSource() != controller) {
+			return;
+		}
+		if (event instanceof ViewAttachedToNavigationControllerEvent) {
+			final View view = ((ViewAttachedToNavigationControllerEvent) event)
+					.getAttachedView();
+			view.addListener(this);
+			stackOperations.add(view);
+		} else if (event instanceof ViewDetachedFromNavigationControllerEvent) {
+			final View view = ((ViewDetachedFromNavigationControllerEvent) event)
+					.getDetachedView();
+			view.removeListener(this);
+			if (!stackOperations.isEmpty()
+					&& stackOperations.getLast() == view) {
+				// The view was pushed after the last checkpoint
+				stackOperations.removeLast();
+			} else {
+				stackOperations.add(OperationType.POP);
+			}
+		}
+	}
+
+	@Override
+	public void handleViewEvent(ViewEvent event) {
+		if (event instanceof DisplayNameChangedViewEvent) {
+			displayNames.put(event.getSource(),
+					((DisplayNameChangedViewEvent) event).getNewDisplayName());
+		} else if (event instanceof DescriptionChangedViewEvent) {
+			descriptions.put(event.getSource(),
+					((DescriptionChangedViewEvent) event).getNewDescription());
+		}
+	}
+
+	/**
+	 * Returns a delta containing the changes made since the previous
+	 * checkpoint or snapshot, and starts tracking changes from scratch. If
+	 * there are no changes, an empty delta that does not change the version
+	 * is returned.
+	 * 
+	 * @throws IllegalStateException
+	 *             if a changed view is not registered with the view map.
+	 */
+	public NavigationStateDelta checkpoint() throws IllegalStateException {
+		if (!isDirty()) {
+			return new NavigationStateDelta(version, version, false,
+					new ArrayList<Operation>(0));
+		}
+		final List<Operation> operations = new ArrayList<Operation>(
+				stackOperations.size() + displayNames.size()
+						+ descriptions.size());
+		for (Object stackOperation : stackOperations) {
+			if (stackOperation == OperationType.POP) {
+				operations.add(new Operation(OperationType.POP, null, null));
+			} else {
+				operations.add(new Operation(OperationType.PUSH,
+						getViewId((View) stackOperation), null));
+			}
+		}
+		addPropertyOperations(operations);
+		return createDelta(false, operations);
+	}
+
+	/**
+	 * Returns a delta containing the entire state of the controller: the
+	 * stack and the display names and descriptions of all the views in it.
+	 * This delta can be applied to a node regardless of its current version,
+	 * e.g. when a node joins the cluster or has missed a delta. Any changes
+	 * made since the previous checkpoint are included in the snapshot.
+	 * 
+	 * @throws IllegalStateException
+	 *             if a view is not registered with the view map.
+	 */
+	public NavigationStateDelta snapshot() throws IllegalStateException {
+		final List<Operation> operations = new ArrayList<Operation>();
+		operations.add(new Operation(OperationType.CLEAR, null, null));
+		for (View view : controller.getViewStack()) {
+			final String viewId = getViewId(view);
+			operations.add(new Operation(OperationType.PUSH, viewId, null));
+			displayNames.put(view, view.getDisplayName());
+			descriptions.put(view, view.getViewDescription());
+		}
+		addPropertyOperations(operations);
+		return createDelta(true, operations);
+	}
+
+	private void addPropertyOperations(List<Operation> operations) {
+		for (Map.Entry<View, String> entry : displayNames.entrySet()) {
+			operations.add(new Operation(OperationType.DISPLAY_NAME,
+					getViewId(entry.getKey()), entry.getValue()));
+		}
+		for (Map.Entry<View, String> entry : descriptions.entrySet()) {
+			operations.add(new Operation(OperationType.DESCRIPTION,
+					getViewId(entry.getKey()), entry.getValue()));
+		}
+	}
+
+	private NavigationStateDelta createDelta(boolean snapshot,
+			List<Operation> operations) {
+		final NavigationStateDelta delta = new NavigationStateDelta(version,
+				version + 1, snapshot, operations);
+		version++;
+		stackOperations.clear();
+		displayNames.clear();
+		descriptions.clear();
+		return delta;
+	}
+
+	private String getViewId(View view) throws IllegalStateException {
+		try {
+			return viewMap.getViewId(view);
+		} catch (NoSuchViewException e) {
+			throw new IllegalStateException(
+					"View is not registered with the view map: " + view, e);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.replication;
+
+import com.github.peholmst.mvp4vaadin.View;
+
+/**
+ * Adapter interface (see {@link View#adapt(Class)}) that views can support if
+ * their display names and descriptions should be updated when a
+ * {@link NavigationStateDelta} is applied. Views that do not support this
+ * adapter keep their own display names and descriptions on the receiving node.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public interface ReplicatedViewProperties extends java.io.Serializable {
+
+	/**
+	 * Sets the display name of the view to the replicated value.
+	 */
+	void setReplicatedDisplayName(String displayName);
+
+	/**
+	 * Sets the description of the view to the replicated value.
+	 */
+	void setReplicatedDescription(String description);
+}
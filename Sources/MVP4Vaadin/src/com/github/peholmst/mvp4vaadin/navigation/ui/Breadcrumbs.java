@@ -16,11 +16,14 @@
 package com.github.peholmst.mvp4vaadin.navigation.ui;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
+import com.github.peholmst.mvp4vaadin.HandlesEvents;
 import com.github.peholmst.mvp4vaadin.View;
 import com.github.peholmst.mvp4vaadin.ViewEvent;
 import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.WeakViewListener;
 import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
 import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
@@ -28,6 +31,7 @@ import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.WeakNavigationControllerListener;
 import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
 import com.vaadin.ui.Alignment;
 import com.vaadin.ui.Button;
@@ -52,6 +56,9 @@ import com.vaadin.ui.themes.BaseTheme;
  * <p>
  * Both the links and the separators can be customized by implementing the
  * {@link ButtonFactory} and {@link SeparatorFactory} interfaces, respectively.
+ * <p>
+ * The component registers itself with the controller and the views using weak
+ * references, so a discarded instance is not kept reachable by them.
  * 
  * @see #setController(NavigationController)
  * 
@@ -160,6 +167,10 @@ public class Breadcrumbs extends HorizontalLayout implements
 
 	private Map<View, Button> viewButtonMap = new HashMap<View, Button>();
 
+	private Map<View, WeakViewListener> viewListenerRegistrations = new HashMap<View, WeakViewListener>();
+
+	private WeakNavigationControllerListener controllerListenerRegistration;
+
 	/**
 	 * Returns the navigation controller whose view stack will be displayed as
 	 * breadcrumbs. If no controller has been set, <code>null</code> is
@@ -175,13 +186,15 @@ public class Breadcrumbs extends HorizontalLayout implements
 	 * <code>null</code> will unregister the listener.
 	 */
 	public void setController(NavigationController controller) {
-		if (this.controller != null) {
-			this.controller.removeListener(this);
+		if (controllerListenerRegistration != null) {
+			controllerListenerRegistration.unregister();
+			controllerListenerRegistration = null;
 		}
 		this.controller = controller;
 		addBreadcrumbsForControllerRemovingAnyExistingOnes();
 		if (this.controller != null) {
-			this.controller.addListener(this);
+			controllerListenerRegistration = WeakNavigationControllerListener
+					.register(this.controller, this);
 		}
 	}
 
@@ -224,15 +237,29 @@ public class Breadcrumbs extends HorizontalLayout implements
 	}
 
 	private void addBreadcrumbsForControllerRemovingAnyExistingOnes() {
-		removeBreadcrumbs();
+		removeButtons();
 		if (getController() != null) {
 			for (View view : getController().getViewStack()) {
 				addBreadcrumbForView(view);
 			}
 		}
+		/*
+		 * The listener registrations of views that are still in the stack are
+		 * kept, so that only the views that have been removed are touched.
+		 */
+		final Iterator<Map.Entry<View, WeakViewListener>> it = viewListenerRegistrations
+				.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<View, WeakViewListener> entry = it.next();
+			if (!viewButtonMap.containsKey(entry.getKey())) {
+				entry.getValue().unregister();
+				it.remove();
+			}
+		}
 	}
 
 	@Override
+	@HandlesEvents(CurrentNavigationControllerViewChangedEvent.class)
 	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
 		if (event.getSource() != getController()
 				|| !(event instanceof CurrentNavigationControllerViewChangedEvent)) {
@@ -259,7 +286,10 @@ public class Breadcrumbs extends HorizontalLayout implements
 			}
 		});
 		viewButtonMap.put(view, btn);
-		view.addListener(this);
+		if (!viewListenerRegistrations.containsKey(view)) {
+			viewListenerRegistrations.put(view,
+					WeakViewListener.register(view, this));
+		}
 		addComponent(btn);
 		setComponentAlignment(btn, Alignment.MIDDLE_LEFT);
 	}
@@ -273,14 +303,22 @@ public class Breadcrumbs extends HorizontalLayout implements
 	}
 
 	protected void removeBreadcrumbs() {
-		removeAllComponents();
-		for (View view : viewButtonMap.keySet()) {
-			view.removeListener(this);
+		removeButtons();
+		for (WeakViewListener registration : viewListenerRegistrations
+				.values()) {
+			registration.unregister();
 		}
+		viewListenerRegistrations.clear();
+	}
+
+	private void removeButtons() {
+		removeAllComponents();
 		viewButtonMap.clear();
 	}
 
 	@Override
+	@HandlesEvents({ DisplayNameChangedViewEvent.class,
+			DescriptionChangedViewEvent.class })
 	public void handleViewEvent(ViewEvent event) {
 		if (event instanceof DisplayNameChangedViewEvent
 				|| event instanceof DescriptionChangedViewEvent) {
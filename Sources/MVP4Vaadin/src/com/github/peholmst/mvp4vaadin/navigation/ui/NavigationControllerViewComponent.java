@@ -16,6 +16,7 @@
 package com.github.peholmst.mvp4vaadin.navigation.ui;
 
 import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
+import com.github.peholmst.mvp4vaadin.HandlesEvents;
 import com.github.peholmst.mvp4vaadin.VaadinView;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
 import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
@@ -71,6 +72,7 @@ public class NavigationControllerViewComponent extends VerticalLayout implements
 	}
 
 	@Override
+	@HandlesEvents(CurrentNavigationControllerViewChangedEvent.class)
 	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
 		if (event.getSource() == this.controller
 				&& event instanceof CurrentNavigationControllerViewChangedEvent) {
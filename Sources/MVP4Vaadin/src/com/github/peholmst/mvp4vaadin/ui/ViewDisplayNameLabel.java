@@ -15,15 +15,19 @@
  */
 package com.github.peholmst.mvp4vaadin.ui;
 
+import com.github.peholmst.mvp4vaadin.HandlesEvents;
 import com.github.peholmst.mvp4vaadin.View;
 import com.github.peholmst.mvp4vaadin.ViewEvent;
 import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.WeakViewListener;
 import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
 import com.vaadin.ui.Label;
 
 /**
  * A label that contains the display name of a certain view. When the display
- * name changes, the label is automatically updated.
+ * name changes, the label is automatically updated. The label registers itself
+ * with the view using a weak reference, so a discarded label is not kept
+ * reachable by the view.
  * 
  * @author Petter Holmström
  * @since 1.0
@@ -35,6 +39,8 @@ public class ViewDisplayNameLabel extends Label implements ViewListener {
 
 	private View view;
 
+	private WeakViewListener viewListenerRegistration;
+
 	/**
 	 * Creates a new <code>ViewDisplayNameLabel</code> without a view.
 	 */
@@ -61,17 +67,20 @@ public class ViewDisplayNameLabel extends Label implements ViewListener {
 	 * <code>null</code>.
 	 */
 	public void setView(View view) {
-		if (this.view != null) {
-			this.view.removeListener(this);
+		if (viewListenerRegistration != null) {
+			viewListenerRegistration.unregister();
+			viewListenerRegistration = null;
 		}
 		this.view = view;
 		updateLabelValue();
 		if (this.view != null) {
-			this.view.addListener(this);
+			viewListenerRegistration = WeakViewListener.register(this.view,
+					this);
 		}
 	}
 
 	@Override
+	@HandlesEvents(DisplayNameChangedViewEvent.class)
 	public void handleViewEvent(ViewEvent event) {
 		if (event.getSource() == view
 				&& event instanceof DisplayNameChangedViewEvent) {
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController.NavigationResult;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+import com.github.peholmst.mvp4vaadin.navigation.ui.Breadcrumbs;
+
+/**
+ * Benchmarks for refreshing a {@link Breadcrumbs} component, both directly
+ * and as a side effect of navigating, and for updating a breadcrumb when the
+ * display name of a view changes. The component is not attached to any
+ * application.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreadcrumbsBenchmark {
+
+	@Param({ "1", "4", "16" })
+	public int depth;
+
+	private DefaultNavigationController controller;
+
+	private Breadcrumbs breadcrumbs;
+
+	private CurrentNavigationControllerViewChangedEvent refreshEvent;
+
+	private DisplayNameChangedViewEvent displayNameEvent;
+
+	private NavigationRequest forwardRequest;
+
+	private NavigationRequest backRequest;
+
+	@Setup
+	public void setUp() {
+		controller = new DefaultNavigationController();
+		final View[] path = new View[depth];
+		for (int i = 0; i < depth; ++i) {
+			path[i] = new BenchmarkViewImpl("View " + i);
+		}
+		backRequest = NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(path).buildRequest();
+		controller.navigate(backRequest);
+		forwardRequest = NavigationRequestBuilder.newInstance()
+				.startWithPathToCurrentView(controller)
+				.addViewToPath(new BenchmarkViewImpl("Top view"))
+				.buildRequest();
+
+		breadcrumbs = new Breadcrumbs();
+		breadcrumbs.setController(controller);
+
+		final View currentView = controller.getCurrentView();
+		refreshEvent = new CurrentNavigationControllerViewChangedEvent(
+				controller, currentView, currentView);
+		displayNameEvent = new DisplayNameChangedViewEvent(currentView,
+				currentView.getDisplayName(), currentView.getDisplayName());
+	}
+
+	@Benchmark
+	public int refresh() {
+		breadcrumbs.handleNavigationControllerEvent(refreshEvent);
+		return breadcrumbs.getComponentCount();
+	}
+
+	@Benchmark
+	public NavigationResult navigateForwardAndBack() {
+		controller.navigate(forwardRequest);
+		return controller.navigate(backRequest);
+	}
+
+	@Benchmark
+	public int updateDisplayName() {
+		controller.getCurrentView().fireViewEvent(displayNameEvent);
+		return breadcrumbs.getComponentCount();
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+
+/**
+ * Benchmarks for building {@link NavigationRequest}s using the
+ * {@link NavigationRequestBuilder}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationRequestBuilderBenchmark {
+
+	@Param({ "1", "4", "16", "64" })
+	public int depth;
+
+	private DefaultNavigationController controller;
+
+	private View[] path;
+
+	private View topView;
+
+	@Setup
+	public void setUp() {
+		controller = new DefaultNavigationController();
+		path = new View[depth];
+		for (int i = 0; i < depth; ++i) {
+			path[i] = new BenchmarkViewImpl("View " + i);
+		}
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(path).buildRequest());
+		topView = new BenchmarkViewImpl("Top view");
+	}
+
+	@Benchmark
+	public NavigationRequest buildRequestFromEmptyPath() {
+		return NavigationRequestBuilder.newInstance().startWithEmptyPath()
+				.addViewsToPath(path).buildRequest();
+	}
+
+	@Benchmark
+	public NavigationRequest buildRequestFromCurrentView() {
+		return NavigationRequestBuilder.newInstance()
+				.startWithPathToCurrentView(controller).addViewToPath(topView)
+				.buildRequest();
+	}
+
+	@Benchmark
+	public NavigationRequest buildRequestFromPreviousView() {
+		return NavigationRequestBuilder.newInstance()
+				.setParam("param", "value")
+				.startWithPathToView(controller, path[0]).buildRequest();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.NestingControllableView;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultViewController;
+import com.github.peholmst.mvp4vaadin.navigation.ViewController;
+import com.github.peholmst.mvp4vaadin.navigation.incubation.NestedControllersMaster;
+
+/**
+ * Benchmarks for {@link NestedControllersMaster} with different nesting
+ * depths. The top-level controller contains a home view and a view with an
+ * embedded controller, whose current view contains another embedded
+ * controller, etc.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@SuppressWarnings("deprecation")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedControllersMasterBenchmark {
+
+	/**
+	 * Master that exposes the traversal of the nested controllers.
+	 */
+	static class TraversableControllersMaster extends NestedControllersMaster {
+
+		private static final long serialVersionUID = -3541232375117452203L;
+
+		int countControllers() {
+			final int[] count = new int[1];
+			visitControllers(new ControllerVisitor() {
+
+				@Override
+				public boolean visitController(ViewController controller,
+						Stack<TraceElement> trace) {
+					count[0] += trace.size();
+					return true;
+				}
+			});
+			return count[0];
+		}
+	}
+
+	@Param({ "1", "4", "16" })
+	public int nesting;
+
+	private TraversableControllersMaster master;
+
+	private DefaultViewController topController;
+
+	private NestingControllableView homeView;
+
+	private NestingControllableView nestingView;
+
+	@Setup
+	public void setUp() {
+		ViewController embeddedController = null;
+		for (int i = 0; i < nesting; ++i) {
+			final DefaultViewController controller = new DefaultViewController();
+			controller.goToView(new NestingControllableView(embeddedController));
+			embeddedController = controller;
+		}
+		topController = new DefaultViewController();
+		homeView = new NestingControllableView(null);
+		nestingView = new NestingControllableView(embeddedController);
+		topController.goToView(homeView);
+
+		master = new TraversableControllersMaster();
+		master.setToplevelController(topController);
+		topController.goToView(nestingView);
+	}
+
+	@Benchmark
+	public int visitControllers() {
+		return master.countControllers();
+	}
+
+	@Benchmark
+	public ViewController switchTopLevelView() {
+		topController.goToView(homeView);
+		topController.goToView(nestingView);
+		return master.getActiveViewController();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintAnalyzer;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.ui.Breadcrumbs;
+
+/**
+ * Benchmarks for serializing and deserializing a navigation controller (with
+ * its views and a {@link Breadcrumbs} listener) and a navigation request, the
+ * way a servlet container does when replicating a session. Run the
+ * {@link #main(String[])} method to print the serialized sizes in bytes.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	@Param({ "1", "4", "16" })
+	public int depth;
+
+	private DefaultNavigationController controller;
+
+	private NavigationRequest request;
+
+	private byte[] serializedController;
+
+	private byte[] serializedRequest;
+
+	@Setup
+	public void setUp() throws IOException {
+		controller = new DefaultNavigationController();
+		final View[] path = new View[depth];
+		for (int i = 0; i < depth; ++i) {
+			path[i] = new BenchmarkViewImpl("View " + i);
+		}
+		request = NavigationRequestBuilder.newInstance()
+				.setParam("param", "value").startWithEmptyPath()
+				.addViewsToPath(path).buildRequest();
+		final Breadcrumbs breadcrumbs = new Breadcrumbs();
+		breadcrumbs.setController(controller);
+		controller.navigate(request);
+
+		serializedController = serialize(controller);
+		serializedRequest = serialize(request);
+	}
+
+	private static byte[] serialize(Object object) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException,
+			ClassNotFoundException {
+		final ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes));
+		return in.readObject();
+	}
+
+	@Benchmark
+	public byte[] serializeController() throws IOException {
+		return serialize(controller);
+	}
+
+	@Benchmark
+	public Object deserializeController() throws IOException,
+			ClassNotFoundException {
+		return deserialize(serializedController);
+	}
+
+	@Benchmark
+	public byte[] serializeRequest() throws IOException {
+		return serialize(request);
+	}
+
+	@Benchmark
+	public Object deserializeRequest() throws IOException,
+			ClassNotFoundException {
+		return deserialize(serializedRequest);
+	}
+
+	/**
+	 * Prints the serialized sizes of the benchmarked objects.
+	 */
+	public static void main(String[] args) throws IOException {
+		for (int depth : new int[] { 1, 4, 16 }) {
+			final SerializationBenchmark benchmark = new SerializationBenchmark();
+			benchmark.depth = depth;
+			benchmark.setUp();
+			System.out.printf(
+					"depth=%d: controller %d bytes, request %d bytes%n",
+					depth, benchmark.serializedController.length,
+					benchmark.serializedRequest.length);
+			new SerializedFootprintAnalyzer().analyze(benchmark.controller)
+					.print(System.out, 10);
+		}
+	}
+}
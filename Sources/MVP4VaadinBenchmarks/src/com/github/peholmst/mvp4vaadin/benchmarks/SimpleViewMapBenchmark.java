@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.OtherBenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+
+/**
+ * Benchmarks for looking up views from a {@link SimpleViewMap} containing
+ * different numbers of views. Exactly one of the views is an
+ * {@link OtherBenchmarkViewImpl}, which is the one that is looked up.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleViewMapBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int views;
+
+	private SimpleViewMap viewMap;
+
+	@Setup
+	public void setUp() {
+		viewMap = new SimpleViewMap();
+		for (int i = 1; i < views; ++i) {
+			viewMap.registerView("view" + i, new BenchmarkViewImpl("View "
+					+ i));
+		}
+		viewMap.registerView("view0", new OtherBenchmarkViewImpl("View 0"));
+	}
+
+	@Benchmark
+	public View getViewByClass() {
+		return viewMap.getViewByClass(OtherBenchmarkViewImpl.class);
+	}
+
+	@Benchmark
+	public View getViewById() {
+		return viewMap.getViewById("view0");
+	}
+}
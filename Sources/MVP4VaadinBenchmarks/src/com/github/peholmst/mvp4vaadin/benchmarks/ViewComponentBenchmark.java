@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkPresenter;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewComponent;
+
+/**
+ * Benchmarks for constructing {@link AbstractViewComponent}s, which resolves
+ * the view and presenter classes by introspection, and for creating and
+ * initializing their presenters.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewComponentBenchmark {
+
+	@Benchmark
+	public BenchmarkViewComponent construct() {
+		return new BenchmarkViewComponent();
+	}
+
+	@Benchmark
+	public BenchmarkPresenter constructAndCreatePresenter() {
+		return new BenchmarkViewComponent().createPresenter();
+	}
+
+	@Benchmark
+	public BenchmarkViewComponent constructAndInit() {
+		final BenchmarkViewComponent viewComponent = new BenchmarkViewComponent();
+		viewComponent.init();
+		return viewComponent;
+	}
+}
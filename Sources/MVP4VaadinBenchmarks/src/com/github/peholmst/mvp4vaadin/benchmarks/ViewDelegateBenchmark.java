@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.peholmst.mvp4vaadin.ViewDelegate;
+import com.github.peholmst.mvp4vaadin.ViewEvent;
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewImpl;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+
+/**
+ * Benchmarks for {@link ViewDelegate#fireViewEvent(ViewEvent)} with different
+ * numbers of registered listeners. The view delegate is used through an
+ * <code>AbstractView</code>, which delegates directly to it.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewDelegateBenchmark {
+
+	/**
+	 * Listener that counts the events it receives, to make sure the dispatch
+	 * cannot be optimized away.
+	 */
+	static class CountingListener implements ViewListener {
+
+		private static final long serialVersionUID = 2466510883451380287L;
+
+		int count;
+
+		@Override
+		public void handleViewEvent(ViewEvent event) {
+			++count;
+		}
+	}
+
+	@Param({ "0", "1", "8", "64" })
+	public int listeners;
+
+	private BenchmarkViewImpl view;
+
+	private CountingListener listener;
+
+	private ViewEvent event;
+
+	@Setup
+	public void setUp() {
+		view = new BenchmarkViewImpl("View");
+		listener = new CountingListener();
+		for (int i = 0; i < listeners; ++i) {
+			view.addListener(listener);
+		}
+		event = new DisplayNameChangedViewEvent(view, "View", "View");
+	}
+
+	@Benchmark
+	public int fireViewEvent() {
+		view.fireViewEvent(event);
+		return listener.count;
+	}
+}
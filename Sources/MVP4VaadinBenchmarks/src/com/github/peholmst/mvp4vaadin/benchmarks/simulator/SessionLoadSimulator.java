@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks.simulator;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless simulator that creates a large number of {@link SimulatedSession}s,
+ * drives them using a thread pool and reports the navigation throughput, the
+ * latency percentiles of single navigation steps and the retained heap per
+ * session. No servlet container is needed, which makes it possible to estimate
+ * the number of sessions a node can handle locally.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * java SessionLoadSimulator [sessions [threads [steps [depth]]]]
+ * </pre>
+ * 
+ * The retained heap is measured using the {@link MemoryMXBean} after
+ * requesting garbage collection, so the figures are estimates. For the most
+ * reliable results, run the simulator with a fixed heap size (e.g.
+ * <code>-Xms2g -Xmx2g</code>) and no other load on the machine.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SessionLoadSimulator {
+
+	/**
+	 * The results of a simulation run.
+	 * 
+	 * @author Petter Holmström
+	 * @since 1.0
+	 */
+	public static class Report {
+
+		private final int sessions;
+		private final int threads;
+		private final int steps;
+		private final int depth;
+		private final long elapsedNanos;
+		private final long[] sortedLatencies;
+		private final long heapPerNewSession;
+		private final long heapPerActiveSession;
+
+		Report(int sessions, int threads, int steps, int depth,
+				long elapsedNanos, long[] sortedLatencies,
+				long heapPerNewSession, long heapPerActiveSession) {
+			this.sessions = sessions;
+			this.threads = threads;
+			this.steps = steps;
+			this.depth = depth;
+			this.elapsedNanos = elapsedNanos;
+			this.sortedLatencies = sortedLatencies;
+			this.heapPerNewSession = heapPerNewSession;
+			this.heapPerActiveSession = heapPerActiveSession;
+		}
+
+		/**
+		 * Returns the number of navigation steps performed per second by all
+		 * the threads together.
+		 */
+		public double getThroughput() {
+			return sortedLatencies.length / (elapsedNanos / 1e9);
+		}
+
+		/**
+		 * Returns the latency in nanoseconds of a single navigation step at
+		 * the specified percentile (0-100).
+		 */
+		public long getLatencyPercentile(double percentile) {
+			if (sortedLatencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100.0
+					* sortedLatencies.length) - 1;
+			if (index < 0) {
+				index = 0;
+			}
+			return sortedLatencies[index];
+		}
+
+		/**
+		 * Returns the estimated retained heap in bytes per session right after
+		 * the sessions have been created.
+		 */
+		public long getHeapPerNewSession() {
+			return heapPerNewSession;
+		}
+
+		/**
+		 * Returns the estimated retained heap in bytes per session after all
+		 * the navigation steps have been performed.
+		 */
+		public long getHeapPerActiveSession() {
+			return heapPerActiveSession;
+		}
+
+		/**
+		 * Prints the report in a human readable format to the specified
+		 * stream.
+		 */
+		public void print(PrintStream out) {
+			out.printf("Sessions: %d, threads: %d, steps/session: %d, depth: %d%n",
+					sessions, threads, steps, depth);
+			out.printf("Throughput: %.0f steps/s%n", getThroughput());
+			out.printf(
+					"Latency (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+					getLatencyPercentile(50) / 1e3,
+					getLatencyPercentile(90) / 1e3,
+					getLatencyPercentile(99) / 1e3,
+					getLatencyPercentile(99.9) / 1e3,
+					getLatencyPercentile(100) / 1e3);
+			out.printf("Retained heap per session: %d bytes (new), %d bytes (active)%n",
+					heapPerNewSession, heapPerActiveSession);
+		}
+	}
+
+	private final int sessions;
+	private final int threads;
+	private final int steps;
+	private final int depth;
+
+	/**
+	 * Creates a new simulator.
+	 * 
+	 * @param sessions
+	 *            the number of simulated sessions.
+	 * @param threads
+	 *            the number of threads to drive the sessions with.
+	 * @param steps
+	 *            the number of navigation steps to perform per session.
+	 * @param depth
+	 *            the maximum number of views on top of the home view.
+	 */
+	public SessionLoadSimulator(int sessions, int threads, int steps, int depth) {
+		if (sessions < 1 || threads < 1 || steps < 0 || depth < 1) {
+			throw new IllegalArgumentException("Invalid simulation parameters");
+		}
+		this.sessions = sessions;
+		this.threads = threads;
+		this.steps = steps;
+		this.depth = depth;
+	}
+
+	/**
+	 * Runs the simulation and returns the report. The sessions are
+	 * discarded after the simulation.
+	 */
+	public Report run() throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final long baseline = measureUsedHeap();
+			final SimulatedSession[] sessionArray = createSessions(executor);
+			final long heapPerNewSession = (measureUsedHeap() - baseline)
+					/ sessions;
+
+			final long start = System.nanoTime();
+			final long[] latencies = runSessions(executor, sessionArray);
+			final long elapsed = System.nanoTime() - start;
+
+			final long heapPerActiveSession = (measureUsedHeap() - baseline)
+					/ sessions;
+			Arrays.sort(latencies);
+			// Keep the sessions reachable until the heap has been measured
+			sessionArray[0].hashCode();
+			return new Report(sessions, threads, steps, depth, elapsed,
+					latencies, heapPerNewSession, heapPerActiveSession);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private SimulatedSession[] createSessions(ExecutorService executor)
+			throws InterruptedException {
+		final SimulatedSession[] sessionArray = new SimulatedSession[sessions];
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(
+				sessions);
+		for (int i = 0; i < sessions; ++i) {
+			final int index = i;
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					sessionArray[index] = new SimulatedSession(depth, index);
+					return null;
+				}
+			});
+		}
+		awaitAll(executor.invokeAll(tasks));
+		return sessionArray;
+	}
+
+	private long[] runSessions(ExecutorService executor,
+			final SimulatedSession[] sessionArray) throws InterruptedException {
+		final long[] latencies = new long[sessions * steps];
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(
+				sessions);
+		for (int i = 0; i < sessions; ++i) {
+			final int index = i;
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					final SimulatedSession session = sessionArray[index];
+					final int offset = index * steps;
+					for (int step = 0; step < steps; ++step) {
+						final long stepStart = System.nanoTime();
+						session.step();
+						latencies[offset + step] = System.nanoTime()
+								- stepStart;
+					}
+					return null;
+				}
+			});
+		}
+		awaitAll(executor.invokeAll(tasks));
+		return latencies;
+	}
+
+	private static void awaitAll(List<Future<Void>> futures)
+			throws InterruptedException {
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Simulated session failed",
+						e.getCause());
+			}
+		}
+	}
+
+	private static long measureUsedHeap() throws InterruptedException {
+		final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; ++i) {
+			memoryBean.gc();
+			Thread.sleep(100);
+		}
+		return memoryBean.getHeapMemoryUsage().getUsed();
+	}
+
+	private static int getArg(String[] args, int index, int defaultValue) {
+		return args.length > index ? Integer.parseInt(args[index])
+				: defaultValue;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final SessionLoadSimulator simulator = new SessionLoadSimulator(
+				getArg(args, 0, 2000), getArg(args, 1, Runtime.getRuntime()
+						.availableProcessors()), getArg(args, 2, 200),
+				getArg(args, 3, 8));
+		simulator.run().print(System.out);
+	}
+}
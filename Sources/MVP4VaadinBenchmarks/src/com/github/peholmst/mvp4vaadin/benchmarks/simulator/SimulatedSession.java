@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks.simulator;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.benchmarks.testdata.BenchmarkViewComponent;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.ui.Breadcrumbs;
+import com.github.peholmst.mvp4vaadin.navigation.ui.NavigationControllerViewComponent;
+
+/**
+ * A simulated user session consisting of the same objects that a typical
+ * MVP4Vaadin application keeps per session: a view map, a navigation
+ * controller, a breadcrumb bar and a component showing the current view. The
+ * session is driven by a fixed navigation script, where the user first
+ * navigates forward one view at a time until the maximum depth has been
+ * reached and then backward one view at a time until the home view is shown
+ * again.
+ * <p>
+ * Instances of this class are not thread safe, just like a Vaadin
+ * application.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+class SimulatedSession {
+
+	private final SimpleViewMap viewMap = new SimpleViewMap();
+
+	private final DefaultNavigationController controller = new DefaultNavigationController();
+
+	private final Breadcrumbs breadcrumbs = new Breadcrumbs();
+
+	private final NavigationControllerViewComponent viewComponent = new NavigationControllerViewComponent();
+
+	private final int depth;
+
+	private int position;
+
+	/**
+	 * Creates a new session and navigates to the home view.
+	 * 
+	 * @param depth
+	 *            the number of views that can be stacked on top of the home
+	 *            view.
+	 * @param offset
+	 *            the position in the navigation script to start from, so that
+	 *            sessions that are run in parallel are not all doing the same
+	 *            thing at the same time.
+	 */
+	SimulatedSession(int depth, int offset) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("depth must be at least 1");
+		}
+		this.depth = depth;
+		for (int i = 0; i <= depth; ++i) {
+			viewMap.registerView(getViewId(i), new BenchmarkViewComponent(
+					"View " + i));
+		}
+		breadcrumbs.setController(controller);
+		viewComponent.setController(controller);
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath()
+				.addViewToPath(viewMap.getViewById(getViewId(0)))
+				.buildRequest());
+		for (int i = 0; i < offset % (2 * depth); ++i) {
+			step();
+		}
+	}
+
+	private static String getViewId(int index) {
+		return "view" + index;
+	}
+
+	/**
+	 * Performs the next step of the navigation script.
+	 */
+	void step() {
+		if (position < depth) {
+			final View view = viewMap.getViewById(getViewId(position + 1));
+			controller.navigate(NavigationRequestBuilder.newInstance()
+					.startWithPathToCurrentView(controller).addViewToPath(view)
+					.buildRequest());
+		} else {
+			controller.navigateBack();
+		}
+		position = (position + 1) % (2 * depth);
+	}
+}
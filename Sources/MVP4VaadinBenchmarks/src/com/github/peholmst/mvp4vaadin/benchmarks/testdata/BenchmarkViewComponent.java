@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks.testdata;
+
+import com.github.peholmst.mvp4vaadin.AbstractViewComponent;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Vaadin component implementation of {@link BenchmarkView}. The presenter and
+ * view classes are determined by introspection.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@SuppressWarnings("serial")
+public class BenchmarkViewComponent extends
+		AbstractViewComponent<BenchmarkView, BenchmarkPresenter> implements
+		BenchmarkView {
+
+	public BenchmarkViewComponent() {
+		super();
+	}
+
+	public BenchmarkViewComponent(String displayName) {
+		super();
+		init();
+		setDisplayName(displayName);
+	}
+
+	@Override
+	protected Component createCompositionRoot() {
+		return new VerticalLayout();
+	}
+}
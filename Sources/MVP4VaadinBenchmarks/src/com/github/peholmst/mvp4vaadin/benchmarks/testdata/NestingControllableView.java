@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.benchmarks.testdata;
+
+import com.github.peholmst.mvp4vaadin.navigation.AbstractControllableView;
+import com.github.peholmst.mvp4vaadin.navigation.ControllablePresenter;
+import com.github.peholmst.mvp4vaadin.navigation.ViewController;
+import com.github.peholmst.mvp4vaadin.navigation.incubation.ControllableViewWithEmbeddedController;
+
+/**
+ * Controllable view that may contain an embedded view controller. Used to
+ * build nested controller hierarchies for the
+ * <code>NestedControllersMaster</code> benchmarks.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@SuppressWarnings({ "serial", "deprecation" })
+public class NestingControllableView
+		extends
+		AbstractControllableView<NestingControllableView, NestingControllableView.NestingPresenter>
+		implements ControllableViewWithEmbeddedController {
+
+	/**
+	 * Presenter of {@link NestingControllableView}. It does not do anything.
+	 */
+	public static class NestingPresenter extends
+			ControllablePresenter<NestingControllableView> {
+
+		public NestingPresenter(NestingControllableView view) {
+			super(view);
+		}
+	}
+
+	private final ViewController embeddedController;
+
+	/**
+	 * Creates and initializes a new <code>NestingControllableView</code>.
+	 * 
+	 * @param embeddedController
+	 *            the embedded controller, may be <code>null</code>.
+	 */
+	public NestingControllableView(ViewController embeddedController) {
+		super();
+		this.embeddedController = embeddedController;
+		init();
+	}
+
+	@Override
+	public NestingPresenter createPresenter() {
+		return new NestingPresenter(this);
+	}
+
+	@Override
+	public ViewController getEmbeddedController() {
+		return embeddedController;
+	}
+}
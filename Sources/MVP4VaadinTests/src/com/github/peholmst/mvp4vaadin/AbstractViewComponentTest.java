@@ -20,6 +20,8 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.easymock.EasyMock.*;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -29,6 +31,9 @@ import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter2;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent2;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+import com.vaadin.terminal.PaintTarget;
 
 /**
  * Test case for {@link AbstractViewComponent}.
@@ -124,4 +129,85 @@ public class AbstractViewComponentTest {
 		MyTestPresenter2 createdPresenter = createdView.createPresenter();
 		assertSame(createdView, createdPresenter.getView());
 	}
+
+	@SuppressWarnings("serial")
+	static class RecordingUpdate implements ViewUpdate {
+
+		final Object target;
+
+		final List<RecordingUpdate> applied;
+
+		RecordingUpdate(Object target, List<RecordingUpdate> applied) {
+			this.target = target;
+			this.applied = applied;
+		}
+
+		@Override
+		public Object getTarget() {
+			return target;
+		}
+
+		@Override
+		public void apply() {
+			applied.add(this);
+		}
+	}
+
+	@Test
+	public void queuedUpdatesAreAppliedWhenPainted() throws Exception {
+		final MyTestPresenter presenter = view.createPresenter();
+		view.setPresenter(presenter);
+		view.init();
+		final List<RecordingUpdate> applied = new ArrayList<RecordingUpdate>();
+		final RecordingUpdate first = new RecordingUpdate("field", applied);
+		final RecordingUpdate other = new RecordingUpdate("table", applied);
+		final RecordingUpdate second = new RecordingUpdate("field", applied);
+		presenter.enqueueUpdate(first);
+		presenter.enqueueUpdate(other);
+		presenter.enqueueUpdate(second);
+		assertTrue(applied.isEmpty());
+
+		final PaintTarget target = createNiceMock(PaintTarget.class);
+		replay(target);
+		view.paintContent(target);
+		assertEquals(2, applied.size());
+		assertSame(second, applied.get(0));
+		assertSame(other, applied.get(1));
+
+		view.paintContent(target);
+		assertEquals(2, applied.size());
+	}
+
+	@Test
+	public void queuedUpdatesAreSerialized() throws Exception {
+		final List<RecordingUpdate> applied = new ArrayList<RecordingUpdate>();
+		view.enqueueUpdate(new RecordingUpdate("field", applied));
+		final MyTestViewComponent deserialized = SerializationTestUtil
+				.serializeAndDeserialize(view);
+		deserialized.applyPendingUpdates();
+		view.applyPendingUpdates();
+		assertEquals(1, applied.size());
+	}
+
+	@Test
+	public void dispose_KeepsCompositionRoot() throws Exception {
+		view.setPresenter(view.createPresenter());
+		view.init();
+		view.dispose();
+		assertTrue(view.isDisposed());
+		assertTrue(view.getComponentIterator().hasNext());
+
+		final PaintTarget target = createNiceMock(PaintTarget.class);
+		replay(target);
+		view.paintContent(target);
+	}
+
+	@Test
+	public void presenterAppliesUpdateRightAwayWithoutUpdatableView() {
+		final MyTestViewImpl plainView = new MyTestViewImpl();
+		final MyTestPresenter plainPresenter = new MyTestPresenter(plainView);
+		final List<RecordingUpdate> applied = new ArrayList<RecordingUpdate>();
+		plainPresenter.enqueueUpdate(new RecordingUpdate(null, applied));
+		assertEquals(1, applied.size());
+	}
 }
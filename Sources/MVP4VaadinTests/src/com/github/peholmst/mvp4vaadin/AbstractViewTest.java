@@ -24,8 +24,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisposedViewEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyDehydratableTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyDehydratableTestViewImpl;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+import com.github.peholmst.stuff4vaadin.adapter.UnsupportedAdapterException;
 
 /**
  * Test case for {@link AbstractView}.
@@ -116,4 +122,200 @@ public class AbstractViewTest {
 		assertTrue(presenter.initialized);
 		assertSame(presenter, view.getPresenter());
 	}
+
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		final MyTestListener listener = new MyTestListener();
+		view.addListener(listener);
+		view.setPresenter(presenter);
+		view.init();
+		listener.events.clear();
+
+		final Object[] copies = SerializationTestUtil
+				.serializeAndDeserialize(new Object[] { view, listener });
+		final MyTestViewImpl viewCopy = (MyTestViewImpl) copies[0];
+		final MyTestListener listenerCopy = (MyTestListener) copies[1];
+		assertTrue(viewCopy.isInitialized());
+		assertNotNull(viewCopy.getPresenter());
+
+		viewCopy.fireViewEvent(new DisplayNameChangedViewEvent(viewCopy,
+				"old", "new"));
+		assertEquals(1, listenerCopy.events.size());
+		assertTrue(listener.events.isEmpty());
+	}
+
+	@Test
+	public void serializeAndDeserialize_Events() throws Exception {
+		final DisplayNameChangedViewEvent copy = SerializationTestUtil
+				.serializeAndDeserialize(new DisplayNameChangedViewEvent(view,
+						"old", "new"));
+		assertTrue(copy.getSource() instanceof MyTestViewImpl);
+		assertEquals("old", copy.getOldDisplayName());
+		assertEquals("new", copy.getNewDisplayName());
+	}
+
+	@Test
+	public void dehydrateAndRehydrate() {
+		final MyDehydratableTestViewImpl dehydratableView = new MyDehydratableTestViewImpl();
+		dehydratableView.getDehydratablePresenter().state = "state";
+		assertTrue(dehydratableView.isDehydratable());
+		assertFalse(dehydratableView.isDehydrated());
+
+		dehydratableView.dehydrate();
+		assertTrue(dehydratableView.isDehydrated());
+		assertFalse(dehydratableView.isDehydratable());
+		assertFalse(dehydratableView.isInitialized());
+		assertNull(dehydratableView.getPresenter());
+
+		dehydratableView.rehydrate();
+		assertFalse(dehydratableView.isDehydrated());
+		assertTrue(dehydratableView.isInitialized());
+		assertEquals(2, dehydratableView.presentersCreated);
+		assertTrue(dehydratableView.getDehydratablePresenter().restored);
+		assertEquals("state", dehydratableView.getDehydratablePresenter().state);
+	}
+
+	@Test
+	public void dehydrate_DisposesPresenter() {
+		final MyDehydratableTestViewImpl dehydratableView = new MyDehydratableTestViewImpl();
+		final MyDehydratableTestPresenter oldPresenter = dehydratableView
+				.getDehydratablePresenter();
+		dehydratableView.dehydrate();
+		assertTrue(oldPresenter.disposed);
+		assertFalse(dehydratableView.isDisposed());
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void dehydrateAndRehydrate_CancelsSubscriptionsOfOldPresenter() {
+		final EventBus bus = new EventBus();
+		final List<String> events = new ArrayList<String>();
+		final MyDehydratableTestViewImpl dehydratableView = new MyDehydratableTestViewImpl() {
+
+			@Override
+			public MyTestPresenter createPresenter() {
+				return new MyDehydratableTestPresenter() {
+
+					@Override
+					public void init() {
+						super.init();
+						subscribe(bus, "customers", String.class,
+								new EventBus.Subscriber<String>() {
+
+									@Override
+									public void handleEvent(String topic,
+											String event) {
+										events.add(event);
+									}
+								});
+					}
+				};
+			}
+		};
+		dehydratableView.dehydrate();
+		dehydratableView.rehydrate();
+
+		assertEquals(1, bus.publish("customers", "edited"));
+		assertEquals(1, events.size());
+		assertEquals(1, bus.getSubscriptionCount("customers"));
+	}
+
+	@Test
+	public void dehydrate_SerializesOnlyState() throws Exception {
+		final MyDehydratableTestViewImpl dehydratableView = new MyDehydratableTestViewImpl();
+		dehydratableView.getDehydratablePresenter().state = "state";
+		dehydratableView.dehydrate();
+
+		final MyDehydratableTestViewImpl copy = SerializationTestUtil
+				.serializeAndDeserialize(dehydratableView);
+		assertTrue(copy.isDehydrated());
+		copy.rehydrate();
+		assertEquals("state", copy.getDehydratablePresenter().state);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void dehydrate_PresenterNotDehydratable() {
+		view.setPresenter(presenter);
+		view.init();
+		assertFalse(view.isDehydratable());
+		view.dehydrate();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rehydrate_NotDehydrated() {
+		new MyDehydratableTestViewImpl().rehydrate();
+	}
+
+	@Test
+	public void dispose() {
+		final List<ViewEvent> receivedEvents = new ArrayList<ViewEvent>();
+		@SuppressWarnings("serial")
+		final ViewListener listener = new ViewListener() {
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+				receivedEvents.add(event);
+			}
+		};
+		view.setPresenter(presenter);
+		view.init();
+		view.addListener(listener);
+		view.getAdaptableSupport().registerAdapter(String.class, "adapter");
+
+		view.dispose();
+		assertTrue(view.isDisposed());
+		assertFalse(view.isInitialized());
+		assertNull(view.getPresenter());
+		assertTrue(presenter.disposed);
+		assertTrue(view.viewDisposed);
+		assertEquals(1, receivedEvents.size());
+		assertTrue(receivedEvents.get(0) instanceof DisposedViewEvent);
+		assertFalse(view.supportsAdapter(String.class));
+
+		// Listeners have been cleared, disposing again has no effect
+		view.fireViewEvent(new DisposedViewEvent(view));
+		view.dispose();
+		assertEquals(1, receivedEvents.size());
+	}
+
+	@Test
+	public void adaptersAreNotShared() {
+		final MyTestViewImpl other = new MyTestViewImpl();
+		assertFalse(view.supportsAdapter(String.class));
+		view.getAdaptableSupport().registerAdapter(String.class, "adapter");
+		assertTrue(view.supportsAdapter(String.class));
+		assertEquals("adapter", view.adapt(String.class));
+		assertFalse(other.supportsAdapter(String.class));
+		assertFalse(presenter.supportsAdapter(String.class));
+	}
+
+	@Test(expected = UnsupportedAdapterException.class)
+	public void adaptWithoutAdapters() {
+		view.adapt(String.class);
+	}
+
+	@Test
+	public void dispose_NotInitialized() {
+		view.setPresenter(presenter);
+		view.dispose();
+		assertTrue(view.isDisposed());
+		assertFalse(presenter.disposed);
+		assertFalse(view.viewDisposed);
+	}
+
+	@Test
+	public void dispose_Dehydrated() {
+		final MyDehydratableTestViewImpl dehydratableView = new MyDehydratableTestViewImpl();
+		dehydratableView.dehydrate();
+		dehydratableView.dispose();
+		assertFalse(dehydratableView.isDehydrated());
+		assertFalse(dehydratableView.viewDisposed);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void init_Disposed() {
+		view.setPresenter(presenter);
+		view.dispose();
+		view.init();
+	}
 }
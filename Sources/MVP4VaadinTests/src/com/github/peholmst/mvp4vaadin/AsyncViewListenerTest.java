@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.AsyncEventDispatcher.OverflowPolicy;
+import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.navigation.AsyncNavigationControllerListener;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link AsyncViewListener},
+ * {@link AsyncNavigationControllerListener} and {@link AsyncEventDispatcher}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class AsyncViewListenerTest {
+
+	static class QueueingExecutor implements Executor {
+
+		final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.removeFirst().run();
+			}
+		}
+	}
+
+	QueueingExecutor executor;
+
+	AsyncEventDispatcher dispatcher;
+
+	MyTestViewImpl view;
+
+	MyTestListener listener;
+
+	@Before
+	public void setUp() {
+		executor = new QueueingExecutor();
+		view = new MyTestViewImpl();
+		listener = new MyTestListener();
+	}
+
+	@After
+	public void tearDown() {
+		if (dispatcher != null) {
+			dispatcher.close();
+		}
+	}
+
+	@Test
+	public void eventsAreDeliveredByExecutor() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		final AsyncViewListener registration = AsyncViewListener.register(
+				view, listener, dispatcher);
+		assertSame(view, registration.getSource());
+		assertSame(listener, registration.getListener());
+
+		view.setDisplayName("first");
+		view.setViewDescription("description");
+		assertTrue(listener.events.isEmpty());
+		assertEquals(2, dispatcher.getQueuedEventCount());
+		assertEquals(1, executor.tasks.size());
+		assertEquals(0, dispatcher.getDispatchedEventCount());
+
+		executor.runAll();
+		assertEquals(2, listener.events.size());
+		assertEquals(2, dispatcher.getDispatchedEventCount());
+		assertTrue(listener.events.get(0) instanceof DisplayNameChangedViewEvent);
+		assertTrue(listener.events.get(1) instanceof DescriptionChangedViewEvent);
+		assertEquals(0, dispatcher.getQueuedEventCount());
+
+		registration.unregister();
+		view.setDisplayName("second");
+		executor.runAll();
+		assertEquals(2, listener.events.size());
+	}
+
+	@Test
+	public void dropWhenFull() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 2,
+				OverflowPolicy.DROP);
+		AsyncViewListener.register(view, listener, dispatcher);
+		view.setDisplayName("1");
+		view.setDisplayName("2");
+		view.setDisplayName("3");
+		assertEquals(1, dispatcher.getDroppedEventCount());
+
+		executor.runAll();
+		assertEquals(2, listener.events.size());
+		assertEquals("2", ((DisplayNameChangedViewEvent) listener.events
+				.get(1)).getNewDisplayName());
+	}
+
+	@Test
+	public void coalesceKeepsLatestEvent() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 2,
+				OverflowPolicy.COALESCE);
+		AsyncViewListener.register(view, listener, dispatcher);
+		view.setDisplayName("1");
+		view.setViewDescription("description");
+		view.setDisplayName("2");
+		view.setDisplayName("3");
+		assertEquals(2, dispatcher.getCoalescedEventCount());
+		assertEquals(0, dispatcher.getDroppedEventCount());
+
+		executor.runAll();
+		assertEquals(2, listener.events.size());
+		assertEquals("3", ((DisplayNameChangedViewEvent) listener.events
+				.get(0)).getNewDisplayName());
+		assertTrue(listener.events.get(1) instanceof DescriptionChangedViewEvent);
+
+		view.setDisplayName("4");
+		executor.runAll();
+		assertEquals(3, listener.events.size());
+	}
+
+	@Test
+	public void blockWaitsForRoom() throws Exception {
+		final Executor threadExecutor = new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				new Thread(command).start();
+			}
+		};
+		dispatcher = new AsyncEventDispatcher("test", threadExecutor, 1,
+				OverflowPolicy.BLOCK);
+		final MyTestListener synchronizedListener = new MyTestListener() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public synchronized void handleViewEvent(ViewEvent event) {
+				super.handleViewEvent(event);
+				notifyAll();
+			}
+		};
+		AsyncViewListener.register(view, synchronizedListener, dispatcher);
+		for (int i = 0; i < 20; ++i) {
+			view.setDisplayName(Integer.toString(i));
+		}
+		synchronized (synchronizedListener) {
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (synchronizedListener.events.size() < 20
+					&& System.currentTimeMillis() < deadline) {
+				synchronizedListener.wait(100);
+			}
+			assertEquals(20, synchronizedListener.events.size());
+		}
+		assertEquals(0, dispatcher.getDroppedEventCount());
+	}
+
+	@Test
+	public void failingListenerDoesNotStopDelivery() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		AsyncViewListener.register(view, new ViewListener() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+				throw new RuntimeException("expected");
+			}
+		}, dispatcher);
+		AsyncViewListener.register(view, listener, dispatcher);
+		view.setDisplayName("name");
+		executor.runAll();
+		assertEquals(1, listener.events.size());
+	}
+
+	@Test
+	public void closedDispatcherFallsBackToSynchronousDelivery() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		AsyncViewListener.register(view, listener, dispatcher);
+		dispatcher.close();
+		assertNull(AsyncEventDispatcher.getDispatcher("test"));
+		view.setDisplayName("name");
+		assertEquals(1, listener.events.size());
+		assertTrue(executor.tasks.isEmpty());
+	}
+
+	@Test
+	public void closedDispatcherDropsDirectDispatchesButDeliversQueuedEvents() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		final AsyncViewListener registration = AsyncViewListener.register(
+				view, listener, dispatcher);
+		view.setDisplayName("queued");
+		dispatcher.close();
+		assertTrue(dispatcher.isClosed());
+		assertFalse(dispatcher.dispatch(registration,
+				new DisplayNameChangedViewEvent(view, "queued", "dropped")));
+		assertEquals(1, dispatcher.getDroppedEventCount());
+
+		executor.runAll();
+		assertEquals(1, listener.events.size());
+		assertEquals(1, dispatcher.getDispatchedEventCount());
+
+		view.setDisplayName("synchronous");
+		assertEquals(2, listener.events.size());
+		assertEquals(1, dispatcher.getDispatchedEventCount());
+		assertEquals(1, dispatcher.getDroppedEventCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void duplicateName() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		new AsyncEventDispatcher("test", executor, 10, OverflowPolicy.DROP);
+	}
+
+	@Test
+	public void handlesEventsIsHonored() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		final DisplayNameOnlyListener filtered = new DisplayNameOnlyListener();
+		AsyncViewListener.register(view, filtered, dispatcher);
+		view.setViewDescription("description");
+		assertEquals(0, dispatcher.getQueuedEventCount());
+		view.setDisplayName("name");
+		assertEquals(1, dispatcher.getQueuedEventCount());
+	}
+
+	@HandlesEvents(DisplayNameChangedViewEvent.class)
+	static class DisplayNameOnlyListener extends MyTestListener {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	@Test
+	public void serializedRegistrationFindsDispatcherByName()
+			throws Exception {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		AsyncViewListener.register(view, listener, dispatcher);
+		final MyTestViewImpl deserialized = SerializationTestUtil
+				.serializeAndDeserialize(view);
+		deserialized.setDisplayName("name");
+		assertEquals(1, dispatcher.getQueuedEventCount());
+	}
+
+	@Test
+	public void navigationControllerListener() {
+		dispatcher = new AsyncEventDispatcher("test", executor, 10,
+				OverflowPolicy.DROP);
+		final DefaultNavigationController controller = new DefaultNavigationController();
+		final AsyncNavigationControllerListener registration = AsyncNavigationControllerListener
+				.register(controller, listener, dispatcher);
+		assertSame(controller, registration.getSource());
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(new MyTestViewImpl())
+				.buildRequest());
+		assertTrue(listener.events.isEmpty());
+		executor.runAll();
+		assertFalse(listener.events.isEmpty());
+		assertTrue(listener.events.get(listener.events.size() - 1) instanceof CurrentNavigationControllerViewChangedEvent);
+
+		registration.unregister();
+		final int count = listener.events.size();
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(new MyTestViewImpl())
+				.buildRequest());
+		executor.runAll();
+		assertEquals(count, listener.events.size());
+	}
+}
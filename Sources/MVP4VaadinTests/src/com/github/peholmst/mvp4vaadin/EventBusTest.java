@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.EventBus.Subscriber;
+import com.github.peholmst.mvp4vaadin.EventBus.Subscription;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link EventBus}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class EventBusTest {
+
+	static class RecordingSubscriber<E> implements Subscriber<E> {
+
+		private static final long serialVersionUID = 1L;
+
+		final List<Object> events = new ArrayList<Object>();
+
+		@Override
+		public void handleEvent(String topic, E event) {
+			events.add(event);
+		}
+	}
+
+	static class SubscribingPresenter extends MyTestPresenter {
+
+		private static final long serialVersionUID = 1L;
+
+		final RecordingSubscriber<String> subscriber = new RecordingSubscriber<String>();
+
+		SubscribingPresenter(MyTestViewImpl view) {
+			super(view);
+		}
+
+		Subscription subscribeTo(EventBus bus) {
+			return subscribe(bus, "customers", String.class, subscriber);
+		}
+	}
+
+	EventBus bus;
+
+	@Before
+	public void setUp() {
+		bus = new EventBus();
+	}
+
+	@After
+	public void tearDown() {
+		EventBus.removeApplicationBus("test");
+	}
+
+	@Test
+	public void publishByTopicAndType() {
+		final RecordingSubscriber<String> strings = new RecordingSubscriber<String>();
+		final RecordingSubscriber<Object> objects = new RecordingSubscriber<Object>();
+		final RecordingSubscriber<Object> other = new RecordingSubscriber<Object>();
+		bus.subscribe("customers", String.class, strings);
+		bus.subscribe("customers", Object.class, objects);
+		bus.subscribe("orders", Object.class, other);
+
+		assertEquals(2, bus.publish("customers", "edited"));
+		assertEquals(1, bus.publish("customers", Integer.valueOf(1)));
+		assertEquals(0, bus.publish("nobody", "event"));
+
+		assertEquals(1, strings.events.size());
+		assertEquals(2, objects.events.size());
+		assertTrue(other.events.isEmpty());
+	}
+
+	@Test
+	public void cancel() {
+		final RecordingSubscriber<String> subscriber = new RecordingSubscriber<String>();
+		final Subscription subscription = bus.subscribe("customers",
+				String.class, subscriber);
+		assertEquals(1, bus.getSubscriptionCount("customers"));
+		bus.publish("customers", "first");
+		subscription.cancel();
+		assertFalse(subscription.isActive());
+		assertEquals(0, bus.getSubscriptionCount("customers"));
+		bus.publish("customers", "second");
+		assertEquals(1, subscriber.events.size());
+	}
+
+	@Test
+	public void presenterSubscriptionIsCancelledOnDispose() {
+		final MyTestViewImpl view = new MyTestViewImpl();
+		final SubscribingPresenter presenter = new SubscribingPresenter(view);
+		view.setPresenter(presenter);
+		view.init();
+		final Subscription subscription = presenter.subscribeTo(bus);
+		bus.publish("customers", "edited");
+		assertEquals(1, presenter.subscriber.events.size());
+
+		view.dispose();
+		assertFalse(subscription.isActive());
+		assertEquals(0, bus.publish("customers", "edited again"));
+		assertEquals(1, presenter.subscriber.events.size());
+	}
+
+	@Test
+	public void presenterSubscriptionIsCancelledWhenPresenterIsDisposed() {
+		final SubscribingPresenter presenter = new SubscribingPresenter(
+				new MyTestViewImpl());
+		final Subscription subscription = presenter.subscribeTo(bus);
+		presenter.dispose();
+		assertFalse(subscription.isActive());
+		assertEquals(0, bus.getEntryCount("customers"));
+	}
+
+	@Test
+	public void presenterSubscriptionIsCancelledWhenOverrideSkipsSuper() {
+		final MyTestViewImpl view = new MyTestViewImpl();
+		final SubscribingPresenter presenter = new SubscribingPresenter(view) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void dispose() {
+				// Does not call super
+			}
+		};
+		view.setPresenter(presenter);
+		view.init();
+		final Subscription subscription = presenter.subscribeTo(bus);
+		view.dispose();
+		assertFalse(subscription.isActive());
+	}
+
+	@Test
+	public void presenterSubscriptionDoesNotKeepPresenterReachable() {
+		SubscribingPresenter presenter = new SubscribingPresenter(
+				new MyTestViewImpl());
+		presenter.subscribeTo(bus);
+		final WeakReference<SubscribingPresenter> presenterReference = new WeakReference<SubscribingPresenter>(
+				presenter);
+		presenter = null;
+		assertTrue(WeakViewListenerTest.collect(presenterReference));
+		assertEquals(0, bus.getSubscriptionCount("customers"));
+	}
+
+	@Test
+	public void collectedSubscriptionsArePrunedOnSubscribe() {
+		SubscribingPresenter presenter = new SubscribingPresenter(
+				new MyTestViewImpl());
+		presenter.subscribeTo(bus);
+		final WeakReference<SubscribingPresenter> presenterReference = new WeakReference<SubscribingPresenter>(
+				presenter);
+		presenter = null;
+		assertTrue(WeakViewListenerTest.collect(presenterReference));
+		assertEquals(1, bus.getEntryCount("customers"));
+
+		bus.subscribe("customers", String.class,
+				new RecordingSubscriber<String>());
+		assertEquals(1, bus.getEntryCount("customers"));
+	}
+
+	@Test
+	public void lifecycleBoundSubscriptionDoesNotKeepViewReachable() {
+		MyTestViewImpl view = new MyTestViewImpl();
+		bus.subscribe(view, "customers", String.class,
+				new RecordingSubscriber<String>());
+		final WeakReference<MyTestViewImpl> viewReference = new WeakReference<MyTestViewImpl>(
+				view);
+		view = null;
+		assertTrue(WeakViewListenerTest.collect(viewReference));
+		assertEquals(0, bus.publish("customers", "edited"));
+		assertEquals(0, bus.getSubscriptionCount("customers"));
+	}
+
+	@Test
+	public void asynchronousFanOut() {
+		final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+		bus.setExecutor(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+		final RecordingSubscriber<String> subscriber = new RecordingSubscriber<String>();
+		bus.subscribe("customers", String.class, subscriber);
+		bus.subscribe("customers", String.class, new Subscriber<String>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void handleEvent(String topic, String event) {
+				throw new RuntimeException("expected");
+			}
+		});
+		assertEquals(2, bus.publish("customers", "edited"));
+		assertTrue(subscriber.events.isEmpty());
+		assertEquals(2, tasks.size());
+		while (!tasks.isEmpty()) {
+			tasks.removeFirst().run();
+		}
+		assertEquals(1, subscriber.events.size());
+	}
+
+	@Test
+	public void serializeSessionBus() throws Exception {
+		final RecordingSubscriber<String> subscriber = new RecordingSubscriber<String>();
+		bus.subscribe("customers", String.class, subscriber);
+		final MyTestViewImpl view = new MyTestViewImpl();
+		final SubscribingPresenter presenter = new SubscribingPresenter(view);
+		presenter.subscribeTo(bus);
+
+		final Object[] deserialized = SerializationTestUtil
+				.serializeAndDeserialize(new Object[] { bus, presenter });
+		final EventBus deserializedBus = (EventBus) deserialized[0];
+		final SubscribingPresenter deserializedPresenter = (SubscribingPresenter) deserialized[1];
+		assertEquals(2, deserializedBus.publish("customers", "edited"));
+		assertEquals(1, deserializedPresenter.subscriber.events.size());
+	}
+
+	@Test
+	public void applicationBusIsResolvedByName() throws Exception {
+		final EventBus applicationBus = EventBus.getApplicationBus("test");
+		assertTrue(applicationBus.isApplicationScoped());
+		assertSame(applicationBus, EventBus.getApplicationBus("test"));
+		final MyTestViewImpl view = new MyTestViewImpl();
+		final SubscribingPresenter presenter = new SubscribingPresenter(view);
+		presenter.subscribeTo(applicationBus);
+
+		final SubscribingPresenter deserializedPresenter = SerializationTestUtil
+				.serializeAndDeserialize(presenter);
+		assertEquals(2, applicationBus.publish("customers", "edited"));
+		assertEquals(1, deserializedPresenter.subscriber.events.size());
+		assertEquals(1, presenter.subscriber.events.size());
+	}
+}
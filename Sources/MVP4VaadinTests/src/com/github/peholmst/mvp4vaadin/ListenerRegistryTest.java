@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.InitializedViewEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link ListenerRegistry}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ListenerRegistryTest {
+
+	@SuppressWarnings("serial")
+	@HandlesEvents(DisplayNameChangedViewEvent.class)
+	static class DisplayNameListener extends MyTestListener {
+	}
+
+	@SuppressWarnings("serial")
+	static class DisplayNameSubclassEvent extends DisplayNameChangedViewEvent {
+
+		DisplayNameSubclassEvent(View source) {
+			super(source, null, null);
+		}
+	}
+
+	ListenerRegistry<ViewListener> registry;
+
+	MyTestListener first;
+
+	MyTestListener second;
+
+	MyTestListener third;
+
+	@Before
+	public void setUp() {
+		registry = new ListenerRegistry<ViewListener>(ViewListener.class);
+		first = new MyTestListener();
+		second = new MyTestListener();
+		third = new MyTestListener();
+	}
+
+	@Test
+	public void empty() {
+		assertTrue(registry.isEmpty());
+		assertEquals(0, registry.getSnapshot().length);
+		assertFalse(registry.remove(first));
+		assertFalse(registry.contains(first));
+	}
+
+	@Test
+	public void addAndRemove_KeepsRegistrationOrder() {
+		assertTrue(registry.add(first));
+		assertTrue(registry.add(second));
+		assertTrue(registry.add(third));
+		assertFalse(registry.add(second));
+		assertFalse(registry.add(null));
+		assertEquals(3, registry.size());
+		assertArrayEquals(new Object[] { first, second, third },
+				registry.getSnapshot());
+
+		assertTrue(registry.remove(second));
+		assertArrayEquals(new Object[] { first, third },
+				registry.getSnapshot());
+		assertTrue(registry.remove(first));
+		assertTrue(registry.remove(third));
+		assertTrue(registry.isEmpty());
+		assertEquals(0, registry.getSnapshot().length);
+
+		registry.add(second);
+		assertArrayEquals(new Object[] { second }, registry.getSnapshot());
+	}
+
+	@Test
+	public void identityBased() {
+		@SuppressWarnings("serial")
+		final MyTestListener equalToFirst = new MyTestListener() {
+
+			@Override
+			public boolean equals(Object obj) {
+				return obj == first || obj == this;
+			}
+
+			@Override
+			public int hashCode() {
+				return first.hashCode();
+			}
+		};
+		registry.add(first);
+		assertFalse(registry.contains(equalToFirst));
+		assertFalse(registry.remove(equalToFirst));
+		assertTrue(registry.add(equalToFirst));
+		assertEquals(2, registry.size());
+	}
+
+	@Test
+	public void snapshotIsReusedUntilChanged() {
+		registry.add(first);
+		final Object[] snapshot = registry.getSnapshot();
+		assertSame(snapshot, registry.getSnapshot());
+
+		registry.add(second);
+		assertNotSame(snapshot, registry.getSnapshot());
+		// The old snapshot is not modified
+		assertArrayEquals(new Object[] { first }, snapshot);
+	}
+
+	@Test
+	public void clear() {
+		registry.add(first);
+		registry.add(second);
+		registry.clear();
+		assertTrue(registry.isEmpty());
+		assertEquals(0, registry.getSnapshot().length);
+		assertTrue(registry.add(first));
+	}
+
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		registry.add(first);
+		registry.add(second);
+		final ListenerRegistry<ViewListener> copy = SerializationTestUtil
+				.serializeAndDeserialize(registry);
+		assertEquals(2, copy.size());
+		assertTrue(copy.getSnapshot()[0] instanceof MyTestListener);
+		assertNotSame(copy.getSnapshot()[0], copy.getSnapshot()[1]);
+	}
+
+	@Test
+	public void getHandledEventTypes() {
+		assertEquals(0, ListenerRegistry.getHandledEventTypes(first,
+				ViewListener.class).length);
+		assertArrayEquals(new Class<?>[] { DisplayNameChangedViewEvent.class },
+				ListenerRegistry.getHandledEventTypes(
+						new DisplayNameListener(), ViewListener.class));
+		@SuppressWarnings("serial")
+		final ViewListener methodAnnotated = new ViewListener() {
+
+			@Override
+			@HandlesEvents({ InitializedViewEvent.class,
+					DescriptionChangedViewEvent.class })
+			public void handleViewEvent(ViewEvent event) {
+			}
+		};
+		assertArrayEquals(new Class<?>[] { InitializedViewEvent.class,
+				DescriptionChangedViewEvent.class },
+				ListenerRegistry.getHandledEventTypes(methodAnnotated,
+						ViewListener.class));
+	}
+
+	@SuppressWarnings("serial")
+	static class ViewAndControllerListener implements ViewListener,
+			NavigationControllerListener {
+
+		@Override
+		public void handleViewEvent(ViewEvent event) {
+		}
+
+		@Override
+		@HandlesEvents(CurrentNavigationControllerViewChangedEvent.class)
+		public void handleNavigationControllerEvent(
+				NavigationControllerEvent event) {
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class ViewAndControllerListenerSubclass extends
+			ViewAndControllerListener {
+
+		@Override
+		public void handleNavigationControllerEvent(
+				NavigationControllerEvent event) {
+		}
+	}
+
+	@Test
+	public void getHandledEventTypes_ResolvedPerHandlerMethod() {
+		final ViewAndControllerListener listener = new ViewAndControllerListener();
+		assertEquals(0, ListenerRegistry.getHandledEventTypes(listener,
+				ViewListener.class).length);
+		assertArrayEquals(
+				new Class<?>[] { CurrentNavigationControllerViewChangedEvent.class },
+				ListenerRegistry.getHandledEventTypes(listener,
+						NavigationControllerListener.class));
+
+		registry.add(listener);
+		assertArrayEquals(new Object[] { listener },
+				registry.getSnapshot(InitializedViewEvent.class));
+	}
+
+	@Test
+	public void getHandledEventTypes_InheritedFromOverriddenMethod() {
+		final ViewAndControllerListenerSubclass listener = new ViewAndControllerListenerSubclass();
+		assertArrayEquals(
+				new Class<?>[] { CurrentNavigationControllerViewChangedEvent.class },
+				ListenerRegistry.getHandledEventTypes(listener,
+						NavigationControllerListener.class));
+		assertEquals(0, ListenerRegistry.getHandledEventTypes(listener,
+				ViewListener.class).length);
+	}
+
+	@Test
+	public void getSnapshot_ByEventClass() {
+		final DisplayNameListener displayNameListener = new DisplayNameListener();
+		registry.add(first);
+		registry.add(displayNameListener);
+		registry.add(second);
+
+		assertArrayEquals(new Object[] { first, displayNameListener, second },
+				registry.getSnapshot(DisplayNameChangedViewEvent.class));
+		assertArrayEquals(new Object[] { first, displayNameListener, second },
+				registry.getSnapshot(DisplayNameSubclassEvent.class));
+		final Object[] initializedSnapshot = registry
+				.getSnapshot(InitializedViewEvent.class);
+		assertArrayEquals(new Object[] { first, second }, initializedSnapshot);
+		assertSame(initializedSnapshot,
+				registry.getSnapshot(InitializedViewEvent.class));
+
+		registry.remove(first);
+		assertArrayEquals(new Object[] { second },
+				registry.getSnapshot(InitializedViewEvent.class));
+		registry.remove(second);
+		assertEquals(0,
+				registry.getSnapshot(InitializedViewEvent.class).length);
+	}
+
+	@Test
+	public void typedListenersOfViewAreOnlyInvokedForHandledEvents() {
+		final MyTestViewImpl view = new MyTestViewImpl();
+		final DisplayNameListener displayNameListener = new DisplayNameListener();
+		view.addListener(first);
+		WeakViewListener.register(view, displayNameListener);
+
+		view.setDisplayName("name");
+		view.setViewDescription("description");
+		assertEquals(2, first.events.size());
+		assertEquals(1, displayNameListener.events.size());
+		assertTrue(displayNameListener.events.get(0) instanceof DisplayNameChangedViewEvent);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter2;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent2;
+
+/**
+ * Test case for {@link PresenterFactory}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class PresenterFactoryTest {
+
+	@Test
+	public void forViewImplementationClass() {
+		final PresenterFactory<?, ?> factory = PresenterFactory
+				.forViewImplementationClass(MyTestViewComponent.class);
+		assertSame(MyTestPresenter.class, factory.getPresenterClass());
+		assertSame(MyTestView.class, factory.getViewClass());
+		assertSame(factory, PresenterFactory
+				.forViewImplementationClass(MyTestViewComponent.class));
+	}
+
+	@Test
+	public void forClasses_Cached() {
+		assertSame(PresenterFactory.forClasses(MyTestPresenter.class,
+				MyTestView.class), PresenterFactory.forClasses(
+				MyTestPresenter.class, MyTestView.class));
+	}
+
+	@Test
+	public void createPresenter() {
+		final MyTestViewComponent view = new MyTestViewComponent();
+		final PresenterFactory<MyTestView, MyTestPresenter> factory = PresenterFactory
+				.forClasses(MyTestPresenter.class, MyTestView.class);
+		assertSame(view, factory.createPresenter(view).getView());
+
+		final MyTestViewComponent2 view2 = new MyTestViewComponent2();
+		final PresenterFactory<MyTestView, MyTestPresenter2> factory2 = PresenterFactory
+				.forClasses(MyTestPresenter2.class, MyTestView.class);
+		assertSame(view2, factory2.createPresenter(view2).getView());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void createPresenter_WrongView() {
+		PresenterFactory.forClasses(MyTestPresenter.class, MyTestView.class)
+				.createPresenter("not a view");
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+import com.vaadin.Application;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Test case for {@link SharedPresenter}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SharedPresenterTest {
+
+	@SuppressWarnings("serial")
+	public static class MySharedTestPresenter extends
+			SharedPresenter<MyTestView> {
+
+		final List<MyTestView> initializedViews = new ArrayList<MyTestView>();
+
+		final List<MyTestView> disposedViews = new ArrayList<MyTestView>();
+
+		@Override
+		public void init(MyTestView view) {
+			initializedViews.add(view);
+		}
+
+		@Override
+		public void dispose(MyTestView view) {
+			disposedViews.add(view);
+		}
+
+		void rename(MyTestView view, String displayName) {
+			fireViewEvent(view, new ViewEvent(view) {
+			});
+			((MySharedTestViewComponent) view).setDisplayName(displayName);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	public static class MySharedTestViewComponent extends
+			AbstractViewComponent<MyTestView, MySharedTestPresenter> implements
+			MyTestView {
+
+		@Override
+		protected Component createCompositionRoot() {
+			return new VerticalLayout();
+		}
+
+		@Override
+		protected void setDisplayName(String displayName) {
+			super.setDisplayName(displayName);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	public static class MyApplicationHoldingPresenter extends
+			SharedPresenter<MyTestView> {
+
+		Application heldApplication;
+	}
+
+	@SuppressWarnings("serial")
+	public static class MyFailingPresenter extends SharedPresenter<MyTestView> {
+
+		public MyFailingPresenter() {
+			throw new IllegalStateException("Cannot create presenter");
+		}
+	}
+
+	@SuppressWarnings("serial")
+	public static class MyTestApplication extends Application {
+
+		@Override
+		public void init() {
+		}
+	}
+
+	Application application;
+
+	SharedPresenterTransactionListener transactionListener;
+
+	MySharedTestPresenter applicationInstance;
+
+	@Before
+	public void setUp() {
+		application = new MyTestApplication();
+		transactionListener = new SharedPresenterTransactionListener(
+				application);
+		transactionListener.transactionStart(application, null);
+		applicationInstance = SharedPresenter
+				.getApplicationInstance(MySharedTestPresenter.class);
+	}
+
+	@After
+	public void tearDown() {
+		transactionListener.transactionEnd(application, null);
+	}
+
+	@Test
+	public void oneApplicationInstanceServesAllViews() {
+		final MySharedTestViewComponent first = new MySharedTestViewComponent();
+		final MySharedTestViewComponent second = new MySharedTestViewComponent();
+		first.init();
+		second.init();
+		assertSame(applicationInstance, first.getPresenter());
+		assertSame(applicationInstance, second.getPresenter());
+		assertTrue(applicationInstance.isApplicationInstance());
+		assertEquals(2, applicationInstance.initializedViews.size());
+		assertSame(first, applicationInstance.initializedViews.get(0));
+		assertSame(second, applicationInstance.initializedViews.get(1));
+
+		applicationInstance.rename(second, "second");
+		assertEquals("second", second.getDisplayName());
+		assertNull(first.getDisplayName());
+	}
+
+	@Test
+	public void disposeIsCalledPerView() {
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		view.dispose();
+		assertEquals(1, applicationInstance.disposedViews.size());
+		assertSame(view, applicationInstance.disposedViews.get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getView() {
+		applicationInstance.getView();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void setView() {
+		applicationInstance.setView(new MySharedTestViewComponent());
+	}
+
+	@Test
+	public void instancesAreScopedPerApplication() {
+		final Application otherApplication = new MyTestApplication();
+		final MySharedTestPresenter otherInstance = SharedPresenter
+				.getApplicationInstance(otherApplication,
+						MySharedTestPresenter.class);
+		assertNotSame(applicationInstance, otherInstance);
+		assertTrue(otherInstance.isApplicationInstance());
+		assertSame(applicationInstance, SharedPresenter.getApplicationInstance(
+				application, MySharedTestPresenter.class));
+	}
+
+	@Test
+	public void noCurrentApplication() {
+		transactionListener.transactionEnd(application, null);
+		try {
+			SharedPresenter.getApplicationInstance(MySharedTestPresenter.class);
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		assertNotSame(applicationInstance, view.getPresenter());
+		assertFalse(view.getPresenter().isApplicationInstance());
+	}
+
+	@Test
+	public void applicationInstanceIsResolvedOnDeserialization()
+			throws Exception {
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		final Object[] deserialized = SerializationTestUtil
+				.serializeAndDeserialize(new Object[] { application, view });
+		final Application deserializedApplication = (Application) deserialized[0];
+		final MySharedTestPresenter deserializedPresenter = ((MySharedTestViewComponent) deserialized[1])
+				.getPresenter();
+		assertNotSame(applicationInstance, deserializedPresenter);
+		assertSame(SharedPresenter.getApplicationInstance(
+				deserializedApplication, MySharedTestPresenter.class),
+				deserializedPresenter);
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void fireViewEventUsesSourceOfEvent() {
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		final List<ViewEvent> events = new ArrayList<ViewEvent>();
+		view.addListener(new ViewListener() {
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+				events.add(event);
+			}
+		});
+		applicationInstance.fireViewEvent(new ViewEvent(view) {
+		});
+		assertEquals(1, events.size());
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void enqueueUpdate() {
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		final List<ViewUpdate> applied = new ArrayList<ViewUpdate>();
+		final ViewUpdate update = new ViewUpdate() {
+
+			@Override
+			public Object getTarget() {
+				return null;
+			}
+
+			@Override
+			public void apply() {
+				applied.add(this);
+			}
+		};
+		applicationInstance.enqueueUpdate(view, update);
+		assertTrue(applied.isEmpty());
+		view.applyPendingUpdates();
+		assertEquals(1, applied.size());
+		try {
+			applicationInstance.enqueueUpdate(update);
+			fail("Expected UnsupportedOperationException");
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void subscriptionForViewIsCancelledWhenViewIsDisposed() {
+		final EventBus bus = new EventBus();
+		final MySharedTestViewComponent view = new MySharedTestViewComponent();
+		view.init();
+		final EventBus.Subscription subscription = applicationInstance
+				.subscribe(view, bus, "customers", String.class,
+						new EventBus.Subscriber<String>() {
+
+							@Override
+							public void handleEvent(String topic, String event) {
+							}
+						});
+		assertEquals(1, bus.publish("customers", "edited"));
+		view.dispose();
+		assertFalse(subscription.isActive());
+		assertEquals(0, bus.publish("customers", "edited"));
+	}
+
+	@Test
+	public void sessionInstanceIsSharedAfterDeserialization()
+			throws Exception {
+		final MySharedTestPresenter sessionInstance = new MySharedTestPresenter();
+		assertFalse(sessionInstance.isApplicationInstance());
+		final MySharedTestViewComponent first = new MySharedTestViewComponent();
+		final MySharedTestViewComponent second = new MySharedTestViewComponent();
+		first.setPresenter(sessionInstance);
+		second.setPresenter(sessionInstance);
+		first.init();
+		second.init();
+		assertEquals(2, sessionInstance.initializedViews.size());
+		assertTrue(applicationInstance.initializedViews.isEmpty());
+
+		final Object[] deserialized = SerializationTestUtil
+				.serializeAndDeserialize(new Object[] { first, second });
+		final MySharedTestPresenter firstPresenter = ((MySharedTestViewComponent) deserialized[0])
+				.getPresenter();
+		assertNotSame(sessionInstance, firstPresenter);
+		assertSame(firstPresenter,
+				((MySharedTestViewComponent) deserialized[1]).getPresenter());
+	}
+
+	@Test
+	public void applicationIsNotKeptAliveByItsInstances() {
+		final WeakReference<Application> applicationReference = createApplicationHeldByItsInstance();
+		assertTrue(WeakViewListenerTest.collect(applicationReference));
+	}
+
+	private static WeakReference<Application> createApplicationHeldByItsInstance() {
+		final Application otherApplication = new MyTestApplication();
+		SharedPresenter.getApplicationInstance(otherApplication,
+				MyApplicationHoldingPresenter.class).heldApplication = otherApplication;
+		return new WeakReference<Application>(otherApplication);
+	}
+
+	@Test
+	public void constructorExceptionIsUnwrapped() {
+		try {
+			SharedPresenter.getApplicationInstance(application,
+					MyFailingPresenter.class);
+			fail("No exception thrown");
+		} catch (UnsupportedOperationException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
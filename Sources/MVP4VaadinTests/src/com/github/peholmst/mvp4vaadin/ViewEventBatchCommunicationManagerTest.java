@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.vaadin.Application;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Window;
+
+/**
+ * Test case for {@link ViewEventBatchCommunicationManager}. The test drives
+ * complete UIDL requests through the communication manager, wrapped in the
+ * transaction callbacks the way the application servlet does.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewEventBatchCommunicationManagerTest {
+
+	Application application;
+
+	MyTestViewImpl view;
+
+	MyTestListener listener;
+
+	Label label;
+
+	Button button;
+
+	TestCommunicationManager communicationManager;
+
+	ViewEventBatchTransactionListener transactionListener;
+
+	@SuppressWarnings("serial")
+	@Before
+	public void setUp() throws Exception {
+		application = new Application() {
+
+			@Override
+			public void init() {
+				setMainWindow(new Window("main"));
+			}
+		};
+		application.start(new URL("http://localhost/"), new Properties(),
+				null);
+		view = new MyTestViewImpl();
+		view.setDisplayName("original");
+		listener = new MyTestListener();
+		view.addListener(listener);
+		label = new Label("original");
+		view.addListener(new ViewListener() {
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+				if (event instanceof DisplayNameChangedViewEvent) {
+					label.setValue(((DisplayNameChangedViewEvent) event)
+							.getNewDisplayName());
+				}
+			}
+		});
+		button = new Button("change", new Button.ClickListener() {
+
+			@Override
+			public void buttonClick(ClickEvent event) {
+				view.setDisplayName("first");
+				view.setDisplayName("second");
+			}
+		});
+		application.getMainWindow().addComponent(label);
+		application.getMainWindow().addComponent(button);
+		communicationManager = new TestCommunicationManager(application);
+		transactionListener = new ViewEventBatchTransactionListener(
+				application);
+		communicationManager.repaintAll();
+	}
+
+	@After
+	public void tearDown() {
+		while (ViewEventBatch.isActive()) {
+			ViewEventBatch.end();
+		}
+	}
+
+	@Test
+	public void coalescedEventsArePaintedInSameResponse() throws Exception {
+		transactionListener.transactionStart(application, null);
+		final String response = communicationManager.click(button);
+		assertTrue(response, response.contains("\"second\""));
+		assertEquals(1, listener.events.size());
+		transactionListener.transactionEnd(application, null);
+
+		assertFalse(ViewEventBatch.isActive());
+		assertEquals(1, listener.events.size());
+		final DisplayNameChangedViewEvent event = (DisplayNameChangedViewEvent) listener.events
+				.get(0);
+		assertEquals("original", event.getOldDisplayName());
+		assertEquals("second", event.getNewDisplayName());
+	}
+
+	@Test
+	public void transactionEndWithoutStart() throws Exception {
+		communicationManager.click(button);
+		assertEquals(2, listener.events.size());
+		transactionListener.transactionEnd(application, null);
+		assertFalse(ViewEventBatch.isActive());
+	}
+
+	@SuppressWarnings("serial")
+	static class TestCommunicationManager extends
+			ViewEventBatchCommunicationManager {
+
+		static final String SECURITY_KEY = "key";
+
+		final Map<String, Object> sessionAttributes = new HashMap<String, Object>();
+
+		final Map<String, Object> requestAttributes = new HashMap<String, Object>();
+
+		final ByteArrayOutputStream responseBuffer = new ByteArrayOutputStream();
+
+		final Session session = new Session() {
+
+			@Override
+			public boolean isNew() {
+				return false;
+			}
+
+			@Override
+			public Object getAttribute(String name) {
+				return sessionAttributes.get(name);
+			}
+
+			@Override
+			public void setAttribute(String name, Object value) {
+				sessionAttributes.put(name, value);
+			}
+
+			@Override
+			public int getMaxInactiveInterval() {
+				return 1800;
+			}
+
+			@Override
+			public Object getWrappedSession() {
+				return null;
+			}
+		};
+
+		final Response response = new Response() {
+
+			@Override
+			public OutputStream getOutputStream() {
+				return responseBuffer;
+			}
+
+			@Override
+			public void setContentType(String type) {
+			}
+
+			@Override
+			public Object getWrappedResponse() {
+				return null;
+			}
+		};
+
+		final Callback callback = new Callback() {
+
+			@Override
+			public void criticalNotification(Request request,
+					Response response, String cap, String msg,
+					String details, String outOfSyncURL) {
+				fail(cap + ": " + msg);
+			}
+
+			@Override
+			public String getRequestPathInfo(Request request) {
+				return null;
+			}
+
+			@Override
+			public InputStream getThemeResourceAsStream(String themeName,
+					String resource) {
+				return null;
+			}
+		};
+
+		final Application application;
+
+		TestCommunicationManager(Application application) {
+			super(application);
+			this.application = application;
+			sessionAttributes.put("Vaadin-Security-Key", SECURITY_KEY);
+		}
+
+		void repaintAll() throws Exception {
+			handleRequest(true, "");
+		}
+
+		String click(Button button) throws Exception {
+			return handleRequest(false, SECURITY_KEY + "\u001dtrue\u001f"
+					+ getPaintableId(button) + "\u001fstate\u001fb");
+		}
+
+		String handleRequest(final boolean repaintAll, String body)
+				throws Exception {
+			final byte[] content = body.getBytes("UTF-8");
+			final Request request = new Request() {
+
+				@Override
+				public Session getSession() {
+					return session;
+				}
+
+				@Override
+				public boolean isRunningInPortlet() {
+					return false;
+				}
+
+				@Override
+				public String getParameter(String name) {
+					return repaintAll && "repaintAll".equals(name) ? "1"
+							: null;
+				}
+
+				@Override
+				public int getContentLength() {
+					return content.length;
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return new ByteArrayInputStream(content);
+				}
+
+				@Override
+				public String getRequestID() {
+					return "request";
+				}
+
+				@Override
+				public Object getAttribute(String name) {
+					return requestAttributes.get(name);
+				}
+
+				@Override
+				public void setAttribute(String name, Object value) {
+					requestAttributes.put(name, value);
+				}
+
+				@Override
+				public Object getWrappedRequest() {
+					return null;
+				}
+			};
+			responseBuffer.reset();
+			doHandleUidlRequest(request, response, callback,
+					application.getMainWindow());
+			return responseBuffer.toString("UTF-8");
+		}
+	}
+}
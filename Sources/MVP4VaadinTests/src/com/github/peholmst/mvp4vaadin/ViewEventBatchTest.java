@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.events.DescriptionChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link ViewEventBatch}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewEventBatchTest {
+
+	MyTestViewImpl view;
+
+	MyTestListener listener;
+
+	@Before
+	public void setUp() {
+		view = new MyTestViewImpl();
+		listener = new MyTestListener();
+		view.setDisplayName("original");
+		view.addListener(listener);
+	}
+
+	@After
+	public void tearDown() {
+		while (ViewEventBatch.isActive()) {
+			ViewEventBatch.end();
+		}
+	}
+
+	@Test
+	public void noBatch_FiresImmediately() {
+		assertFalse(ViewEventBatch.isActive());
+		view.setDisplayName("first");
+		view.setDisplayName("second");
+		assertEquals(2, listener.events.size());
+	}
+
+	@Test
+	public void batch_CoalescesPerViewAndProperty() {
+		final MyTestViewImpl otherView = new MyTestViewImpl();
+		otherView.addListener(listener);
+
+		ViewEventBatch.begin();
+		view.setDisplayName("first");
+		view.setViewDescription("description");
+		otherView.setDisplayName("other");
+		view.setDisplayName("second");
+		assertTrue(listener.events.isEmpty());
+		assertEquals("second", view.getDisplayName());
+		ViewEventBatch.end();
+
+		assertEquals(3, listener.events.size());
+		final DisplayNameChangedViewEvent displayNameEvent = (DisplayNameChangedViewEvent) listener.events
+				.get(0);
+		assertSame(view, displayNameEvent.getSource());
+		assertEquals("original", displayNameEvent.getOldDisplayName());
+		assertEquals("second", displayNameEvent.getNewDisplayName());
+		assertTrue(listener.events.get(1) instanceof DescriptionChangedViewEvent);
+		assertSame(otherView,
+				((DisplayNameChangedViewEvent) listener.events.get(2))
+						.getSource());
+	}
+
+	@Test
+	public void batch_SkipsUnchangedValues() {
+		ViewEventBatch.begin();
+		view.setDisplayName("temporary");
+		view.setDisplayName("original");
+		ViewEventBatch.end();
+		assertTrue(listener.events.isEmpty());
+	}
+
+	@Test
+	public void nestedBatches() {
+		ViewEventBatch.begin();
+		ViewEventBatch.begin();
+		view.setDisplayName("changed");
+		ViewEventBatch.end();
+		assertTrue(ViewEventBatch.isActive());
+		assertTrue(listener.events.isEmpty());
+		ViewEventBatch.end();
+		assertFalse(ViewEventBatch.isActive());
+		assertEquals(1, listener.events.size());
+	}
+
+	@Test
+	public void otherEventsAreNotDeferred() {
+		ViewEventBatch.begin();
+		view.fireViewEvent(new ViewEvent(view) {
+
+			private static final long serialVersionUID = 1L;
+		});
+		assertEquals(1, listener.events.size());
+		ViewEventBatch.end();
+	}
+
+	@Test
+	public void end_NoBatch() {
+		ViewEventBatch.end();
+		assertFalse(ViewEventBatch.isActive());
+	}
+
+	@Test
+	public void flush_FiresAndKeepsBatchActive() {
+		ViewEventBatch.begin();
+		view.setDisplayName("first");
+		ViewEventBatch.flush();
+		assertTrue(ViewEventBatch.isActive());
+		assertEquals(1, listener.events.size());
+		view.setDisplayName("second");
+		assertEquals(1, listener.events.size());
+		ViewEventBatch.end();
+		assertEquals(2, listener.events.size());
+		assertEquals("first",
+				((DisplayNameChangedViewEvent) listener.events.get(1))
+						.getOldDisplayName());
+	}
+
+	@Test
+	public void end_ListenerExceptionDoesNotLoseRemainingEvents() {
+		final MyTestViewImpl otherView = new MyTestViewImpl();
+		otherView.addListener(listener);
+		final RuntimeException failure = new RuntimeException("listener failed");
+		view.addListener(new ViewListener() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+				throw failure;
+			}
+		});
+
+		ViewEventBatch.begin();
+		view.setDisplayName("changed");
+		otherView.setDisplayName("other");
+		try {
+			ViewEventBatch.end();
+			fail("No exception thrown");
+		} catch (RuntimeException e) {
+			assertSame(failure, e);
+		}
+		assertFalse(ViewEventBatch.isActive());
+		assertEquals(2, listener.events.size());
+		assertSame(otherView,
+				((ViewEvent) listener.events.get(1)).getSource());
+	}
+
+	@Test
+	public void flush_NoBatch() {
+		ViewEventBatch.flush();
+		assertFalse(ViewEventBatch.isActive());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.AbstractViewComponentTest.RecordingUpdate;
+
+/**
+ * Test case for {@link ViewUpdateQueue}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewUpdateQueueTest {
+
+	ViewUpdateQueue queue;
+
+	List<RecordingUpdate> applied;
+
+	@Before
+	public void setUp() {
+		queue = new ViewUpdateQueue();
+		applied = new ArrayList<RecordingUpdate>();
+	}
+
+	@Test
+	public void updatesToSameTargetAreCollapsed() {
+		final RecordingUpdate first = new RecordingUpdate("a", applied);
+		final RecordingUpdate b = new RecordingUpdate("b", applied);
+		final RecordingUpdate second = new RecordingUpdate("a", applied);
+		assertFalse(queue.enqueue(first));
+		assertFalse(queue.enqueue(b));
+		assertTrue(queue.enqueue(second));
+		assertEquals(2, queue.size());
+		assertEquals(1, queue.getCollapsedCount());
+
+		assertEquals(2, queue.apply());
+		assertTrue(queue.isEmpty());
+		assertSame(second, applied.get(0));
+		assertSame(b, applied.get(1));
+	}
+
+	@Test
+	public void updatesWithoutTargetAreNeverCollapsed() {
+		queue.enqueue(new RecordingUpdate(null, applied));
+		queue.enqueue(new RecordingUpdate(null, applied));
+		assertEquals(2, queue.apply());
+		assertEquals(0, queue.getCollapsedCount());
+	}
+
+	@Test
+	public void updatesEnqueuedWhileApplyingAreKeptForNextPass() {
+		queue.enqueue(new RecordingUpdate("a", applied) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void apply() {
+				super.apply();
+				queue.enqueue(new RecordingUpdate("a", applied));
+			}
+		});
+		assertEquals(1, queue.apply());
+		assertEquals(1, queue.size());
+		assertEquals(1, queue.apply());
+		assertEquals(2, applied.size());
+	}
+
+	@Test
+	public void clear() {
+		queue.enqueue(new RecordingUpdate("a", applied));
+		queue.clear();
+		assertEquals(0, queue.apply());
+		assertTrue(applied.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullUpdate() {
+		queue.enqueue(null);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+import com.github.peholmst.mvp4vaadin.ui.ViewDisplayNameLabel;
+
+/**
+ * Test case for {@link WeakViewListener}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class WeakViewListenerTest {
+
+	@SuppressWarnings("serial")
+	static class RecordingView extends MyTestViewImpl {
+
+		final List<ViewListener> removedListeners = new ArrayList<ViewListener>();
+
+		@Override
+		public void removeListener(ViewListener listener) {
+			removedListeners.add(listener);
+			super.removeListener(listener);
+		}
+	}
+
+	RecordingView view;
+
+	@Before
+	public void setUp() {
+		view = new RecordingView();
+	}
+
+	static boolean collect(WeakReference<?> reference) {
+		for (int i = 0; i < 10 && reference.get() != null; ++i) {
+			System.gc();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return reference.get() == null;
+	}
+
+	@Test
+	public void register() {
+		final MyTestListener listener = new MyTestListener();
+		final WeakViewListener registration = WeakViewListener.register(view,
+				listener);
+		assertSame(view, registration.getSource());
+		assertSame(listener, registration.getListener());
+
+		view.setDisplayName("name");
+		assertEquals(1, listener.events.size());
+	}
+
+	@Test
+	public void unregister() {
+		final MyTestListener listener = new MyTestListener();
+		final WeakViewListener registration = WeakViewListener.register(view,
+				listener);
+		registration.unregister();
+		assertNull(registration.getListener());
+		assertTrue(view.removedListeners.contains(registration));
+
+		view.setDisplayName("name");
+		assertTrue(listener.events.isEmpty());
+	}
+
+	@Test
+	public void collectedListenerIsRemovedDuringDispatch() {
+		MyTestListener listener = new MyTestListener();
+		final WeakViewListener registration = WeakViewListener.register(view,
+				listener);
+		final WeakReference<MyTestListener> reference = new WeakReference<MyTestListener>(
+				listener);
+		listener = null;
+		assumeTrue(collect(reference));
+
+		assertNull(registration.getListener());
+		assertTrue(view.removedListeners.isEmpty());
+		view.setDisplayName("name");
+		assertEquals(1, view.removedListeners.size());
+		assertSame(registration, view.removedListeners.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void register_NullListener() {
+		WeakViewListener.register(view, null);
+	}
+
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		final MyTestViewImpl labelView = new MyTestViewImpl();
+		final ViewDisplayNameLabel label = new ViewDisplayNameLabel(labelView);
+		final ViewDisplayNameLabel copy = SerializationTestUtil
+				.serializeAndDeserialize(label);
+
+		((MyTestViewImpl) copy.getView()).setDisplayName("name");
+		assertEquals("name", copy.getValue());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.ViewEvent;
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Test case for {@link ListenerLeakDetector}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ListenerLeakDetectorTest {
+
+	@SuppressWarnings("serial")
+	static class ListeningLabel extends Label {
+
+		final ViewListener listener = new ViewListener() {
+
+			@Override
+			public void handleViewEvent(ViewEvent event) {
+			}
+		};
+	}
+
+	MyTestViewImpl view;
+
+	@Before
+	public void setUp() {
+		ListenerLeakDetector.reset();
+		ListenerLeakDetector.setEnabled(true);
+		view = new MyTestViewImpl();
+	}
+
+	@After
+	public void tearDown() {
+		ListenerLeakDetector.setEnabled(false);
+		ListenerLeakDetector.reset();
+	}
+
+	@Test
+	public void getOwningComponent() {
+		final ListeningLabel label = new ListeningLabel();
+		assertSame(label, ListenerLeakDetector.getOwningComponent(label));
+		assertSame(label,
+				ListenerLeakDetector.getOwningComponent(label.listener));
+		assertNull(ListenerLeakDetector
+				.getOwningComponent(new MyTestListener()));
+	}
+
+	@Test
+	public void detachedComponentIsReportedOnce() {
+		final ListeningLabel label = new ListeningLabel();
+		view.addListener(label.listener);
+		view.fireViewEvent(new ViewEvent(view) {
+
+			private static final long serialVersionUID = 1L;
+		});
+		assertEquals(1, ListenerLeakDetector.getReportCount());
+		assertFalse(ListenerLeakDetector.checkListener(view, label.listener));
+		assertEquals(1, ListenerLeakDetector.getReportCount());
+	}
+
+	@Test
+	public void componentWithParentIsNotReported() {
+		final ListeningLabel label = new ListeningLabel();
+		new VerticalLayout().addComponent(label);
+		assertFalse(ListenerLeakDetector.checkListener(view, label.listener));
+		assertFalse(ListenerLeakDetector.checkListener(view,
+				new MyTestListener()));
+		assertEquals(0, ListenerLeakDetector.getReportCount());
+	}
+
+	@Test
+	public void disabled() {
+		ListenerLeakDetector.setEnabled(false);
+		assertFalse(ListenerLeakDetector.checkListener(view,
+				new ListeningLabel().listener));
+		assertEquals(0, ListenerLeakDetector.getReportCount());
+	}
+}
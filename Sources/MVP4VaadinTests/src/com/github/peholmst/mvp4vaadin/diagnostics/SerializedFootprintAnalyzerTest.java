@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.ContributorKind;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.FlaggedContributor;
+import com.github.peholmst.mvp4vaadin.diagnostics.SerializedFootprintReport.InstanceFootprint;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.stuff4vaadin.visitor.VisitableList;
+
+/**
+ * Test case for {@link SerializedFootprintAnalyzer}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SerializedFootprintAnalyzerTest {
+
+	SerializedFootprintAnalyzer analyzer;
+
+	DefaultNavigationController controller;
+
+	@Before
+	public void setUp() {
+		analyzer = new SerializedFootprintAnalyzer();
+		controller = new DefaultNavigationController();
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath()
+				.addViewsToPath(new MyTestViewImpl(), new MyTestViewImpl())
+				.buildRequest());
+	}
+
+	boolean containsKind(SerializedFootprintReport report, ContributorKind kind) {
+		for (FlaggedContributor contributor : report.getFlaggedContributors()) {
+			if (contributor.getKind() == kind) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void analyze_TotalSizeMatchesPlainSerialization() {
+		final SerializedFootprintReport report = analyzer.analyze(controller);
+		final long expectedSize = SerializedFootprintAnalyzer
+				.getSerializedSize(controller);
+		assertEquals(expectedSize, report.getTotalSize());
+		assertEquals(1, report.getRootSizes().size());
+		assertEquals(expectedSize, report.getRootSizes().get(0).longValue());
+	}
+
+	@Test
+	public void analyze_SelfSizesAddUpToTotalSize() {
+		final SerializedFootprintReport report = analyzer.analyze(controller,
+				new MyTestViewImpl());
+		long sum = 0;
+		for (InstanceFootprint instance : report.getInstances()) {
+			sum += instance.getSelfSize();
+		}
+		// The stream header is not attributed to any instance
+		assertEquals(report.getTotalSize() - 4, sum);
+	}
+
+	@Test
+	public void analyze_ReportsClasses() {
+		final SerializedFootprintReport report = analyzer.analyze(controller);
+		assertEquals(1, report.getClassFootprint(
+				DefaultNavigationController.class).getInstanceCount());
+		assertEquals(2, report.getClassFootprint(MyTestViewImpl.class)
+				.getInstanceCount());
+		assertNull(report.getClassFootprint(MyTestViewComponent.class));
+	}
+
+	@Test
+	public void analyze_InstancesAreSortedBySize() {
+		final SerializedFootprintReport report = analyzer.analyze(controller);
+		long previous = Long.MAX_VALUE;
+		for (InstanceFootprint instance : report.getInstances()) {
+			assertTrue(instance.getSelfSize() <= previous);
+			previous = instance.getSelfSize();
+		}
+	}
+
+	@Test
+	public void analyze_NothingFlaggedBelowThreshold() {
+		analyzer.setFlagThreshold(Long.MAX_VALUE);
+		final SerializedFootprintReport report = analyzer.analyze(controller);
+		assertTrue(report.getFlaggedContributors().isEmpty());
+	}
+
+	@Test
+	public void analyze_FlagsListenerLists() {
+		analyzer.setFlagThreshold(0);
+		final VisitableList<ViewListener> listenerList = new VisitableList<ViewListener>();
+		listenerList.add(new MyTestListener());
+		final SerializedFootprintReport report = analyzer
+				.analyze(listenerList);
+		assertTrue(containsKind(report, ContributorKind.LISTENER_LIST));
+	}
+
+	@Test
+	public void analyze_FlagsNavigationRequests() {
+		analyzer.setFlagThreshold(0);
+		final NavigationRequest request = NavigationRequestBuilder
+				.newInstance().startWithEmptyPath()
+				.addViewToPath(new MyTestViewImpl()).buildRequest();
+		final SerializedFootprintReport report = analyzer.analyze(request);
+		assertTrue(containsKind(report, ContributorKind.NAVIGATION_REQUEST));
+	}
+
+	@Test
+	public void analyze_FlagsCompositionRoots() {
+		analyzer.setFlagThreshold(0);
+		final MyTestViewComponent viewComponent = new MyTestViewComponent();
+		viewComponent.init();
+		final SerializedFootprintReport report = analyzer
+				.analyze(viewComponent);
+		assertTrue(containsKind(report, ContributorKind.COMPOSITION_ROOT));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void analyze_NotSerializable() {
+		analyzer.analyze(new Object());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setFlagThreshold_Negative() {
+		analyzer.setFlagThreshold(-1);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.diagnostics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.ui.Breadcrumbs;
+import com.github.peholmst.mvp4vaadin.navigation.ui.NavigationControllerViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case that pins the serialized sizes of representative session object
+ * graphs. The sizes are upper bounds with some headroom for differences
+ * between JVMs; if a test fails after a change, the change has most likely
+ * increased the amount of data that is replicated per session.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class SerializedSizeTest {
+
+	static final long SINGLE_VIEW_MAX_SIZE = 860;
+
+	static final long CONTROLLER_WITH_FOUR_VIEWS_MAX_SIZE = 1250;
+
+	static final long SESSION_MAX_SIZE = 8800;
+
+	void assertSizeAtMost(String graph, long maxSize, Object... roots) {
+		final SerializedFootprintReport report = new SerializedFootprintAnalyzer()
+				.analyze(roots);
+		if (report.getTotalSize() > maxSize) {
+			report.print(System.out, 20);
+		}
+		assertTrue(graph + " serialized into " + report.getTotalSize()
+				+ " bytes, the maximum is " + maxSize + " bytes",
+				report.getTotalSize() <= maxSize);
+	}
+
+	@Test
+	public void singleView() {
+		assertSizeAtMost("Single view", SINGLE_VIEW_MAX_SIZE,
+				new MyTestViewImpl());
+	}
+
+	@Test
+	public void controllerWithFourViews() {
+		final DefaultNavigationController controller = new DefaultNavigationController();
+		controller.navigate(NavigationRequestBuilder
+				.newInstance()
+				.startWithEmptyPath()
+				.addViewsToPath(new MyTestViewImpl(), new MyTestViewImpl(),
+						new MyTestViewImpl(), new MyTestViewImpl())
+				.buildRequest());
+		assertSizeAtMost("Controller with four views",
+				CONTROLLER_WITH_FOUR_VIEWS_MAX_SIZE, controller);
+	}
+
+	@Test
+	public void session() {
+		final SimpleViewMap viewMap = new SimpleViewMap();
+		final View[] path = new View[4];
+		for (int i = 0; i < path.length; ++i) {
+			final MyTestViewComponent view = new MyTestViewComponent();
+			view.init();
+			viewMap.registerView("view" + i, view);
+			path[i] = view;
+		}
+		final DefaultNavigationController controller = new DefaultNavigationController();
+		final Breadcrumbs breadcrumbs = new Breadcrumbs();
+		breadcrumbs.setController(controller);
+		final NavigationControllerViewComponent viewComponent = new NavigationControllerViewComponent();
+		viewComponent.setController(controller);
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(path).buildRequest());
+		assertSizeAtMost("Session", SESSION_MAX_SIZE, viewMap, controller,
+				breadcrumbs, viewComponent);
+	}
+}
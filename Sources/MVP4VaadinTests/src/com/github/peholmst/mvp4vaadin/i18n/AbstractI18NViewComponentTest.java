@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.i18n;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.i18n4vaadin.AbstractI18N;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
+import com.vaadin.terminal.PaintTarget;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Test case for {@link AbstractI18NViewComponent}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class AbstractI18NViewComponentTest {
+
+	@SuppressWarnings("serial")
+	static class MyTestI18N extends AbstractI18N {
+
+		@Override
+		public Collection<Locale> getSupportedLocales() {
+			return Arrays.asList(Locale.ENGLISH, Locale.GERMAN);
+		}
+
+		@Override
+		public String getMessage(String key, Object... params) {
+			return key;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class MyTestI18NViewComponent extends
+			AbstractI18NViewComponent<MyTestView, MyTestPresenter> implements
+			MyTestView {
+
+		final List<Locale> updatedLocales = new ArrayList<Locale>();
+
+		MyTestI18NViewComponent() {
+			super(MyTestPresenter.class, MyTestView.class);
+		}
+
+		@Override
+		protected Component createCompositionRoot() {
+			return new VerticalLayout();
+		}
+
+		@Override
+		protected void updateInternationalizedData(Locale locale) {
+			updatedLocales.add(locale);
+		}
+	}
+
+	MyTestI18N i18n;
+
+	MyTestI18NViewComponent view;
+
+	PaintTarget target;
+
+	@Before
+	public void setUp() {
+		i18n = new MyTestI18N();
+		i18n.setCurrentLocale(Locale.ENGLISH);
+		view = new MyTestI18NViewComponent();
+		view.setI18N(i18n);
+		target = createNiceMock(PaintTarget.class);
+		replay(target);
+	}
+
+	@Test
+	public void reattachWithUnchangedLocaleSkipsUpdate() {
+		view.attach();
+		view.detach();
+		view.attach();
+		assertEquals(Arrays.asList(Locale.ENGLISH), view.updatedLocales);
+	}
+
+	@Test
+	public void reattachAfterLocaleChangeUpdates() {
+		view.attach();
+		view.detach();
+		i18n.setCurrentLocale(Locale.GERMAN);
+		assertEquals(1, view.updatedLocales.size());
+		view.attach();
+		assertEquals(Arrays.asList(Locale.ENGLISH, Locale.GERMAN),
+				view.updatedLocales);
+	}
+
+	@Test
+	public void visibleComponentIsUpdatedRightAway() {
+		view.attach();
+		i18n.setCurrentLocale(Locale.GERMAN);
+		assertEquals(Arrays.asList(Locale.ENGLISH, Locale.GERMAN),
+				view.updatedLocales);
+	}
+
+	@Test
+	public void hiddenComponentIsUpdatedWhenPainted() throws Exception {
+		view.attach();
+		view.setVisible(false);
+		i18n.setCurrentLocale(Locale.GERMAN);
+		i18n.setCurrentLocale(Locale.ENGLISH);
+		i18n.setCurrentLocale(Locale.GERMAN);
+		assertEquals(1, view.updatedLocales.size());
+
+		view.setVisible(true);
+		view.paintContent(target);
+		view.paintContent(target);
+		assertEquals(Arrays.asList(Locale.ENGLISH, Locale.GERMAN),
+				view.updatedLocales);
+	}
+
+	@Test
+	public void componentInHiddenParentIsUpdatedWhenPainted()
+			throws Exception {
+		final VerticalLayout parent = new VerticalLayout();
+		parent.addComponent(view);
+		parent.setVisible(false);
+		view.attach();
+		i18n.setCurrentLocale(Locale.GERMAN);
+		assertEquals(1, view.updatedLocales.size());
+
+		view.paintContent(target);
+		assertEquals(2, view.updatedLocales.size());
+	}
+
+	@Test
+	public void invalidateForcesUpdate() throws Exception {
+		view.attach();
+		view.invalidateInternationalizedData();
+		view.paintContent(target);
+		assertEquals(Arrays.asList(Locale.ENGLISH, Locale.ENGLISH),
+				view.updatedLocales);
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.ViewEvent;
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.events.DisplayNameChangedViewEvent;
+import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
+import com.github.peholmst.mvp4vaadin.navigation.ui.Breadcrumbs;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case that makes sure the number of bytes allocated by the core
+ * navigation operations does not exceed a fixed budget. The budgets are upper
+ * bounds with some headroom; if a test fails after a change, the change has
+ * most likely introduced new allocations on a hot path.
+ * <p>
+ * The tests are skipped on JVMs that do not support measuring the allocated
+ * bytes per thread.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class AllocationBudgetTest {
+
+	static final int WARMUP_ITERATIONS = 5000;
+
+	static final int MEASURED_ITERATIONS = 1000;
+
+	static final int STACK_DEPTH = 4;
+
+	static final long NAVIGATE_BUDGET = 512;
+
+	static final long NAVIGATE_BACK_BUDGET = 2048;
+
+	static final long FIRE_VIEW_EVENT_BUDGET = 256;
+
+	static final long DISPATCH_TO_LISTENERS_BUDGET = 16;
+
+	static final int LISTENER_COUNT = 8;
+
+	static final long BREADCRUMBS_UPDATE_BUDGET = 16384;
+
+	/**
+	 * A view and its presenter that nobody listens to and that have no
+	 * adapters should not pay for listener registries or adapter support.
+	 */
+	static final long CREATE_VIEW_BUDGET = 192;
+
+	com.sun.management.ThreadMXBean threadBean;
+
+	View createdView;
+
+	DefaultNavigationController controller;
+
+	NavigationRequest forwardRequest;
+
+	NavigationRequest backRequest;
+
+	@Before
+	public void setUp() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		controller = new DefaultNavigationController();
+		final View[] path = new View[STACK_DEPTH];
+		for (int i = 0; i < STACK_DEPTH; ++i) {
+			path[i] = new MyTestViewImpl();
+		}
+		backRequest = NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(path).buildRequest();
+		controller.navigate(backRequest);
+		forwardRequest = NavigationRequestBuilder.newInstance()
+				.startWithPathToCurrentView(controller)
+				.addViewToPath(new MyTestViewImpl()).buildRequest();
+	}
+
+	/**
+	 * Runs the operation first {@link #WARMUP_ITERATIONS} times and then
+	 * {@link #MEASURED_ITERATIONS} times, and returns the average number of
+	 * bytes allocated by the current thread per measured iteration.
+	 */
+	long measureAllocatedBytesPerOperation(Runnable operation) {
+		for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+			operation.run();
+		}
+		final long threadId = Thread.currentThread().getId();
+		final long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+			operation.run();
+		}
+		final long after = threadBean.getThreadAllocatedBytes(threadId);
+		return (after - before) / MEASURED_ITERATIONS;
+	}
+
+	void assertWithinBudget(String operation, long budget, long allocated) {
+		assertTrue(operation + " allocated " + allocated
+				+ " bytes, the budget is " + budget + " bytes",
+				allocated <= budget);
+	}
+
+	@Test
+	public void navigate() {
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				controller.navigate(forwardRequest);
+				controller.navigate(backRequest);
+			}
+		});
+		// Every iteration performs two navigations
+		assertWithinBudget("navigate()", NAVIGATE_BUDGET, allocated / 2);
+	}
+
+	@Test
+	public void navigateBack() {
+		final long allocatedByForward = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				controller.navigate(forwardRequest);
+				controller.navigate(backRequest);
+			}
+		}) / 2;
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				controller.navigate(forwardRequest);
+				controller.navigateBack();
+			}
+		});
+		assertWithinBudget("navigateBack()", NAVIGATE_BACK_BUDGET, allocated
+				- allocatedByForward);
+	}
+
+	@Test
+	public void fireViewEvent() {
+		final View view = controller.getCurrentView();
+		final DisplayNameChangedViewEvent event = new DisplayNameChangedViewEvent(
+				view, "old", "new");
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				view.fireViewEvent(event);
+			}
+		});
+		assertWithinBudget("fireViewEvent()", FIRE_VIEW_EVENT_BUDGET,
+				allocated);
+	}
+
+	@Test
+	public void steadyStateBreadcrumbsUpdate() {
+		final Breadcrumbs breadcrumbs = new Breadcrumbs();
+		breadcrumbs.setController(controller);
+		final View view = controller.getCurrentView();
+		final CurrentNavigationControllerViewChangedEvent event = new CurrentNavigationControllerViewChangedEvent(
+				controller, view, view);
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				breadcrumbs.handleNavigationControllerEvent(event);
+			}
+		});
+		assertWithinBudget("Breadcrumbs update", BREADCRUMBS_UPDATE_BUDGET,
+				allocated);
+	}
+
+	@Test
+	public void dispatchToViewListeners() {
+		final View view = controller.getCurrentView();
+		for (int i = 0; i < LISTENER_COUNT; ++i) {
+			view.addListener(new ViewListener() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void handleViewEvent(ViewEvent event) {
+				}
+			});
+		}
+		final DisplayNameChangedViewEvent event = new DisplayNameChangedViewEvent(
+				view, "old", "new");
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				view.fireViewEvent(event);
+			}
+		});
+		assertWithinBudget("Dispatch to " + LISTENER_COUNT + " view listeners",
+				DISPATCH_TO_LISTENERS_BUDGET, allocated);
+	}
+
+	@Test
+	public void dispatchToNavigationControllerListeners() {
+		for (int i = 0; i < LISTENER_COUNT; ++i) {
+			controller.addListener(new NavigationControllerListener() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void handleNavigationControllerEvent(
+						NavigationControllerEvent event) {
+				}
+			});
+		}
+		final View view = controller.getCurrentView();
+		final CurrentNavigationControllerViewChangedEvent event = new CurrentNavigationControllerViewChangedEvent(
+				controller, view, view);
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				controller.fireEvent(event);
+			}
+		});
+		assertWithinBudget("Dispatch to " + LISTENER_COUNT
+				+ " navigation controller listeners",
+				DISPATCH_TO_LISTENERS_BUDGET, allocated);
+	}
+
+	@Test
+	public void createViewWithPresenter() {
+		final long allocated = measureAllocatedBytesPerOperation(new Runnable() {
+
+			@Override
+			public void run() {
+				final MyTestViewImpl view = new MyTestViewImpl();
+				view.setPresenter(new MyTestPresenter(view));
+				createdView = view;
+			}
+		});
+		assertWithinBudget("Creating a view with a presenter",
+				CREATE_VIEW_BUDGET, allocated);
+	}
+}
@@ -28,7 +28,9 @@ import com.github.peholmst.mvp4vaadin.navigation.NavigationController.Navigation
 import com.github.peholmst.mvp4vaadin.navigation.events.CurrentNavigationControllerViewChangedEvent;
 import com.github.peholmst.mvp4vaadin.navigation.events.ViewAttachedToNavigationControllerEvent;
 import com.github.peholmst.mvp4vaadin.navigation.events.ViewDetachedFromNavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
 import static org.easymock.EasyMock.*;
 /**
  * Test case for {@link DefaultNavigationController}.
@@ -844,4 +846,78 @@ public class DefaultNavigationControllerTest {
 		verify(listener, interruptingCallback);		
 	}
 	
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		final View firstView = new MyTestViewImpl();
+		final View secondView = new MyTestViewImpl();
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(firstView, secondView)
+				.buildRequest());
+		controller.addListener(new MyTestListener());
+
+		final DefaultNavigationController copy = SerializationTestUtil
+				.serializeAndDeserialize(controller);
+		assertEquals(2, copy.getViewStack().size());
+		assertTrue(copy.getFirstView() instanceof MyTestViewImpl);
+		assertNotSame(copy.getFirstView(), copy.getCurrentView());
+
+		// The listener should have been deserialized as well
+		final Capture<NavigationControllerEvent> event = new Capture<NavigationControllerEvent>();
+		final NavigationControllerListener listener = createMock(NavigationControllerListener.class);
+		listener.handleNavigationControllerEvent(capture(event));
+		expectLastCall().anyTimes();
+		replay(listener);
+		copy.addListener(listener);
+		assertTrue(copy.navigateBack());
+		assertEquals(1, copy.getViewStack().size());
+		verify(listener);
+		assertSame(copy, event.getValue().getSource());
+	}
+
+	@Test
+	public void serializeAndDeserialize_Events() throws Exception {
+		final View view = new MyTestViewImpl();
+		final ViewAttachedToNavigationControllerEvent event = new ViewAttachedToNavigationControllerEvent(
+				controller, view);
+		final ViewAttachedToNavigationControllerEvent copy = SerializationTestUtil
+				.serializeAndDeserialize(event);
+		assertTrue(copy.getSource() instanceof DefaultNavigationController);
+		assertTrue(copy.getAttachedView() instanceof MyTestViewImpl);
+	}
+
+	@Test
+	public void disposeDetachedViews() {
+		final MyTestViewImpl firstView = new MyTestViewImpl();
+		final MyTestViewImpl secondView = new MyTestViewImpl();
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(firstView, secondView)
+				.buildRequest());
+		assertFalse(controller.isDisposeDetachedViews());
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(firstView).buildRequest());
+		assertFalse(secondView.isDisposed());
+
+		controller.setDisposeDetachedViews(true);
+		controller.clear();
+		assertTrue(firstView.isDisposed());
+	}
+
+	@Test
+	public void disposeDetachedViews_ReattachedViewIsNotDisposed() {
+		final MyTestViewImpl firstView = new MyTestViewImpl();
+		final MyTestViewImpl secondView = new MyTestViewImpl();
+		final MyTestViewImpl thirdView = new MyTestViewImpl();
+		controller.setDisposeDetachedViews(true);
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath()
+				.addViewsToPath(firstView, secondView, thirdView)
+				.buildRequest());
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(firstView, thirdView)
+				.buildRequest());
+		assertSame(thirdView, controller.getCurrentView());
+		assertTrue(secondView.isDisposed());
+		assertFalse(thirdView.isDisposed());
+		assertFalse(firstView.isDisposed());
+	}
 }
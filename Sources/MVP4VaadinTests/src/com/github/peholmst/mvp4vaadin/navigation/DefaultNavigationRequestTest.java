@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link DefaultNavigationRequest}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class DefaultNavigationRequestTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void create_EmptyPath() {
+		new DefaultNavigationRequest(Collections.<View> emptyList(), null);
+	}
+
+	@Test
+	public void create_PathAndParamsAreCopied() {
+		final List<View> path = new java.util.ArrayList<View>();
+		path.add(new MyTestViewImpl());
+		final Map<String, Object> params = new HashMap<String, Object>();
+		params.put("param", "value");
+		final DefaultNavigationRequest request = new DefaultNavigationRequest(
+				path, params);
+		path.add(new MyTestViewImpl());
+		params.clear();
+		assertEquals(1, request.getPath().size());
+		assertEquals("value", request.getParams().get("param"));
+	}
+
+	@Test
+	public void create_NullParams() {
+		final DefaultNavigationRequest request = new DefaultNavigationRequest(
+				Arrays.<View> asList(new MyTestViewImpl()), null);
+		assertTrue(request.getParams().isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getPath_Unmodifiable() {
+		final DefaultNavigationRequest request = new DefaultNavigationRequest(
+				Arrays.<View> asList(new MyTestViewImpl()), null);
+		request.getPath().clear();
+	}
+
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		final NavigationRequest request = NavigationRequestBuilder
+				.newInstance().setParam("param", "value").startWithEmptyPath()
+				.addViewsToPath(new MyTestViewImpl(), new MyTestViewImpl())
+				.buildRequest();
+		final NavigationRequest copy = SerializationTestUtil
+				.serializeAndDeserialize(request);
+		assertEquals(2, copy.getPath().size());
+		assertTrue(copy.getPath().get(0) instanceof MyTestViewImpl);
+		assertNotSame(copy.getPath().get(0), copy.getPath().get(1));
+		assertEquals(1, copy.getParams().size());
+		assertEquals("value", copy.getParams().get("param"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void serializeAndDeserialize_PathIsUnmodifiable() throws Exception {
+		final NavigationRequest copy = SerializationTestUtil
+				.serializeAndDeserialize(new DefaultNavigationRequest(Arrays
+						.<View> asList(new MyTestViewImpl()), null));
+		copy.getPath().clear();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.testdata.MyTestListener;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link WeakNavigationControllerListener}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class WeakNavigationControllerListenerTest {
+
+	@SuppressWarnings("serial")
+	static class RecordingController extends DefaultNavigationController {
+
+		final List<NavigationControllerListener> removedListeners = new ArrayList<NavigationControllerListener>();
+
+		@Override
+		public void removeListener(NavigationControllerListener listener) {
+			removedListeners.add(listener);
+			super.removeListener(listener);
+		}
+	}
+
+	RecordingController controller;
+
+	@Before
+	public void setUp() {
+		controller = new RecordingController();
+	}
+
+	void navigate() {
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(new MyTestViewImpl())
+				.buildRequest());
+	}
+
+	@Test
+	public void registerAndUnregister() {
+		final MyTestListener listener = new MyTestListener();
+		final WeakNavigationControllerListener registration = WeakNavigationControllerListener
+				.register(controller, listener);
+		assertSame(controller, registration.getSource());
+		assertSame(listener, registration.getListener());
+		navigate();
+		assertEquals(2, listener.events.size());
+
+		registration.unregister();
+		navigate();
+		assertEquals(2, listener.events.size());
+		assertTrue(controller.removedListeners.contains(registration));
+	}
+
+	@Test
+	public void collectedListenerIsRemovedDuringDispatch() {
+		MyTestListener listener = new MyTestListener();
+		final WeakNavigationControllerListener registration = WeakNavigationControllerListener
+				.register(controller, listener);
+		final WeakReference<MyTestListener> reference = new WeakReference<MyTestListener>(
+				listener);
+		listener = null;
+		for (int i = 0; i < 10 && reference.get() != null; ++i) {
+			System.gc();
+		}
+		assumeTrue(reference.get() == null);
+
+		navigate();
+		assertEquals(1, controller.removedListeners.size());
+		assertSame(registration, controller.removedListeners.get(0));
+	}
+}
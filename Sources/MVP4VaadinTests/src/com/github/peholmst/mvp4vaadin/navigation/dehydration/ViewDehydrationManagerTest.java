@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.dehydration;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerCallback;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerCallbackAdapter;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.testdata.MyDehydratableTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link ViewDehydrationManager}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewDehydrationManagerTest {
+
+	@SuppressWarnings("serial")
+	static class FakePressureIndicator implements MemoryPressureIndicator {
+
+		boolean underPressure = false;
+
+		@Override
+		public boolean isUnderPressure() {
+			return underPressure;
+		}
+	}
+
+	DefaultNavigationController controller;
+
+	ViewDehydrationManager manager;
+
+	MyDehydratableTestViewImpl[] views;
+
+	@Before
+	public void setUp() {
+		controller = new DefaultNavigationController();
+		manager = new ViewDehydrationManager(controller);
+		views = new MyDehydratableTestViewImpl[4];
+		for (int i = 0; i < views.length; ++i) {
+			views[i] = new MyDehydratableTestViewImpl();
+			views[i].getDehydratablePresenter().state = "state" + i;
+		}
+	}
+
+	private void navigateToAllViews() {
+		for (MyDehydratableTestViewImpl view : views) {
+			controller.navigate(NavigationRequestBuilder.newInstance()
+					.startWithPathToCurrentView(controller).addViewToPath(view)
+					.buildRequest());
+		}
+	}
+
+	@Test
+	public void noMaxCount_NothingDehydrated() {
+		navigateToAllViews();
+		for (MyDehydratableTestViewImpl view : views) {
+			assertFalse(view.isDehydrated());
+		}
+	}
+
+	@Test
+	public void maxCountExceeded_OldestViewsDehydrated() {
+		manager.setMaxHydratedViewCount(1);
+		navigateToAllViews();
+		assertTrue(views[0].isDehydrated());
+		assertTrue(views[1].isDehydrated());
+		assertFalse(views[2].isDehydrated());
+		assertFalse(views[3].isDehydrated());
+	}
+
+	@Test
+	public void setMaxHydratedViewCount_EnforcedImmediately() {
+		navigateToAllViews();
+		manager.setMaxHydratedViewCount(0);
+		assertTrue(views[0].isDehydrated());
+		assertTrue(views[1].isDehydrated());
+		assertTrue(views[2].isDehydrated());
+		assertFalse(views[3].isDehydrated());
+	}
+
+	@Test
+	public void navigateBack_ViewRehydrated() {
+		manager.setMaxHydratedViewCount(0);
+		navigateToAllViews();
+
+		assertTrue(controller.navigateBack());
+		assertFalse(views[2].isDehydrated());
+		assertTrue(views[2].isInitialized());
+		assertEquals("state2", views[2].getDehydratablePresenter().state);
+		assertTrue(views[2].getDehydratablePresenter().restored);
+		assertTrue(views[1].isDehydrated());
+	}
+
+	@Test
+	public void navigateBackSeveralViews_PoppedViewsNotRehydrated() {
+		manager.setMaxHydratedViewCount(0);
+		navigateToAllViews();
+
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(views[0]).buildRequest());
+		assertSame(views[0], controller.getCurrentView());
+		assertFalse(views[0].isDehydrated());
+		assertEquals("state0", views[0].getDehydratablePresenter().state);
+		assertTrue(views[1].isDehydrated());
+		assertTrue(views[2].isDehydrated());
+		assertEquals(1, views[1].presentersCreated);
+		assertEquals(1, views[2].presentersCreated);
+	}
+
+	@Test
+	public void reattachedView_RehydratedBeforeCallbacks() {
+		manager.setMaxHydratedViewCount(0);
+		navigateToAllViews();
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(views[0]).buildRequest());
+		assertTrue(views[1].isDehydrated());
+		final List<String> calls = new ArrayList<String>();
+		views[1].getAdaptableSupport().registerAdapter(
+				NavigationControllerCallback.class,
+				new NavigationControllerCallbackAdapter() {
+
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public void attachedToController(
+							NavigationController controller) {
+						calls.add("attached:" + views[1].isInitialized());
+					}
+
+					@Override
+					public void navigatedToView(Map<String, Object> params,
+							View fromView) {
+						calls.add("navigatedTo:" + views[1].isInitialized());
+					}
+				});
+
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewsToPath(views[0], views[1])
+				.buildRequest());
+		assertSame(views[1], controller.getCurrentView());
+		assertEquals(Arrays.asList("attached:true", "navigatedTo:true"),
+				calls);
+		assertEquals("state1", views[1].getDehydratablePresenter().state);
+	}
+
+	@Test
+	public void memoryPressure_AllOffScreenViewsDehydrated() {
+		final FakePressureIndicator indicator = new FakePressureIndicator();
+		manager.setMemoryPressureIndicator(indicator);
+		navigateToAllViews();
+		assertFalse(views[0].isDehydrated());
+
+		indicator.underPressure = true;
+		manager.enforceLimits();
+		assertTrue(views[0].isDehydrated());
+		assertTrue(views[1].isDehydrated());
+		assertTrue(views[2].isDehydrated());
+		assertFalse(views[3].isDehydrated());
+	}
+
+	@Test
+	public void nonDehydratableViews_Ignored() {
+		final MyTestViewImpl plainView = new MyTestViewImpl(true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public MyTestPresenter createPresenter() {
+				return new MyTestPresenter();
+			}
+		};
+		manager.setMaxHydratedViewCount(0);
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(plainView)
+				.addViewToPath(views[0]).buildRequest());
+		assertTrue(plainView.isInitialized());
+	}
+
+	@Test
+	public void stop() {
+		manager.stop();
+		manager.setMaxHydratedViewCount(0);
+		navigateToAllViews();
+		assertFalse(views[0].isDehydrated());
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationController.NavigationResult;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequest;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link GraphNavigationController}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class GraphNavigationControllerTest {
+
+	SimpleViewMap viewMap;
+
+	GraphNavigationController controller;
+
+	@Before
+	public void setUp() {
+		viewMap = new SimpleViewMap();
+		for (String viewId : new String[] { "home", "list", "details",
+				"settings" }) {
+			viewMap.registerView(viewId, new MyTestViewImpl());
+		}
+		final NavigationGraph graph = NavigationGraph.newBuilder()
+				.addRoot("home").addView("list", "home")
+				.addView("details", "list").addView("settings", "home")
+				.build(viewMap);
+		controller = new GraphNavigationController(graph, viewMap);
+	}
+
+	private View view(String viewId) {
+		return viewMap.getViewById(viewId);
+	}
+
+	@Test
+	public void navigate_BuildsCanonicalPath() {
+		assertEquals(NavigationResult.SUCCEEDED, controller.navigate("details"));
+		assertEquals(
+				Arrays.asList(view("home"), view("list"), view("details")),
+				controller.getViewStack());
+
+		assertEquals(NavigationResult.SUCCEEDED,
+				controller.navigate("settings"));
+		assertEquals(Arrays.asList(view("home"), view("settings")),
+				controller.getViewStack());
+
+		assertTrue(controller.navigateBack());
+		assertSame(view("home"), controller.getCurrentView());
+	}
+
+	@Test
+	public void navigate_RequestsCached() {
+		assertSame(controller.getRequest("details"),
+				controller.getRequest("details"));
+	}
+
+	@Test
+	public void navigate_WithParams() {
+		final Map<String, Object> params = Collections
+				.<String, Object> singletonMap("id", 1);
+		controller.navigate("list", params);
+		assertSame(view("list"), controller.getCurrentView());
+	}
+
+	@Test
+	public void navigate_InvalidTransitionPreventedBeforeDetaching() {
+		controller.navigate("settings");
+		assertFalse(controller.isNavigationAllowed("details"));
+		assertEquals(NavigationResult.PREVENTED,
+				controller.navigate(NavigationRequestBuilder.newInstance()
+						.startWithEmptyPath()
+						.addViewsToPath(view("home"), view("details"))
+						.buildRequest()));
+		assertEquals(NavigationResult.PREVENTED,
+				controller.navigate("details"));
+		assertEquals(Arrays.asList(view("home"), view("settings")),
+				controller.getViewStack());
+	}
+
+	@Test
+	public void navigate_ViewNotInGraph() {
+		final MyTestViewImpl outsideView = new MyTestViewImpl();
+		assertEquals(NavigationResult.SUCCEEDED,
+				controller.navigate(NavigationRequestBuilder.newInstance()
+						.startWithEmptyPath().addViewToPath(outsideView)
+						.buildRequest()));
+		assertSame(outsideView, controller.getCurrentView());
+	}
+
+	@Test
+	public void navigateBack_ToViewNotInGraph() {
+		final MyTestViewImpl outsideView = new MyTestViewImpl();
+		controller.navigate("settings");
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithPathToCurrentView(controller)
+				.addViewsToPath(outsideView, view("list")).buildRequest());
+		assertSame(view("list"), controller.getCurrentView());
+
+		assertTrue(controller.navigateBack());
+		assertSame(outsideView, controller.getCurrentView());
+		assertTrue(controller.navigateBack());
+		assertSame(view("settings"), controller.getCurrentView());
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void navigate_EmptyPath() {
+		controller.navigate("details");
+		assertEquals(NavigationResult.SUCCEEDED,
+				controller.navigate(new NavigationRequest() {
+
+					@Override
+					public Map<String, Object> getParams() {
+						return Collections.emptyMap();
+					}
+
+					@Override
+					public List<View> getPath() {
+						return Collections.emptyList();
+					}
+				}));
+		assertTrue(controller.isEmpty());
+	}
+}
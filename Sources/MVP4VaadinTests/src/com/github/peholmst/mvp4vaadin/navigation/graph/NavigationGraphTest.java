@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.navigation.map.NoSuchViewException;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewPath;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link NavigationGraph}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationGraphTest {
+
+	NavigationGraph graph;
+
+	@Before
+	public void setUp() {
+		// Children are added before their parents on purpose
+		graph = NavigationGraph.newBuilder().addView("details", "list")
+				.addView("list", "home").addView("edit", "details")
+				.addView("settings", "home").addRoot("home").addRoot("help")
+				.addTransition("edit", "settings").build();
+	}
+
+	@Test
+	public void getCanonicalPath() {
+		assertEquals(ViewPath.of("home"), graph.getCanonicalPath("home"));
+		assertEquals(ViewPath.of("home", "list", "details", "edit"),
+				graph.getCanonicalPath("edit"));
+		assertEquals("list", graph.getParentId("details"));
+		assertNull(graph.getParentId("home"));
+		assertEquals(6, graph.size());
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void getCanonicalPath_UnknownView() {
+		graph.getCanonicalPath("unknown");
+	}
+
+	@Test
+	public void isTransitionAllowed() {
+		// Back to an ancestor or to the view itself
+		assertTrue(graph.isTransitionAllowed("edit", "list"));
+		assertTrue(graph.isTransitionAllowed("edit", "edit"));
+		// To a child of the view or of one of its ancestors
+		assertTrue(graph.isTransitionAllowed("list", "details"));
+		assertTrue(graph.isTransitionAllowed("details", "settings"));
+		// To a root
+		assertTrue(graph.isTransitionAllowed("edit", "help"));
+		// From nowhere
+		assertTrue(graph.isTransitionAllowed(null, "edit"));
+		// Explicit transition
+		assertTrue(graph.isTransitionAllowed("edit", "settings"));
+
+		assertFalse(graph.isTransitionAllowed("home", "details"));
+		assertFalse(graph.isTransitionAllowed("settings", "edit"));
+		assertFalse(graph.isTransitionAllowed("help", "list"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void build_UnknownParent() {
+		NavigationGraph.newBuilder().addView("list", "home").build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void build_UnknownTransition() {
+		NavigationGraph.newBuilder().addRoot("home")
+				.addTransition("home", "unknown").build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void build_Cycle() {
+		NavigationGraph.newBuilder().addView("a", "b").addView("b", "a")
+				.build();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addView_Twice() {
+		NavigationGraph.newBuilder().addRoot("home").addRoot("home");
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void build_ViewNotInViewMap() {
+		final SimpleViewMap viewMap = new SimpleViewMap();
+		viewMap.registerView("home", new MyTestViewImpl());
+		NavigationGraph.newBuilder().addRoot("home").addView("list", "home")
+				.build(viewMap);
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.journal;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMapNavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link NavigationJournal}, {@link NavigationJournalRecord}
+ * and {@link JournalingNavigationController}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationJournalTest {
+
+	File directory;
+
+	NavigationJournal journal;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("journal", "");
+		assertTrue(directory.delete());
+		journal = new NavigationJournal(directory);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		journal.close();
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static NavigationJournalRecord record(String sessionId,
+			String... viewIds) {
+		return new NavigationJournalRecord(sessionId, "main",
+				Arrays.asList(viewIds), null);
+	}
+
+	private Map<String, List<String>> recoverPaths() throws Exception {
+		final Map<String, List<String>> paths = new HashMap<String, List<String>>();
+		for (NavigationJournalRecord record : new NavigationJournal(directory)
+				.recover()) {
+			paths.put(record.getSessionId(), record.getViewIds());
+		}
+		return paths;
+	}
+
+	private int countSegments() {
+		return directory.list().length;
+	}
+
+	@Test
+	public void appendAndRecover_LatestRecordWins() throws Exception {
+		journal.start();
+		assertTrue(journal.append(record("s1", "home")));
+		assertTrue(journal.append(record("s2", "home")));
+		assertTrue(journal.append(record("s1", "home", "list")));
+		journal.flush();
+
+		final Map<String, List<String>> paths = recoverPaths();
+		assertEquals(2, paths.size());
+		assertEquals(Arrays.asList("home", "list"), paths.get("s1"));
+		assertEquals(Arrays.asList("home"), paths.get("s2"));
+	}
+
+	@Test
+	public void recover_RemovedControllersLeftOut() throws Exception {
+		journal.start();
+		journal.append(record("s1", "home"));
+		journal.append(record("s1"));
+		journal.close();
+
+		assertTrue(recoverPaths().isEmpty());
+	}
+
+	@Test
+	public void recover_AfterRestart() throws Exception {
+		journal.start();
+		journal.append(record("s1", "home"));
+		journal.close();
+
+		journal = new NavigationJournal(directory);
+		journal.start();
+		journal.append(record("s2", "home"));
+		journal.close();
+
+		final Map<String, List<String>> paths = recoverPaths();
+		assertEquals(2, paths.size());
+		assertEquals(2, countSegments());
+	}
+
+	@Test
+	public void recover_TornRecordIgnored() throws Exception {
+		journal.start();
+		journal.append(record("s1", "home"));
+		journal.append(record("s1", "home", "list"));
+		journal.close();
+
+		final File segment = directory.listFiles()[0];
+		final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			// Corrupt the last byte of the second record
+			final int firstLength = file.readInt();
+			file.seek(8 + firstLength);
+			final int secondLength = file.readInt();
+			file.seek(8 + firstLength + 8 + secondLength - 1);
+			file.write(0xFF);
+		} finally {
+			file.close();
+		}
+
+		assertEquals(Arrays.asList("home"), recoverPaths().get("s1"));
+	}
+
+	@Test
+	public void segmentsRolledAndCompacted() throws Exception {
+		journal.setSegmentSize(256);
+		journal.setMaxSegments(2);
+		journal.start();
+		for (int i = 0; i < 100; ++i) {
+			journal.append(record("s" + (i % 3), "home", "view" + i));
+		}
+		journal.flush();
+		assertTrue(countSegments() <= 4);
+
+		journal.compact();
+		assertEquals(2, countSegments());
+		final Map<String, List<String>> paths = recoverPaths();
+		assertEquals(3, paths.size());
+		assertEquals(Arrays.asList("home", "view99"), paths.get("s0"));
+		assertEquals(Arrays.asList("home", "view97"), paths.get("s1"));
+		assertEquals(Arrays.asList("home", "view98"), paths.get("s2"));
+	}
+
+	@Test
+	public void segmentsUnmappedWhenFullAndOnClose() throws Exception {
+		journal.setSegmentSize(256);
+		journal.start();
+		assertEquals(1, journal.getMappedSegmentCount());
+		for (int i = 0; i < 20; ++i) {
+			journal.append(record("s1", "home", "view" + i));
+		}
+		journal.flush();
+		assertTrue(countSegments() > 1);
+		assertEquals(1, journal.getMappedSegmentCount());
+
+		journal.close();
+		assertEquals(0, journal.getMappedSegmentCount());
+	}
+
+	@Test
+	public void writerFailure_SurfacedToCaller() throws Exception {
+		journal.setSegmentSize(256);
+		journal.start();
+		// Rolling to a new segment fails once the directory is gone
+		for (File file : directory.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(directory.delete());
+		for (int i = 0; i < 20; ++i) {
+			journal.append(record("s1", "home", "view" + i));
+		}
+		try {
+			journal.flush();
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertNotNull(e.getCause());
+			assertSame(journal.getWriterFailure(), e.getCause());
+		}
+		assertFalse(journal.isRunning());
+		assertFalse(journal.append(record("s1", "home")));
+		try {
+			journal.compact();
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertSame(journal.getWriterFailure(), e.getCause());
+		}
+		try {
+			journal.close();
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertSame(journal.getWriterFailure(), e.getCause());
+		}
+		journal.close();
+		assertEquals(0, journal.getMappedSegmentCount());
+	}
+
+	@Test
+	public void append_UnencodableRecordDroppedWithoutStoppingWriter()
+			throws Exception {
+		final StringBuilder tooLong = new StringBuilder();
+		while (tooLong.length() <= 0xFFFF) {
+			tooLong.append("0123456789");
+		}
+		journal.start();
+		assertFalse(journal.append(new NavigationJournalRecord("s1", "main",
+				Arrays.asList("home"), Collections.<String, Object> singletonMap(
+						"param", tooLong.toString()))));
+		assertEquals(1, journal.getDroppedRecordCount());
+		assertTrue(journal.append(record("s2", "home")));
+		journal.flush();
+		assertTrue(journal.isRunning());
+		assertNull(journal.getWriterFailure());
+		assertEquals(Arrays.asList("home"), recoverPaths().get("s2"));
+	}
+
+	@Test
+	public void compact_RemovedControllerStaysRemovedIfOlderSegmentsRemain()
+			throws Exception {
+		journal.setSegmentSize(256);
+		journal.setMaxSegments(100);
+		journal.start();
+		for (int i = 0; i < 30; ++i) {
+			journal.append(record("s1", "home", "view" + i));
+		}
+		journal.append(record("s1"));
+		journal.append(record("s2", "home"));
+		journal.flush();
+		assertTrue(countSegments() > 2);
+
+		// Simulate a crash after the compacted segment has been renamed but
+		// before the older segments have been deleted
+		final File[] files = directory.listFiles();
+		Arrays.sort(files);
+		final Map<File, byte[]> olderSegments = new HashMap<File, byte[]>();
+		for (int i = 0; i < files.length - 2; ++i) {
+			olderSegments.put(files[i], readFile(files[i]));
+		}
+		journal.compact();
+		for (Map.Entry<File, byte[]> segment : olderSegments.entrySet()) {
+			assertFalse(segment.getKey().exists());
+			writeFile(segment.getKey(), segment.getValue());
+		}
+
+		final Map<String, List<String>> paths = recoverPaths();
+		assertEquals(1, paths.size());
+		assertEquals(Arrays.asList("home"), paths.get("s2"));
+	}
+
+	private static byte[] readFile(File file) throws Exception {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final byte[] content = new byte[(int) raf.length()];
+			raf.readFully(content);
+			return content;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void writeFile(File file, byte[] content) throws Exception {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(content);
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void append_NotRunning_Dropped() {
+		assertFalse(journal.append(record("s1", "home")));
+		assertEquals(1, journal.getDroppedRecordCount());
+	}
+
+	@Test
+	public void record_OnlySupportedParamsJournaled() throws Exception {
+		final Map<String, Object> params = new HashMap<String, Object>();
+		params.put("string", "value");
+		params.put("int", 1);
+		params.put("long", 2L);
+		params.put("boolean", true);
+		params.put("object", new Object());
+		journal.start();
+		journal.append(new NavigationJournalRecord("s1", "main",
+				Arrays.asList("home"), params));
+		journal.flush();
+
+		final Collection<NavigationJournalRecord> records = new NavigationJournal(
+				directory).recover();
+		assertEquals(1, records.size());
+		final Map<String, Object> recoveredParams = records.iterator().next()
+				.getParams();
+		assertEquals(4, recoveredParams.size());
+		assertEquals("value", recoveredParams.get("string"));
+		assertEquals(1, recoveredParams.get("int"));
+		assertEquals(2L, recoveredParams.get("long"));
+		assertEquals(true, recoveredParams.get("boolean"));
+	}
+
+	@Test
+	public void journalingController_JournalsAndRestores() throws Exception {
+		final SimpleViewMap viewMap = new SimpleViewMap();
+		for (String viewId : new String[] { "home", "list", "details" }) {
+			viewMap.registerView(viewId, new MyTestViewImpl());
+		}
+		journal.start();
+		final JournalingNavigationController controller = new JournalingNavigationController(
+				journal, viewMap, "s1", "main");
+		controller.navigate(ViewMapNavigationRequestBuilder.newInstance()
+				.setParam("id", 123).startWithEmptyPath().setViewMap(viewMap)
+				.addViewsToPath("home", "list", "details").buildRequest());
+		controller.navigateBack();
+		journal.flush();
+
+		final List<NavigationJournalRecord> records = new ArrayList<NavigationJournalRecord>(
+				new NavigationJournal(directory).recover());
+		assertEquals(1, records.size());
+		assertEquals(Arrays.asList("home", "list"), records.get(0)
+				.getViewIds());
+
+		final DefaultNavigationController restored = new DefaultNavigationController();
+		records.get(0).restore(restored, viewMap);
+		assertEquals(controller.getViewStack(), restored.getViewStack());
+
+		controller.clear();
+		journal.flush();
+		assertTrue(new NavigationJournal(directory).recover().isEmpty());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link NavigationHistory}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationHistoryTest {
+
+	SimpleViewMap viewMap;
+
+	DefaultNavigationController controller;
+
+	NavigationHistory history;
+
+	@Before
+	public void setUp() {
+		viewMap = new SimpleViewMap();
+		for (String viewId : new String[] { "home", "list", "details" }) {
+			viewMap.registerView(viewId, new MyTestViewImpl());
+		}
+		controller = new DefaultNavigationController();
+		history = new NavigationHistory(controller, viewMap, 3);
+	}
+
+	private void navigateTo(String... viewIds) {
+		controller.navigate(ViewMapNavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().setViewMap(viewMap)
+				.addViewsToPath(viewIds).buildRequest());
+	}
+
+	@Test
+	public void recordsStacks() {
+		navigateTo("home");
+		navigateTo("home", "list");
+		controller.navigateBack();
+
+		assertEquals(3, history.size());
+		assertEquals(Arrays.asList(ViewPath.of("home"), ViewPath.of("home",
+				"list"), ViewPath.of("home")), history.getEntries());
+		assertEquals(ViewPath.of("home"), history.getLatestEntry());
+	}
+
+	@Test
+	public void capacityExceeded_OldestEntriesDiscarded() {
+		navigateTo("home");
+		navigateTo("home", "list");
+		navigateTo("home", "list", "details");
+		navigateTo("home", "details");
+
+		assertEquals(3, history.size());
+		assertEquals(ViewPath.of("home", "list"), history.getEntry(0));
+		assertEquals(ViewPath.of("home", "details"), history.getLatestEntry());
+	}
+
+	@Test
+	public void unregisteredView_NotRecorded() {
+		controller.navigate(NavigationRequestBuilder.newInstance()
+				.startWithEmptyPath().addViewToPath(new MyTestViewImpl())
+				.buildRequest());
+		assertEquals(0, history.size());
+		assertSame(ViewPath.EMPTY, history.getLatestEntry());
+	}
+
+	@Test
+	public void clearAndStop() {
+		navigateTo("home");
+		history.clear();
+		assertEquals(0, history.size());
+		history.stop();
+		navigateTo("home", "list");
+		assertEquals(0, history.size());
+	}
+}
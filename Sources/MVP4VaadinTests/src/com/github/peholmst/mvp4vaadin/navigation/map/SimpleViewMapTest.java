@@ -22,6 +22,7 @@ import static org.junit.Assert.*;
 import com.github.peholmst.mvp4vaadin.View;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
 import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
 
 /**
  * Test case for {@link SimpleViewMap}.
@@ -105,4 +106,58 @@ public class SimpleViewMapTest {
 		viewMap.unregisterView("myView");
 		assertFalse(viewMap.containsView("myView"));
 	}
+
+	@Test
+	public void getViewId() {
+		final View view = new MyTestViewImpl();
+		viewMap.registerView("view1", new MyTestViewImpl());
+		viewMap.registerView("view2", view);
+		assertEquals("view2", viewMap.getViewId(view));
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void getViewId_NotFound() {
+		viewMap.registerView("view1", new MyTestViewImpl());
+		viewMap.getViewId(new MyTestViewImpl());
+	}
+
+	@Test
+	public void getViewId_ReplacedView() {
+		final View oldView = new MyTestViewImpl();
+		final View newView = new MyTestViewImpl();
+		viewMap.registerView("view1", oldView);
+		viewMap.registerView("view1", newView);
+		assertEquals("view1", viewMap.getViewId(newView));
+		try {
+			viewMap.getViewId(oldView);
+			fail("Replaced view should not be found");
+		} catch (NoSuchViewException e) {
+			// Expected
+		}
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void getViewId_UnregisteredView() {
+		final View view = new MyTestViewImpl();
+		viewMap.registerView("view1", view);
+		viewMap.unregisterView("view1");
+		viewMap.getViewId(view);
+	}
+
+	@Test
+	public void registerView_DoesNotInternViewId() {
+		viewMap.registerView("SimpleViewMapTest.notInterned",
+				new MyTestViewImpl());
+		assertEquals(-1, ViewIdRegistry.getInstance().getId(
+				"SimpleViewMapTest.notInterned"));
+	}
+
+	@Test
+	public void getViewId_AfterDeserialization() throws Exception {
+		viewMap.registerView("view1", new MyTestViewImpl());
+		final SimpleViewMap copy = SerializationTestUtil
+				.serializeAndDeserialize(viewMap);
+		final View view = copy.getViewById("view1");
+		assertEquals("view1", copy.getViewId(view));
+	}
 }
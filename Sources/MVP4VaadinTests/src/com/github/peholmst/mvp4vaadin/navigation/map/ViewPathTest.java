@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link ViewPath} and {@link ViewIdRegistry}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewPathTest {
+
+	@Test
+	public void registry_DenseIds() {
+		final ViewIdRegistry registry = new ViewIdRegistry();
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(i, registry.intern("view" + i));
+		}
+		assertEquals(42, registry.intern("view42"));
+		assertEquals(42, registry.getId("view42"));
+		assertEquals("view42", registry.getViewId(42));
+		assertEquals(-1, registry.getId("unknown"));
+		assertEquals(100, registry.size());
+	}
+
+	@Test
+	public void registry_Capacity() {
+		final ViewIdRegistry registry = new ViewIdRegistry(2);
+		assertEquals(2, registry.getCapacity());
+		assertEquals(0, registry.intern("home"));
+		assertEquals(1, registry.intern("list"));
+		try {
+			registry.intern("details");
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+		assertEquals(1, registry.intern("list"));
+		assertEquals(-1, registry.getId("details"));
+		assertEquals(2, registry.size());
+		assertEquals(ViewIdRegistry.DEFAULT_CAPACITY,
+				new ViewIdRegistry().getCapacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void registry_UnknownId() {
+		new ViewIdRegistry().getViewId(0);
+	}
+
+	@Test
+	public void of_ViewIds() {
+		final ViewPath path = ViewPath.of("home", "list", "details");
+		assertEquals(3, path.size());
+		assertEquals("list", path.getViewId(1));
+		assertEquals(ViewIdRegistry.getInstance().getId("list"),
+				path.getId(1));
+		assertEquals(Arrays.asList("home", "list", "details"),
+				path.getViewIds());
+		assertEquals(ViewPath.of("home", "list", "details"), path);
+		assertEquals(ViewPath.of("home", "list", "details").hashCode(),
+				path.hashCode());
+		assertSame(ViewPath.EMPTY, ViewPath.of());
+	}
+
+	@Test
+	public void of_Views() {
+		final SimpleViewMap viewMap = new SimpleViewMap();
+		final View home = new MyTestViewImpl();
+		final View list = new MyTestViewImpl();
+		viewMap.registerView("home", home);
+		viewMap.registerView("list", list);
+
+		final ViewPath path = ViewPath.of(Arrays.asList(home, list), viewMap);
+		assertEquals(ViewPath.of("home", "list"), path);
+		assertEquals(Arrays.asList(home, list), path.toViews(viewMap));
+	}
+
+	@Test
+	public void getIndexOfFirstDifference() {
+		final ViewPath path = ViewPath.of("home", "list", "details");
+		assertEquals(3, path.getIndexOfFirstDifference(path));
+		assertEquals(2, path.getIndexOfFirstDifference(ViewPath.of("home",
+				"list")));
+		assertEquals(1, path.getIndexOfFirstDifference(ViewPath.of("home",
+				"search", "details")));
+		assertEquals(0, path.getIndexOfFirstDifference(ViewPath.EMPTY));
+	}
+
+	@Test
+	public void appendAndSubPath() {
+		final ViewPath path = ViewPath.of("home").append("list");
+		assertEquals(ViewPath.of("home", "list"), path);
+		assertEquals(ViewPath.of("home"), path.subPath(1));
+		assertSame(ViewPath.EMPTY, path.subPath(0));
+		assertSame(path, path.subPath(2));
+	}
+
+	@Test
+	public void serializeAndDeserialize() throws Exception {
+		final ViewPath path = ViewPath.of("home", "list");
+		assertEquals(path, SerializationTestUtil.serializeAndDeserialize(path));
+	}
+
+	@Test
+	public void serializeAndDeserialize_LongPath() throws Exception {
+		final String[] viewIds = new String[40];
+		for (int i = 0; i < viewIds.length; ++i) {
+			viewIds[i] = "view" + i;
+		}
+		final ViewPath path = ViewPath.of(viewIds);
+		assertEquals(path, SerializationTestUtil.serializeAndDeserialize(path));
+	}
+
+	@Test(expected = IOException.class)
+	public void deserialize_LengthLargerThanStream() throws Exception {
+		deserializeWithLength(ViewPath.of("home", "list"), Integer.MAX_VALUE);
+	}
+
+	@Test(expected = InvalidObjectException.class)
+	public void deserialize_NegativeLength() throws Exception {
+		deserializeWithLength(ViewPath.of("home", "list"), -1);
+	}
+
+	/**
+	 * Serializes <code>path</code>, replaces the serialized length with
+	 * <code>length</code> and deserializes the result.
+	 */
+	private static Object deserializeWithLength(ViewPath path, int length)
+			throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(path);
+		out.close();
+		final byte[] data = bytes.toByteArray();
+		// The length is followed by the first ID, "home", in modified UTF-8
+		final byte[] marker = { 0, 0, 0, (byte) path.size(), 0, 4, 'h',
+				'o', 'm', 'e' };
+		int index = -1;
+		for (int i = 0; index < 0 && i <= data.length - marker.length; ++i) {
+			if (Arrays.equals(marker,
+					Arrays.copyOfRange(data, i, i + marker.length))) {
+				index = i;
+			}
+		}
+		assertTrue(index >= 0);
+		data[index] = (byte) (length >>> 24);
+		data[index + 1] = (byte) (length >>> 16);
+		data[index + 2] = (byte) (length >>> 8);
+		data[index + 3] = (byte) length;
+		return new ObjectInputStream(new ByteArrayInputStream(data))
+				.readObject();
+	}
+}
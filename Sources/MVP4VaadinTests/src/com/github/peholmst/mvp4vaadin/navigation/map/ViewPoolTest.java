@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.testdata.MyDehydratableTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link ViewPool} and {@link PooledViewMap}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewPoolTest {
+
+	List<Runnable> pendingTasks;
+
+	int createdViews;
+
+	ViewPool pool;
+
+	Executor queueingExecutor = new Executor() {
+
+		@Override
+		public void execute(Runnable command) {
+			pendingTasks.add(command);
+		}
+	};
+
+	ViewFactory countingFactory = new ViewFactory() {
+
+		@Override
+		public View createView(ViewDefinition definition) {
+			createdViews++;
+			return new MyDehydratableTestViewImpl();
+		}
+	};
+
+	@Before
+	public void setUp() {
+		pendingTasks = new ArrayList<Runnable>();
+		createdViews = 0;
+		final ViewRegistry registry = ViewRegistry
+				.newBuilder("ViewPoolTest")
+				.register("landing", MyDehydratableTestViewImpl.class, null,
+						countingFactory)
+				.register("other", MyDehydratableTestViewImpl.class,
+						"landing", countingFactory).build();
+		pool = new ViewPool(registry, queueingExecutor);
+		pool.setPoolSize("landing", 2);
+	}
+
+	void runPendingTasks() {
+		final List<Runnable> tasks = new ArrayList<Runnable>(pendingTasks);
+		pendingTasks.clear();
+		for (Runnable task : tasks) {
+			task.run();
+		}
+	}
+
+	@Test
+	public void notFilledBeforeStart() {
+		assertFalse(pool.isRunning());
+		assertTrue(pendingTasks.isEmpty());
+		assertEquals(0, pool.getAvailableCount("landing"));
+	}
+
+	@Test
+	public void start_FillsPool() {
+		pool.start();
+		assertEquals(2, pendingTasks.size());
+		runPendingTasks();
+		assertEquals(2, pool.getAvailableCount("landing"));
+		assertEquals(2, createdViews);
+		// Already full
+		pool.start();
+		assertTrue(pendingTasks.isEmpty());
+	}
+
+	@Test
+	public void take_Hit() {
+		pool.start();
+		runPendingTasks();
+		final View view = pool.take("landing");
+		assertTrue(view.isInitialized());
+		assertEquals(1, pool.getHitCount());
+		assertEquals(0, pool.getMissCount());
+		assertEquals(1, pool.getAvailableCount("landing"));
+		// Refill scheduled
+		assertEquals(1, pendingTasks.size());
+		runPendingTasks();
+		assertEquals(2, pool.getAvailableCount("landing"));
+		assertNotSame(view, pool.take("landing"));
+	}
+
+	@Test
+	public void take_Miss() {
+		pool.start();
+		final View view = pool.take("landing");
+		assertTrue(view.isInitialized());
+		assertEquals(0, pool.getHitCount());
+		assertEquals(1, pool.getMissCount());
+		// Refills already in flight are not scheduled again
+		assertEquals(2, pendingTasks.size());
+	}
+
+	@Test
+	public void take_NotPooled() {
+		pool.start();
+		runPendingTasks();
+		assertFalse(pool.isPooled("other"));
+		assertTrue(pool.take("other").isInitialized());
+		assertEquals(0, pool.getHitCount());
+		assertEquals(0, pool.getMissCount());
+		assertTrue(pendingTasks.isEmpty());
+	}
+
+	@Test
+	public void setPoolSize_Shrink() {
+		pool.start();
+		runPendingTasks();
+		pool.setPoolSize("landing", 1);
+		assertEquals(1, pool.getAvailableCount("landing"));
+		assertTrue(pendingTasks.isEmpty());
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void setPoolSize_UnknownView() {
+		pool.setPoolSize("unknown", 1);
+	}
+
+	@Test
+	public void stop() {
+		pool.start();
+		runPendingTasks();
+		pool.stop();
+		assertFalse(pool.isRunning());
+		assertEquals(0, pool.getAvailableCount("landing"));
+		pool.take("landing");
+		assertTrue(pendingTasks.isEmpty());
+	}
+
+	@Test
+	public void pooledViewMap() throws Exception {
+		pool.start();
+		runPendingTasks();
+		final PooledViewMap viewMap = new PooledViewMap(pool);
+		final View landing = viewMap.getViewById("landing");
+		assertSame(landing, viewMap.getViewById("landing"));
+		assertEquals(1, pool.getHitCount());
+		assertEquals("landing", viewMap.getViewId(landing));
+		viewMap.getViewById("other");
+		assertEquals(1, pool.getHitCount());
+		assertEquals(0, pool.getMissCount());
+
+		final PooledViewMap deserialized = SerializationTestUtil
+				.serializeAndDeserialize(viewMap);
+		assertNull(deserialized.getPool());
+		assertTrue(deserialized.isViewCreated("landing"));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestPresenter;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestView;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link ViewRegistry}, {@link ViewDefinition} and
+ * {@link RegistryViewMap}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewRegistryTest {
+
+	ViewRegistry registry;
+
+	@Before
+	public void setUp() {
+		registry = ViewRegistry.newBuilder("ViewRegistryTest")
+				.register("home", MyTestViewImpl.class)
+				.register("list", MyTestViewComponent.class, "home")
+				.register("details", MyTestViewImpl.class, "list",
+						new ViewFactory() {
+
+							@Override
+							public View createView(ViewDefinition definition) {
+								return new MyTestViewImpl();
+							}
+						}).build();
+	}
+
+	@Test
+	public void getDefinition() {
+		final ViewDefinition definition = registry.getDefinition("list");
+		assertEquals("list", definition.getViewId());
+		assertSame(MyTestViewComponent.class, definition.getViewClass());
+		assertEquals("home", definition.getParentId());
+		assertSame(MyTestPresenter.class, definition.getPresenterClass());
+		assertNull(registry.getDefinition("home").getPresenterClass());
+		assertTrue(registry.containsView("details"));
+		assertFalse(registry.containsView("unknown"));
+		assertEquals(3, registry.getDefinitions().size());
+	}
+
+	@Test
+	public void getDefinitionByClass() {
+		assertSame(registry.getDefinition("list"),
+				registry.getDefinition(MyTestViewComponent.class));
+		// Cached
+		assertSame(registry.getDefinition("list"),
+				registry.getDefinition(MyTestViewComponent.class));
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void getDefinitionByClass_Ambiguous() {
+		registry.getDefinition(MyTestView.class);
+	}
+
+	@Test
+	public void getNavigationGraph() {
+		assertEquals(ViewPath.of("home", "list", "details"), registry
+				.getNavigationGraph().getCanonicalPath("details"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void register_Twice() {
+		ViewRegistry.newBuilder("ViewRegistryTest2")
+				.register("home", MyTestViewImpl.class)
+				.register("home", MyTestViewImpl.class);
+	}
+
+	@Test
+	public void serializeAndDeserialize_SameInstance() throws Exception {
+		assertSame(registry, ViewRegistry.getRegistry("ViewRegistryTest"));
+		assertSame(registry,
+				SerializationTestUtil.serializeAndDeserialize(registry));
+	}
+
+	@Test
+	public void registryViewMap_ViewsCreatedPerSession() {
+		final RegistryViewMap session1 = new RegistryViewMap(registry);
+		final RegistryViewMap session2 = new RegistryViewMap(registry);
+		assertFalse(session1.isViewCreated("home"));
+
+		final View home = session1.getViewById("home");
+		assertTrue(session1.isViewCreated("home"));
+		assertSame(home, session1.getViewById("home"));
+		assertNotSame(home, session2.getViewById("home"));
+		assertEquals("home", session1.getViewId(home));
+		assertTrue(session1.getViewById("details") instanceof MyTestViewImpl);
+		assertSame(session1.getViewById("list"),
+				session1.getViewByClass(MyTestViewComponent.class));
+		assertTrue(session1.containsView(MyTestViewComponent.class));
+		assertFalse(session1.containsView(MyTestView.class));
+	}
+
+	@Test(expected = NoSuchViewException.class)
+	public void registryViewMap_GetViewId_NotCreated() {
+		new RegistryViewMap(registry).getViewId(new MyTestViewImpl());
+	}
+
+	@Test
+	public void registryViewMap_SerializeAndDeserialize() throws Exception {
+		final RegistryViewMap viewMap = new RegistryViewMap(registry);
+		viewMap.getViewById("home");
+		final RegistryViewMap copy = SerializationTestUtil
+				.serializeAndDeserialize(viewMap);
+		assertSame(registry, copy.getRegistry());
+		assertTrue(copy.isViewCreated("home"));
+		assertEquals("home", copy.getViewId(copy.getViewById("home")));
+	}
+
+	@Test
+	public void evictView() {
+		final RegistryViewMap viewMap = new RegistryViewMap(registry);
+		final MyTestViewImpl home = (MyTestViewImpl) viewMap
+				.getViewById("home");
+		assertTrue(viewMap.evictView("home"));
+		assertTrue(home.isDisposed());
+		assertFalse(viewMap.isViewCreated("home"));
+		assertFalse(viewMap.evictView("home"));
+		assertNotSame(home, viewMap.getViewById("home"));
+
+		viewMap.getViewById("list");
+		viewMap.evictAllViews();
+		assertFalse(viewMap.isViewCreated("home"));
+		assertFalse(viewMap.isViewCreated("list"));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.testdata.MyDehydratableTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewComponent;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+
+/**
+ * Test case for {@link ViewWarmUpService}.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class ViewWarmUpServiceTest {
+
+	ExecutorService executor;
+
+	AtomicInteger createdViews;
+
+	AtomicInteger completedNotifications;
+
+	ViewFactory countingFactory = new ViewFactory() {
+
+		@Override
+		public View createView(ViewDefinition definition) {
+			createdViews.incrementAndGet();
+			return new MyDehydratableTestViewImpl();
+		}
+	};
+
+	ViewWarmUpService.Listener listener = new ViewWarmUpService.Listener() {
+
+		@Override
+		public void warmUpCompleted(ViewWarmUpService service) {
+			assertTrue(service.isDone());
+			completedNotifications.incrementAndGet();
+		}
+	};
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		createdViews = new AtomicInteger();
+		completedNotifications = new AtomicInteger();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void warmUp() throws Exception {
+		final ViewRegistry registry = ViewRegistry
+				.newBuilder("ViewWarmUpServiceTest.warmUp")
+				.register("home", MyDehydratableTestViewImpl.class, null,
+						countingFactory)
+				.register("list", MyTestViewComponent.class, "home").build();
+		final ViewWarmUpService service = new ViewWarmUpService(registry,
+				executor);
+		service.setInstancesPerView(3);
+		service.addListener(listener);
+		assertFalse(service.isStarted());
+		assertFalse(service.isDone());
+		assertEquals(-1, service.getDurationMillis());
+
+		service.start();
+		assertTrue(service.isStarted());
+		assertTrue(service.awaitCompletion(10, TimeUnit.SECONDS));
+		assertTrue(service.isDone());
+		assertEquals(0, service.getRemainingViewCount());
+		assertTrue(service.getFailures().isEmpty());
+		assertTrue(service.getDurationMillis() >= 0);
+		assertEquals(3, createdViews.get());
+		// The listener is called after the latch is released
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(1, completedNotifications.get());
+	}
+
+	@Test
+	public void warmUp_Failure() throws Exception {
+		final ViewRegistry registry = ViewRegistry
+				.newBuilder("ViewWarmUpServiceTest.warmUp_Failure")
+				.register("home", MyDehydratableTestViewImpl.class)
+				.register("broken", MyTestViewImpl.class, "home",
+						new ViewFactory() {
+
+							@Override
+							public View createView(ViewDefinition definition) {
+								throw new IllegalStateException("broken");
+							}
+						}).build();
+		final ViewWarmUpService service = new ViewWarmUpService(registry,
+				executor);
+		service.setInstancesPerView(1);
+		service.start();
+		assertTrue(service.awaitCompletion(10, TimeUnit.SECONDS));
+		assertEquals(1, service.getFailures().size());
+		assertTrue(service.getFailures().get("broken") instanceof IllegalStateException);
+	}
+
+	@Test
+	public void warmUp_EmptyRegistry() throws Exception {
+		final ViewWarmUpService service = new ViewWarmUpService(ViewRegistry
+				.newBuilder("ViewWarmUpServiceTest.warmUp_EmptyRegistry")
+				.build(), executor);
+		service.addListener(listener);
+		service.start();
+		assertTrue(service.isDone());
+		assertEquals(1, completedNotifications.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void start_Twice() {
+		final ViewWarmUpService service = new ViewWarmUpService(ViewRegistry
+				.newBuilder("ViewWarmUpServiceTest.start_Twice").build(),
+				executor);
+		service.start();
+		service.start();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void awaitCompletion_NotStarted() throws Exception {
+		new ViewWarmUpService(ViewRegistry.newBuilder(
+				"ViewWarmUpServiceTest.awaitCompletion_NotStarted").build(),
+				executor).awaitCompletion(1, TimeUnit.SECONDS);
+	}
+}
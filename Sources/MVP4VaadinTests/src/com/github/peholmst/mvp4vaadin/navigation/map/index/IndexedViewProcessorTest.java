@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.map.index;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewPath;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewRegistry;
+
+/**
+ * Test case for {@link IndexedViewProcessor}. The processor is run by
+ * compiling small view classes using the system Java compiler, so the test is
+ * skipped if no compiler is available.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class IndexedViewProcessorTest {
+
+	static final String VIEW_SUPERCLASS = "com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl";
+
+	JavaCompiler compiler;
+
+	File directory;
+
+	File sourceDir;
+
+	File outputDir;
+
+	DiagnosticCollector<JavaFileObject> diagnostics;
+
+	@Before
+	public void setUp() throws Exception {
+		compiler = ToolProvider.getSystemJavaCompiler();
+		assumeTrue(compiler != null);
+		directory = File.createTempFile("index", "");
+		assertTrue(directory.delete());
+		sourceDir = new File(directory, "src");
+		outputDir = new File(directory, "classes");
+		assertTrue(sourceDir.mkdirs());
+		assertTrue(outputDir.mkdirs());
+	}
+
+	@After
+	public void tearDown() {
+		if (directory != null) {
+			delete(directory);
+		}
+	}
+
+	private static void delete(File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private File writeSource(String className, String source)
+			throws IOException {
+		final File file = new File(sourceDir, className + ".java");
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(
+				file), "UTF-8");
+		try {
+			writer.write("package idx;\n");
+			writer.write("import com.github.peholmst.mvp4vaadin.navigation.map.index.IndexedView;\n");
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private File writeView(String className, String annotation)
+			throws IOException {
+		return writeSource(className, annotation + " public class "
+				+ className + " extends " + VIEW_SUPERCLASS + " {}");
+	}
+
+	private boolean compile(File... sources) throws IOException {
+		diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final StandardJavaFileManager fileManager = compiler
+				.getStandardFileManager(null, null, null);
+		try {
+			final List<String> options = new ArrayList<String>();
+			options.add("-d");
+			options.add(outputDir.getPath());
+			options.add("-classpath");
+			options.add(System.getProperty("java.class.path")
+					+ File.pathSeparator + outputDir.getPath());
+			options.add("-processor");
+			options.add(IndexedViewProcessor.class.getName());
+			return compiler.getTask(null, fileManager, diagnostics, options,
+					null, fileManager.getJavaFileObjects(sources)).call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private void assertCompiles(File... sources) throws IOException {
+		final boolean success = compile(sources);
+		assertTrue(getErrors(), success);
+	}
+
+	private ViewRegistry loadRegistry() throws IOException {
+		final URLClassLoader classLoader = new URLClassLoader(
+				new URL[] { outputDir.toURI().toURL() }, getClass()
+						.getClassLoader());
+		return ViewIndex.loadRegistry("IndexedViewProcessorTest",
+				classLoader);
+	}
+
+	private String getErrors() {
+		final StringBuilder sb = new StringBuilder();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+				.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				sb.append(diagnostic.getMessage(null)).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void process_GeneratesIndex() throws Exception {
+		assertCompiles(writeView("HomeView", "@IndexedView(\"home\")"),
+				writeView("ListView",
+						"@IndexedView(value = \"list\", parent = \"home\")"));
+		assertTrue(new File(outputDir, ViewIndex.RESOURCE_NAME).isFile());
+
+		final ViewRegistry registry = loadRegistry();
+		assertEquals(2, registry.getDefinitions().size());
+		assertEquals("idx.ListView", registry.getDefinition("list")
+				.getViewClass().getName());
+		assertEquals(ViewPath.of("home", "list"), registry
+				.getNavigationGraph().getCanonicalPath("list"));
+	}
+
+	@Test
+	public void process_IncrementalCompilationKeepsExistingEntries()
+			throws Exception {
+		assertCompiles(writeView("HomeView", "@IndexedView(\"home\")"));
+		assertCompiles(writeView("SettingsView",
+				"@IndexedView(value = \"settings\", parent = \"home\")"));
+
+		final ViewRegistry registry = loadRegistry();
+		assertTrue(registry.containsView("home"));
+		assertTrue(registry.containsView("settings"));
+	}
+
+	@Test
+	public void process_NotAView() throws Exception {
+		assertFalse(compile(writeSource("NotAView",
+				"@IndexedView(\"notAView\") public class NotAView {}")));
+		assertTrue(getErrors(), getErrors().contains("must implement"));
+	}
+
+	@Test
+	public void process_NoDefaultConstructor() throws Exception {
+		assertFalse(compile(writeSource("NoDefaultConstructorView",
+				"@IndexedView(\"view\") public class NoDefaultConstructorView extends "
+						+ VIEW_SUPERCLASS
+						+ " { public NoDefaultConstructorView(String s) {} }")));
+		assertTrue(getErrors(), getErrors().contains("default constructor"));
+	}
+
+	@Test
+	public void process_DuplicateId() throws Exception {
+		assertFalse(compile(writeView("FirstView", "@IndexedView(\"view\")"),
+				writeView("SecondView", "@IndexedView(\"view\")")));
+		assertTrue(getErrors(), getErrors().contains("already used"));
+	}
+
+	@Test
+	public void readAndWriteEntries() throws Exception {
+		final StringWriter writer = new StringWriter();
+		ViewIndex.writeEntries(Arrays.asList(new ViewIndex.Entry("home",
+				"a.Home", null), new ViewIndex.Entry("list", "a.List", "home")),
+				writer);
+		final List<ViewIndex.Entry> entries = ViewIndex
+				.readEntries(new BufferedReader(new StringReader(
+						writer.toString())));
+		assertEquals(2, entries.size());
+		assertNull(entries.get(0).getParentId());
+		assertEquals("a.List", entries.get(1).getClassName());
+		assertEquals("home", entries.get(1).getParentId());
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.navigation.replication;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.peholmst.mvp4vaadin.View;
+import com.github.peholmst.mvp4vaadin.navigation.DefaultNavigationController;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.map.SimpleViewMap;
+import com.github.peholmst.mvp4vaadin.navigation.map.ViewMapNavigationRequestBuilder;
+import com.github.peholmst.mvp4vaadin.navigation.replication.NavigationStateDelta.OperationType;
+import com.github.peholmst.mvp4vaadin.testdata.MyTestViewImpl;
+import com.github.peholmst.mvp4vaadin.testdata.SerializationTestUtil;
+
+/**
+ * Test case for {@link NavigationStateTracker},
+ * {@link NavigationStateDeltaApplier} and {@link NavigationStateDelta}, using
+ * two in-process nodes and an in-memory transport.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class NavigationStateReplicationTest {
+
+	/**
+	 * View whose display name and description can be replicated.
+	 */
+	@SuppressWarnings("serial")
+	static class ReplicatedView extends MyTestViewImpl {
+
+		ReplicatedView() {
+			getAdaptableSupport().registerAdapter(
+					ReplicatedViewProperties.class,
+					new ReplicatedViewProperties() {
+
+						@Override
+						public void setReplicatedDisplayName(String displayName) {
+							setDisplayName(displayName);
+						}
+
+						@Override
+						public void setReplicatedDescription(String description) {
+							setViewDescription(description);
+						}
+					});
+		}
+
+		void changeDisplayName(String displayName) {
+			setDisplayName(displayName);
+		}
+
+		void changeDescription(String description) {
+			setViewDescription(description);
+		}
+	}
+
+	/**
+	 * A simulated cluster node with its own views and controller.
+	 */
+	static class Node {
+
+		final SimpleViewMap viewMap = new SimpleViewMap();
+
+		final DefaultNavigationController controller = new DefaultNavigationController();
+
+		Node() {
+			for (String viewId : new String[] { "home", "list", "details" }) {
+				viewMap.registerView(viewId, new ReplicatedView());
+			}
+		}
+
+		ReplicatedView getView(String viewId) {
+			return (ReplicatedView) viewMap.getViewById(viewId);
+		}
+
+		void navigateTo(String viewId) {
+			controller.navigate(ViewMapNavigationRequestBuilder.newInstance()
+					.startWithPathToCurrentView(controller).setViewMap(viewMap)
+					.addViewToPath(viewId).buildRequest());
+		}
+
+		List<String> getStackIds() {
+			final List<String> ids = new LinkedList<String>();
+			for (View view : controller.getViewStack()) {
+				ids.add(viewMap.getViewId(view));
+			}
+			return ids;
+		}
+	}
+
+	Node primary;
+
+	Node backup;
+
+	NavigationStateTracker tracker;
+
+	NavigationStateDeltaApplier applier;
+
+	List<byte[]> transport;
+
+	@Before
+	public void setUp() {
+		primary = new Node();
+		backup = new Node();
+		tracker = new NavigationStateTracker(primary.controller,
+				primary.viewMap);
+		applier = new NavigationStateDeltaApplier(backup.controller,
+				backup.viewMap);
+		transport = new LinkedList<byte[]>();
+	}
+
+	void send(NavigationStateDelta delta) {
+		transport.add(delta.toByteArray());
+	}
+
+	void receiveAll() {
+		while (!transport.isEmpty()) {
+			applier.apply(NavigationStateDelta.fromByteArray(transport
+					.remove(0)));
+		}
+	}
+
+	@Test
+	public void checkpoint_NoChanges() {
+		final NavigationStateDelta delta = tracker.checkpoint();
+		assertTrue(delta.isEmpty());
+		assertEquals(0, delta.getFromVersion());
+		assertEquals(0, delta.getToVersion());
+		assertFalse(tracker.isDirty());
+	}
+
+	@Test
+	public void replicateNavigation() {
+		primary.navigateTo("home");
+		primary.navigateTo("list");
+		assertTrue(tracker.isDirty());
+		send(tracker.checkpoint());
+		primary.navigateTo("details");
+		send(tracker.checkpoint());
+		receiveAll();
+
+		assertEquals(primary.getStackIds(), backup.getStackIds());
+		assertSame(backup.getView("details"),
+				backup.controller.getCurrentView());
+		assertEquals(2, applier.getVersion());
+	}
+
+	@Test
+	public void replicateNavigateBack() {
+		primary.navigateTo("home");
+		primary.navigateTo("list");
+		primary.navigateTo("details");
+		send(tracker.checkpoint());
+		primary.controller.navigateBack();
+		primary.controller.navigateBack();
+		send(tracker.checkpoint());
+		receiveAll();
+
+		assertEquals(primary.getStackIds(), backup.getStackIds());
+		assertEquals(1, backup.controller.getViewStack().size());
+	}
+
+	@Test
+	public void replicateClear() {
+		primary.navigateTo("home");
+		send(tracker.checkpoint());
+		primary.controller.clear();
+		send(tracker.checkpoint());
+		receiveAll();
+
+		assertTrue(backup.controller.isEmpty());
+	}
+
+	@Test
+	public void pushAndPopBetweenCheckpointsAreCoalesced() {
+		primary.navigateTo("home");
+		send(tracker.checkpoint());
+		primary.navigateTo("list");
+		primary.navigateTo("details");
+		primary.controller.navigateBack();
+		primary.controller.navigateBack();
+
+		final NavigationStateDelta delta = tracker.checkpoint();
+		assertTrue(delta.isEmpty());
+	}
+
+	@Test
+	public void replicateDisplayNameAndDescription() {
+		primary.navigateTo("home");
+		primary.getView("home").changeDisplayName("First");
+		primary.getView("home").changeDisplayName("Home");
+		primary.getView("home").changeDescription("The home view");
+		final NavigationStateDelta delta = tracker.checkpoint();
+		// Only the latest display name should be included
+		assertEquals(3, delta.getOperations().size());
+		send(delta);
+		receiveAll();
+
+		assertEquals("Home", backup.getView("home").getDisplayName());
+		assertEquals("The home view", backup.getView("home")
+				.getViewDescription());
+	}
+
+	@Test
+	public void displayNamesOfViewsNotInStackAreNotTracked() {
+		primary.getView("list").changeDisplayName("List");
+		assertFalse(tracker.isDirty());
+	}
+
+	@Test
+	public void detachedViewsAreNoLongerTracked() {
+		primary.navigateTo("home");
+		primary.navigateTo("list");
+		primary.controller.navigateBack();
+		tracker.checkpoint();
+		primary.getView("list").changeDisplayName("List");
+		assertFalse(tracker.isDirty());
+	}
+
+	@Test
+	public void snapshot() {
+		primary.navigateTo("home");
+		primary.navigateTo("list");
+		primary.getView("list").changeDisplayName("List");
+		tracker.checkpoint();
+		// The backup missed the first checkpoint
+
+		final NavigationStateDelta snapshot = tracker.snapshot();
+		assertTrue(snapshot.isSnapshot());
+		assertEquals(OperationType.CLEAR, snapshot.getOperations().get(0)
+				.getType());
+		send(snapshot);
+		receiveAll();
+
+		assertEquals(primary.getStackIds(), backup.getStackIds());
+		assertEquals("List", backup.getView("list").getDisplayName());
+		assertEquals(tracker.getVersion(), applier.getVersion());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void apply_OutOfSequence() {
+		primary.navigateTo("home");
+		tracker.checkpoint();
+		primary.navigateTo("list");
+		applier.apply(tracker.checkpoint());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void checkpoint_ViewNotInMap() {
+		primary.navigateTo("home");
+		primary.controller.navigate(NavigationRequestBuilder.newInstance().startWithPathToCurrentView(primary.controller)
+				.addViewToPath(new MyTestViewImpl()).buildRequest());
+		tracker.checkpoint();
+	}
+
+	@Test
+	public void stopTracking() {
+		primary.navigateTo("home");
+		tracker.checkpoint();
+		tracker.stopTracking();
+		primary.navigateTo("list");
+		primary.getView("home").changeDisplayName("Home");
+		assertFalse(tracker.isDirty());
+	}
+
+	@Test
+	public void serializeAndDeserializeDelta() throws Exception {
+		primary.navigateTo("home");
+		primary.getView("home").changeDisplayName(null);
+		final NavigationStateDelta delta = tracker.checkpoint();
+		final NavigationStateDelta copy = SerializationTestUtil
+				.serializeAndDeserialize(delta);
+		assertEquals(delta.getFromVersion(), copy.getFromVersion());
+		assertEquals(delta.getToVersion(), copy.getToVersion());
+		assertEquals(delta.getOperations().toString(), copy.getOperations()
+				.toString());
+		assertNull(copy.getOperations().get(1).getValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void fromByteArray_Invalid() {
+		NavigationStateDelta.fromByteArray(new byte[] { 1, 2, 3 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void fromByteArray_OperationCountLargerThanInput() {
+		final byte[] bytes = new byte[21];
+		// Versions and snapshot flag, followed by Integer.MAX_VALUE operations
+		bytes[17] = 0x7F;
+		bytes[18] = (byte) 0xFF;
+		bytes[19] = (byte) 0xFF;
+		bytes[20] = (byte) 0xFF;
+		NavigationStateDelta.fromByteArray(bytes);
+	}
+}
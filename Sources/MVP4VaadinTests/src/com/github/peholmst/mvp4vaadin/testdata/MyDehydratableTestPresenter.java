@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.testdata;
+
+import java.io.Serializable;
+
+import com.github.peholmst.mvp4vaadin.DehydratablePresenter;
+
+/**
+ * Test presenter class that supports dehydration.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+@SuppressWarnings("serial")
+public class MyDehydratableTestPresenter extends MyTestPresenter implements
+		DehydratablePresenter {
+
+	public String state;
+
+	public boolean restored = false;
+
+	@Override
+	public Serializable saveState() {
+		return state;
+	}
+
+	@Override
+	public void restoreState(Serializable state) {
+		assertInitialized();
+		this.state = (String) state;
+		restored = true;
+	}
+
+	private void assertInitialized() {
+		if (!initialized) {
+			throw new IllegalStateException("not initialized");
+		}
+	}
+}
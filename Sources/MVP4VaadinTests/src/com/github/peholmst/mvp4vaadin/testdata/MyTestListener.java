@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2011 Petter Holmström
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.peholmst.mvp4vaadin.testdata;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.github.peholmst.mvp4vaadin.ViewEvent;
+import com.github.peholmst.mvp4vaadin.ViewListener;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerEvent;
+import com.github.peholmst.mvp4vaadin.navigation.NavigationControllerListener;
+
+/**
+ * Serializable listener that records all the events it receives.
+ * 
+ * @author Petter Holmström
+ * @since 1.0
+ */
+public class MyTestListener implements ViewListener,
+		NavigationControllerListener {
+
+	private static final long serialVersionUID = 6059216788823218911L;
+
+	public final List<Object> events = new LinkedList<Object>();
+
+	@Override
+	public void handleViewEvent(ViewEvent event) {
+		events.add(event);
+	}
+
+	@Override
+	public void handleNavigationControllerEvent(NavigationControllerEvent event) {
+		events.add(event);
+	}
+}
@@ -41,5 +41,13 @@ public class MyTestPresenter extends Presenter<MyTestView> {
 		super.init(); // Call to super() to get better test coverage even though the method is empty.
 		initialized = true;
 	}
+
+	public boolean disposed = false;
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		disposed = true;
+	}
 	
 }
@@ -36,6 +36,14 @@ public class MyTestViewImpl extends AbstractView<MyTestView, MyTestPresenter>
 		super(initialize);
 	}
 	
+	public boolean viewDisposed = false;
+
+	@Override
+	public void disposeView() {
+		super.disposeView();
+		viewDisposed = true;
+	}
+
 	@Override
 	public AdaptableSupport getAdaptableSupport() {
 		return super.getAdaptableSupport();